@@ -20,12 +20,19 @@
 package org.apache.metron.profiler.spark.reader;
 
 import com.google.common.collect.Maps;
+import org.apache.spark.api.java.function.MapFunction;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.apache.metron.profiler.spark.BatchProfilerConfig.TELEMETRY_INPUT_FORMAT;
@@ -37,11 +44,19 @@ import static org.apache.metron.profiler.spark.BatchProfilerConfig.TELEMETRY_INP
  *
  * <p>This {@link TelemetryReader} is useful for any column-oriented format that
  * is supported by Spark.  For example, ORC and Parquet.
+ *
+ * <p>The fields which the HDFS writer stores in the 'extras' map of a Parquet file,
+ * rather than in their own column, are returned to the top-level of each message.
  */
 public class ColumnEncodedTelemetryReader implements TelemetryReader {
 
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * The column of the fields of a message which have no column of their own.
+   */
+  public static final String EXTRAS_COLUMN = "extras";
+
   /**
    * The input format to use when reading telemetry.
    */
@@ -74,11 +89,33 @@ public class ColumnEncodedTelemetryReader implements TelemetryReader {
     }
     LOG.debug("Loading telemetry; inputPath={}, inputFormat={}", inputPath, inputFormat);
 
-    return spark
+    Dataset<Row> telemetry = spark
             .read()
             .options(Maps.fromProperties(readerProps))
             .format(inputFormat)
-            .load(inputPath)
-            .toJSON();
+            .load(inputPath);
+    if(Arrays.asList(telemetry.columns()).contains(EXTRAS_COLUMN)) {
+      return telemetry.toJSON().map(new FlattenExtrasFunction(), Encoders.STRING());
+    }
+    return telemetry.toJSON();
+  }
+
+  /**
+   * Moves the fields in the 'extras' map to the top-level of a message.
+   */
+  static class FlattenExtrasFunction implements MapFunction<String, String> {
+
+    @Override
+    public String call(String json) throws Exception {
+      JSONObject message = (JSONObject) new JSONParser().parse(json);
+      Object extras = message.remove(EXTRAS_COLUMN);
+      if(extras instanceof Map) {
+        for(Object field : ((Map) extras).entrySet()) {
+          Map.Entry entry = (Map.Entry) field;
+          message.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+      }
+      return message.toJSONString();
+    }
   }
 }
@@ -22,6 +22,8 @@ import org.apache.metron.profiler.spark.reader.TelemetryReaders;
 import org.apache.spark.SparkConf;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.SparkSession;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
@@ -30,6 +32,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.util.List;
 import java.util.Properties;
 
 import static org.apache.metron.profiler.spark.BatchProfilerConfig.TELEMETRY_INPUT_FORMAT;
@@ -95,6 +98,27 @@ public class ColumnEncodedTelemetryReaderTest {
     Assert.assertEquals(100, telemetry.filter(new IsValidJSON()).count());
   }
 
+  @Test
+  public void testParquetExtras() throws Exception {
+    // write Parquet as the HDFS writer does, with the fields that are not columns in a map of 'extras'
+    String inputPath = tempFolder.getRoot().getAbsolutePath();
+    spark.sql("SELECT '10.0.0.1' AS ip_src_addr, map('ip_src_port', '1234', 'ip_src_addr', '10.0.0.2') AS extras")
+            .write()
+            .mode("overwrite")
+            .format("parquet")
+            .save(inputPath);
+    profilerProperties.put(TELEMETRY_INPUT_PATH.getKey(), inputPath);
+    profilerProperties.put(TELEMETRY_INPUT_FORMAT.getKey(), "parquet");
+
+    // the extras are moved to the top-level, without replacing a column
+    List<String> telemetry = TelemetryReaders.COLUMNAR.read(spark, profilerProperties, readerProperties).collectAsList();
+    Assert.assertEquals(1, telemetry.size());
+    JSONObject message = (JSONObject) new JSONParser().parse(telemetry.get(0));
+    Assert.assertEquals("10.0.0.1", message.get("ip_src_addr"));
+    Assert.assertEquals("1234", message.get("ip_src_port"));
+    Assert.assertFalse(message.containsKey("extras"));
+  }
+
   @Test
   public void testORC() {
     // re-write the test data as column-oriented ORC
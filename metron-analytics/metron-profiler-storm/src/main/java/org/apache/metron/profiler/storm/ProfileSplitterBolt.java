@@ -22,6 +22,7 @@ package org.apache.metron.profiler.storm;
 
 import org.apache.metron.common.bolt.ConfiguredProfilerBolt;
 import org.apache.metron.common.configuration.profiler.ProfilerConfig;
+import org.apache.metron.common.message.MessageEncodings;
 import org.apache.metron.profiler.DefaultMessageRouter;
 import org.apache.metron.profiler.MessageRoute;
 import org.apache.metron.profiler.MessageRouter;
@@ -33,12 +34,10 @@ import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.List;
 import java.util.Map;
@@ -88,11 +87,6 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
 
   private OutputCollector collector;
 
-  /**
-   * JSON parser.
-   */
-  private transient JSONParser parser;
-
   /**
    * The router responsible for routing incoming messages.
    */
@@ -109,7 +103,6 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
   public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
     super.prepare(stormConf, context, collector);
     this.collector = collector;
-    this.parser = new JSONParser();
     this.router = new DefaultMessageRouter(getStellarContext());
   }
 
@@ -154,7 +147,7 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
     }
   }
 
-  private void doExecute(Tuple input) throws ParseException, UnsupportedEncodingException {
+  private void doExecute(Tuple input) throws IOException {
 
     // retrieve the input message
     byte[] data = input.getBinaryByField(VALUE.getFieldName());
@@ -170,7 +163,7 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
       return;
     }
 
-    JSONObject message = (JSONObject) parser.parse(new String(data, "UTF8"));
+    JSONObject message = MessageEncodings.decodeAny(data);
     routeMessage(input, message, config);
   }
 
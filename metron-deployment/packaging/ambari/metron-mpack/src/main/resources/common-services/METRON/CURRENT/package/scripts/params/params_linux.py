@@ -347,6 +347,12 @@ unified_threat_intel_parallelism = config['configurations']['metron-enrichment-e
 unified_kafka_writer_parallelism = config['configurations']['metron-enrichment-env']['unified_kafka_writer_parallelism']
 unified_enrichment_cache_size = config['configurations']['metron-enrichment-env']['unified_enrichment_cache_size']
 unified_threat_intel_cache_size = config['configurations']['metron-enrichment-env']['unified_threat_intel_cache_size']
+unified_enrichment_shared_cache_path = config['configurations']['metron-enrichment-env']['unified_enrichment_shared_cache_path']
+unified_enrichment_shared_cache_size = config['configurations']['metron-enrichment-env']['unified_enrichment_shared_cache_size']
+unified_enrichment_lookup_batch_size = config['configurations']['metron-enrichment-env']['unified_enrichment_lookup_batch_size']
+unified_threat_intel_lookup_batch_size = config['configurations']['metron-enrichment-env']['unified_threat_intel_lookup_batch_size']
+unified_enrichment_max_in_flight = config['configurations']['metron-enrichment-env']['unified_enrichment_max_in_flight']
+unified_threat_intel_max_in_flight = config['configurations']['metron-enrichment-env']['unified_threat_intel_max_in_flight']
 unified_enrichment_threadpool_size = config['configurations']['metron-enrichment-env']['unified_enrichment_threadpool_size']
 unified_enrichment_threadpool_type = config['configurations']['metron-enrichment-env']['unified_enrichment_threadpool_type']
 
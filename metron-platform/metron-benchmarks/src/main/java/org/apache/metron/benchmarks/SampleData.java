@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the sample data and configs that the benchmarks are driven by.  These are copied from the
+ * integration tests and the default configs when the module is built.
+ */
+public enum SampleData {
+  INSTANCE;
+
+  public static final String SAMPLE_DATA = "/sample/data/";
+  public static final String PARSER_CONFIGS = "/config/parsers/";
+  public static final String ENRICHMENT_CONFIGS = "/config/enrichments/";
+
+  /**
+   * Reads the non-empty lines of a resource.
+   *
+   * @param resource The path of the resource.
+   * @return The lines of the resource.
+   */
+  public List<String> readLines(String resource) throws IOException {
+    List<String> ret = new ArrayList<>();
+    for(String line : read(resource).split("\n")) {
+      if(!line.trim().isEmpty()) {
+        ret.add(line);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Reads a resource as a string.
+   *
+   * @param resource The path of the resource.
+   * @return The contents of the resource.
+   */
+  public String read(String resource) throws IOException {
+    try(InputStream in = open(resource)) {
+      return IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Reads the values of a sequence file resource, such as the sample packets.
+   *
+   * @param resource The path of the resource.
+   * @return The value of each record.
+   */
+  public List<byte[]> readSequenceFile(String resource) throws IOException {
+    // the sequence file reader requires a file system, rather than a stream
+    File file = File.createTempFile("benchmark", ".seq");
+    file.deleteOnExit();
+    try(InputStream in = open(resource)) {
+      Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    List<byte[]> ret = new ArrayList<>();
+    try(SequenceFile.Reader reader = new SequenceFile.Reader(new Configuration(), SequenceFile.Reader.file(new Path(file.getAbsolutePath())))) {
+      IntWritable key = new IntWritable();
+      BytesWritable value = new BytesWritable();
+      while(reader.next(key, value)) {
+        ret.add(value.copyBytes());
+      }
+    }
+    return ret;
+  }
+
+  private InputStream open(String resource) throws IOException {
+    InputStream in = SampleData.class.getResourceAsStream(resource);
+    if(in == null) {
+      throw new IOException("Unable to find " + resource + " on the classpath");
+    }
+    return in;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.enrichment;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.benchmarks.SampleData;
+import org.apache.metron.common.Constants;
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.enrichment.adapters.stellar.StellarAdapter;
+import org.apache.metron.enrichment.bolt.CacheKey;
+import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
+import org.apache.metron.enrichment.parallel.ConcurrencyContext;
+import org.apache.metron.enrichment.parallel.EnrichmentStrategies;
+import org.apache.metron.enrichment.parallel.ParallelEnricher;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ParallelEnricher#apply(JSONObject, EnrichmentStrategies, SensorEnrichmentConfig, org.apache.metron.common.performance.PerformanceLogger)}
+ * with Stellar enrichments against the parsed Snort sample data.  The enricher caches the result of each
+ * enrichment, so the benchmark is run both with a cache large enough to hold the sample data and with no
+ * cache at all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelEnricherBenchmark {
+
+  public static final String ENRICHMENT_CONFIG = "{"
+          + "\"enrichment\" : {"
+          + "  \"fieldMap\" : {"
+          + "    \"stellar\" : {"
+          + "      \"config\" : {"
+          + "        \"is_internal\" : \"IN_SUBNET(ip_src_addr, '10.0.0.0/8', '192.168.0.0/16')\","
+          + "        \"src_port\" : \"TO_INTEGER(ip_src_port)\","
+          + "        \"dst_port\" : \"TO_INTEGER(ip_dst_port)\","
+          + "        \"msg_lower\" : \"TO_LOWER(msg)\""
+          + "      }"
+          + "    }"
+          + "  },"
+          + "  \"fieldToTypeMap\" : { }"
+          + "},"
+          + "\"threatIntel\" : { }"
+          + "}";
+
+  /**
+   * The maximum number of enrichment results cached.  The enrichment cache is shared, so each size is
+   * run in its own fork.
+   */
+  @Param({"0", "100"})
+  public long cacheSize;
+
+  private ParallelEnricher enricher;
+  private SensorEnrichmentConfig config;
+  private JSONObject[] messages;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    ConcurrencyContext infrastructure = ConcurrencyContext.get(EnrichmentStrategies.ENRICHMENT);
+    infrastructure.initialize(5, cacheSize, 10, null, null, false);
+
+    Context stellarContext = new Context.Builder().build();
+    StellarFunctions.initialize(stellarContext);
+    StellarAdapter adapter = new StellarAdapter().ofType("ENRICHMENT");
+    adapter.initializeAdapter(new HashMap<>());
+    Map<String, EnrichmentAdapter<CacheKey>> enrichmentsByType = ImmutableMap.of("stellar", adapter);
+    enricher = new ParallelEnricher(enrichmentsByType, infrastructure, false);
+
+    config = JSONUtils.INSTANCE.load(ENRICHMENT_CONFIG, SensorEnrichmentConfig.class);
+    config.getConfiguration().putIfAbsent("stellarContext", stellarContext);
+
+    List<String> lines = SampleData.INSTANCE.readLines(SampleData.SAMPLE_DATA + "snort/parsed/SnortParsed");
+    messages = new JSONObject[lines.size()];
+    for(int i = 0; i < messages.length; ++i) {
+      messages[i] = (JSONObject) new JSONParser().parse(lines.get(i));
+      messages[i].put(Constants.SENSOR_TYPE, "snort");
+    }
+  }
+
+  @Benchmark
+  public Object apply() throws Exception {
+    next = (next + 1) % messages.length;
+    return enricher.apply(messages[next], EnrichmentStrategies.ENRICHMENT, config, null);
+  }
+}
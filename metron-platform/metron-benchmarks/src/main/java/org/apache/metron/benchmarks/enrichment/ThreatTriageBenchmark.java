@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.enrichment;
+
+import org.apache.metron.benchmarks.SampleData;
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.threatintel.triage.ThreatTriageProcessor;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link ThreatTriageProcessor} with the default Snort triage rules against the parsed Snort
+ * sample data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreatTriageBenchmark {
+
+  private ThreatTriageProcessor processor;
+  private JSONObject[] messages;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    SensorEnrichmentConfig config = JSONUtils.INSTANCE.load(
+            SampleData.INSTANCE.read(SampleData.ENRICHMENT_CONFIGS + "snort.json"), SensorEnrichmentConfig.class);
+    Context context = Context.EMPTY_CONTEXT();
+    StellarFunctions.initialize(context);
+    processor = new ThreatTriageProcessor(config, StellarFunctions.FUNCTION_RESOLVER(), context);
+
+    List<String> lines = SampleData.INSTANCE.readLines(SampleData.SAMPLE_DATA + "snort/parsed/SnortParsed");
+    messages = new JSONObject[lines.size()];
+    for(int i = 0; i < messages.length; ++i) {
+      messages[i] = (JSONObject) new JSONParser().parse(lines.get(i));
+    }
+  }
+
+  @Benchmark
+  public Object apply() {
+    next = (next + 1) % messages.length;
+    return processor.apply(messages[next]);
+  }
+}
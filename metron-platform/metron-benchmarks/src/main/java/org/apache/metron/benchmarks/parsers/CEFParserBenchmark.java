@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.parsers;
+
+import org.apache.metron.benchmarks.SampleData;
+import org.apache.metron.parsers.cef.CEFParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link CEFParser} against the CEF samples of its tests, with the patterns and with the scanner.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CEFParserBenchmark {
+
+  private static final String[] SAMPLES = { "adallom.cef", "cyberark.cef", "palo.cef", "waf.cef" };
+
+  @Param({"false", "true"})
+  public String scanner;
+
+  private CEFParser parser;
+  private byte[][] messages;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    Map<String, Object> parserConfig = new HashMap<>();
+    parserConfig.put(CEFParser.SCANNER_CONFIG, scanner);
+    parser = new CEFParser();
+    parser.configure(parserConfig);
+    parser.init();
+
+    List<String> lines = new ArrayList<>();
+    for(String sample : SAMPLES) {
+      lines.addAll(SampleData.INSTANCE.readLines(SampleData.SAMPLE_DATA + "cef/" + sample));
+    }
+    messages = new byte[lines.size()][];
+    for(int i = 0; i < messages.length; ++i) {
+      messages[i] = lines.get(i).getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  @Benchmark
+  public Object parse() {
+    next = (next + 1) % messages.length;
+    return parser.parseOptionalResult(messages[next]);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.parsers;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.benchmarks.SampleData;
+import org.apache.metron.common.csv.CSVConverter;
+import org.apache.metron.parsers.csv.CSVParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link CSVParser} against the Snort sample data, which is comma separated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSVParserBenchmark {
+
+  public static final List<String> SNORT_COLUMNS = ImmutableList.of(
+          "date", "sig_generator", "sig_id", "sig_rev", "msg", "protocol", "ip_src_addr", "ip_src_port",
+          "ip_dst_addr", "ip_dst_port", "ethsrc", "ethdst", "ethlen", "tcpflags", "tcpseq", "tcpack",
+          "tcplen", "tcpwindow", "ttl", "tos", "id", "dgmlen", "iplen", "icmptype", "icmpcode", "icmpid",
+          "icmpseq");
+
+  private CSVParser parser;
+  private byte[][] messages;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    parser = new CSVParser();
+    parser.configure(ImmutableMap.of(CSVConverter.COLUMNS_KEY, SNORT_COLUMNS));
+    parser.init();
+
+    List<String> lines = SampleData.INSTANCE.readLines(SampleData.SAMPLE_DATA + "snort/raw/SnortOutput");
+    messages = new byte[lines.size()][];
+    for(int i = 0; i < messages.length; ++i) {
+      messages[i] = lines.get(i).getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  @Benchmark
+  public Object parse() {
+    next = (next + 1) % messages.length;
+    return parser.parseOptionalResult(messages[next]);
+  }
+}
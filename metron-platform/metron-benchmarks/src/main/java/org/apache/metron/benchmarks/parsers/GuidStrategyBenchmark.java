@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.parsers;
+
+import org.apache.metron.common.message.GuidStrategies;
+import org.apache.metron.common.message.GuidStrategy;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of each {@link GuidStrategies} with 1, 4 and as many threads as there are processors,
+ * which shows how each strategy scales as the parallelism of a parser increases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuidStrategyBenchmark {
+
+  @Param({"RANDOM", "FAST_RANDOM", "TIME_ORDERED", "CONTENT_HASH"})
+  public String strategy;
+
+  private GuidStrategy guidStrategy;
+  private JSONObject message;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    guidStrategy = GuidStrategies.valueOf(strategy);
+    message = new JSONObject();
+    message.put("original_string", "1461576382.642    161 127.0.0.1 TCP_MISS/200 103701 GET http://www.cnn.com/ - DIRECT/199.27.79.73 text/html");
+    message.put("ip_src_addr", "127.0.0.1");
+    message.put("timestamp", 1461576382642L);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String oneThread() {
+    return guidStrategy.generate("squid", message);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String fourThreads() {
+    return guidStrategy.generate("squid", message);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String maxThreads() {
+    return guidStrategy.generate("squid", message);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.parsers;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.benchmarks.SampleData;
+import org.apache.metron.common.configuration.ParserConfigurations;
+import org.apache.metron.common.message.metadata.RawMessage;
+import org.apache.metron.parsers.ParserRunnerImpl;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ParserRunnerImpl#execute(String, RawMessage, ParserConfigurations)}, which parses a
+ * message and then applies the field transformations, validation and filters of the sensor.  The default
+ * Squid config includes Stellar field transformations.  The same work is also measured per message for
+ * batches of {@value #BATCH_SIZE} messages with
+ * {@link ParserRunnerImpl#executeBatch(String, List, ParserConfigurations)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserRunnerBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  private static final Map<String, String> SAMPLE_DATA = ImmutableMap.of(
+          "squid", "squid/raw/SquidExampleOutput",
+          "jsonMap", "jsonMap/raw/jsonMapExampleOutput");
+
+  @Param({"squid", "jsonMap"})
+  public String sensorType;
+
+  private ParserConfigurations configurations;
+  private ParserRunnerImpl runner;
+  private RawMessage[] messages;
+  private List<RawMessage> batch;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    configurations = new ParserConfigurations();
+    configurations.updateGlobalConfig(new HashMap<>());
+    configurations.updateSensorParserConfig(sensorType,
+            SampleData.INSTANCE.read(SampleData.PARSER_CONFIGS + sensorType + ".json").getBytes(StandardCharsets.UTF_8));
+
+    Context context = new Context.Builder()
+            .with(Context.Capabilities.GLOBAL_CONFIG, () -> configurations.getGlobalConfig())
+            .with(Context.Capabilities.STELLAR_CONFIG, () -> configurations.getGlobalConfig())
+            .build();
+    StellarFunctions.initialize(context);
+    runner = new ParserRunnerImpl(new HashSet<>(Collections.singleton(sensorType)));
+    runner.init(() -> configurations, context);
+
+    List<String> lines = SampleData.INSTANCE.readLines(SampleData.SAMPLE_DATA + SAMPLE_DATA.get(sensorType));
+    messages = new RawMessage[lines.size()];
+    for(int i = 0; i < messages.length; ++i) {
+      messages[i] = new RawMessage(lines.get(i).getBytes(StandardCharsets.UTF_8), new HashMap<>());
+    }
+    batch = new ArrayList<>(BATCH_SIZE);
+    for(int i = 0; i < BATCH_SIZE; ++i) {
+      batch.add(messages[i % messages.length]);
+    }
+  }
+
+  @Benchmark
+  public Object execute() {
+    next = (next + 1) % messages.length;
+    return runner.execute(sensorType, messages[next], configurations);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public Object executeBatch() {
+    return runner.executeBatch(sensorType, batch, configurations);
+  }
+}
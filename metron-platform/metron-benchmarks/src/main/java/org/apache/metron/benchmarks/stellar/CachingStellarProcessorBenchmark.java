@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.stellar;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.stellar.common.CachingStellarProcessor;
+import org.apache.metron.stellar.common.StellarProcessor;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.VariableResolver;
+import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of a result cache hit in the {@link CachingStellarProcessor} to the cost of
+ * evaluating the expression without a cache, for expressions typical of enrichments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachingStellarProcessorBenchmark {
+
+  @Param({
+          "IN_SUBNET(ip_src_addr, '192.168.0.0/16', '10.0.0.0/8')",
+          "TO_LOWER(DOMAIN_REMOVE_SUBDOMAINS(domain))",
+          "IF STARTS_WITH(url, 'https') THEN 'secure' ELSE 'insecure'",
+          "is_alert && LENGTH(payload) > 100"
+  })
+  public String expression;
+
+  private VariableResolver resolver;
+  private FunctionResolver functionResolver;
+  private StellarProcessor uncached;
+  private CachingStellarProcessor caching;
+  private Context contextWithCache;
+  private Context contextWithoutCache;
+
+  @Setup
+  public void setup() {
+    StringBuilder payload = new StringBuilder();
+    for(int i = 0; i < 50; ++i) {
+      payload.append("GET /index.html HTTP/1.1 ");
+    }
+    Map<String, Object> message = new HashMap<>();
+    message.put("ip_src_addr", "192.168.66.121");
+    message.put("domain", "www.apache.org");
+    message.put("url", "https://metron.apache.org/current-book/index.html");
+    message.put("is_alert", true);
+    message.put("payload", payload.toString());
+    resolver = new MapVariableResolver(message);
+
+    Cache<CachingStellarProcessor.Key, Object> cache = CachingStellarProcessor.createCache(ImmutableMap.of(
+            CachingStellarProcessor.MAX_CACHE_SIZE_PARAM, 1000,
+            CachingStellarProcessor.MAX_TIME_RETAIN_PARAM, 10));
+    contextWithCache = new Context.Builder()
+            .with(Context.Capabilities.CACHE, () -> cache)
+            .build();
+    contextWithoutCache = Context.EMPTY_CONTEXT();
+    StellarFunctions.initialize(contextWithoutCache);
+    functionResolver = StellarFunctions.FUNCTION_RESOLVER();
+    uncached = new StellarProcessor();
+    caching = new CachingStellarProcessor();
+
+    // warm the result cache, so that the cached benchmark only measures hits
+    caching.parse(expression, resolver, functionResolver, contextWithCache);
+  }
+
+  @Benchmark
+  public Object uncached() {
+    return uncached.parse(expression, resolver, functionResolver, contextWithoutCache);
+  }
+
+  @Benchmark
+  public Object cacheHit() {
+    return caching.parse(expression, resolver, functionResolver, contextWithCache);
+  }
+}
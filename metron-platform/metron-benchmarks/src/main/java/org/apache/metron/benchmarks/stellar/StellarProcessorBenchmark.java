@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.stellar;
+
+import org.apache.metron.stellar.common.BaseStellarProcessor;
+import org.apache.metron.stellar.common.StellarProcessor;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.VariableResolver;
+import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of compiling a Stellar expression and the cost of evaluating an expression
+ * that has already been compiled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StellarProcessorBenchmark {
+
+  @Param({
+          "ip_src_addr",
+          "1 + 2 * port",
+          "IN_SUBNET(ip_src_addr, '192.168.0.0/16', '10.0.0.0/8')",
+          "TO_LOWER(DOMAIN_REMOVE_SUBDOMAINS(URL_TO_HOST(url)))",
+          "IF ip_src_addr in [ '10.0.2.2', '10.0.2.15' ] THEN 'internal' ELSE 'external'",
+          "MAP_GET('score', { 'score' : port * 10, 'name' : TO_UPPER(domain) }, 0) > 100 && STARTS_WITH(url, 'http')"
+  })
+  public String expression;
+
+  private VariableResolver resolver;
+  private FunctionResolver functionResolver;
+  private Context context;
+  private StellarProcessor processor;
+
+  @Setup
+  public void setup() {
+    Map<String, Object> message = new HashMap<>();
+    message.put("ip_src_addr", "10.0.2.2");
+    message.put("port", 22);
+    message.put("domain", "www.apache.org");
+    message.put("url", "http://www.apache.org/dyn/closer.cgi");
+    resolver = new MapVariableResolver(message);
+
+    context = Context.EMPTY_CONTEXT();
+    StellarFunctions.initialize(context);
+    functionResolver = StellarFunctions.FUNCTION_RESOLVER();
+    processor = new StellarProcessor();
+
+    // compile the expression, so that the parse benchmark only measures evaluation
+    processor.parse(expression, resolver, functionResolver, context);
+  }
+
+  @Benchmark
+  public Object parse() {
+    return processor.parse(expression, resolver, functionResolver, context);
+  }
+
+  @Benchmark
+  public Object compile() {
+    return BaseStellarProcessor.compile(expression);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.writer;
+
+import org.apache.metron.benchmarks.SampleData;
+import org.apache.metron.common.configuration.IndexingConfigurations;
+import org.apache.metron.common.configuration.ParserConfigurations;
+import org.apache.metron.common.configuration.SensorParserConfig;
+import org.apache.metron.common.configuration.writer.ParserWriterConfiguration;
+import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.metron.common.message.MessageGetStrategy;
+import org.apache.metron.common.message.MessageGetters;
+import org.apache.metron.common.writer.BulkMessageWriter;
+import org.apache.metron.common.writer.BulkWriterResponse;
+import org.apache.metron.writer.BulkWriterComponent;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the {@link BulkWriterComponent}; that is, batching messages and acking their
+ * tuples, with a writer that does nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkWriterComponentBenchmark {
+
+  private static final String SENSOR_TYPE = "snort";
+
+  @Param({"1", "100"})
+  public int batchSize;
+
+  private BulkWriterComponent<JSONObject> component;
+  private BulkMessageWriter<JSONObject> writer;
+  private WriterConfiguration configurations;
+  private MessageGetStrategy messageGetStrategy;
+  private Tuple[] tuples;
+  private JSONObject[] messages;
+  private int next;
+
+  /**
+   * A writer that succeeds without writing anything.
+   */
+  public static class NoopWriter implements BulkMessageWriter<JSONObject> {
+
+    @Override
+    public void init(Map stormConf, TopologyContext topologyContext, WriterConfiguration config) {
+    }
+
+    @Override
+    public BulkWriterResponse write(String sensorType, WriterConfiguration configurations, Iterable<Tuple> tuples, List<JSONObject> messages) {
+      BulkWriterResponse response = new BulkWriterResponse();
+      response.addAllSuccesses(tuples);
+      return response;
+    }
+
+    @Override
+    public String getName() {
+      return "noop";
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    SensorParserConfig sensorConfig = new SensorParserConfig();
+    sensorConfig.getParserConfig().put(IndexingConfigurations.BATCH_SIZE_CONF, batchSize);
+    ParserConfigurations parserConfigurations = new ParserConfigurations();
+    parserConfigurations.updateSensorParserConfig(SENSOR_TYPE, sensorConfig);
+    configurations = new ParserWriterConfiguration(parserConfigurations);
+
+    // acks are dropped; the collector is only used to ack the tuples written
+    OutputCollector collector = new OutputCollector(null) {
+      @Override
+      public void ack(Tuple input) {
+      }
+    };
+    component = new BulkWriterComponent<>(collector);
+    writer = new NoopWriter();
+    messageGetStrategy = MessageGetters.DEFAULT_JSON_FROM_FIELD.get();
+
+    List<String> lines = SampleData.INSTANCE.readLines(SampleData.SAMPLE_DATA + "snort/parsed/SnortParsed");
+    messages = new JSONObject[lines.size()];
+    tuples = new Tuple[lines.size()];
+    for(int i = 0; i < messages.length; ++i) {
+      messages[i] = (JSONObject) new JSONParser().parse(lines.get(i));
+      tuples[i] = createTuple();
+    }
+  }
+
+  @Benchmark
+  public void write() throws Exception {
+    next = (next + 1) % messages.length;
+    component.write(SENSOR_TYPE, tuples[next], messages[next], writer, configurations, messageGetStrategy);
+  }
+
+  /**
+   * Tuples are only collected and acked by the component, so a tuple need only support identity.
+   */
+  private static Tuple createTuple() {
+    return (Tuple) Proxy.newProxyInstance(Tuple.class.getClassLoader(), new Class<?>[] { Tuple.class },
+            (proxy, method, args) -> {
+              switch(method.getName()) {
+                case "hashCode":
+                  return System.identityHashCode(proxy);
+                case "equals":
+                  return proxy == args[0];
+                case "toString":
+                  return "tuple@" + System.identityHashCode(proxy);
+                default:
+                  throw new UnsupportedOperationException(method.getName());
+              }
+            });
+  }
+}
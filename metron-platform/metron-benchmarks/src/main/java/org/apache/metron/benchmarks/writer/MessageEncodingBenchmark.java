@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.writer;
+
+import org.apache.metron.benchmarks.SampleData;
+import org.apache.metron.common.message.MessageEncodings;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding the parsed Snort sample data with each of the {@link MessageEncodings}, as the
+ * {@code KafkaWriter} does, and decoding it again, as the readers of the next topology do.  The average
+ * number of bytes per message of each encoding is printed when the benchmark is set up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageEncodingBenchmark {
+
+  @Param({"JSON", "SMILE"})
+  public String encoding;
+
+  private MessageEncodings messageEncoding;
+  private JSONObject[] messages;
+  private byte[][] encoded;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    messageEncoding = MessageEncodings.valueOf(encoding);
+    List<String> lines = SampleData.INSTANCE.readLines(SampleData.SAMPLE_DATA + "snort/parsed/SnortParsed");
+    messages = new JSONObject[lines.size()];
+    encoded = new byte[lines.size()][];
+    long bytes = 0;
+    for(int i = 0; i < messages.length; ++i) {
+      messages[i] = (JSONObject) new JSONParser().parse(lines.get(i));
+      encoded[i] = messageEncoding.encode(messages[i]);
+      bytes += encoded[i].length;
+    }
+    System.out.println(String.format("%s: %.1f bytes per message", encoding, (double) bytes / messages.length));
+  }
+
+  @Benchmark
+  public byte[] encode() throws Exception {
+    next = (next + 1) % messages.length;
+    return messageEncoding.encode(messages[next]);
+  }
+
+  @Benchmark
+  public JSONObject decode() throws Exception {
+    next = (next + 1) % encoded.length;
+    return MessageEncodings.decodeAny(encoded[next]);
+  }
+}
@@ -30,10 +30,13 @@ import org.apache.metron.common.configuration.Configurations;
 import org.apache.metron.common.configuration.ConfigurationsUtils;
 import org.apache.metron.common.configuration.writer.ConfigurationStrategy;
 import org.apache.metron.common.configuration.writer.ConfigurationsStrategies;
+import org.apache.metron.common.performance.ExpressionCacheMetric;
 import org.apache.metron.zookeeper.SimpleEventListener;
 import org.apache.metron.common.zookeeper.configurations.ConfigurationsUpdater;
 import org.apache.metron.common.zookeeper.configurations.Reloadable;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.zookeeper.ZKCache;
+import org.apache.storm.Config;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.base.BaseRichBolt;
@@ -43,6 +46,7 @@ import org.slf4j.LoggerFactory;
 public abstract class ConfiguredBolt<CONFIG_T extends Configurations> extends BaseRichBolt implements Reloadable {
 
   private static final Logger LOG =  LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int DEFAULT_METRICS_BUCKET_SECS = 60;
 
   private String zookeeperUrl;
   private String configurationStrategy;
@@ -84,6 +88,13 @@ public abstract class ConfiguredBolt<CONFIG_T extends Configurations> extends Ba
   @Override
   public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
     prepCache();
+    ExpressionCacheMetric.register(context, getMetricsBucketSecs(stormConf));
+  }
+
+  protected static int getMetricsBucketSecs(Map stormConf) {
+    Object secs = stormConf == null ? null : stormConf.get(Config.TOPOLOGY_BUILTIN_METRICS_BUCKET_SIZE_SECS);
+    Integer bucketSecs = ConversionUtils.convert(secs, Integer.class);
+    return bucketSecs == null || bucketSecs <= 0 ? DEFAULT_METRICS_BUCKET_SECS : bucketSecs;
   }
 
   protected void prepCache() {
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.stellar.common.ExpressionCache;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +69,7 @@ public class Configurations implements Serializable {
     if(globalConfig != null) {
       getConfigurations().put(ConfigurationType.GLOBAL.getTypeName(), globalConfig);
       validations = FieldValidator.readValidations(getGlobalConfig());
+      ExpressionCache.configure(getGlobalConfig());
     }
   }
 
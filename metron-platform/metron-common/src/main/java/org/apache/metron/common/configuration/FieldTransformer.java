@@ -106,20 +106,42 @@ public class FieldTransformer implements Serializable {
   }
 
   public Map<String, Object> transform(JSONObject input, Context context, Map<String, Object>... sensorConfig) {
+    return transformation.map(selectInput(input), getOutput(), config, context, sensorConfig);
+  }
+
+  public void transformAndUpdate(JSONObject message, Context context, Map<String, Object>... sensorConfig) {
+    update(message, transform(message, context, sensorConfig));
+  }
+
+  /**
+   * Transforms a batch of messages and updates each with its transformed fields.  This allows the transformation
+   * to share work between the messages of the batch; see {@link FieldTransformation#mapBatch(List, List, LinkedHashMap, Context, Map[])}.
+   */
+  public void transformAndUpdate(List<JSONObject> messages, Context context, Map<String, Object>... sensorConfig) {
+    List<Map<String, Object>> inputs = new ArrayList<>(messages.size());
+    for(JSONObject message : messages) {
+      inputs.add(selectInput(message));
+    }
+    List<Map<String, Object>> currentValues = transformation.mapBatch(inputs, getOutput(), config, context, sensorConfig);
+    for(int i = 0; i < messages.size(); ++i) {
+      update(messages.get(i), currentValues.get(i));
+    }
+  }
+
+  private Map<String, Object> selectInput(JSONObject input) {
     if(getInput() == null || getInput().isEmpty()) {
-      return transformation.map(input, getOutput(), config, context, sensorConfig);
+      return input;
     }
     else {
       Map<String, Object> in = new HashMap<>();
       for(String inputField : getInput()) {
         in.put(inputField, input.get(inputField));
       }
-      return transformation.map(in, getOutput(), config, context, sensorConfig);
+      return in;
     }
   }
 
-  public void transformAndUpdate(JSONObject message, Context context, Map<String, Object>... sensorConfig) {
-    Map<String, Object> currentValue = transform(message, context, sensorConfig);
+  private static void update(JSONObject message, Map<String, Object> currentValue) {
     if(currentValue != null) {
       for(Map.Entry<String, Object> kv : currentValue.entrySet()) {
         if(kv.getValue() == null) {
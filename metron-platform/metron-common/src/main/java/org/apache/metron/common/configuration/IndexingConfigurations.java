@@ -33,6 +33,9 @@ public class IndexingConfigurations extends Configurations {
   public static final String INDEX_CONF = "index";
   public static final String OUTPUT_PATH_FUNCTION_CONF = "outputPathFunction";
   public static final String FIELD_NAME_CONVERTER_CONF = "fieldNameConverter";
+  public static final String OUTPUT_SCHEMA_CONF = "outputSchema";
+  public static final String MAX_LATENCY_CONF = "maxLatencyMs";
+  public static final String MAX_BATCH_BYTES_CONF = "maxBatchBytes";
 
   public Map<String, Object> getSensorIndexingConfig(String sensorType, boolean emptyMapOnNonExistent) {
     Map<String, Object> ret = (Map<String, Object>) getConfigurations().get(getKey(sensorType));
@@ -110,6 +113,14 @@ public class IndexingConfigurations extends Configurations {
     return getBatchTimeout(getSensorIndexingConfig(sensorName, writerName));
   }
 
+  public long getMaxLatency(String sensorName, String writerName) {
+    return getMaxLatency(getSensorIndexingConfig(sensorName, writerName));
+  }
+
+  public long getMaxBatchBytes(String sensorName, String writerName) {
+    return getMaxBatchBytes(getSensorIndexingConfig(sensorName, writerName));
+  }
+
   /**
    * Returns all configured values of batchTimeout, for all configured sensors,
    * but only for the specific writer identified by {@code writerName}.  So, if it is
@@ -126,16 +137,39 @@ public class IndexingConfigurations extends Configurations {
     // for all sensor types within this capability.  We then enumerate all keys in configurations.keySet
     // and select those that match the key prefix, as being sensor keys.  The suffix substring of
     // each such key is used as a sensor name to query the batchTimeout settings, if any.
+    List<Integer> configuredBatchTimeouts = new ArrayList<>();
+    for (String configuredSensorName : getConfiguredSensorNames()) {
+      configuredBatchTimeouts.add(getBatchTimeout(configuredSensorName, writerName));
+    }
+    return configuredBatchTimeouts;
+  }
+
+  /**
+   * Returns all configured values of maxLatencyMs, for all configured sensors, but only for the
+   * specific writer identified by {@code writerName}, as {@link #getAllConfiguredTimeouts(String)}
+   * does for batchTimeout.
+   *
+   * @param writerName
+   * @return list of maximum latencies in milliseconds, one per configured sensor
+   */
+  public List<Long> getAllConfiguredMaxLatencies(String writerName) {
+    List<Long> configuredMaxLatencies = new ArrayList<>();
+    for (String configuredSensorName : getConfiguredSensorNames()) {
+      configuredMaxLatencies.add(getMaxLatency(configuredSensorName, writerName));
+    }
+    return configuredMaxLatencies;
+  }
+
+  private List<String> getConfiguredSensorNames() {
     String keyPrefixString = getKey("");
     int prefixStringLength = keyPrefixString.length();
-    List<Integer> configuredBatchTimeouts = new ArrayList<>();
+    List<String> configuredSensorNames = new ArrayList<>();
     for (String sensorKeyString : getConfigurations().keySet()) {
       if (sensorKeyString.startsWith(keyPrefixString)) {
-        String configuredSensorName = sensorKeyString.substring(prefixStringLength);
-        configuredBatchTimeouts.add(getBatchTimeout(configuredSensorName, writerName));
+        configuredSensorNames.add(sensorKeyString.substring(prefixStringLength));
       }
     }
-    return configuredBatchTimeouts;
+    return configuredSensorNames;
   }
 
   public String getIndex(String sensorName, String writerName) {
@@ -178,6 +212,22 @@ public class IndexingConfigurations extends Configurations {
                 );
   }
 
+  public static long getMaxLatency(Map<String, Object> conf) {
+    return getAs( MAX_LATENCY_CONF
+                 ,conf
+                , 0L
+                , Long.class
+                );
+  }
+
+  public static long getMaxBatchBytes(Map<String, Object> conf) {
+    return getAs( MAX_BATCH_BYTES_CONF
+                 ,conf
+                , 0L
+                , Long.class
+                );
+  }
+
   public static String getIndex(Map<String, Object> conf, String sensorName) {
     return getAs( INDEX_CONF
                  ,conf
@@ -198,6 +248,10 @@ public class IndexingConfigurations extends Configurations {
     return getAs(FIELD_NAME_CONVERTER_CONF, conf, "", String.class);
   }
 
+  public static Map<String, Object> getOutputSchema(Map<String, Object> conf, String sensorName) {
+    return getAs(OUTPUT_SCHEMA_CONF, conf, null, Map.class);
+  }
+
   public static Map<String, Object> setEnabled(Map<String, Object> conf, boolean enabled) {
     Map<String, Object> ret = conf == null?new HashMap<>():conf;
     ret.put(ENABLED_CONF, enabled);
@@ -21,6 +21,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.metron.common.message.GuidStrategies;
+import org.apache.metron.common.message.GuidStrategy;
 import org.apache.metron.common.message.metadata.RawMessageStrategy;
 import org.apache.metron.common.message.metadata.RawMessageStrategies;
 import org.apache.metron.common.utils.JSONUtils;
@@ -224,6 +226,11 @@ public class SensorParserConfig implements Serializable {
    */
   private Map<String, Object> rawMessageStrategyConfig = new HashMap<>();
 
+  /**
+   * The strategy used to generate the guid of each parsed message that does not already have one.
+   */
+  private GuidStrategy guidStrategy = GuidStrategies.RANDOM;
+
   public RawMessageStrategy getRawMessageStrategy() {
     return rawMessageStrategy;
   }
@@ -232,6 +239,14 @@ public class SensorParserConfig implements Serializable {
     this.rawMessageStrategy = RawMessageStrategies.valueOf(rawMessageSupplierName);
   }
 
+  public GuidStrategy getGuidStrategy() {
+    return guidStrategy;
+  }
+
+  public void setGuidStrategy(String guidStrategyName) {
+    this.guidStrategy = GuidStrategies.valueOf(guidStrategyName);
+  }
+
   public Map<String, Object> getRawMessageStrategyConfig() {
     return rawMessageStrategyConfig;
   }
@@ -477,6 +492,7 @@ public class SensorParserConfig implements Serializable {
             .append(fieldTransformations, that.fieldTransformations)
             .append(rawMessageStrategy, that.rawMessageStrategy)
             .append(rawMessageStrategyConfig, that.rawMessageStrategyConfig)
+            .append(guidStrategy, that.guidStrategy)
             .isEquals();
   }
 
@@ -508,6 +524,7 @@ public class SensorParserConfig implements Serializable {
             .append(fieldTransformations)
             .append(rawMessageStrategy)
             .append(rawMessageStrategyConfig)
+            .append(guidStrategy)
             .toHashCode();
   }
 
@@ -539,6 +556,7 @@ public class SensorParserConfig implements Serializable {
             .append("fieldTransformations", fieldTransformations)
             .append("rawMessageStrategy", rawMessageStrategy)
             .append("rawMessageStrategyConfig", rawMessageStrategyConfig)
+            .append("guidStrategy", guidStrategy)
             .toString();
   }
 }
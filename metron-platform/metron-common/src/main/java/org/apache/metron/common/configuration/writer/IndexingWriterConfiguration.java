@@ -43,11 +43,26 @@ public class IndexingWriterConfiguration implements WriterConfiguration{
     return config.orElse(new IndexingConfigurations()).getBatchTimeout(sensorName, writerName);
   }
 
+  @Override
+  public long getMaxLatency(String sensorName) {
+    return config.orElse(new IndexingConfigurations()).getMaxLatency(sensorName, writerName);
+  }
+
+  @Override
+  public long getMaxBatchBytes(String sensorName) {
+    return config.orElse(new IndexingConfigurations()).getMaxBatchBytes(sensorName, writerName);
+  }
+
   @Override
   public List<Integer> getAllConfiguredTimeouts() {
       return config.orElse(new IndexingConfigurations()).getAllConfiguredTimeouts(writerName);
   }
 
+  @Override
+  public List<Long> getAllConfiguredMaxLatencies() {
+    return config.orElse(new IndexingConfigurations()).getAllConfiguredMaxLatencies(writerName);
+  }
+
   @Override
   public String getIndex(String sensorName) {
     return config.orElse(new IndexingConfigurations()).getIndex(sensorName, writerName);
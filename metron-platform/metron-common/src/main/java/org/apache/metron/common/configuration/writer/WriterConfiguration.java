@@ -21,6 +21,7 @@ package org.apache.metron.common.configuration.writer;
 import org.apache.metron.common.field.FieldNameConverter;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -50,12 +51,43 @@ public interface WriterConfiguration extends Serializable {
    */
   int getBatchTimeout(String sensorName);
 
+  /**
+   * Defines the most time a message of a given sensor should wait to be written, including the
+   * time taken to write it.  When positive, the batch size and timeout adapt to the rate of
+   * messages and the latency of the writer to meet it, with the batch size as the largest batch.
+   *
+   * @param sensorName The name of the sensor.
+   * @return The maximum latency in milliseconds, or 0 if there is none.
+   */
+  default long getMaxLatency(String sensorName) {
+    return 0;
+  }
+
+  /**
+   * Defines the largest batch of a given sensor, in bytes of the messages.  When positive, the
+   * batch size adapts to the observed size of the messages to stay under it.
+   *
+   * @param sensorName The name of the sensor.
+   * @return The maximum bytes of a batch, or 0 if there is none.
+   */
+  default long getMaxBatchBytes(String sensorName) {
+    return 0;
+  }
+
   /**
    * Returns the batch timeouts for all of the currently configured sensors.
    * @return All of the batch timeouts.
    */
   List<Integer> getAllConfiguredTimeouts();
 
+  /**
+   * Returns the maximum latencies for all of the currently configured sensors.
+   * @return All of the maximum latencies in milliseconds.
+   */
+  default List<Long> getAllConfiguredMaxLatencies() {
+    return Collections.emptyList();
+  }
+
   /**
    * The name of the index to write to for a given sensor.
    *
@@ -54,12 +54,23 @@ public class CSVConverter implements Serializable {
   }
 
   public Map<String, String> toMap(String line) throws IOException {
+    return toMap(line, columnMap);
+  }
+
+  /**
+   * Transforms a line into a map of only some of the columns.
+   *
+   * @param line The line to transform.
+   * @param columns The columns to extract, which are usually a subset of the {@link #getColumnMap()}.
+   * @return The values of the columns, or null if the line is ignored.
+   */
+  public Map<String, String> toMap(String line, Map<String, Integer> columns) throws IOException {
     if(ignore(line)) {
       return null;
     }
     String[] tokens = parser.parseLine(line);
     Map<String, String> values = new HashMap<>();
-    for(Map.Entry<String, Integer> kv : columnMap.entrySet()) {
+    for(Map.Entry<String, Integer> kv : columns.entrySet()) {
       values.put(kv.getKey().trim(), tokens[kv.getValue()].trim());
     }
     return values;
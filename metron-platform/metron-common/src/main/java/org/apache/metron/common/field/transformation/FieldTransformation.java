@@ -21,6 +21,7 @@ package org.apache.metron.common.field.transformation;
 import org.apache.metron.stellar.dsl.Context;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,4 +33,24 @@ public interface FieldTransformation extends Serializable {
                          , Context context
                          , Map<String, Object>... sensorConfig
                          );
+
+  /**
+   * Transforms a batch of messages.  By default each message is transformed in turn; transformations that can
+   * share work between the messages of a batch should override this.
+   *
+   * @return The transformed fields of each message, in the order of the inputs.
+   */
+  default List<Map<String, Object>> mapBatch( List<Map<String, Object>> inputs
+                                            , List<String> outputField
+                                            , LinkedHashMap<String, Object> fieldMappingConfig
+                                            , Context context
+                                            , Map<String, Object>... sensorConfig
+                                            )
+  {
+    List<Map<String, Object>> ret = new ArrayList<>(inputs.size());
+    for(Map<String, Object> input : inputs) {
+      ret.add(map(input, outputField, fieldMappingConfig, context, sensorConfig));
+    }
+    return ret;
+  }
 }
@@ -19,6 +19,7 @@
 package org.apache.metron.common.field.transformation;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -29,7 +30,11 @@ import org.apache.metron.stellar.dsl.Context;
 
 public class SelectTransformation implements FieldTransformation {
 
-	private static final List<String> systemFields = Arrays.asList("timestamp", "original_string", "source.type");
+	/**
+	 * The fields that are kept whether or not they are selected.
+	 */
+	public static final List<String> SYSTEM_FIELDS = Collections.unmodifiableList(
+			Arrays.asList("timestamp", "original_string", "source.type"));
 
 	@Override
 	public Map<String, Object> map(Map<String, Object> input, List<String> outputField,
@@ -46,7 +51,7 @@ public class SelectTransformation implements FieldTransformation {
 			if (outputField.contains(e.getKey())) {
 				output.put(e.getKey(), e.getValue());
 			} else {
-				if (!systemFields.contains(e.getKey())) {
+				if (!SYSTEM_FIELDS.contains(e.getKey())) {
 					output.put(e.getKey(), null);
 				}
 			}
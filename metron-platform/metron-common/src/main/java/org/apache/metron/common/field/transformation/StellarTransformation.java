@@ -48,25 +48,7 @@ public class StellarTransformation implements FieldTransformation {
       if(transformObj != null) {
         try {
           Object o = processor.parse(transformObj.toString(), resolver, StellarFunctions.FUNCTION_RESOLVER(), context);
-          if (o != null) {
-            if(outputs.contains(oField)) {
-              ret.put(oField, o);
-            }
-            else {
-              intermediateVariables.put(oField, o);
-            }
-          }
-          else {
-            if(outputs.contains(oField)) {
-              ret.put(oField, o);
-            }
-            if( o != null ) {
-              intermediateVariables.put(oField, o);
-            } else {
-              // remove here, in case there are other statements
-              intermediateVariables.remove(oField);
-            }
-          }
+          update(oField, o, outputs, ret, intermediateVariables);
         }
         catch(Exception ex) {
           throw new IllegalStateException( "Unable to process transformation: " + transformObj.toString()
@@ -78,4 +60,81 @@ public class StellarTransformation implements FieldTransformation {
     }
     return ret;
   }
+
+  /**
+   * Transforms a batch of messages.  Each transformation is evaluated over the whole batch before moving on to
+   * the next, so that the expression is compiled and its evaluation is set up once per batch rather than once per
+   * message.  As with {@link #map(Map, List, LinkedHashMap, Context, Map[])}, a failure to transform any of the
+   * messages fails the batch.
+   */
+  @Override
+  public List<Map<String, Object>> mapBatch( List<Map<String, Object>> inputs
+                                           , List<String> outputField
+                                           , LinkedHashMap<String, Object> fieldMappingConfig
+                                           , Context context
+                                           , Map<String, Object>... sensorConfig
+                                           )
+  {
+    List<Map<String, Object>> rets = new ArrayList<>(inputs.size());
+    List<Map<String, Object>> intermediates = new ArrayList<>(inputs.size());
+    List<VariableResolver> resolvers = new ArrayList<>(inputs.size());
+    for(Map<String, Object> input : inputs) {
+      Map<String, Object> ret = new HashMap<>();
+      Map<String, Object> intermediateVariables = new HashMap<>();
+      MapVariableResolver resolver = new MapVariableResolver(ret, intermediateVariables, input);
+      resolver.add(sensorConfig);
+      rets.add(ret);
+      intermediates.add(intermediateVariables);
+      resolvers.add(resolver);
+    }
+    Set<String> outputs = new HashSet<>(outputField);
+    StellarProcessor processor = new CachingStellarProcessor();
+    for(Map.Entry<String, Object> kv : fieldMappingConfig.entrySet()) {
+      String oField = kv.getKey();
+      Object transformObj = kv.getValue();
+      if(transformObj != null) {
+        try {
+          List<Object> values = processor.parseBatch(transformObj.toString(), resolvers, StellarFunctions.FUNCTION_RESOLVER(), context);
+          for(int i = 0; i < values.size(); ++i) {
+            update(oField, values.get(i), outputs, rets.get(i), intermediates.get(i));
+          }
+        }
+        catch(Exception ex) {
+          throw new IllegalStateException( "Unable to process transformation: " + transformObj.toString()
+                                         + " for " + oField + " because " + ex.getMessage()
+                                         , ex
+                                         );
+        }
+      }
+    }
+    return rets;
+  }
+
+  private static void update( String oField
+                            , Object o
+                            , Set<String> outputs
+                            , Map<String, Object> ret
+                            , Map<String, Object> intermediateVariables
+                            )
+  {
+    if (o != null) {
+      if(outputs.contains(oField)) {
+        ret.put(oField, o);
+      }
+      else {
+        intermediateVariables.put(oField, o);
+      }
+    }
+    else {
+      if(outputs.contains(oField)) {
+        ret.put(oField, o);
+      }
+      if( o != null ) {
+        intermediateVariables.put(oField, o);
+      } else {
+        // remove here, in case there are other statements
+        intermediateVariables.remove(oField);
+      }
+    }
+  }
 }
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message;
+
+import com.google.common.hash.Hashing;
+import org.apache.metron.common.Constants;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The strategies which we can use to generate the guid of a parsed message.  This fits the normal enum pattern
+ * that we use elsewhere for strategy pattern.
+ */
+public enum GuidStrategies implements GuidStrategy {
+  /**
+   * The default strategy; a random UUID drawn from a {@link java.security.SecureRandom}, which is shared by all threads.
+   */
+  RANDOM((sensorType, message) -> UUID.randomUUID().toString()),
+  /**
+   * A random (version 4) UUID drawn from a {@link ThreadLocalRandom}.  This does not contend between threads, but
+   * the UUID is not cryptographically strong.
+   */
+  FAST_RANDOM((sensorType, message) -> fastRandom()),
+  /**
+   * A time-ordered (version 7) UUID; the current time in milliseconds followed by random bits.  The guids of messages
+   * parsed close together in time sort close together, which improves the locality of indices and HBase rows keyed
+   * by guid.
+   */
+  TIME_ORDERED((sensorType, message) -> timeOrdered(System.currentTimeMillis())),
+  /**
+   * A UUID derived from a hash of the sensor type and the original string of the message, or of all of its fields
+   * if it has no original string.  The same message always has the same guid, so duplicates can be detected by guid.
+   */
+  CONTENT_HASH(GuidStrategies::contentHash)
+  ;
+  GuidStrategy strategy;
+  GuidStrategies(GuidStrategy strategy) {
+    this.strategy = strategy;
+  }
+
+  @Override
+  public String generate(String sensorType, JSONObject message) {
+    return strategy.generate(sensorType, message);
+  }
+
+  private static final long VERSION_MASK = 0xF000L;
+  private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+  private static final long VARIANT = 0x8000000000000000L;
+
+  static String fastRandom() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long msb = (random.nextLong() & ~VERSION_MASK) | 0x4000L;
+    long lsb = (random.nextLong() & VARIANT_MASK) | VARIANT;
+    return new UUID(msb, lsb).toString();
+  }
+
+  static String timeOrdered(long timestamp) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long msb = (timestamp << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+    long lsb = (random.nextLong() & VARIANT_MASK) | VARIANT;
+    return new UUID(msb, lsb).toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  static String contentHash(String sensorType, JSONObject message) {
+    Object originalString = message.get(Constants.Fields.ORIGINAL.getName());
+    String content = originalString != null ? originalString.toString() : JSONValue.toJSONString(new TreeMap<>(message));
+    ByteBuffer hash = ByteBuffer.wrap(Hashing.murmur3_128().newHasher()
+            .putString(sensorType == null ? "" : sensorType, StandardCharsets.UTF_8)
+            .putByte((byte) 0)
+            .putString(content, StandardCharsets.UTF_8)
+            .hash()
+            .asBytes());
+    // marked as a custom (version 8) UUID
+    long msb = (hash.getLong() & ~VERSION_MASK) | 0x8000L;
+    long lsb = (hash.getLong() & VARIANT_MASK) | VARIANT;
+    return new UUID(msb, lsb).toString();
+  }
+}
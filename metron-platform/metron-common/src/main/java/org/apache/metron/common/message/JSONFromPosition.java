@@ -20,19 +20,11 @@ package org.apache.metron.common.message;
 import org.apache.commons.io.Charsets;
 import org.apache.storm.tuple.Tuple;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
 public class JSONFromPosition implements MessageGetStrategy {
 
   private int position = 0;
 
-  private ThreadLocal<JSONParser> parser = new ThreadLocal<JSONParser>() {
-    @Override
-    protected JSONParser initialValue() {
-      return new JSONParser();
-    }
-  };
-
   public JSONFromPosition() {};
 
   public JSONFromPosition(Integer position) {
@@ -41,11 +33,13 @@ public class JSONFromPosition implements MessageGetStrategy {
 
   @Override
   public JSONObject get(Tuple tuple) {
-    String s = null;
+    byte[] bytes = null;
     try {
-      s =  new String(tuple.getBinary(position), Charsets.UTF_8);
-      return (JSONObject) parser.get().parse(s);
+      // the message is read straight from its bytes, in whichever encoding it was written; it is only decoded to a string on failure
+      bytes = tuple.getBinary(position);
+      return MessageEncodings.decodeAny(bytes);
     } catch (Exception e) {
+      String s = bytes == null ? null : new String(bytes, Charsets.UTF_8);
       throw new IllegalStateException("Unable to parse " + s + " due to " + e.getMessage(), e);
     }
   }
@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.apache.metron.common.utils.JSONUtils;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The encodings of the messages passed between topologies through Kafka.  The encoding of a message is
+ * recognized from its first bytes, so a reader handles every encoding without being configured for one, and
+ * topics can move from one encoding to another while messages in the old encoding are still being read.
+ */
+public enum MessageEncodings {
+  /**
+   * JSON text, as written by {@link JSONObject#toJSONString()}.
+   */
+  JSON(new ObjectMapper()) {
+    @Override
+    public byte[] encode(JSONObject message) {
+      return message.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+  },
+  /**
+   * Smile, a binary encoding of JSON.  Numbers are stored in binary rather than as text and strings need no
+   * escaping.  A field name which repeats within a message is written as a back-reference to its first
+   * occurrence, so that no schema, nor a registry to share them, is needed.
+   */
+  SMILE(new ObjectMapper(new SmileFactory()
+          .configure(SmileGenerator.Feature.WRITE_HEADER, true)
+          .configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, true)));
+
+  private final ObjectMapper mapper;
+
+  MessageEncodings(ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * Encodes a message.
+   *
+   * @param message The message
+   * @return The encoded message
+   */
+  public byte[] encode(JSONObject message) throws IOException {
+    return mapper.writeValueAsBytes(message);
+  }
+
+  /**
+   * Decodes a message in this encoding.
+   *
+   * @param bytes The encoded message
+   * @return The message, with the same value types as a json-simple parser produces
+   */
+  public JSONObject decode(byte[] bytes) throws IOException {
+    try (JsonParser parser = mapper.getFactory().createParser(bytes)) {
+      return JSONUtils.INSTANCE.readJSONObject(parser);
+    }
+  }
+
+  /**
+   * Recognizes the encoding of a message from the header which Smile begins with.
+   *
+   * @param bytes The encoded message
+   * @return The encoding of the message
+   */
+  public static MessageEncodings of(byte[] bytes) {
+    if (bytes != null && bytes.length >= 3
+            && bytes[0] == SmileConstants.HEADER_BYTE_1
+            && bytes[1] == SmileConstants.HEADER_BYTE_2
+            && bytes[2] == SmileConstants.HEADER_BYTE_3) {
+      return SMILE;
+    }
+    return JSON;
+  }
+
+  /**
+   * Decodes a message in any encoding.
+   *
+   * @param bytes The encoded message
+   * @return The message
+   */
+  public static JSONObject decodeAny(byte[] bytes) throws IOException {
+    return of(bytes).decode(bytes);
+  }
+}
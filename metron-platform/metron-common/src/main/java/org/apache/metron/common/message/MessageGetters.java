@@ -26,11 +26,11 @@ import java.util.function.Function;
  * abstraction returns a value from a tuple.  The implementations include:
  * <ul>
  *   <li>BYTES_FROM_POSITION - gets a byte array from the provided position</li>
- *   <li>JSON_FROM_POSITION - gets a byte array from the provided position then converts to a string and parses the string to JSON</li>
+ *   <li>JSON_FROM_POSITION - gets a byte array from the provided position then decodes it to JSON, whether it is JSON text or Smile</li>
  *   <li>JSON_FROM_FIELD - gets a JSONObject from the provided field</li>
  *   <li>OBJECT_FROM_FIELD - gets an Object from the provided field</li>
  *   <li>DEFAULT_BYTES_FROM_POSITION - gets a byte array from position 0</li>
- *   <li>DEFAULT_JSON_FROM_POSITION - gets a byte array from position 0 then converts to a string and parses the string to JSON</li>
+ *   <li>DEFAULT_JSON_FROM_POSITION - gets a byte array from position 0 then decodes it to JSON, whether it is JSON text or Smile</li>
  *   <li>DEFAULT_JSON_FROM_FIELD - gets a JSONObject from the "message" field</li>
  *   <li>DEFAULT_OBJECT_FROM_FIELD - gets an Object from the "message" field</li>
  * </ul>
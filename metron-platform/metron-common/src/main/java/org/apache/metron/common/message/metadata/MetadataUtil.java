@@ -103,7 +103,34 @@ public enum MetadataUtil {
         metadata.put(prefixKey(prefix, envMetadataFieldName), envMetadataFieldValue);
       }
     }
-    byte[] keyObj = t.getBinary(KEY_INDEX);
+    addKeyMetadata(prefix, t.getBinary(KEY_INDEX), metadata);
+    return metadata;
+  }
+
+  /**
+   * Extraction of metadata from a message read directly from kafka rather than from a tuple.  This handles the same
+   * places as {@link #extractMetadata(String, Tuple)}
+   * <ul>
+   *   <li>The kafka key</li>
+   *   <li>The record fields outside of the key and value (e.g. the topic, partition and offset)</li>
+   * </ul>
+   * @param prefix The metadata prefix to use
+   * @param key The kafka key, if any
+   * @param fields The record fields, by name
+   * @return The prefixed metadata
+   */
+  public Map<String, Object> extractMetadata(String prefix, byte[] key, Map<String, Object> fields) {
+    Map<String, Object> metadata = new HashMap<>();
+    for (Map.Entry<String, Object> field : fields.entrySet()) {
+      if (!StringUtils.isEmpty(field.getKey()) && field.getValue() != null) {
+        metadata.put(prefixKey(prefix, field.getKey()), field.getValue());
+      }
+    }
+    addKeyMetadata(prefix, key, metadata);
+    return metadata;
+  }
+
+  private void addKeyMetadata(String prefix, byte[] keyObj, Map<String, Object> metadata) {
     String keyStr = null;
     try {
       keyStr = keyObj == null ? null : new String(keyObj);
@@ -119,6 +146,5 @@ public enum MetadataUtil {
       LOG.error(reason, e);
       throw new IllegalStateException(reason, e);
     }
-    return metadata;
   }
 }
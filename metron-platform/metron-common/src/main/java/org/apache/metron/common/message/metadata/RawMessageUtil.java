@@ -55,5 +55,24 @@ public enum RawMessageUtil {
     return strategy.get(metadata, rawMessage, readMetadata, config);
   }
 
+  /**
+   * Extract the raw message given the strategy, the kafka key and record fields and the metadata configs.
+   * @param strategy
+   * @param key
+   * @param fields
+   * @param rawMessage
+   * @param readMetadata
+   * @param config
+   * @return
+   */
+  public RawMessage getRawMessage(RawMessageStrategy strategy, byte[] key, Map<String, Object> fields, byte[] rawMessage, boolean readMetadata, Map<String, Object> config) {
+    Map<String, Object> metadata = new HashMap<>();
+    if(readMetadata) {
+      String prefix = MetadataUtil.INSTANCE.getMetadataPrefix(config);
+      metadata = MetadataUtil.INSTANCE.extractMetadata(prefix, key, fields);
+    }
+    return strategy.get(metadata, rawMessage, readMetadata, config);
+  }
+
 
 }
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.performance;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.metron.stellar.common.ExpressionCache;
+import org.apache.storm.metric.api.IMetric;
+import org.apache.storm.task.TopologyContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reports the activity of the shared Stellar expression cache as a Storm metric.  Each report contains
+ * the hits, misses, evictions and compilations since the previous report, along with the time spent
+ * compiling and the number of expressions currently cached.
+ *
+ * <p>The cache is shared by every bolt in the worker, so the metric is registered once per worker by
+ * {@link #register(TopologyContext, int)}.
+ */
+public class ExpressionCacheMetric implements IMetric {
+
+  public static final String NAME = "stellarExpressionCache";
+
+  private static final AtomicBoolean REGISTERED = new AtomicBoolean(false);
+
+  private ExpressionCache cache;
+  private CacheStats last = CacheStats.empty();
+
+  /**
+   * Registers the metric with the first task of the worker that calls this.  Later calls do nothing.
+   *
+   * @param context The context of the task preparing.
+   * @param bucketSecs How often the metric is reported.
+   * @return True if the metric was registered with this context.
+   */
+  public static boolean register(TopologyContext context, int bucketSecs) {
+    if(context == null || !REGISTERED.compareAndSet(false, true)) {
+      return false;
+    }
+    context.registerMetric(NAME, new ExpressionCacheMetric(), bucketSecs);
+    return true;
+  }
+
+  @Override
+  public Object getValueAndReset() {
+    ExpressionCache current = ExpressionCache.getShared();
+    if(current != cache) {
+      // the shared cache was resized, so its statistics started over
+      cache = current;
+      last = CacheStats.empty();
+    }
+
+    CacheStats stats = current.getStats();
+    CacheStats delta = stats.minus(last);
+    last = stats;
+
+    Map<String, Long> values = new HashMap<>();
+    values.put("hits", delta.hitCount());
+    values.put("misses", delta.missCount());
+    values.put("evictions", delta.evictionCount());
+    values.put("compiles", delta.loadSuccessCount());
+    values.put("compileFailures", delta.loadFailureCount());
+    values.put("compileTimeMs", TimeUnit.NANOSECONDS.toMillis(delta.totalLoadTime()));
+    values.put("size", current.size());
+    return values;
+  }
+}
@@ -21,10 +21,12 @@ package org.apache.metron.common.utils;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flipkart.zjsonpatch.JsonPatch;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
@@ -155,6 +157,69 @@ public enum JSONUtils {
     return _mapper.get().readTree(json);
   }
 
+  /**
+   * Reads a JSON object from its bytes in a single pass, without first decoding it to a string.
+   * The values have the same types as those produced by a json-simple {@link JSONParser}; objects
+   * are a {@link JSONObject}, arrays are a {@link JSONArray}, integers are a {@link Long} and
+   * other numbers are a {@link Double}.
+   *
+   * @param json The UTF-8 encoded JSON object
+   * @return The JSON object
+   */
+  public JSONObject readJSONObject(byte[] json) throws IOException {
+    try (JsonParser parser = _mapper.get().getFactory().createParser(json)) {
+      return readJSONObject(parser);
+    }
+  }
+
+  /**
+   * Reads a JSON object from a parser positioned before it, as {@link #readJSONObject(byte[])} does.
+   * The parser may be for any data format that Jackson supports, such as Smile.
+   *
+   * @param parser The parser
+   * @return The JSON object
+   */
+  public JSONObject readJSONObject(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IOException("Expected a JSON object, but found " + parser.getCurrentToken());
+    }
+    return (JSONObject) readJSONSimpleValue(parser);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object readJSONSimpleValue(JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case START_OBJECT:
+        JSONObject object = new JSONObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String key = parser.getCurrentName();
+          parser.nextToken();
+          object.put(key, readJSONSimpleValue(parser));
+        }
+        return object;
+      case START_ARRAY:
+        JSONArray array = new JSONArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          array.add(readJSONSimpleValue(parser));
+        }
+        return array;
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        return parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER ? parser.getBigIntegerValue() : parser.getLongValue();
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        throw new IOException("Unexpected token " + parser.getCurrentToken());
+    }
+  }
+
   /**
    * Update JSON given a JSON Patch (see RFC 6902 at https://tools.ietf.org/html/rfc6902)
    * Operations:
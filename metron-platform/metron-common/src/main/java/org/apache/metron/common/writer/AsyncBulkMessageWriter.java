@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.writer;
+
+import java.util.List;
+import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.storm.tuple.Tuple;
+
+/**
+ * A bulk writer which can hand a batch to the target system without waiting for the target to
+ * acknowledge it.  The outcome of each tuple is reported later, through a {@link Callback}, as the
+ * target acknowledges or rejects it.
+ */
+public interface AsyncBulkMessageWriter<MESSAGE_T> extends BulkMessageWriter<MESSAGE_T> {
+
+  /**
+   * Receives the outcome of tuples written asynchronously.  It may be called from a thread other
+   * than the one which wrote the tuples.
+   */
+  interface Callback {
+    void onSuccess(Tuple tuple);
+    void onError(Throwable e, Tuple tuple);
+  }
+
+  /**
+   * @return Whether batches should be written with
+   * {@link #writeAsync(String, WriterConfiguration, Iterable, List, Callback)} rather than
+   * {@link #write(String, WriterConfiguration, Iterable, List)}.
+   */
+  boolean isAsync();
+
+  /**
+   * Writes the messages without waiting for the target system to acknowledge them.  The outcome of
+   * each tuple is either in the returned response, if it is known right away (e.g. the message could
+   * not be serialized), or reported to the callback once it is known, never both.  This may block while
+   * the writer has too many messages awaiting acknowledgement.
+   * @param sensorType The type of sensor being generating the messages
+   * @param configurations Configurations that should be passed to the writer
+   * @param tuples The Tuples that produced the message to be written
+   * @param messages The message to be written
+   * @param callback Receives the outcome of the tuples which are not in the response
+   * @return A response containing the successes and failures known when the batch was handed off.
+   * @throws Exception If the batch could not be handed off at all, which should be treated as a full-batch failure.
+   */
+  BulkWriterResponse writeAsync(String sensorType
+                               , WriterConfiguration configurations
+                               , Iterable<Tuple> tuples
+                               , List<MESSAGE_T> messages
+                               , Callback callback
+                               ) throws Exception;
+}
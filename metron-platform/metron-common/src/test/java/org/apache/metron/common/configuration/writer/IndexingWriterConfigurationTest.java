@@ -61,6 +61,21 @@ public class IndexingWriterConfigurationTest {
     Assert.assertEquals(7, (long)config.getAllConfiguredTimeouts().get(0));
   }
   @Test
+  public void testGetAllConfiguredMaxLatencies() throws IOException {
+    //default
+    IndexingWriterConfiguration config = new IndexingWriterConfiguration("hdfs",
+            new IndexingConfigurations()
+    );
+    Assert.assertEquals(0, config.getAllConfiguredMaxLatencies().size());
+    //non-default
+    IndexingConfigurations iconfigs = new IndexingConfigurations();
+    iconfigs.updateSensorIndexingConfig(
+            sensorType, "{ \"hdfs\" : { \"maxLatencyMs\" : 1500 } }".getBytes());
+    config = new IndexingWriterConfiguration("hdfs", iconfigs);
+    Assert.assertEquals(1, config.getAllConfiguredMaxLatencies().size());
+    Assert.assertEquals(1500L, (long)config.getAllConfiguredMaxLatencies().get(0));
+  }
+  @Test
   public void testDefaultIndex() {
     IndexingWriterConfiguration config = new IndexingWriterConfiguration("hdfs",
            new IndexingConfigurations()
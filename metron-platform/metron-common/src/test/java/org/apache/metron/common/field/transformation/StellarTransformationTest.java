@@ -36,6 +36,7 @@ import org.junit.runners.Parameterized;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 @RunWith(Parameterized.class)
 public class StellarTransformationTest {
@@ -401,4 +402,28 @@ public class StellarTransformationTest {
       Assert.assertTrue(input.containsKey("url"));
     }
   }
+
+  @Test
+  public void testBatch() throws Exception {
+    SensorParserConfig c = SensorParserConfig.fromBytes(Bytes.toBytes(intermediateValuesConfig));
+    FieldTransformer handler = Iterables.getFirst(c.getFieldTransformations(), null);
+    List<JSONObject> batch = Arrays.asList(new JSONObject(), new JSONObject());
+    handler.transformAndUpdate(batch, context);
+    for(JSONObject message : batch) {
+      Assert.assertEquals(3, message.get("final_value"));
+      Assert.assertFalse(message.containsKey("value1"));
+      Assert.assertFalse(message.containsKey("value2"));
+    }
+
+    c = SensorParserConfig.fromBytes(Bytes.toBytes(stellarConfig));
+    handler = Iterables.getFirst(c.getFieldTransformations(), null);
+    batch = Arrays.asList(
+            new JSONObject(ImmutableMap.of("timestamp", "2016-01-05 17:02:30")),
+            new JSONObject(ImmutableMap.of("timestamp", "2016-01-05 17:02:31")),
+            new JSONObject(ImmutableMap.of("timestamp", "2016-01-05 17:02:30")));
+    handler.transformAndUpdate(batch, context);
+    Assert.assertEquals(1452013350000L, batch.get(0).get("utc_timestamp"));
+    Assert.assertEquals(1452013351000L, batch.get(1).get("utc_timestamp"));
+    Assert.assertEquals(1452013350000L, batch.get(2).get("utc_timestamp"));
+  }
 }
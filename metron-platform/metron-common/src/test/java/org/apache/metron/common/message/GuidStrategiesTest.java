@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message;
+
+import org.apache.metron.common.configuration.SensorParserConfig;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+public class GuidStrategiesTest {
+
+  private static JSONObject message(String originalString) {
+    JSONObject message = new JSONObject();
+    message.put("original_string", originalString);
+    message.put("ip_src_addr", "10.0.0.1");
+    return message;
+  }
+
+  @Test
+  public void randomStrategiesGenerateUniqueVersion4Guids() {
+    for (GuidStrategies strategy : new GuidStrategies[] { GuidStrategies.RANDOM, GuidStrategies.FAST_RANDOM }) {
+      Set<String> guids = new HashSet<>();
+      for (int i = 0; i < 1000; ++i) {
+        UUID uuid = UUID.fromString(strategy.generate("bro", message("message")));
+        Assert.assertEquals(4, uuid.version());
+        Assert.assertEquals(2, uuid.variant());
+        guids.add(uuid.toString());
+      }
+      Assert.assertEquals(1000, guids.size());
+    }
+  }
+
+  @Test
+  public void timeOrderedGuidsSortByTime() {
+    String earlier = GuidStrategies.timeOrdered(1500000000000L);
+    String later = GuidStrategies.timeOrdered(1500000000001L);
+    Assert.assertTrue(earlier.compareTo(later) < 0);
+    UUID uuid = UUID.fromString(earlier);
+    Assert.assertEquals(7, uuid.version());
+    Assert.assertEquals(2, uuid.variant());
+    Assert.assertEquals(1500000000000L, uuid.getMostSignificantBits() >>> 16);
+  }
+
+  @Test
+  public void contentHashGuidsAreDeterministic() {
+    String guid = GuidStrategies.CONTENT_HASH.generate("bro", message("message"));
+    Assert.assertEquals(guid, GuidStrategies.CONTENT_HASH.generate("bro", message("message")));
+    Assert.assertNotEquals(guid, GuidStrategies.CONTENT_HASH.generate("bro", message("other message")));
+    Assert.assertNotEquals(guid, GuidStrategies.CONTENT_HASH.generate("snort", message("message")));
+    Assert.assertEquals(8, UUID.fromString(guid).version());
+
+    // without an original string, the guid is a hash of all of the fields
+    JSONObject first = new JSONObject();
+    first.put("a", 1);
+    first.put("b", "two");
+    JSONObject second = new JSONObject();
+    second.put("b", "two");
+    second.put("a", 1);
+    Assert.assertEquals(GuidStrategies.CONTENT_HASH.generate("bro", first), GuidStrategies.CONTENT_HASH.generate("bro", second));
+  }
+
+  @Test
+  public void guidStrategyIsConfigurable() throws Exception {
+    Assert.assertEquals(GuidStrategies.RANDOM, new SensorParserConfig().getGuidStrategy());
+    SensorParserConfig config = SensorParserConfig.fromBytes("{ \"parserClassName\" : \"parser\", \"guidStrategy\" : \"TIME_ORDERED\" }".getBytes());
+    Assert.assertEquals(GuidStrategies.TIME_ORDERED, config.getGuidStrategy());
+    Assert.assertEquals(config, SensorParserConfig.fromBytes(config.toJSON().getBytes()));
+  }
+}
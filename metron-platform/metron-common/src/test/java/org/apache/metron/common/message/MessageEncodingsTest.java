@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class MessageEncodingsTest {
+
+  @SuppressWarnings("unchecked")
+  private JSONObject createMessage() {
+    JSONArray array = new JSONArray();
+    array.add("element");
+    array.add(1L);
+    JSONObject nested = new JSONObject();
+    nested.put("field", "value");
+    JSONObject message = new JSONObject();
+    message.put("string", "quoted \"value\"");
+    message.put("long", 1453932941970L);
+    message.put("double", 1.5);
+    message.put("boolean", true);
+    message.put("array", array);
+    message.put("object", nested);
+    return message;
+  }
+
+  @Test
+  public void encodingsShouldRoundTrip() throws Exception {
+    JSONObject message = createMessage();
+    for (MessageEncodings encoding : MessageEncodings.values()) {
+      byte[] bytes = encoding.encode(message);
+      assertEquals(encoding.name(), encoding, MessageEncodings.of(bytes));
+      assertEquals(encoding.name(), message, encoding.decode(bytes));
+      assertEquals(encoding.name(), message, MessageEncodings.decodeAny(bytes));
+    }
+  }
+
+  @Test
+  public void jsonShouldBeWrittenAsJSONText() throws Exception {
+    JSONObject message = createMessage();
+    assertEquals(message.toJSONString(), new String(MessageEncodings.JSON.encode(message), UTF_8));
+    assertEquals(MessageEncodings.JSON, MessageEncodings.of(" {}".getBytes(UTF_8)));
+    assertEquals(MessageEncodings.JSON, MessageEncodings.of(new byte[0]));
+  }
+}
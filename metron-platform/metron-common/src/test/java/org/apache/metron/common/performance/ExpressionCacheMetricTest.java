@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.performance;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.apache.storm.metric.api.IMetric;
+import org.apache.storm.task.TopologyContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpressionCacheMetricTest {
+
+  @Test
+  public void registersOncePerWorker() {
+    TopologyContext first = mock(TopologyContext.class);
+    TopologyContext second = mock(TopologyContext.class);
+
+    ExpressionCacheMetric.register(first, 60);
+    Assert.assertFalse(ExpressionCacheMetric.register(second, 60));
+
+    verify(second, never()).registerMetric(eq(ExpressionCacheMetric.NAME), any(IMetric.class), anyInt());
+  }
+
+  @Test
+  public void ignoresMissingContext() {
+    Assert.assertFalse(ExpressionCacheMetric.register(null, 60));
+  }
+}
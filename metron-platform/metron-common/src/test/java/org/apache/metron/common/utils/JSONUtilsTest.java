@@ -24,10 +24,13 @@ import static org.junit.Assert.assertThat;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import org.adrianwalker.multilinestring.Multiline;
 import org.apache.metron.test.utils.UnitTestHelper;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -161,4 +164,23 @@ public class JSONUtilsTest {
     assertThat(JSONUtils.INSTANCE.load(actual, JSONUtils.MAP_SUPPLIER), equalTo(JSONUtils.INSTANCE.load(expectedComplexJson, JSONUtils.MAP_SUPPLIER)));
   }
 
+  /**
+   * { "a" : "hello", "b" : 7, "c" : 2.5, "d" : [ 1, "x", { "e" : null } ], "f" : { "g" : true, "h" : false } }
+   */
+  @Multiline
+  public static String simpleJson;
+
+  @Test
+  public void readJSONObject_agrees_with_json_simple() throws Exception {
+    JSONObject expected = (JSONObject) new JSONParser().parse(simpleJson);
+    JSONObject actual = JSONUtils.INSTANCE.readJSONObject(simpleJson.getBytes(StandardCharsets.UTF_8));
+    assertThat(actual, equalTo(expected));
+    assertThat(actual.toJSONString(), equalTo(expected.toJSONString()));
+  }
+
+  @Test(expected = IOException.class)
+  public void readJSONObject_requires_an_object() throws Exception {
+    JSONUtils.INSTANCE.readJSONObject("[ 1, 2 ]".getBytes(StandardCharsets.UTF_8));
+  }
+
 }
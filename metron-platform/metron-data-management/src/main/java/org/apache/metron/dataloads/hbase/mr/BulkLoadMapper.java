@@ -18,13 +18,16 @@
 package org.apache.metron.dataloads.hbase.mr;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.metron.dataloads.extractor.Extractor;
 import org.apache.metron.dataloads.extractor.ExtractorHandler;
+import org.apache.metron.dataloads.nonbulk.flatfile.IndicatorFilterBuilder;
 import org.apache.metron.enrichment.converter.HbaseConverter;
+import org.apache.metron.enrichment.lookup.IndicatorFilter;
 import org.apache.metron.enrichment.lookup.LookupKV;
 
 import java.io.IOException;
@@ -36,9 +39,17 @@ public class BulkLoadMapper extends Mapper<Object, Text, ImmutableBytesWritable,
     public static final String COLUMN_FAMILY_KEY = "bl_column_family";
     public static final String LAST_SEEN_KEY = "bl_last_seen";
     public static final String CONVERTER_KEY = "bl_converter";
+    /**
+     * The directory to write the filters of the indicators loaded by each task to.  If unset, no filters are built.
+     */
+    public static final String FILTER_DIR_KEY = "bl_filter_dir";
+    public static final String FILTER_EXPECTED_INSERTIONS_KEY = "bl_filter_expected_insertions";
+    public static final String FILTER_FALSE_POSITIVE_RATE_KEY = "bl_filter_false_positive_rate";
     Extractor extractor = null;
     String columnFamily = null;
     HbaseConverter converter;
+    IndicatorFilterBuilder filterBuilder;
+    Path filterDir;
     @Override
     public void setup(Context context) throws IOException,
             InterruptedException {
@@ -51,10 +62,23 @@ public class BulkLoadMapper extends Mapper<Object, Text, ImmutableBytesWritable,
             if (results != null) {
                 Put put = converter.toPut(columnFamily, results.getKey(), results.getValue());
                 write(new ImmutableBytesWritable(results.getKey().toBytes()), put, context);
+                if (filterBuilder != null) {
+                    filterBuilder.add(results.getKey());
+                }
             }
         }
     }
 
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (filterBuilder != null) {
+            filterBuilder.writePartials(filterDir.getFileSystem(context.getConfiguration())
+                                       , filterDir
+                                       , context.getTaskAttemptID().toString()
+                                       );
+        }
+    }
+
     protected void initialize(Configuration configuration) throws IOException{
         String configStr = configuration.get(CONFIG_KEY);
         extractor = ExtractorHandler.load(configStr).getExtractor();
@@ -64,6 +88,12 @@ public class BulkLoadMapper extends Mapper<Object, Text, ImmutableBytesWritable,
         } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | NoSuchMethodException | InvocationTargetException e) {
             throw new IllegalStateException("Unable to create converter object: " + configuration.get(CONVERTER_KEY), e);
         }
+        if (configuration.get(FILTER_DIR_KEY) != null) {
+            filterDir = new Path(configuration.get(FILTER_DIR_KEY));
+            filterBuilder = new IndicatorFilterBuilder(configuration.getInt(FILTER_EXPECTED_INSERTIONS_KEY, IndicatorFilter.DEFAULT_EXPECTED_INSERTIONS)
+                                                      , configuration.getDouble(FILTER_FALSE_POSITIVE_RATE_KEY, IndicatorFilter.DEFAULT_FALSE_POSITIVE_RATE)
+                                                      );
+        }
     }
 
     protected void write(ImmutableBytesWritable key, Put value, Context context) throws IOException, InterruptedException {
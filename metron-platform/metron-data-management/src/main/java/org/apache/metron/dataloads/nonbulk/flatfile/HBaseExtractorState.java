@@ -31,8 +31,14 @@ public class HBaseExtractorState {
   private HbaseConverter converter;
   private FileSystem fs;
   private String cf;
+  private IndicatorFilterBuilder filterBuilder;
 
   public HBaseExtractorState(HTableInterface table, String cf, Extractor extractor, HbaseConverter converter, Configuration config) {
+    this(table, cf, extractor, converter, config, null);
+  }
+
+  public HBaseExtractorState(HTableInterface table, String cf, Extractor extractor, HbaseConverter converter, Configuration config, IndicatorFilterBuilder filterBuilder) {
+    this.filterBuilder = filterBuilder;
     this.table = table;
     this.extractor = extractor;
     this.converter = converter;
@@ -60,6 +66,13 @@ public class HBaseExtractorState {
     return converter;
   }
 
+  /**
+   * @return The builder of the filters of the indicators loaded, or null if the filters are not updated
+   */
+  public IndicatorFilterBuilder getFilterBuilder() {
+    return filterBuilder;
+  }
+
   public FileSystem getFileSystem() {
     return fs;
   }
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.dataloads.nonbulk.flatfile;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.enrichment.converter.EnrichmentKey;
+import org.apache.metron.enrichment.lookup.IndicatorFilter;
+import org.apache.metron.enrichment.lookup.LookupKey;
+import org.apache.metron.stellar.common.utils.BloomFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds the Bloom filters of the indicators loaded into an enrichment table, one per enrichment type, and adds
+ * them to the filters which the enrichment adapters consult (see {@link IndicatorFilter}).
+ */
+public class IndicatorFilterBuilder {
+  private final int expectedInsertions;
+  private final double falsePositiveRate;
+  private final Map<String, BloomFilter<String>> filters = new HashMap<>();
+
+  public IndicatorFilterBuilder(int expectedInsertions, double falsePositiveRate) {
+    this.expectedInsertions = expectedInsertions;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /**
+   * @param config The loader config
+   * @return The builder of the filters of the indicators loaded, or null if the filters are not to be updated
+   */
+  public static IndicatorFilterBuilder create(EnumMap<LoadOptions, Optional<Object>> config) {
+    if(!config.getOrDefault(LoadOptions.FILTER_DIR, Optional.empty()).isPresent()) {
+      return null;
+    }
+    return new IndicatorFilterBuilder(
+            (int) config.getOrDefault(LoadOptions.FILTER_EXPECTED_INSERTIONS, Optional.of(IndicatorFilter.DEFAULT_EXPECTED_INSERTIONS)).get()
+          , (double) config.getOrDefault(LoadOptions.FILTER_FALSE_POSITIVE_RATE, Optional.of(IndicatorFilter.DEFAULT_FALSE_POSITIVE_RATE)).get()
+    );
+  }
+
+  public int getExpectedInsertions() {
+    return expectedInsertions;
+  }
+
+  public double getFalsePositiveRate() {
+    return falsePositiveRate;
+  }
+
+  public void add(LookupKey key) {
+    if(key instanceof EnrichmentKey) {
+      EnrichmentKey enrichmentKey = (EnrichmentKey) key;
+      add(enrichmentKey.type, enrichmentKey.indicator);
+    }
+  }
+
+  public synchronized void add(String enrichmentType, String indicator) {
+    filters.computeIfAbsent(enrichmentType, t -> IndicatorFilter.newFilter(expectedInsertions, falsePositiveRate))
+           .add(indicator);
+  }
+
+  public synchronized void merge(String enrichmentType, BloomFilter<String> filter) {
+    BloomFilter<String> existing = filters.putIfAbsent(enrichmentType, filter);
+    if(existing != null) {
+      existing.merge(filter);
+    }
+  }
+
+  public synchronized Map<String, BloomFilter<String>> getFilters() {
+    return new HashMap<>(filters);
+  }
+
+  /**
+   * Write the filters built so far as {@code <dir>/<type>/<name>.bloom}, so the filters built by several
+   * tasks can be gathered with {@link #readPartials(FileSystem, Path)}.
+   */
+  public void writePartials(FileSystem fs, Path dir, String name) throws IOException {
+    for(Map.Entry<String, BloomFilter<String>> kv : getFilters().entrySet()) {
+      IndicatorFilter.write(fs, new Path(new Path(dir, kv.getKey()), name + IndicatorFilter.FILTER_SUFFIX), kv.getValue());
+    }
+  }
+
+  /**
+   * Add the filters written with {@link #writePartials(FileSystem, Path, String)} to the filters built so far.
+   */
+  public void readPartials(FileSystem fs, Path dir) throws IOException {
+    if(!fs.exists(dir)) {
+      return;
+    }
+    for(FileStatus typeDir : fs.listStatus(dir)) {
+      if(!typeDir.isDirectory()) {
+        continue;
+      }
+      for(FileStatus partial : fs.listStatus(typeDir.getPath())) {
+        if(partial.getPath().getName().endsWith(IndicatorFilter.FILTER_SUFFIX)) {
+          merge(typeDir.getPath().getName(), IndicatorFilter.read(fs, partial.getPath()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Add the indicators loaded into a table to its published filters.
+   *
+   * @param fs The file system holding the filters
+   * @param dir The directory of the filters
+   * @param table The table the indicators were loaded into
+   */
+  public void publish(FileSystem fs, Path dir, String table) throws IOException {
+    for(Map.Entry<String, BloomFilter<String>> kv : getFilters().entrySet()) {
+      IndicatorFilter.merge(fs, IndicatorFilter.getPath(dir, table, kv.getKey()), kv.getValue());
+    }
+  }
+}
@@ -25,6 +25,7 @@ import org.apache.metron.common.utils.cli.CLIOptions;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.common.utils.cli.OptionHandler;
 import org.apache.metron.dataloads.nonbulk.flatfile.importer.ImportStrategy;
+import org.apache.metron.enrichment.lookup.IndicatorFilter;
 
 import javax.annotation.Nullable;
 import java.io.File;
@@ -104,6 +105,78 @@ public enum LoadOptions implements CLIOptions<LoadOptions> {
   ,NUM_THREADS(new CommonOptions.NumThreads<>())
   ,BATCH_SIZE(new CommonOptions.BatchSize<>())
   ,INPUT(new CommonOptions.Input<>())
+  ,FILTER_DIR(new OptionHandler<LoadOptions>() {
+    @Nullable
+    @Override
+    public Option apply(@Nullable String s) {
+      Option o = new Option(s, "filter_dir", true, "HDFS directory of the Bloom filters of the indicators loaded into each table." +
+              "  If set, the indicators loaded are added to the filters, which the enrichment adapters consult" +
+              " before looking up an indicator when enrichment.lookup.filter.hdfs.dir is set in the global config.");
+      o.setArgName("DIR");
+      o.setRequired(false);
+      return o;
+    }
+
+    @Override
+    public Optional<Object> getValue(LoadOptions option, CommandLine cli) {
+      return Optional.ofNullable(option.get(cli)).map(String::trim);
+    }
+
+    @Override
+    public String getShortCode() {
+      return "f";
+    }
+  })
+  ,FILTER_EXPECTED_INSERTIONS(new OptionHandler<LoadOptions>() {
+    @Nullable
+    @Override
+    public Option apply(@Nullable String s) {
+      Option o = new Option(s, "filter_insertions", true, "The expected number of indicators of each enrichment type," +
+              " used to size the Bloom filter of a type when it is created.  The default is " + IndicatorFilter.DEFAULT_EXPECTED_INSERTIONS);
+      o.setArgName("NUM");
+      o.setRequired(false);
+      return o;
+    }
+
+    @Override
+    public Optional<Object> getValue(LoadOptions option, CommandLine cli) {
+      int expectedInsertions = IndicatorFilter.DEFAULT_EXPECTED_INSERTIONS;
+      if(option.has(cli)) {
+        expectedInsertions = ConversionUtils.convert(option.get(cli).trim(), Integer.class);
+      }
+      return Optional.of(expectedInsertions);
+    }
+
+    @Override
+    public String getShortCode() {
+      return "x";
+    }
+  })
+  ,FILTER_FALSE_POSITIVE_RATE(new OptionHandler<LoadOptions>() {
+    @Nullable
+    @Override
+    public Option apply(@Nullable String s) {
+      Option o = new Option(s, "filter_fpr", true, "The false positive rate of the Bloom filter of an enrichment type," +
+              " used when it is created.  The default is " + IndicatorFilter.DEFAULT_FALSE_POSITIVE_RATE);
+      o.setArgName("RATE");
+      o.setRequired(false);
+      return o;
+    }
+
+    @Override
+    public Optional<Object> getValue(LoadOptions option, CommandLine cli) {
+      double falsePositiveRate = IndicatorFilter.DEFAULT_FALSE_POSITIVE_RATE;
+      if(option.has(cli)) {
+        falsePositiveRate = ConversionUtils.convert(option.get(cli).trim(), Double.class);
+      }
+      return Optional.of(falsePositiveRate);
+    }
+
+    @Override
+    public String getShortCode() {
+      return "r";
+    }
+  })
   ;
   Option option;
   String shortCode;
@@ -18,12 +18,16 @@
 package org.apache.metron.dataloads.nonbulk.flatfile.importer;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.metron.dataloads.extractor.Extractor;
 import org.apache.metron.dataloads.extractor.ExtractorHandler;
 import org.apache.metron.dataloads.nonbulk.flatfile.HBaseExtractorState;
+import org.apache.metron.dataloads.nonbulk.flatfile.IndicatorFilterBuilder;
 import org.apache.metron.dataloads.nonbulk.flatfile.LoadOptions;
+import org.apache.metron.dataloads.nonbulk.flatfile.writer.InvalidWriterOutput;
 import org.apache.metron.enrichment.converter.EnrichmentConverter;
 import org.apache.metron.enrichment.converter.HbaseConverter;
 import org.apache.metron.enrichment.lookup.LookupKV;
@@ -39,6 +43,7 @@ public class LocalImporter extends AbstractLocalImporter<LoadOptions, HBaseExtra
   }
 
   HTableProviderRetriever provider;
+  IndicatorFilterBuilder filterBuilder;
 
   public LocalImporter(HTableProviderRetriever provider) {
     this.provider = provider;
@@ -49,6 +54,26 @@ public class LocalImporter extends AbstractLocalImporter<LoadOptions, HBaseExtra
   }
 
 
+  @Override
+  public void importData( EnumMap<LoadOptions, Optional<Object>> config
+                        , ExtractorHandler handler
+                        , Configuration hadoopConfig
+                        ) throws IOException, InvalidWriterOutput {
+    filterBuilder = IndicatorFilterBuilder.create(config);
+    try {
+      super.importData(config, handler, hadoopConfig);
+    }
+    finally {
+      //publish even if the import failed, since some of its indicators may have been loaded
+      if(filterBuilder != null) {
+        filterBuilder.publish( FileSystem.get(hadoopConfig)
+                             , new Path((String) config.get(LoadOptions.FILTER_DIR).get())
+                             , (String) config.get(LoadOptions.HBASE_TABLE).get()
+                             );
+      }
+    }
+  }
+
   @Override
   protected List<String> getInputs(EnumMap<LoadOptions, Optional<Object>> config) {
     return (List<String>) config.get(LoadOptions.INPUT).get();
@@ -88,7 +113,7 @@ public class LocalImporter extends AbstractLocalImporter<LoadOptions, HBaseExtra
         try {
           String cf = (String) config.get(LoadOptions.HBASE_CF).get();
           HTableInterface table = provider.retrieve().getTable(hadoopConfig, (String) config.get(LoadOptions.HBASE_TABLE).get());
-          return new HBaseExtractorState(table, cf, handler.getExtractor(), new EnrichmentConverter(), hadoopConfig);
+          return new HBaseExtractorState(table, cf, handler.getExtractor(), new EnrichmentConverter(), hadoopConfig, filterBuilder);
         } catch (IOException e1) {
           throw new IllegalStateException("Unable to get table: " + e1);
         }
@@ -100,7 +125,7 @@ public class LocalImporter extends AbstractLocalImporter<LoadOptions, HBaseExtra
   @Override
   protected void extract(HBaseExtractorState state, String line) throws IOException {
     HBaseExtractorState es = state;
-    es.getTable().put(toPut(line, es.getExtractor(), state.getCf(), es.getConverter()));
+    es.getTable().put(toPut(line, es.getExtractor(), state.getCf(), es.getConverter(), es.getFilterBuilder()));
   }
 
   public List<Put> toPut(String line
@@ -108,12 +133,25 @@ public class LocalImporter extends AbstractLocalImporter<LoadOptions, HBaseExtra
                      , String cf
                      , HbaseConverter converter
                      ) throws IOException
+  {
+    return toPut(line, extractor, cf, converter, null);
+  }
+
+  public List<Put> toPut(String line
+                     , Extractor extractor
+                     , String cf
+                     , HbaseConverter converter
+                     , IndicatorFilterBuilder filterBuilder
+                     ) throws IOException
   {
     List<Put> ret = new ArrayList<>();
     Iterable<LookupKV> kvs = extractor.extract(line);
     for(LookupKV kv : kvs) {
       Put put = converter.toPut(cf, kv.getKey(), kv.getValue());
       ret.add(put);
+      if(filterBuilder != null) {
+        filterBuilder.add(kv.getKey());
+      }
     }
 
     return ret;
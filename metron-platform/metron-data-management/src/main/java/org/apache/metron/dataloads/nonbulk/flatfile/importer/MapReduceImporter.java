@@ -22,8 +22,10 @@ import java.lang.invoke.MethodHandles;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -32,6 +34,7 @@ import org.apache.hadoop.hbase.mapreduce.TableOutputFormat;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.metron.dataloads.extractor.ExtractorHandler;
 import org.apache.metron.dataloads.hbase.mr.BulkLoadMapper;
+import org.apache.metron.dataloads.nonbulk.flatfile.IndicatorFilterBuilder;
 import org.apache.metron.dataloads.nonbulk.flatfile.LoadOptions;
 import org.apache.metron.enrichment.converter.EnrichmentConverter;
 import org.slf4j.Logger;
@@ -66,13 +69,34 @@ public enum MapReduceImporter implements Importer<LoadOptions> {
     job.setOutputKeyClass(ImmutableBytesWritable.class);
     job.setOutputValueClass(Put.class);
     job.setNumReduceTasks(0);
+    IndicatorFilterBuilder filterBuilder = IndicatorFilterBuilder.create(config);
+    Path filterDir = null;
+    Path partialFilterDir = null;
+    if(filterBuilder != null) {
+      //each mapper writes the filters of the indicators it loads here, to be merged once the job completes
+      filterDir = new Path((String) config.get(LoadOptions.FILTER_DIR).get());
+      partialFilterDir = new Path(new Path(filterDir, table), "_partial-" + UUID.randomUUID());
+      job.getConfiguration().set(BulkLoadMapper.FILTER_DIR_KEY, partialFilterDir.toString());
+      job.getConfiguration().setInt(BulkLoadMapper.FILTER_EXPECTED_INSERTIONS_KEY, filterBuilder.getExpectedInsertions());
+      job.getConfiguration().setDouble(BulkLoadMapper.FILTER_FALSE_POSITIVE_RATE_KEY, filterBuilder.getFalsePositiveRate());
+    }
     List<Path> paths = inputs.stream().map(p -> new Path(p)).collect(Collectors.toList());
     handler.getInputFormat().set(job, paths, handler.getConfig());
     TableMapReduceUtil.initCredentials(job);
     try {
-      job.waitForCompletion(true);
+      if(!job.waitForCompletion(true) && filterBuilder != null) {
+        LOG.warn("{} failed, so the indicator filters may not contain every indicator loaded; rerun the load", job.getJobName());
+      }
     } catch (Exception e) {
       throw new IllegalStateException("Unable to complete job: " + e.getMessage(), e);
     }
+    finally {
+      if(filterBuilder != null) {
+        FileSystem fs = partialFilterDir.getFileSystem(hadoopConfig);
+        filterBuilder.readPartials(fs, partialFilterDir);
+        filterBuilder.publish(fs, filterDir, table);
+        fs.delete(partialFilterDir, true);
+      }
+    }
   }
 }
@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.dataloads.nonbulk.flatfile;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.enrichment.converter.EnrichmentKey;
+import org.apache.metron.enrichment.lookup.IndicatorFilter;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IndicatorFilterBuilderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testPartialsArePublished() throws Exception {
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path dir = new Path(folder.getRoot().getAbsolutePath());
+    Path partials = new Path(dir, "partials");
+
+    IndicatorFilterBuilder first = new IndicatorFilterBuilder(1000, 0.01);
+    first.add(new EnrichmentKey("malicious_ip", "10.0.0.1"));
+    first.writePartials(fs, partials, "task_1");
+    IndicatorFilterBuilder second = new IndicatorFilterBuilder(1000, 0.01);
+    second.add(new EnrichmentKey("malicious_ip", "10.0.0.2"));
+    second.add(new EnrichmentKey("malicious_domain", "example.com"));
+    second.writePartials(fs, partials, "task_2");
+
+    IndicatorFilterBuilder merged = new IndicatorFilterBuilder(1000, 0.01);
+    merged.readPartials(fs, partials);
+    merged.publish(fs, dir, "threatintel");
+    //a later load adds to the published filters
+    IndicatorFilterBuilder later = new IndicatorFilterBuilder(1000, 0.01);
+    later.add(new EnrichmentKey("malicious_ip", "10.0.0.3"));
+    later.publish(fs, dir, "threatintel");
+
+    IndicatorFilter filter = new IndicatorFilter(fs, new Path(dir, "threatintel"), 60000);
+    Assert.assertTrue(filter.mightContain("malicious_ip", "10.0.0.1"));
+    Assert.assertTrue(filter.mightContain("malicious_ip", "10.0.0.2"));
+    Assert.assertTrue(filter.mightContain("malicious_ip", "10.0.0.3"));
+    Assert.assertFalse(filter.mightContain("malicious_ip", "10.0.0.4"));
+    Assert.assertTrue(filter.mightContain("malicious_domain", "example.com"));
+    Assert.assertFalse(filter.mightContain("malicious_domain", "example.org"));
+  }
+}
@@ -23,6 +23,8 @@ import com.google.common.collect.Iterables;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.apache.hadoop.conf.Configuration;
@@ -30,19 +32,25 @@ import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.metron.enrichment.bolt.CacheKey;
 import org.apache.metron.enrichment.converter.EnrichmentKey;
 import org.apache.metron.enrichment.converter.EnrichmentValue;
-import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
+import org.apache.metron.enrichment.interfaces.BatchEnrichmentAdapter;
 import org.apache.metron.enrichment.lookup.EnrichmentLookup;
+import org.apache.metron.enrichment.lookup.IndicatorFilter;
 import org.apache.metron.enrichment.lookup.LookupKV;
 import org.apache.metron.enrichment.lookup.accesstracker.NoopAccessTracker;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializable {
+public class SimpleHBaseAdapter implements BatchEnrichmentAdapter<CacheKey>,Serializable {
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   protected SimpleHBaseConfig config;
   protected EnrichmentLookup lookup;
+  /**
+   * The Bloom filters of the indicators in the table, which rule out lookups of indicators which are not loaded.
+   */
+  protected transient volatile IndicatorFilter filter;
 
   public SimpleHBaseAdapter() {
   }
@@ -69,9 +77,7 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
     if(!isInitialized()) {
       initializeAdapter(null);
     }
-    List<String> enrichmentTypes = value.getConfig()
-                                        .getEnrichment().getFieldToTypeMap()
-                                        .get(EnrichmentUtils.toTopLevelField(value.getField()));
+    List<String> enrichmentTypes = getEnrichmentTypes(value);
     if(isInitialized() && enrichmentTypes != null && value.getValue() != null) {
       try {
         for (LookupKV<EnrichmentKey, EnrichmentValue> kv :
@@ -85,12 +91,7 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
                           )
             )
         {
-          if (kv != null && kv.getValue() != null && kv.getValue().getMetadata() != null) {
-            for (Map.Entry<String, Object> values : kv.getValue().getMetadata().entrySet()) {
-              enriched.put(kv.getKey().type + "." + values.getKey(), values.getValue());
-            }
-            LOG.trace("Enriched type {} => {}", kv.getKey().type, enriched);
-          }
+          addMetadata(enriched, kv);
         }
       }
       catch (IOException e) {
@@ -103,6 +104,83 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
     return enriched;
   }
 
+  /**
+   * Enrich several values with a single multi-get against the enrichment table rather than
+   * one get per value.
+   *
+   * @param values The values to enrich
+   * @return The enrichment of each value, in the same order as the values
+   */
+  @Override
+  public List<JSONObject> enrichBatch(List<CacheKey> values) {
+    List<JSONObject> enriched = new ArrayList<>(values.size());
+    if(!isInitialized()) {
+      initializeAdapter(null);
+    }
+    //the number of keys looked up for each value, so the results can be handed back to the values they belong to
+    int[] numKeys = new int[values.size()];
+    List<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys = new ArrayList<>();
+    for(int i = 0;i < values.size();++i) {
+      CacheKey value = values.get(i);
+      enriched.add(new JSONObject());
+      List<String> enrichmentTypes = getEnrichmentTypes(value);
+      if(isInitialized() && enrichmentTypes != null && value.getValue() != null) {
+        for(String enrichmentType : enrichmentTypes) {
+          keys.add(new EnrichmentUtils.TypeToKey( value.coerceValue(String.class)
+                                                , lookup.getTable()
+                                                , value.getConfig().getEnrichment()
+                                                ).apply(enrichmentType)
+                  );
+        }
+        numKeys[i] = enrichmentTypes.size();
+      }
+    }
+    if(!keys.isEmpty()) {
+      try {
+        Iterator<LookupKV<EnrichmentKey, EnrichmentValue>> results = lookup.get(keys, false).iterator();
+        for(int i = 0;i < values.size();++i) {
+          for(int j = 0;j < numKeys[i];++j) {
+            addMetadata(enriched.get(i), results.next());
+          }
+        }
+      }
+      catch (IOException e) {
+        LOG.error("Unable to retrieve values: {}", e.getMessage(), e);
+        initializeAdapter(null);
+        throw new RuntimeException("Unable to retrieve values: " + e.getMessage(), e);
+      }
+    }
+    LOG.trace("SimpleHBaseAdapter succeeded on a batch of {}", values.size());
+    return enriched;
+  }
+
+  private static void addMetadata(JSONObject enriched, LookupKV<EnrichmentKey, EnrichmentValue> kv) {
+    if (kv != null && kv.getValue() != null && kv.getValue().getMetadata() != null) {
+      for (Map.Entry<String, Object> values : kv.getValue().getMetadata().entrySet()) {
+        enriched.put(kv.getKey().type + "." + values.getKey(), values.getValue());
+      }
+      LOG.trace("Enriched type {} => {}", kv.getKey().type, enriched);
+    }
+  }
+
+  /**
+   * The enrichment types to look a value up in: those of its field for which the indicator filter does not
+   * rule the value out.
+   *
+   * @param value The value
+   * @return The enrichment types, or null if there are none
+   */
+  private List<String> getEnrichmentTypes(CacheKey value) {
+    List<String> enrichmentTypes = value.getConfig()
+                                        .getEnrichment().getFieldToTypeMap()
+                                        .get(EnrichmentUtils.toTopLevelField(value.getField()));
+    if(enrichmentTypes == null || filter == null || value.getValue() == null) {
+      return enrichmentTypes;
+    }
+    enrichmentTypes = filter.filterTypes(enrichmentTypes, value.coerceValue(String.class));
+    return enrichmentTypes.isEmpty() ? null : enrichmentTypes;
+  }
+
   @Override
   public boolean initializeAdapter(Map<String, Object> configuration) {
     String hbaseTable = config.getHBaseTable();
@@ -116,15 +194,22 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
       LOG.error("Unable to initialize adapter: {}", e.getMessage(), e);
       return false;
     }
+    if(configuration != null) {
+      updateAdapter(configuration);
+    }
     return true;
   }
 
   @Override
   public void updateAdapter(Map<String, Object> config) {
+    filter = IndicatorFilter.update(filter, config, this.config.getHBaseTable());
   }
 
   @Override
   public void cleanup() {
+    if(filter != null) {
+      filter.close();
+    }
     try {
       lookup.close();
     } catch (Exception e) {
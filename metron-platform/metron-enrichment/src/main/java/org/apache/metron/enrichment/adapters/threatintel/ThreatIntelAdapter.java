@@ -21,6 +21,8 @@ import com.google.common.collect.Iterables;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -28,19 +30,25 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.metron.enrichment.bolt.CacheKey;
 import org.apache.metron.enrichment.converter.EnrichmentKey;
-import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
+import org.apache.metron.enrichment.interfaces.BatchEnrichmentAdapter;
 import org.apache.metron.enrichment.lookup.EnrichmentLookup;
+import org.apache.metron.enrichment.lookup.IndicatorFilter;
 import org.apache.metron.enrichment.lookup.accesstracker.BloomAccessTracker;
 import org.apache.metron.enrichment.lookup.accesstracker.PersistentAccessTracker;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializable {
+public class ThreatIntelAdapter implements BatchEnrichmentAdapter<CacheKey>,Serializable {
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   protected ThreatIntelConfig config;
   protected EnrichmentLookup lookup;
+  /**
+   * The Bloom filters of the indicators in the table, which rule out lookups of indicators which are not loaded.
+   */
+  protected transient volatile IndicatorFilter filter;
 
   public ThreatIntelAdapter() {
   }
@@ -70,9 +78,7 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
       initializeAdapter(null);
     }
     JSONObject enriched = new JSONObject();
-    List<String> enrichmentTypes = value.getConfig()
-                                        .getThreatIntel().getFieldToTypeMap()
-                                        .get(EnrichmentUtils.toTopLevelField(value.getField()));
+    List<String> enrichmentTypes = getEnrichmentTypes(value);
     if(isInitialized() && enrichmentTypes != null) {
       int i = 0;
       try {
@@ -104,10 +110,85 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
     return enriched;
   }
 
+  /**
+   * Check several values against the threat intel table with a single call rather than
+   * one call per value.
+   *
+   * @param values The values to enrich
+   * @return The enrichment of each value, in the same order as the values
+   */
+  @Override
+  public List<JSONObject> enrichBatch(List<CacheKey> values) {
+    if(!isInitialized()) {
+      initializeAdapter(null);
+    }
+    List<JSONObject> enriched = new ArrayList<>(values.size());
+    //the enrichment types checked for each value, so the results can be handed back to the values they belong to
+    List<List<String>> typesByValue = new ArrayList<>(values.size());
+    List<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys = new ArrayList<>();
+    for(CacheKey value : values) {
+      enriched.add(new JSONObject());
+      List<String> enrichmentTypes = getEnrichmentTypes(value);
+      if(isInitialized() && enrichmentTypes != null) {
+        for(String enrichmentType : enrichmentTypes) {
+          keys.add(new EnrichmentUtils.TypeToKey( value.coerceValue(String.class)
+                                                , lookup.getTable()
+                                                , value.getConfig().getThreatIntel()
+                                                ).apply(enrichmentType)
+                  );
+        }
+        typesByValue.add(enrichmentTypes);
+      }
+      else {
+        typesByValue.add(null);
+      }
+    }
+    if(!keys.isEmpty()) {
+      try {
+        Iterator<Boolean> isThreat = lookup.exists(keys, false).iterator();
+        for(int i = 0;i < values.size();++i) {
+          if(typesByValue.get(i) == null) {
+            continue;
+          }
+          for(String enrichmentType : typesByValue.get(i)) {
+            if(isThreat.next()) {
+              enriched.get(i).put(enrichmentType, "alert");
+            }
+          }
+        }
+      }
+      catch(IOException e) {
+        LOG.error("Unable to retrieve values: {}", e.getMessage(), e);
+        initializeAdapter(null);
+        throw new RuntimeException("Theat Intel Unable to retrieve values", e);
+      }
+    }
+    LOG.trace("Threat Intel Enrichment Success on a batch of {}", values.size());
+    return enriched;
+  }
+
   public boolean isInitialized() {
     return lookup != null && lookup.getTable() != null;
   }
 
+  /**
+   * The enrichment types to look a value up in: those of its field for which the indicator filter does not
+   * rule the value out.
+   *
+   * @param value The value
+   * @return The enrichment types, or null if there are none
+   */
+  private List<String> getEnrichmentTypes(CacheKey value) {
+    List<String> enrichmentTypes = value.getConfig()
+                                        .getThreatIntel().getFieldToTypeMap()
+                                        .get(EnrichmentUtils.toTopLevelField(value.getField()));
+    if(enrichmentTypes == null || filter == null) {
+      return enrichmentTypes;
+    }
+    enrichmentTypes = filter.filterTypes(enrichmentTypes, value.coerceValue(String.class));
+    return enrichmentTypes.isEmpty() ? null : enrichmentTypes;
+  }
+
   @Override
   public boolean initializeAdapter(Map<String, Object> configuration) {
     PersistentAccessTracker accessTracker;
@@ -132,16 +213,23 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
       LOG.error("Unable to initialize ThreatIntelAdapter", e);
       return false;
     }
+    if(configuration != null) {
+      updateAdapter(configuration);
+    }
 
     return true;
   }
 
   @Override
   public void updateAdapter(Map<String, Object> config) {
+    filter = IndicatorFilter.update(filter, config, this.config.getHBaseTable());
   }
 
   @Override
   public void cleanup() {
+    if(filter != null) {
+      filter.close();
+    }
     try {
       lookup.close();
     } catch (Exception e) {
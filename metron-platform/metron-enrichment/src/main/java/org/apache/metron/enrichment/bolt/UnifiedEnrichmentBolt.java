@@ -30,13 +30,18 @@ import org.apache.metron.common.utils.MessageUtils;
 import org.apache.metron.enrichment.adapters.geo.GeoLiteDatabase;
 import org.apache.metron.enrichment.configuration.Enrichment;
 import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
+import org.apache.metron.enrichment.parallel.EnrichmentCacheMetric;
 import org.apache.metron.enrichment.parallel.EnrichmentContext;
 import org.apache.metron.enrichment.parallel.EnrichmentStrategies;
+import org.apache.metron.enrichment.parallel.LatencyHistogram;
 import org.apache.metron.enrichment.parallel.ParallelEnricher;
 import org.apache.metron.enrichment.parallel.ConcurrencyContext;
 import org.apache.metron.enrichment.parallel.WorkerPoolStrategies;
 import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.storm.Config;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -47,11 +52,17 @@ import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This bolt is a unified enrichment/threat intel bolt.  In contrast to the split/enrich/join
@@ -82,6 +93,20 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
    */
   public static final String THREADPOOL_TYPE_TOPOLOGY_CONF = "metron.threadpool.type";
 
+  /**
+   * The prefix of the name of the Storm metric which reports the latency of the bolt; the strategy is appended.
+   */
+  public static final String LATENCY_METRIC_PREFIX = "enrichmentLatency.";
+
+  /**
+   * The maximum number of messages enriched at once when enriching asynchronously and no maximum is given.
+   */
+  public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+  /**
+   * The default size in bytes of the cache shared between the workers on a host.
+   */
+  public static final long DEFAULT_SHARED_CACHE_SIZE = 256L * 1024 * 1024;
+
   /**
    * The enricher implementation to use.  This will do the parallel enrichment via a thread pool.
    */
@@ -126,6 +151,35 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
   protected String messageFieldName;
   protected EnrichmentContext enrichmentContext;
   protected boolean captureCacheStats = true;
+  /**
+   * The maximum number of lookups against a batch enrichment adapter (e.g. HBase) to coalesce into one
+   * request.  If this is unset, lookups are not batched.
+   */
+  protected Integer lookupBatchSize;
+  /**
+   * The maximum time in milliseconds a lookup waits for its batch to fill before it is sent.
+   */
+  protected long lookupBatchTimeout = 10;
+  /**
+   * The maximum number of messages the bolt enriches at once.  If this is set (or lookups are batched), the bolt
+   * enriches asynchronously: it does not wait for a message to be enriched before moving on to the next tuple.
+   */
+  protected Integer maxInFlight;
+  /**
+   * The directory holding the enrichment cache shared between the workers on a host.  If this is unset,
+   * each worker only has its own cache.
+   */
+  protected String sharedCachePath;
+  /**
+   * The size in bytes of the cache shared between the workers on a host.
+   */
+  protected long sharedCacheSize = DEFAULT_SHARED_CACHE_SIZE;
+  /**
+   * The permits for the messages being enriched asynchronously; null if the bolt enriches synchronously.
+   */
+  private Semaphore inFlight;
+  private int inFlightLimit;
+  private LatencyHistogram latency;
 
   public UnifiedEnrichmentBolt(String zookeeperUrl) {
     super(zookeeperUrl);
@@ -225,12 +279,68 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
   }
 
 
+  /**
+   * Coalesce the lookups against batch enrichment adapters into batches of up to this size.
+   * When lookups are batched, the bolt does not wait for a message's enrichments to complete before
+   * moving on to the next tuple.
+   * @param lookupBatchSize The maximum number of lookups in a batch, or 0 to not batch lookups
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withLookupBatchSize(int lookupBatchSize) {
+    this.lookupBatchSize = lookupBatchSize > 0 ? lookupBatchSize : null;
+    return this;
+  }
+
+  /**
+   * Enrich asynchronously, with at most this many messages being enriched at once.  Once this many
+   * are outstanding, the bolt waits for one to complete before taking the next tuple.  This is capped by
+   * the topology's max spout pending, if set.
+   * @param maxInFlight The maximum number of messages being enriched at once, or 0 for the default
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withMaxInFlight(int maxInFlight) {
+    this.maxInFlight = maxInFlight > 0 ? maxInFlight : null;
+    return this;
+  }
+
+  /**
+   * Back the per-worker enrichment cache with a cache shared between the workers on the same host.  The shared
+   * cache is a memory-mapped file in this directory, so it should be on local (ideally memory backed) storage.
+   * @param sharedCachePath The directory holding the shared cache, or empty to not share the cache
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withSharedCachePath(String sharedCachePath) {
+    this.sharedCachePath = sharedCachePath == null || sharedCachePath.isEmpty() ? null : sharedCachePath;
+    return this;
+  }
+
+  /**
+   * @param sharedCacheSize The size in bytes of the cache shared between the workers on a host
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withSharedCacheSize(long sharedCacheSize) {
+    this.sharedCacheSize = sharedCacheSize;
+    return this;
+  }
+
+  /**
+   * @param lookupBatchTimeout Maximum time in milliseconds a lookup waits for its batch to fill
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withLookupBatchTimeout(long lookupBatchTimeout) {
+    this.lookupBatchTimeout = lookupBatchTimeout;
+    return this;
+  }
+
   @Override
   public void reloadCallback(String name, ConfigurationType type) {
     if(invalidateCacheOnReload) {
       if(strategy != null && ConcurrencyContext.get(strategy).getCache() != null) {
         ConcurrencyContext.get(strategy).getCache().invalidateAll();
       }
+      if(strategy != null && ConcurrencyContext.get(strategy).getSharedCache() != null) {
+        ConcurrencyContext.get(strategy).getSharedCache().invalidateAll();
+      }
     }
     if(type == ConfigurationType.GLOBAL && enrichmentsByType != null) {
       for(EnrichmentAdapter adapter : enrichmentsByType.values()) {
@@ -249,11 +359,17 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
    * The successful enrichments will be joined with the original message and the message will
    * be sent along the "message" stream.
    *
+   * If the bolt enriches asynchronously, the enriched message is emitted and the tuple acked by the thread
+   * which completes the enrichment, in the order the enrichments complete.  The bolt is free to process other
+   * tuples while lookups are outstanding, up to the maximum number in flight.
+   *
    * @param input The input tuple to be processed.
    */
   @Override
   public void execute(Tuple input) {
+    long start = System.nanoTime();
     JSONObject message = generateMessage(input);
+    boolean ackOnReturn = true;
     try {
       String sourceType = MessageUtils.getSensorType(message);
       SensorEnrichmentConfig config = getConfigurations().getSensorEnrichmentConfig(sourceType);
@@ -265,12 +381,77 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
       //We should figure out if this can be rearchitected a bit.  This smells.
       config.getConfiguration().putIfAbsent(STELLAR_CONTEXT_CONF, stellarContext);
       String guid = getGUID(input, message);
+      SensorEnrichmentConfig sensorConfig = config;
 
       // enrich the message
-      ParallelEnricher.EnrichmentResult result = enricher.apply(message, strategy, config, perfLog);
-      JSONObject enriched = result.getResult();
-      enriched = strategy.postProcess(enriched, config, enrichmentContext);
+      if(inFlight != null) {
+        //wait for room in the window; holding up the executor here is what pushes back on the spout
+        try {
+          inFlight.acquire();
+        }
+        catch(InterruptedException e) {
+          //the worker is shutting down, so leave the message to be replayed rather than error it
+          Thread.currentThread().interrupt();
+          ackOnReturn = false;
+          synchronized (collector) {
+            collector.fail(input);
+          }
+          return;
+        }
+        CompletableFuture<ParallelEnricher.EnrichmentResult> result;
+        try {
+          //the performance logger keeps one set of marks, so it cannot time messages which overlap
+          result = enricher.applyAsync(message, strategy, config, null);
+        }
+        catch(RuntimeException e) {
+          inFlight.release();
+          throw e;
+        }
+        result.whenComplete((enrichmentResult, t) -> {
+          try {
+            if (t == null) {
+              emit(input, guid, message, sensorConfig, enrichmentResult);
+            } else {
+              handleError(message, t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+            }
+          } catch (Exception e) {
+            handleError(message, e);
+          } finally {
+            latency.record(System.nanoTime() - start);
+            synchronized (collector) {
+              collector.ack(input);
+            }
+            inFlight.release();
+          }
+        });
+        ackOnReturn = false;
+      }
+      else {
+        emit(input, guid, message, config, enricher.apply(message, strategy, config, perfLog));
+        latency.record(System.nanoTime() - start);
+      }
+    } catch (Exception e) {
+      handleError(message, e);
+    }
+    finally {
+      if(ackOnReturn) {
+        synchronized (collector) {
+          collector.ack(input);
+        }
+      }
+    }
+  }
 
+  private void emit( Tuple input
+                   , String guid
+                   , JSONObject message
+                   , SensorEnrichmentConfig config
+                   , ParallelEnricher.EnrichmentResult result
+                   ) {
+    JSONObject enriched = result.getResult();
+    enriched = strategy.postProcess(enriched, config, enrichmentContext);
+
+    synchronized (collector) {
       //we can emit the message now
       collector.emit("message",
               input,
@@ -285,19 +466,20 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
                 .addRawMessage(t.getKey());
         ErrorUtils.handleError(collector, error);
       }
-    } catch (Exception e) {
-      //If something terrible and unexpected happens then we want to send an error along, but this
-      //really shouldn't be happening.
-      LOG.error("[Metron] Unable to enrich message: {}", message, e);
-      MetronError error = new MetronError()
-              .withErrorType(strategy.getErrorType())
-              .withMessage(e.getMessage())
-              .withThrowable(e)
-              .addRawMessage(message);
-      ErrorUtils.handleError(collector, error);
     }
-    finally {
-      collector.ack(input);
+  }
+
+  private void handleError(JSONObject message, Throwable e) {
+    //If something terrible and unexpected happens then we want to send an error along, but this
+    //really shouldn't be happening.
+    LOG.error("[Metron] Unable to enrich message: {}", message, e);
+    MetronError error = new MetronError()
+            .withErrorType(strategy.getErrorType())
+            .withMessage(e.getMessage())
+            .withThrowable(e)
+            .addRawMessage(message);
+    synchronized (collector) {
+      ErrorUtils.handleError(collector, error);
     }
   }
 
@@ -353,6 +535,29 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
     else {
       throw new IllegalStateException("You must pass " + THREADPOOL_NUM_THREADS_TOPOLOGY_CONF + " via storm config.");
     }
+    if(sharedCachePath != null) {
+      File sharedCacheFile = new File(sharedCachePath, strategy.toString().toLowerCase() + ".cache");
+      try {
+        ConcurrencyContext.get(strategy).initializeSharedCache(sharedCacheFile, sharedCacheSize, maxTimeRetain, strategy, LOG);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to open the shared enrichment cache " + sharedCacheFile, e);
+      }
+    }
+    if(lookupBatchSize != null) {
+      ConcurrencyContext.get(strategy).initializeBatching(lookupBatchSize, lookupBatchTimeout, LOG);
+    }
+    if(maxInFlight != null || lookupBatchSize != null) {
+      inFlightLimit = getInFlightLimit(map);
+      LOG.info("Enriching asynchronously with at most {} messages in flight", inFlightLimit);
+      inFlight = new Semaphore(inFlightLimit);
+    }
+    latency = new LatencyHistogram();
+    if(topologyContext != null) {
+      IMetric latencyMetric = this::getLatencyMetrics;
+      topologyContext.registerMetric(LATENCY_METRIC_PREFIX + strategy, latencyMetric, getMetricsBucketSecs(map));
+      topologyContext.registerMetric(EnrichmentCacheMetric.NAME_PREFIX + strategy
+              , new EnrichmentCacheMetric(ConcurrencyContext.get(strategy)), getMetricsBucketSecs(map));
+    }
     messageGetter = this.getterStrategy.get(messageFieldName);
     enricher = new ParallelEnricher(enrichmentsByType, ConcurrencyContext.get(strategy), captureCacheStats);
     perfLog = new PerformanceLogger(() -> getConfigurations().getGlobalConfig(), Perf.class.getName());
@@ -362,6 +567,44 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
   }
 
 
+  /**
+   * The maximum number of messages in flight, which is no more than the max spout pending.  A spout
+   * never has more than that many tuples pending, so a larger window would not be filled.
+   */
+  private int getInFlightLimit(Map stormConf) {
+    int limit = maxInFlight == null ? DEFAULT_MAX_IN_FLIGHT : maxInFlight;
+    Integer maxSpoutPending = ConversionUtils.convert(stormConf.get(Config.TOPOLOGY_MAX_SPOUT_PENDING), Integer.class);
+    if(maxSpoutPending != null && maxSpoutPending > 0) {
+      limit = Math.min(limit, maxSpoutPending);
+    }
+    return Math.max(1, limit);
+  }
+
+  /**
+   * The latency of the bolt since the last report, as given by {@link LatencyHistogram#getValueAndReset()},
+   * along with the number of messages in flight when enriching asynchronously.
+   */
+  private Object getLatencyMetrics() {
+    Map<String, Long> values = latency.getValueAndReset();
+    if(inFlight != null) {
+      values.put("inFlight", (long) (inFlightLimit - inFlight.availablePermits()));
+    }
+    return values;
+  }
+
+  @Override
+  public void cleanup() {
+    if(inFlight != null) {
+      //give the outstanding enrichments a chance to be emitted rather than replayed
+      try {
+        inFlight.tryAcquire(inFlightLimit, 10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    super.cleanup();
+  }
+
   protected void initializeStellar() {
     stellarContext = new Context.Builder()
                          .with(Context.Capabilities.ZOOKEEPER_CLIENT, () -> client)
@@ -0,0 +1,39 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.interfaces;
+
+import org.json.simple.JSONObject;
+
+import java.util.List;
+
+/**
+ * An enrichment adapter which is able to enrich several values in one round trip to its
+ * backing store.  When lookup batching is enabled, the lookups for such an adapter are coalesced
+ * and handed to it together rather than one at a time.
+ */
+public interface BatchEnrichmentAdapter<T> extends EnrichmentAdapter<T> {
+
+  /**
+   * Enrich several values at once.
+   *
+   * @param values The values to enrich
+   * @return The enrichment of each value, in the same order as the values; the same result
+   * {@link #enrich(Object)} would return for that value.
+   */
+  List<JSONObject> enrichBatch(List<T> values);
+}
@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.common.utils.SerDeUtils;
+import org.apache.metron.stellar.common.utils.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The Bloom filters of the indicators loaded into an enrichment table, one per enrichment type.  A lookup
+ * of an indicator which its type's filter does not contain is a definite miss, so it need not go to HBase.
+ *
+ * The filters are written by the loaders to {@code <dir>/<table>/<type>.bloom} in HDFS and are reread
+ * periodically by a background thread, so indicators loaded since are picked up without a lookup waiting
+ * on HDFS.  A type without a filter is always looked up.
+ */
+public class IndicatorFilter implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * The global config property holding the HDFS directory of the filters.  If unset, lookups are not filtered.
+   */
+  public static final String FILTER_DIR_CONF = "enrichment.lookup.filter.hdfs.dir";
+  /**
+   * The global config property holding how often, in milliseconds, the filters are checked for updates.
+   */
+  public static final String FILTER_REFRESH_CONF = "enrichment.lookup.filter.refresh.ms";
+  public static final long DEFAULT_REFRESH_MS = 60000;
+  public static final int DEFAULT_EXPECTED_INSERTIONS = 1000000;
+  public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+  public static final String FILTER_SUFFIX = ".bloom";
+
+  public static class IndicatorSerializer implements Function<String, byte[]>, Serializable {
+    @Override
+    public byte[] apply(String indicator) {
+      return indicator.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private final FileSystem fs;
+  private final Path dir;
+  private final long refreshInterval;
+  private final ScheduledExecutorService timer;
+  private volatile Map<String, BloomFilter<String>> filters = ImmutableMap.of();
+  private volatile Map<String, Long> modificationTimes = ImmutableMap.of();
+
+  /**
+   * @param fs The file system holding the filters
+   * @param dir The directory holding the filters of the table
+   * @param refreshInterval How often, in milliseconds, the filters are checked for updates.  If not positive,
+   *                        they are only reread by {@link #refresh()}.
+   */
+  public IndicatorFilter(FileSystem fs, Path dir, long refreshInterval) {
+    this.fs = fs;
+    this.dir = dir;
+    this.refreshInterval = refreshInterval;
+    refresh();
+    if(refreshInterval > 0) {
+      timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+              .setNameFormat("indicator-filter-%d")
+              .setDaemon(true)
+              .build()
+      );
+      timer.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+    else {
+      timer = null;
+    }
+  }
+
+  /**
+   * Create the filter of a table from the global config, or keep the current one if its config has not changed.
+   *
+   * @param current The current filter of the table, or null if there is none.  It is closed if it is replaced.
+   * @param globalConfig The global config
+   * @param table The enrichment table
+   * @return The filter, or null if lookups are not filtered
+   */
+  public static IndicatorFilter update(IndicatorFilter current, Map<String, Object> globalConfig, String table) {
+    Object filterDir = globalConfig == null ? null : globalConfig.get(FILTER_DIR_CONF);
+    if(filterDir == null || filterDir.toString().isEmpty()) {
+      if(current != null) {
+        current.close();
+      }
+      return null;
+    }
+    Path dir = new Path(filterDir.toString(), table);
+    long refreshInterval = Long.parseLong(globalConfig.getOrDefault(FILTER_REFRESH_CONF, DEFAULT_REFRESH_MS).toString());
+    if(current != null && current.dir.equals(dir) && current.refreshInterval == refreshInterval) {
+      return current;
+    }
+    if(current != null) {
+      current.close();
+    }
+    try {
+      return new IndicatorFilter(FileSystem.get(new Configuration()), dir, refreshInterval);
+    }
+    catch(IOException e) {
+      throw new IllegalStateException("Unable to get the file system of " + dir + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @param enrichmentTypes The enrichment types to look the indicator up in
+   * @param indicator The indicator
+   * @return The enrichment types in which the indicator might be loaded
+   */
+  public List<String> filterTypes(List<String> enrichmentTypes, String indicator) {
+    List<String> ret = null;
+    for(int i = 0;i < enrichmentTypes.size();++i) {
+      String enrichmentType = enrichmentTypes.get(i);
+      if(mightContain(enrichmentType, indicator)) {
+        if(ret != null) {
+          ret.add(enrichmentType);
+        }
+      }
+      else if(ret == null) {
+        ret = new ArrayList<>(enrichmentTypes.subList(0, i));
+      }
+    }
+    return ret == null ? enrichmentTypes : ret;
+  }
+
+  public Path getDir() {
+    return dir;
+  }
+
+  /**
+   * @param enrichmentType The enrichment type
+   * @param indicator The indicator
+   * @return False if the indicator is definitely not loaded for the enrichment type
+   */
+  public boolean mightContain(String enrichmentType, String indicator) {
+    BloomFilter<String> filter = filters.get(enrichmentType);
+    return filter == null || indicator == null || filter.mightContain(indicator);
+  }
+
+  /**
+   * Reread the filters which have changed since they were last read.  If the filters cannot be read,
+   * lookups are not filtered until they can be.
+   */
+  public synchronized void refresh() {
+    try {
+      if(!fs.exists(dir)) {
+        filters = ImmutableMap.of();
+        modificationTimes = ImmutableMap.of();
+        return;
+      }
+      Map<String, BloomFilter<String>> newFilters = new HashMap<>();
+      Map<String, Long> newModificationTimes = new HashMap<>();
+      for(FileStatus status : fs.listStatus(dir)) {
+        String name = status.getPath().getName();
+        if(!status.isFile() || !name.endsWith(FILTER_SUFFIX)) {
+          continue;
+        }
+        String enrichmentType = name.substring(0, name.length() - FILTER_SUFFIX.length());
+        BloomFilter<String> filter = filters.get(enrichmentType);
+        if(filter == null || !Long.valueOf(status.getModificationTime()).equals(modificationTimes.get(enrichmentType))) {
+          LOG.info("Reading the indicator filter {}", status.getPath());
+          filter = read(fs, status.getPath());
+        }
+        newFilters.put(enrichmentType, filter);
+        newModificationTimes.put(enrichmentType, status.getModificationTime());
+      }
+      filters = newFilters;
+      modificationTimes = newModificationTimes;
+    }
+    catch(IOException | RuntimeException e) {
+      LOG.error("Unable to read the indicator filters in {}, so lookups are not filtered: {}", dir, e.getMessage(), e);
+      filters = ImmutableMap.of();
+      modificationTimes = ImmutableMap.of();
+    }
+  }
+
+  /**
+   * Stop rereading the filters.
+   */
+  @Override
+  public void close() {
+    if(timer != null) {
+      timer.shutdownNow();
+    }
+  }
+
+  /**
+   * @param expectedInsertions The expected number of indicators of the enrichment type
+   * @param falsePositiveRate The rate at which the filter wrongly contains an indicator
+   * @return An empty filter
+   */
+  public static BloomFilter<String> newFilter(int expectedInsertions, double falsePositiveRate) {
+    return new BloomFilter<>(new IndicatorSerializer(), expectedInsertions, falsePositiveRate);
+  }
+
+  /**
+   * @param dir The directory of the filters
+   * @param table The enrichment table
+   * @param enrichmentType The enrichment type
+   * @return The path of the filter of an enrichment type
+   */
+  public static Path getPath(Path dir, String table, String enrichmentType) {
+    return new Path(new Path(dir, table), enrichmentType + FILTER_SUFFIX);
+  }
+
+  public static BloomFilter<String> read(FileSystem fs, Path path) throws IOException {
+    try(FSDataInputStream in = fs.open(path)) {
+      return SerDeUtils.fromBytes(IOUtils.toByteArray(in), BloomFilter.class);
+    }
+  }
+
+  /**
+   * Write a filter.  It is written alongside and then moved into place, so a reader never sees it partially written.
+   */
+  public static void write(FileSystem fs, Path path, BloomFilter<String> filter) throws IOException {
+    Path tmp = new Path(path.getParent(), "." + path.getName() + ".tmp");
+    try(FSDataOutputStream out = fs.create(tmp, true)) {
+      out.write(SerDeUtils.toBytes(filter));
+    }
+    fs.delete(path, false);
+    if(!fs.rename(tmp, path)) {
+      throw new IOException("Unable to move " + tmp + " to " + path);
+    }
+  }
+
+  /**
+   * Add the indicators in a filter to the published filter of its enrichment type, creating it if it does not exist.
+   *
+   * @param fs The file system holding the filters
+   * @param path The path of the published filter
+   * @param filter The filter of the indicators loaded
+   */
+  public static void merge(FileSystem fs, Path path, BloomFilter<String> filter) throws IOException {
+    BloomFilter<String> merged = filter;
+    if(fs.exists(path)) {
+      merged = read(fs, path);
+      try {
+        merged.merge(filter);
+      }
+      catch(IllegalArgumentException e) {
+        throw new IllegalStateException("Unable to add to the indicator filter " + path
+                + ", which was created with a different expected number of insertions or false positive rate", e);
+      }
+    }
+    write(fs, path, merged);
+  }
+}
@@ -23,6 +23,8 @@ import org.apache.metron.enrichment.bolt.CacheKey;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.EnumMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -34,6 +36,8 @@ import java.util.concurrent.TimeUnit;
 public class ConcurrencyContext {
   private static Executor executor;
   private Cache<CacheKey, JSONObject> cache;
+  private SharedEnrichmentCache sharedCache;
+  private EnrichmentBatcher batcher;
 
   private static EnumMap<EnrichmentStrategies, ConcurrencyContext> strategyToInfrastructure
           = new EnumMap<EnrichmentStrategies, ConcurrencyContext>(EnrichmentStrategies.class) {{
@@ -86,6 +90,47 @@ public class ConcurrencyContext {
     }
   }
 
+  /*
+   * Front the lookups which miss the cache with a second tier cache shared by the workers on the host.  This must be
+   * called after initialize and before initializeBatching.
+   *
+   * @param path The file backing the shared cache
+   * @param maxBytes The maximum size of the shared cache in bytes
+   * @param maxTimeRetain The maximum time to retain an element in the shared cache (in minutes)
+   * @param strategy The strategy whose lookups are cached
+   * @param log The logger to use
+   */
+  public synchronized void initializeSharedCache( File path
+                                                , long maxBytes
+                                                , long maxTimeRetain
+                                                , EnrichmentStrategy strategy
+                                                , Logger log
+                                                ) throws IOException {
+    if(sharedCache == null) {
+      if (log != null) {
+        log.info("Creating new shared cache in {} with maximum size {} bytes", path, maxBytes);
+      }
+      sharedCache = new SharedEnrichmentCache(path, maxBytes, SharedEnrichmentCache.DEFAULT_SLOT_SIZE, maxTimeRetain, strategy);
+    }
+  }
+
+  /*
+   * Coalesce the lookups made against batch enrichment adapters.  This must be called after initialize and
+   * the batcher, like the cache, is per strategy.
+   *
+   * @param batchSize The maximum number of lookups sent to an adapter at once
+   * @param batchTimeout The maximum time (in milliseconds) a lookup waits for its batch to fill
+   * @param log The logger to use
+   */
+  public synchronized void initializeBatching(int batchSize, long batchTimeout, Logger log) {
+    if(batcher == null) {
+      if (log != null) {
+        log.info("Creating new lookup batcher with batch size {} and batch timeout of {} ms", batchSize, batchTimeout);
+      }
+      batcher = new EnrichmentBatcher(batchSize, batchTimeout, cache, sharedCache, executor);
+    }
+  }
+
   public static Executor getExecutor() {
     return executor;
   }
@@ -93,4 +138,18 @@ public class ConcurrencyContext {
   public Cache<CacheKey, JSONObject> getCache() {
     return cache;
   }
+
+  /**
+   * The second tier cache shared by the workers on the host, or null if there is none.
+   */
+  public SharedEnrichmentCache getSharedCache() {
+    return sharedCache;
+  }
+
+  /**
+   * The lookup batcher, or null if lookups are not batched.
+   */
+  public EnrichmentBatcher getBatcher() {
+    return batcher;
+  }
 }
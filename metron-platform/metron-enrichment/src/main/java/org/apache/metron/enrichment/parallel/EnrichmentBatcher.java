@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.parallel;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.metron.enrichment.bolt.CacheKey;
+import org.apache.metron.enrichment.interfaces.BatchEnrichmentAdapter;
+import org.json.simple.JSONObject;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the lookups made against a batch enrichment adapter so that the lookups which arrive
+ * within a short window, from any message and any thread, are sent to the adapter as one batch
+ * (e.g. a single HBase multi-get).  A batch is sent as soon as it is full or once its first lookup has
+ * waited for the batch timeout, whichever comes first.
+ *
+ * Lookups for a key which is already being looked up are not sent again; they share the outstanding
+ * result.  Results are added to the cache, and the shared cache if there is one, as they arrive.
+ */
+public class EnrichmentBatcher {
+
+  private static class Batch {
+    private final BatchEnrichmentAdapter<CacheKey> adapter;
+    private final List<CacheKey> keys = new ArrayList<>();
+    private final List<CompletableFuture<JSONObject>> results = new ArrayList<>();
+
+    private Batch(BatchEnrichmentAdapter<CacheKey> adapter) {
+      this.adapter = adapter;
+    }
+  }
+
+  private final int batchSize;
+  private final long batchTimeout;
+  private final Cache<CacheKey, JSONObject> cache;
+  private final SharedEnrichmentCache sharedCache;
+  private final Executor executor;
+  private final ScheduledExecutorService timer;
+  private final ConcurrentMap<CacheKey, CompletableFuture<JSONObject>> inFlight = new ConcurrentHashMap<>();
+  /**
+   * The batch being filled for each adapter.  Guarded by this.
+   */
+  private final Map<BatchEnrichmentAdapter<CacheKey>, Batch> pending = new IdentityHashMap<>();
+
+  /**
+   * @param batchSize The maximum number of lookups sent to an adapter at once
+   * @param batchTimeout The maximum time in milliseconds a lookup waits for its batch to fill
+   * @param cache The cache the results are added to
+   * @param sharedCache The second tier cache, or null if there is none
+   * @param executor The executor the batches are sent on
+   */
+  public EnrichmentBatcher( int batchSize
+                          , long batchTimeout
+                          , Cache<CacheKey, JSONObject> cache
+                          , SharedEnrichmentCache sharedCache
+                          , Executor executor
+                          ) {
+    this.batchSize = batchSize;
+    this.batchTimeout = batchTimeout;
+    this.cache = cache;
+    this.sharedCache = sharedCache;
+    this.executor = executor;
+    this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("enrichment-batcher-%d")
+            .setDaemon(true)
+            .build()
+    );
+  }
+
+  /**
+   * Look up a key with an adapter.  This does not block; the lookup is queued until its batch is sent.
+   *
+   * @param key The key to look up
+   * @param adapter The adapter to look it up with
+   * @return The enrichment of the key, completed exceptionally if the adapter failed
+   */
+  public CompletableFuture<JSONObject> enrich(CacheKey key, BatchEnrichmentAdapter<CacheKey> adapter) {
+    JSONObject cached = cache.getIfPresent(key);
+    if(cached == null && sharedCache != null) {
+      cached = sharedCache.getIfPresent(key);
+      if(cached != null) {
+        cache.put(key, cached);
+      }
+    }
+    if(cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    CompletableFuture<JSONObject> result = new CompletableFuture<>();
+    CompletableFuture<JSONObject> outstanding = inFlight.putIfAbsent(key, result);
+    if(outstanding != null) {
+      return outstanding;
+    }
+    Batch full = null;
+    synchronized(this) {
+      Batch batch = pending.get(adapter);
+      if(batch == null) {
+        batch = new Batch(adapter);
+        pending.put(adapter, batch);
+        Batch scheduled = batch;
+        timer.schedule(() -> expire(scheduled), batchTimeout, TimeUnit.MILLISECONDS);
+      }
+      batch.keys.add(key);
+      batch.results.add(result);
+      if(batch.keys.size() >= batchSize) {
+        pending.remove(adapter);
+        full = batch;
+      }
+    }
+    if(full != null) {
+      send(full);
+    }
+    return result;
+  }
+
+  /**
+   * The number of distinct keys currently being looked up.
+   */
+  public int getNumInFlight() {
+    return inFlight.size();
+  }
+
+  private void expire(Batch batch) {
+    synchronized(this) {
+      if(pending.get(batch.adapter) != batch) {
+        //already sent because it filled up
+        return;
+      }
+      pending.remove(batch.adapter);
+    }
+    send(batch);
+  }
+
+  private void send(Batch batch) {
+    executor.execute(() -> {
+      List<JSONObject> enriched;
+      try {
+        for(CacheKey key : batch.keys) {
+          batch.adapter.logAccess(key);
+        }
+        enriched = batch.adapter.enrichBatch(batch.keys);
+      }
+      catch(Throwable t) {
+        for(int i = 0;i < batch.keys.size();++i) {
+          inFlight.remove(batch.keys.get(i), batch.results.get(i));
+          batch.results.get(i).completeExceptionally(t);
+        }
+        return;
+      }
+      for(int i = 0;i < batch.keys.size();++i) {
+        CacheKey key = batch.keys.get(i);
+        JSONObject value = enriched.get(i);
+        if(value != null) {
+          cache.put(key, value);
+          if(sharedCache != null) {
+            sharedCache.put(key, value);
+          }
+        }
+        //only stop sharing the result once it is cached, so no lookup of the key is sent in between
+        inFlight.remove(key, batch.results.get(i));
+        batch.results.get(i).complete(value);
+      }
+    });
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.parallel;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.storm.metric.api.IMetric;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reports the activity of each tier of the enrichment cache of a strategy as a Storm metric.  Each report
+ * contains the hits, misses and hit ratio of the worker's own cache (as {@code local.*}) and, if there is one,
+ * of the cache shared by the workers on the host (as {@code shared.*}), since the previous report.
+ */
+public class EnrichmentCacheMetric implements IMetric {
+
+  public static final String NAME_PREFIX = "enrichmentCache.";
+
+  private final ConcurrencyContext context;
+  private CacheStats lastLocal = CacheStats.empty();
+  private SharedEnrichmentCache.Stats lastShared = SharedEnrichmentCache.Stats.EMPTY;
+
+  public EnrichmentCacheMetric(ConcurrencyContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public Object getValueAndReset() {
+    Map<String, Object> values = new HashMap<>();
+    if(context.getCache() != null) {
+      CacheStats local = context.getCache().stats();
+      CacheStats delta = local.minus(lastLocal);
+      lastLocal = local;
+      values.put("local.hits", delta.hitCount());
+      values.put("local.misses", delta.missCount());
+      values.put("local.hitRatio", delta.hitRate());
+      values.put("local.evictions", delta.evictionCount());
+      values.put("local.size", context.getCache().estimatedSize());
+    }
+    SharedEnrichmentCache sharedCache = context.getSharedCache();
+    if(sharedCache != null) {
+      SharedEnrichmentCache.Stats shared = sharedCache.stats();
+      SharedEnrichmentCache.Stats delta = shared.minus(lastShared);
+      lastShared = shared;
+      values.put("shared.hits", delta.getHits());
+      values.put("shared.misses", delta.getMisses());
+      values.put("shared.hitRatio", delta.getHitRate());
+      values.put("shared.writes", delta.getWrites());
+      values.put("shared.evictions", delta.getEvictions());
+      values.put("shared.rejections", delta.getRejections());
+    }
+    return values;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.parallel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of latencies.  Latencies are counted in power of two buckets of microseconds,
+ * so a percentile is reported as the upper bound of the bucket it falls in, which is within a factor
+ * of two of the true value.  The latencies are reported and reset in the same way as a Storm metric.
+ */
+public class LatencyHistogram {
+
+  /**
+   * Bucket 0 holds latencies under a microsecond and bucket i holds latencies in [2^(i-1), 2^i) microseconds.
+   * The last bucket also holds everything longer, which is over 9 days.
+   */
+  private static final int NUM_BUCKETS = 41;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+  private final LongAdder totalMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+
+  /**
+   * Records a latency.
+   *
+   * @param elapsedNanos The latency.
+   */
+  public void record(long elapsedNanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    buckets.incrementAndGet(Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    totalMicros.add(micros);
+    maxMicros.accumulate(micros);
+  }
+
+  /**
+   * Returns the number of latencies recorded, as {@code count}, along with their mean, median, 95th and
+   * 99th percentiles and maximum in microseconds, as {@code meanUs}, {@code p50Us}, {@code p95Us},
+   * {@code p99Us} and {@code maxUs}, since the last call.
+   *
+   * @return The latencies since the last call.
+   */
+  public Map<String, Long> getValueAndReset() {
+    long[] counts = new long[NUM_BUCKETS];
+    long count = 0;
+    for (int i = 0; i < NUM_BUCKETS; ++i) {
+      counts[i] = buckets.getAndSet(i, 0);
+      count += counts[i];
+    }
+    long total = totalMicros.sumThenReset();
+    long max = maxMicros.getThenReset();
+
+    Map<String, Long> values = new HashMap<>();
+    values.put("count", count);
+    values.put("meanUs", count == 0 ? 0 : total / count);
+    values.put("p50Us", percentile(counts, count, 0.50, max));
+    values.put("p95Us", percentile(counts, count, 0.95, max));
+    values.put("p99Us", percentile(counts, count, 0.99, max));
+    values.put("maxUs", max);
+    return values;
+  }
+
+  private static long percentile(long[] counts, long count, double percentile, long max) {
+    long rank = (long) Math.ceil(percentile * count);
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS && count > 0; ++i) {
+      seen += counts[i];
+      if (seen >= rank) {
+        // the upper bound of the bucket, which can be no more than the longest latency seen
+        return Math.min((1L << i) - 1, max);
+      }
+    }
+    return max;
+  }
+}
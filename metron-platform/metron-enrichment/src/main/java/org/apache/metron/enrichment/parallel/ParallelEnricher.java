@@ -25,6 +25,7 @@ import org.apache.metron.common.configuration.enrichment.handler.ConfigHandler;
 import org.apache.metron.common.performance.PerformanceLogger;
 import org.apache.metron.common.utils.MessageUtils;
 import org.apache.metron.enrichment.bolt.CacheKey;
+import org.apache.metron.enrichment.interfaces.BatchEnrichmentAdapter;
 import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
 import org.json.simple.JSONObject;
@@ -39,8 +40,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.function.BinaryOperator;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -52,6 +55,7 @@ public class ParallelEnricher {
 
   private Map<String, EnrichmentAdapter<CacheKey>> enrichmentsByType = new HashMap<>();
   private EnumMap<EnrichmentStrategies, CacheStats> cacheStats = new EnumMap<>(EnrichmentStrategies.class);
+  private EnumMap<EnrichmentStrategies, SharedEnrichmentCache.Stats> sharedCacheStats = new EnumMap<>(EnrichmentStrategies.class);
 
   /**
    * The result of an enrichment.
@@ -117,8 +121,27 @@ public class ParallelEnricher {
                          , SensorEnrichmentConfig config
                          , PerformanceLogger perfLog
                          ) throws ExecutionException, InterruptedException {
+    return applyAsync(message, strategy, config, perfLog).get();
+  }
+
+  /**
+   * Fully enriches a message without waiting for the enrichments to complete.  Each enrichment is done in
+   * parallel via a threadpool and is fronted with a LRU cache.  If the concurrency context has a batcher,
+   * the lookups against batch enrichment adapters are coalesced with those of other messages.
+   *
+   * @param message the message to enrich
+   * @param strategy The enrichment strategy to use (e.g. enrichment or threat intel)
+   * @param config The sensor enrichment config
+   * @param perfLog The performance logger.  We log the performance for this call, the split portion and the enrichment portion.
+   * @return the enrichment result, completed once every enrichment has completed
+   */
+  public CompletableFuture<EnrichmentResult> applyAsync( JSONObject message
+                                                       , EnrichmentStrategies strategy
+                                                       , SensorEnrichmentConfig config
+                                                       , PerformanceLogger perfLog
+                                                       ) {
     if(message == null) {
-      return null;
+      return CompletableFuture.completedFuture(null);
     }
     if(perfLog != null) {
       perfLog.mark("execute");
@@ -130,6 +153,13 @@ public class ParallelEnricher {
           perfLog.log("cache", delta.toString());
         }
         cacheStats.put(strategy, after);
+        SharedEnrichmentCache sharedCache = concurrencyContext.getSharedCache();
+        if(sharedCache != null) {
+          SharedEnrichmentCache.Stats sharedBefore = sharedCacheStats.getOrDefault(strategy, SharedEnrichmentCache.Stats.EMPTY);
+          SharedEnrichmentCache.Stats sharedAfter = sharedCache.stats();
+          perfLog.log("sharedCache", sharedAfter.minus(sharedBefore).toString());
+          sharedCacheStats.put(strategy, sharedAfter);
+        }
       }
     }
     String sensorType = MessageUtils.getSensorType(message);
@@ -150,6 +180,8 @@ public class ParallelEnricher {
     }
     List<CompletableFuture<JSONObject>> taskList = new ArrayList<>();
     List<Map.Entry<Object, Throwable>> errors = Collections.synchronizedList(new ArrayList<>());
+    EnrichmentBatcher batcher = concurrencyContext.getBatcher();
+    SharedEnrichmentCache sharedCache = concurrencyContext.getSharedCache();
     for(Map.Entry<String, List<JSONObject>> task : tasks.entrySet()) {
       //task is the list of enrichment tasks for the task.getKey() adapter
       EnrichmentAdapter<CacheKey> adapter = enrichmentsByType.get(task.getKey());
@@ -175,20 +207,32 @@ public class ParallelEnricher {
           }
           CacheKey cacheKey = new CacheKey(field, value, config);
           String prefix = adapter.getOutputPrefix(cacheKey);
+          Function<Throwable, JSONObject> onError = e -> {
+            JSONObject errorMessage = new JSONObject();
+            errorMessage.putAll(m);
+            errorMessage.put(Constants.SENSOR_TYPE, sensorType );
+            errors.add(new AbstractMap.SimpleEntry<>(errorMessage, new IllegalStateException(strategy + " error with " + task.getKey() + " failed: " + e.getMessage(), e)));
+            return new JSONObject();
+          };
+          if(batcher != null && adapter instanceof BatchEnrichmentAdapter) {
+            //the lookup is coalesced with the other lookups against this adapter, from this message and others
+            taskList.add(batcher.enrich(cacheKey, (BatchEnrichmentAdapter<CacheKey>) adapter)
+                                .thenApply(ret -> adjustKeys(ret, cacheKey, prefix))
+                                .exceptionally(e -> onError.apply(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e))
+                        );
+            continue;
+          }
           Supplier<JSONObject> supplier = () -> {
             try {
-              JSONObject ret = concurrencyContext.getCache().get(cacheKey, new EnrichmentCallable(cacheKey, adapter));
-              if(ret == null) {
-                ret = new JSONObject();
-              }
-              //each enrichment has their own unique prefix to use to adjust the keys for the enriched fields.
-              return EnrichmentUtils.adjustKeys(new JSONObject(), ret, cacheKey.getField(), prefix);
+              EnrichmentCallable callable = new EnrichmentCallable(cacheKey, adapter);
+              //on a miss, try the cache shared by the workers on the host before the adapter itself
+              JSONObject ret = concurrencyContext.getCache().get(cacheKey, sharedCache == null
+                                                                         ? callable
+                                                                         : key -> sharedCache.get(key, callable)
+                                                                );
+              return adjustKeys(ret, cacheKey, prefix);
             } catch (Throwable e) {
-              JSONObject errorMessage = new JSONObject();
-              errorMessage.putAll(m);
-              errorMessage.put(Constants.SENSOR_TYPE, sensorType );
-              errors.add(new AbstractMap.SimpleEntry<>(errorMessage, new IllegalStateException(strategy + " error with " + task.getKey() + " failed: " + e.getMessage(), e)));
-              return new JSONObject();
+              return onError.apply(e);
             }
           };
           //add the Future to the task list
@@ -197,17 +241,27 @@ public class ParallelEnricher {
       }
     }
     if(taskList.isEmpty()) {
-      return new EnrichmentResult(message, errors);
+      return CompletableFuture.completedFuture(new EnrichmentResult(message, errors));
     }
 
-    EnrichmentResult ret = new EnrichmentResult(all(taskList, message, (left, right) -> join(left, right)).get(), errors);
-    message.put(getClass().getSimpleName().toLowerCase() + ".enrich.end.ts", "" + System.currentTimeMillis());
-    if(perfLog != null) {
-      String key = message.get(Constants.GUID) + "";
-      perfLog.log("enrich", "key={}, elapsed time to enrich", key);
-      perfLog.log("execute", "key={}, elapsed time to run execute", key);
+    return all(taskList, message, (left, right) -> join(left, right)).thenApply(enriched -> {
+      EnrichmentResult ret = new EnrichmentResult(enriched, errors);
+      message.put(getClass().getSimpleName().toLowerCase() + ".enrich.end.ts", "" + System.currentTimeMillis());
+      if(perfLog != null) {
+        String key = message.get(Constants.GUID) + "";
+        perfLog.log("enrich", "key={}, elapsed time to enrich", key);
+        perfLog.log("execute", "key={}, elapsed time to run execute", key);
+      }
+      return ret;
+    });
+  }
+
+  private static JSONObject adjustKeys(JSONObject ret, CacheKey cacheKey, String prefix) {
+    if(ret == null) {
+      ret = new JSONObject();
     }
-    return ret;
+    //each enrichment has their own unique prefix to use to adjust the keys for the enriched fields.
+    return EnrichmentUtils.adjustKeys(new JSONObject(), ret, cacheKey.getField(), prefix);
   }
 
   private static JSONObject join(JSONObject left, JSONObject right) {
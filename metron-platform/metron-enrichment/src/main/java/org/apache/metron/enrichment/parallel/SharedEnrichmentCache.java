@@ -0,0 +1,492 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.parallel;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.Hashing;
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.common.utils.SerDeUtils;
+import org.apache.metron.enrichment.bolt.CacheKey;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * A second tier of enrichment cache which lives in a memory mapped file, so that it is shared by every
+ * worker on a host which maps the same file and survives the restart of those workers.
+ *
+ * The file is a fixed number of fixed size slots, so the cache is bounded by the size of the file.  Each
+ * key hashes to a pair of slots; a new entry replaces an expired entry or else the older of the pair.  An
+ * entry which does not fit in a slot is not cached here.  Values are serialized with {@link SerDeUtils}.
+ *
+ * Reads take no locks; every entry carries a checksum, so a read which overlaps a write is a miss rather
+ * than a corrupt value.  Writes to a slot are serialized by a lock on that region of the file.
+ *
+ * Only lookups of a single field value (e.g. HBase, geo or host enrichments) are shared.  Since the key
+ * cannot refer to the config object of one particular worker, it holds a fingerprint of the enrichment
+ * config of the strategy instead, so changing the config misses on all of the existing entries.
+ */
+public class SharedEnrichmentCache implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final int DEFAULT_SLOT_SIZE = 1024;
+
+  private static final long MAGIC = 0x4d4554524f4e4543L;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 64;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 8;
+  private static final int SLOT_SIZE_OFFSET = 12;
+  private static final int NUM_SLOTS_OFFSET = 16;
+  private static final int GENERATION_OFFSET = 20;
+
+  private static final int CHECKSUM_OFFSET = 0;
+  private static final int ENTRY_GENERATION_OFFSET = 4;
+  private static final int KEY_HASH_OFFSET = 8;
+  private static final int WRITE_TIME_OFFSET = 16;
+  private static final int KEY_LENGTH_OFFSET = 24;
+  private static final int VALUE_LENGTH_OFFSET = 28;
+  private static final int SLOT_HEADER_SIZE = 32;
+
+  /**
+   * The locks which serialize the writes of this process to each file.  A process may only hold one lock on a
+   * region of a file, so every cache over the same file in this process shares these.
+   */
+  private static final int NUM_STRIPES = 64;
+  private static final ConcurrentMap<String, ReentrantLock[]> STRIPES = new ConcurrentHashMap<>();
+
+  /**
+   * The activity of the cache.
+   */
+  public static class Stats {
+    public static final Stats EMPTY = new Stats(0, 0, 0, 0, 0);
+
+    private final long hits;
+    private final long misses;
+    private final long writes;
+    private final long evictions;
+    private final long rejections;
+
+    public Stats(long hits, long misses, long writes, long evictions, long rejections) {
+      this.hits = hits;
+      this.misses = misses;
+      this.writes = writes;
+      this.evictions = evictions;
+      this.rejections = rejections;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * The number of entries written.
+     */
+    public long getWrites() {
+      return writes;
+    }
+
+    /**
+     * The number of live entries which were replaced by the entry of another key.
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     * The number of entries which were not written because they do not fit in a slot or could not be serialized.
+     */
+    public long getRejections() {
+      return rejections;
+    }
+
+    public double getHitRate() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 1.0 : (double) hits / lookups;
+    }
+
+    public Stats minus(Stats other) {
+      return new Stats( hits - other.hits
+                      , misses - other.misses
+                      , writes - other.writes
+                      , evictions - other.evictions
+                      , rejections - other.rejections
+                      );
+    }
+
+    @Override
+    public String toString() {
+      return "Stats{hits=" + hits + ", misses=" + misses + ", hitRate=" + getHitRate() + ", writes=" + writes
+              + ", evictions=" + evictions + ", rejections=" + rejections + "}";
+    }
+  }
+
+  private final EnrichmentStrategy strategy;
+  private final long maxTimeRetain;
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int slotSize;
+  private final int numSlots;
+  private final ReentrantLock[] stripes;
+  private final Cache<SensorEnrichmentConfig, String> fingerprints = Caffeine.newBuilder().weakKeys().build();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder writes = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+
+  /**
+   * Open the cache in a file, creating it if it does not exist or if it was created with a different size.
+   *
+   * @param path The file to map
+   * @param maxBytes The size of the file; at most 2GB
+   * @param slotSize The size in bytes of a slot, which bounds the size of an entry
+   * @param maxTimeRetain The maximum time to retain an entry (in minutes)
+   * @param strategy The strategy whose lookups are cached
+   */
+  public SharedEnrichmentCache( File path
+                              , long maxBytes
+                              , int slotSize
+                              , long maxTimeRetain
+                              , EnrichmentStrategy strategy
+                              ) throws IOException {
+    long numSlots = ((Math.min(maxBytes, Integer.MAX_VALUE) - HEADER_SIZE) / slotSize) & ~1L;
+    if(slotSize <= SLOT_HEADER_SIZE || numSlots < 2) {
+      throw new IllegalArgumentException("A shared cache of " + maxBytes + " bytes cannot hold slots of " + slotSize + " bytes");
+    }
+    this.slotSize = slotSize;
+    this.numSlots = (int) numSlots;
+    this.maxTimeRetain = TimeUnit.MINUTES.toMillis(maxTimeRetain);
+    this.strategy = strategy;
+    this.stripes = STRIPES.computeIfAbsent(path.getCanonicalPath(), p -> {
+      ReentrantLock[] locks = new ReentrantLock[NUM_STRIPES];
+      for(int i = 0;i < NUM_STRIPES;++i) {
+        locks[i] = new ReentrantLock();
+      }
+      return locks;
+    });
+    if(path.getParentFile() != null) {
+      path.getParentFile().mkdirs();
+    }
+    long size = HEADER_SIZE + numSlots * slotSize;
+    this.file = new RandomAccessFile(path, "rw");
+    this.channel = file.getChannel();
+    lockAll();
+    try (FileLock lock = channel.lock()) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      boolean reuse = channel.size() == size
+                   && channel.read(header, 0) == HEADER_SIZE
+                   && header.getLong(MAGIC_OFFSET) == MAGIC
+                   && header.getInt(VERSION_OFFSET) == VERSION
+                   && header.getInt(SLOT_SIZE_OFFSET) == slotSize
+                   && header.getInt(NUM_SLOTS_OFFSET) == numSlots;
+      if(reuse) {
+        LOG.info("Reusing shared enrichment cache {} with {} slots of {} bytes", path, numSlots, slotSize);
+      }
+      else {
+        LOG.info("Creating shared enrichment cache {} with {} slots of {} bytes", path, numSlots, slotSize);
+        //start from an empty file, which reads as zeros, so every slot is free
+        file.setLength(0);
+        file.setLength(size);
+      }
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      if(!reuse) {
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(SLOT_SIZE_OFFSET, slotSize);
+        buffer.putInt(NUM_SLOTS_OFFSET, (int) numSlots);
+        buffer.putInt(GENERATION_OFFSET, 1);
+        buffer.putLong(MAGIC_OFFSET, MAGIC);
+      }
+    }
+    finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Look up a key.
+   *
+   * @param key The key
+   * @return The cached value, or null if it is not cached or cannot be shared
+   */
+  public JSONObject getIfPresent(CacheKey key) {
+    byte[] keyBytes = toBytes(key);
+    if(keyBytes == null) {
+      return null;
+    }
+    long hash = hash(keyBytes);
+    int generation = buffer.getInt(GENERATION_OFFSET);
+    int slot = firstSlot(hash);
+    for(int i = slot;i < slot + 2;++i) {
+      JSONObject value = read(i, hash, keyBytes, generation);
+      if(value != null) {
+        hits.increment();
+        return value;
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Look up a key, computing and caching its value if it is not cached.
+   *
+   * @param key The key
+   * @param loader Computes the value of the key
+   * @return The value
+   */
+  public JSONObject get(CacheKey key, Function<CacheKey, JSONObject> loader) {
+    JSONObject value = getIfPresent(key);
+    if(value == null) {
+      value = loader.apply(key);
+      if(value != null) {
+        put(key, value);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Cache the value of a key, if it can be shared and it fits.
+   *
+   * @param key The key
+   * @param value The value
+   */
+  public void put(CacheKey key, JSONObject value) {
+    byte[] keyBytes = toBytes(key);
+    if(keyBytes == null) {
+      return;
+    }
+    byte[] valueBytes;
+    try {
+      valueBytes = SerDeUtils.toBytes(value);
+    }
+    catch(IllegalStateException e) {
+      rejections.increment();
+      return;
+    }
+    int length = SLOT_HEADER_SIZE + keyBytes.length + valueBytes.length;
+    if(length > slotSize) {
+      rejections.increment();
+      return;
+    }
+    long hash = hash(keyBytes);
+    int generation = buffer.getInt(GENERATION_OFFSET);
+    long now = System.currentTimeMillis();
+
+    ByteBuffer entry = ByteBuffer.allocate(length);
+    entry.putInt(ENTRY_GENERATION_OFFSET, generation);
+    entry.putLong(KEY_HASH_OFFSET, hash);
+    entry.putLong(WRITE_TIME_OFFSET, now);
+    entry.putInt(KEY_LENGTH_OFFSET, keyBytes.length);
+    entry.putInt(VALUE_LENGTH_OFFSET, valueBytes.length);
+    System.arraycopy(keyBytes, 0, entry.array(), SLOT_HEADER_SIZE, keyBytes.length);
+    System.arraycopy(valueBytes, 0, entry.array(), SLOT_HEADER_SIZE + keyBytes.length, valueBytes.length);
+    int checksum = checksum(entry.array(), length);
+    entry.putInt(CHECKSUM_OFFSET, checksum);
+
+    int slot = chooseSlot(hash, generation, now);
+    int offset = offset(slot);
+    ReentrantLock stripe = stripes[slot % NUM_STRIPES];
+    stripe.lock();
+    try (FileLock lock = channel.lock(offset, slotSize, false)) {
+      if(isLive(offset, generation, now) && buffer.getLong(offset + KEY_HASH_OFFSET) != hash) {
+        evictions.increment();
+      }
+      //invalidate the slot while it is written, so a concurrent read fails its checksum
+      buffer.putInt(offset + CHECKSUM_OFFSET, ~checksum);
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset + ENTRY_GENERATION_OFFSET);
+      view.put(entry.array(), ENTRY_GENERATION_OFFSET, length - ENTRY_GENERATION_OFFSET);
+      buffer.putInt(offset + CHECKSUM_OFFSET, checksum);
+      writes.increment();
+    }
+    catch(IOException e) {
+      LOG.warn("Unable to write to the shared enrichment cache: {}", e.getMessage(), e);
+    }
+    finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Invalidate every entry, for every worker sharing the cache.
+   */
+  public void invalidateAll() {
+    lockAll();
+    try (FileLock lock = channel.lock(0, HEADER_SIZE, false)) {
+      buffer.putInt(GENERATION_OFFSET, buffer.getInt(GENERATION_OFFSET) + 1);
+    }
+    catch(IOException e) {
+      LOG.warn("Unable to invalidate the shared enrichment cache: {}", e.getMessage(), e);
+    }
+    finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * The activity of this process's use of the cache since it was opened.
+   */
+  public Stats stats() {
+    return new Stats(hits.sum(), misses.sum(), writes.sum(), evictions.sum(), rejections.sum());
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  private JSONObject read(int slot, long hash, byte[] keyBytes, int generation) {
+    int offset = offset(slot);
+    if(buffer.getLong(offset + KEY_HASH_OFFSET) != hash) {
+      return null;
+    }
+    int valueLength = buffer.getInt(offset + VALUE_LENGTH_OFFSET);
+    int length = SLOT_HEADER_SIZE + keyBytes.length + valueLength;
+    if(buffer.getInt(offset + KEY_LENGTH_OFFSET) != keyBytes.length || valueLength < 0 || length > slotSize) {
+      return null;
+    }
+    byte[] entry = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.get(entry);
+    ByteBuffer entryBuffer = ByteBuffer.wrap(entry);
+    if(entryBuffer.getInt(CHECKSUM_OFFSET) != checksum(entry, length)
+    || entryBuffer.getInt(ENTRY_GENERATION_OFFSET) != generation
+    || entryBuffer.getLong(KEY_HASH_OFFSET) != hash
+    || entryBuffer.getInt(KEY_LENGTH_OFFSET) != keyBytes.length
+    || entryBuffer.getInt(VALUE_LENGTH_OFFSET) != valueLength
+    || System.currentTimeMillis() - entryBuffer.getLong(WRITE_TIME_OFFSET) > maxTimeRetain
+    || !Arrays.equals(keyBytes, Arrays.copyOfRange(entry, SLOT_HEADER_SIZE, SLOT_HEADER_SIZE + keyBytes.length))
+      ) {
+      return null;
+    }
+    try {
+      return SerDeUtils.fromBytes(Arrays.copyOfRange(entry, SLOT_HEADER_SIZE + keyBytes.length, length), JSONObject.class);
+    }
+    catch(RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Choose which slot of the pair a key hashes to gets a new entry: the slot already holding the key, else
+   * a slot with no live entry, else the slot with the older entry.
+   */
+  private int chooseSlot(long hash, int generation, long now) {
+    int slot = firstSlot(hash);
+    for(int i = slot;i < slot + 2;++i) {
+      if(buffer.getLong(offset(i) + KEY_HASH_OFFSET) == hash) {
+        return i;
+      }
+    }
+    for(int i = slot;i < slot + 2;++i) {
+      if(!isLive(offset(i), generation, now)) {
+        return i;
+      }
+    }
+    return buffer.getLong(offset(slot) + WRITE_TIME_OFFSET) <= buffer.getLong(offset(slot + 1) + WRITE_TIME_OFFSET)
+         ? slot
+         : slot + 1;
+  }
+
+  private boolean isLive(int offset, int generation, long now) {
+    return buffer.getInt(offset + ENTRY_GENERATION_OFFSET) == generation
+        && now - buffer.getLong(offset + WRITE_TIME_OFFSET) <= maxTimeRetain;
+  }
+
+  private int firstSlot(long hash) {
+    return (int) ((hash & Long.MAX_VALUE) % (numSlots / 2)) * 2;
+  }
+
+  private int offset(int slot) {
+    return HEADER_SIZE + slot * slotSize;
+  }
+
+  private byte[] toBytes(CacheKey key) {
+    Object value = key.getValue();
+    if(!(value instanceof String || value instanceof Number || value instanceof Boolean) || key.getConfig() == null) {
+      return null;
+    }
+    String fingerprint = fingerprints.get(key.getConfig(), this::fingerprint);
+    if(fingerprint == null) {
+      return null;
+    }
+    return (key.getField() + '\u0000' + value.getClass().getSimpleName() + '\u0000' + value + '\u0000' + fingerprint)
+            .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private String fingerprint(SensorEnrichmentConfig config) {
+    try {
+      String json = JSONUtils.INSTANCE.toJSON(strategy.getUnderlyingConfig(config), false);
+      return Hashing.murmur3_128().hashString(json, StandardCharsets.UTF_8).toString();
+    }
+    catch(Exception e) {
+      LOG.debug("Unable to fingerprint the enrichment config, so its lookups will not be shared: {}", e.getMessage(), e);
+      return null;
+    }
+  }
+
+  private static long hash(byte[] keyBytes) {
+    return Hashing.murmur3_128().hashBytes(keyBytes).asLong();
+  }
+
+  private static int checksum(byte[] entry, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(entry, ENTRY_GENERATION_OFFSET, length - ENTRY_GENERATION_OFFSET);
+    return (int) crc.getValue();
+  }
+
+  private void lockAll() {
+    for(ReentrantLock stripe : stripes) {
+      stripe.lock();
+    }
+  }
+
+  private void unlockAll() {
+    for(ReentrantLock stripe : stripes) {
+      stripe.unlock();
+    }
+  }
+}
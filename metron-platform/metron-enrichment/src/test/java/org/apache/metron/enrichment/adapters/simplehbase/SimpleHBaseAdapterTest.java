@@ -39,7 +39,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class SimpleHBaseAdapterTest {
@@ -170,6 +172,24 @@ public class SimpleHBaseAdapterTest {
     Assert.assertNotNull(actualMessage);
     Assert.assertEquals(new JSONObject(new HashMap<String, Object>()), actualMessage);
   }
+  @Test
+  public void testEnrichBatch() throws Exception {
+    SimpleHBaseAdapter sha = new SimpleHBaseAdapter();
+    sha.lookup = lookup;
+    SensorEnrichmentConfig broSc = JSONUtils.INSTANCE.load(sourceConfigWithCFStr, SensorEnrichmentConfig.class);
+    List<JSONObject> actualMessages = sha.enrichBatch(Arrays.asList( new CacheKey("ip_dst_addr", "10.0.2.3", broSc)
+                                                                   , new CacheKey("test", "test", broSc)
+                                                                   , new CacheKey("ip_dst_addr", "10.0.2.4", broSc)
+                                                                   , new CacheKey("ip_dst_addr", "10.0.2.5", broSc)
+                                                                   )
+                                                    );
+    Assert.assertEquals(4, actualMessages.size());
+    Assert.assertEquals(expectedMessage, actualMessages.get(0));
+    Assert.assertEquals(new JSONObject(), actualMessages.get(1));
+    Assert.assertEquals(new JSONObject(ImmutableMap.of("cf1.key", "value")), actualMessages.get(2));
+    Assert.assertEquals(new JSONObject(), actualMessages.get(3));
+  }
+
   @Test(expected = Exception.class)
   public void testInitializeAdapter() {
     SimpleHBaseConfig config = new SimpleHBaseConfig();
@@ -43,7 +43,9 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 
 public class ThreatIntelAdapterTest {
@@ -136,6 +138,22 @@ public class ThreatIntelAdapterTest {
     Assert.assertEquals(actualMessage,new JSONObject());
   }
 
+  @Test
+  public void testEnrichBatch() throws Exception {
+    ThreatIntelAdapter tia = new ThreatIntelAdapter();
+    tia.lookup = lookup;
+    SensorEnrichmentConfig broSc = JSONUtils.INSTANCE.load(sourceConfigStr, SensorEnrichmentConfig.class);
+    List<JSONObject> actualMessages = tia.enrichBatch(Arrays.asList( new CacheKey("ip_dst_addr", "10.0.2.3", broSc)
+                                                                   , new CacheKey("test", "test", broSc)
+                                                                   , new CacheKey("ip_dst_addr", "10.0.2.4", broSc)
+                                                                   )
+                                                    );
+    Assert.assertEquals(3, actualMessages.size());
+    Assert.assertEquals(expectedMessage, actualMessages.get(0));
+    Assert.assertEquals(new JSONObject(), actualMessages.get(1));
+    Assert.assertEquals(new JSONObject(), actualMessages.get(2));
+  }
+
   @Test
   public void testInitializeAdapter() {
 
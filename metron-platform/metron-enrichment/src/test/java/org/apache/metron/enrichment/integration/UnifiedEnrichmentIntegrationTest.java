@@ -82,6 +82,14 @@ public class UnifiedEnrichmentIntegrationTest extends EnrichmentIntegrationTest
       // caches
       setProperty("unified_enrichment_cache_size", "1000");
       setProperty("unified_threat_intel_cache_size", "1000");
+      setProperty("unified_enrichment_shared_cache_path", "");
+      setProperty("unified_enrichment_shared_cache_size", "268435456");
+
+      // lookup batching
+      setProperty("unified_enrichment_lookup_batch_size", "0");
+      setProperty("unified_threat_intel_lookup_batch_size", "0");
+      setProperty("unified_enrichment_max_in_flight", "0");
+      setProperty("unified_threat_intel_max_in_flight", "0");
 
       // threads
       setProperty("unified_enrichment_threadpool_size", "1");
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.stellar.common.utils.BloomFilter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class IndicatorFilterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private FileSystem fs;
+  private Path dir;
+
+  @Before
+  public void setup() throws Exception {
+    fs = FileSystem.getLocal(new Configuration());
+    dir = new Path(folder.getRoot().getAbsolutePath());
+  }
+
+  private static BloomFilter<String> filterOf(String... indicators) {
+    BloomFilter<String> filter = IndicatorFilter.newFilter(1000, 0.01);
+    for(String indicator : indicators) {
+      filter.add(indicator);
+    }
+    return filter;
+  }
+
+  @Test
+  public void testFilterTypes() throws Exception {
+    IndicatorFilter.write(fs, IndicatorFilter.getPath(dir, "threatintel", "malicious_ip"), filterOf("10.0.0.1"));
+    IndicatorFilter filter = new IndicatorFilter(fs, new Path(dir, "threatintel"), 60000);
+    Assert.assertTrue(filter.mightContain("malicious_ip", "10.0.0.1"));
+    Assert.assertFalse(filter.mightContain("malicious_ip", "10.0.0.2"));
+    //a type without a filter is always looked up
+    Assert.assertTrue(filter.mightContain("malicious_domain", "10.0.0.2"));
+    Assert.assertEquals(Arrays.asList("malicious_ip", "malicious_domain")
+                       , filter.filterTypes(Arrays.asList("malicious_ip", "malicious_domain"), "10.0.0.1"));
+    Assert.assertEquals(Collections.singletonList("malicious_domain")
+                       , filter.filterTypes(Arrays.asList("malicious_ip", "malicious_domain"), "10.0.0.2"));
+  }
+
+  @Test
+  public void testUpdatesArePickedUp() throws Exception {
+    Path path = IndicatorFilter.getPath(dir, "threatintel", "malicious_ip");
+    IndicatorFilter.merge(fs, path, filterOf("10.0.0.1"));
+    IndicatorFilter filter = new IndicatorFilter(fs, new Path(dir, "threatintel"), 0);
+    Assert.assertFalse(filter.mightContain("malicious_ip", "10.0.0.2"));
+
+    IndicatorFilter.merge(fs, path, filterOf("10.0.0.2"));
+    //the modification time is only accurate to the second on some file systems
+    fs.setTimes(path, System.currentTimeMillis() + 1000, -1);
+    //a lookup does not reread the filters
+    Assert.assertFalse(filter.mightContain("malicious_ip", "10.0.0.2"));
+    filter.refresh();
+    Assert.assertTrue(filter.mightContain("malicious_ip", "10.0.0.1"));
+    Assert.assertTrue(filter.mightContain("malicious_ip", "10.0.0.2"));
+
+    fs.delete(path, false);
+    filter.refresh();
+    Assert.assertTrue(filter.mightContain("malicious_ip", "10.0.0.3"));
+  }
+
+  @Test
+  public void testUpdatesArePickedUpInTheBackground() throws Exception {
+    Path path = IndicatorFilter.getPath(dir, "threatintel", "malicious_ip");
+    IndicatorFilter.merge(fs, path, filterOf("10.0.0.1"));
+    try(IndicatorFilter filter = new IndicatorFilter(fs, new Path(dir, "threatintel"), 10)) {
+      Assert.assertFalse(filter.mightContain("malicious_ip", "10.0.0.2"));
+
+      IndicatorFilter.merge(fs, path, filterOf("10.0.0.2"));
+      fs.setTimes(path, System.currentTimeMillis() + 1000, -1);
+      long deadline = System.currentTimeMillis() + 10000;
+      while(!filter.mightContain("malicious_ip", "10.0.0.2") && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertTrue(filter.mightContain("malicious_ip", "10.0.0.2"));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMergeRequiresTheSameParameters() throws Exception {
+    Path path = IndicatorFilter.getPath(dir, "threatintel", "malicious_ip");
+    IndicatorFilter.merge(fs, path, filterOf("10.0.0.1"));
+    IndicatorFilter.merge(fs, path, IndicatorFilter.newFilter(10, 0.1));
+  }
+
+  @Test
+  public void testUpdateFromGlobalConfig() throws Exception {
+    Assert.assertNull(IndicatorFilter.update(null, ImmutableMap.of(), "threatintel"));
+    IndicatorFilter filter = IndicatorFilter.update(null
+                                                  , ImmutableMap.of(IndicatorFilter.FILTER_DIR_CONF, dir.toString())
+                                                  , "threatintel"
+                                                  );
+    Assert.assertEquals(new Path(dir, "threatintel"), filter.getDir());
+    Assert.assertSame(filter, IndicatorFilter.update(filter
+                                                   , ImmutableMap.of(IndicatorFilter.FILTER_DIR_CONF, dir.toString())
+                                                   , "threatintel"
+                                                   ));
+    Assert.assertNull(IndicatorFilter.update(filter, ImmutableMap.of(), "threatintel"));
+  }
+}
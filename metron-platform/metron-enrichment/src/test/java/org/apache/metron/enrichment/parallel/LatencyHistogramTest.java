@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.parallel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; ++i) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    Map<String, Long> values = histogram.getValueAndReset();
+    Assert.assertEquals(100L, (long) values.get("count"));
+    Assert.assertEquals(50500L, (long) values.get("meanUs"));
+    Assert.assertEquals(100000L, (long) values.get("maxUs"));
+    // each percentile is reported as the upper bound of its power of two bucket
+    Assert.assertEquals(65535L, (long) values.get("p50Us"));
+    Assert.assertEquals(100000L, (long) values.get("p95Us"));
+    Assert.assertEquals(100000L, (long) values.get("p99Us"));
+    Assert.assertTrue(values.get("p50Us") >= 50000L);
+  }
+
+  @Test
+  public void testReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+    Assert.assertEquals(3L, (long) histogram.getValueAndReset().get("p50Us"));
+    Map<String, Long> values = histogram.getValueAndReset();
+    Assert.assertEquals(0L, (long) values.get("count"));
+    Assert.assertEquals(0L, (long) values.get("meanUs"));
+    Assert.assertEquals(0L, (long) values.get("p99Us"));
+    Assert.assertEquals(0L, (long) values.get("maxUs"));
+  }
+}
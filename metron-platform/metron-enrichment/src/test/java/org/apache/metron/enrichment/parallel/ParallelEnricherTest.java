@@ -25,6 +25,7 @@ import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
 import org.apache.metron.common.utils.JSONUtils;
 import org.apache.metron.enrichment.adapters.stellar.StellarAdapter;
 import org.apache.metron.enrichment.bolt.CacheKey;
+import org.apache.metron.enrichment.interfaces.BatchEnrichmentAdapter;
 import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.StellarFunctions;
@@ -33,8 +34,12 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ParallelEnricherTest {
@@ -248,4 +253,133 @@ public class ParallelEnricherTest {
       );
     }
   }
+
+  /**
+   * {
+  "enrichment": {
+    "fieldMap": {
+      "batched" : [ "ip_src_addr", "ip_dst_addr" ]
+    }
+  ,"fieldToTypeMap": { }
+  },
+  "threatIntel": { }
+}
+   */
+  @Multiline
+  public static String batchedConfig;
+
+  private static class BatchedAdapter implements BatchEnrichmentAdapter<CacheKey> {
+    private final List<List<Object>> batches = Collections.synchronizedList(new ArrayList<>());
+    private boolean fail = false;
+
+    @Override
+    public List<JSONObject> enrichBatch(List<CacheKey> values) {
+      List<Object> batch = new ArrayList<>();
+      List<JSONObject> ret = new ArrayList<>();
+      for(CacheKey value : values) {
+        batch.add(value.getValue());
+        ret.add(enrich(value));
+      }
+      batches.add(batch);
+      if(fail) {
+        throw new IllegalStateException("lookup failed");
+      }
+      return ret;
+    }
+
+    @Override
+    public JSONObject enrich(CacheKey value) {
+      JSONObject ret = new JSONObject();
+      ret.put("looked_up", value.getValue());
+      return ret;
+    }
+
+    @Override
+    public void logAccess(CacheKey value) {
+
+    }
+
+    @Override
+    public boolean initializeAdapter(Map<String, Object> config) {
+      return true;
+    }
+
+    @Override
+    public void updateAdapter(Map<String, Object> config) {
+
+    }
+
+    @Override
+    public void cleanup() {
+
+    }
+
+    @Override
+    public String getOutputPrefix(CacheKey value) {
+      return value.getField();
+    }
+  }
+
+  @Test
+  public void testBatchedLookupsAreCoalesced() throws Exception {
+    ConcurrencyContext infrastructure = new ConcurrencyContext();
+    infrastructure.initialize(5, 100, 10, null, null, false);
+    //large enough a timeout that the batch is only sent once it is full
+    infrastructure.initializeBatching(3, 60000, null);
+    BatchedAdapter adapter = new BatchedAdapter();
+    ParallelEnricher batchedEnricher = new ParallelEnricher(ImmutableMap.of("batched", adapter), infrastructure, false);
+    SensorEnrichmentConfig config = JSONUtils.INSTANCE.load(batchedConfig, SensorEnrichmentConfig.class);
+    JSONObject first = new JSONObject() {{
+      put(Constants.SENSOR_TYPE, "test");
+      put("ip_src_addr", "10.0.0.1");
+      put("ip_dst_addr", "10.0.0.2");
+    }};
+    JSONObject second = new JSONObject() {{
+      put(Constants.SENSOR_TYPE, "test");
+      put("ip_src_addr", "10.0.0.1");
+      put("ip_dst_addr", "10.0.0.3");
+    }};
+    CompletableFuture<ParallelEnricher.EnrichmentResult> firstResult = batchedEnricher.applyAsync(first, EnrichmentStrategies.ENRICHMENT, config, null);
+    Assert.assertFalse(firstResult.isDone());
+    CompletableFuture<ParallelEnricher.EnrichmentResult> secondResult = batchedEnricher.applyAsync(second, EnrichmentStrategies.ENRICHMENT, config, null);
+
+    //the lookup of 10.0.0.1 is shared, so the three distinct lookups fill one batch
+    JSONObject ret = secondResult.get().getResult();
+    Assert.assertEquals("10.0.0.1", ret.get("enrichments.batched.ip_src_addr.looked_up"));
+    Assert.assertEquals("10.0.0.3", ret.get("enrichments.batched.ip_dst_addr.looked_up"));
+    ret = firstResult.get().getResult();
+    Assert.assertEquals("10.0.0.1", ret.get("enrichments.batched.ip_src_addr.looked_up"));
+    Assert.assertEquals("10.0.0.2", ret.get("enrichments.batched.ip_dst_addr.looked_up"));
+    Assert.assertEquals(1, adapter.batches.size());
+    Assert.assertEquals(3, adapter.batches.get(0).size());
+    Assert.assertEquals(0, infrastructure.getBatcher().getNumInFlight());
+
+    //the results are cached, so enriching the first message again does not look anything up
+    ret = batchedEnricher.apply(first, EnrichmentStrategies.ENRICHMENT, config, null).getResult();
+    Assert.assertEquals("10.0.0.2", ret.get("enrichments.batched.ip_dst_addr.looked_up"));
+    Assert.assertEquals(1, adapter.batches.size());
+  }
+
+  @Test
+  public void testBatchedLookupsAreSentAfterTimeout() throws Exception {
+    ConcurrencyContext infrastructure = new ConcurrencyContext();
+    infrastructure.initialize(5, 100, 10, null, null, false);
+    infrastructure.initializeBatching(100, 10, null);
+    BatchedAdapter adapter = new BatchedAdapter();
+    adapter.fail = true;
+    ParallelEnricher batchedEnricher = new ParallelEnricher(ImmutableMap.of("batched", adapter), infrastructure, false);
+    SensorEnrichmentConfig config = JSONUtils.INSTANCE.load(batchedConfig, SensorEnrichmentConfig.class);
+    JSONObject message = new JSONObject() {{
+      put(Constants.SENSOR_TYPE, "test");
+      put("ip_src_addr", "10.0.0.1");
+      put("ip_dst_addr", "10.0.0.2");
+    }};
+    ParallelEnricher.EnrichmentResult result = batchedEnricher.apply(message, EnrichmentStrategies.ENRICHMENT, config, null);
+    Assert.assertEquals(1, adapter.batches.size());
+    Assert.assertEquals(2, adapter.batches.get(0).size());
+    //each field of the failed batch is reported as an error
+    Assert.assertEquals(2, result.getEnrichmentErrors().size());
+    Assert.assertFalse(result.getResult().containsKey("enrichments.batched.ip_src_addr.looked_up"));
+    Assert.assertEquals(0, infrastructure.getBatcher().getNumInFlight());
+  }
 }
@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.parallel;
+
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.enrichment.bolt.CacheKey;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedEnrichmentCacheTest {
+
+  private static final long SIZE = 64 * 1024;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File path;
+  private SensorEnrichmentConfig config;
+
+  @Before
+  public void setup() throws Exception {
+    path = new File(folder.getRoot(), "enrichment.cache");
+    config = JSONUtils.INSTANCE.load("{ \"enrichment\" : { \"fieldMap\" : { \"hbaseEnrichment\" : [ \"ip_src_addr\" ] } } }"
+                                    , SensorEnrichmentConfig.class);
+  }
+
+  private SharedEnrichmentCache open() throws Exception {
+    return new SharedEnrichmentCache(path, SIZE, SharedEnrichmentCache.DEFAULT_SLOT_SIZE, 10, EnrichmentStrategies.ENRICHMENT);
+  }
+
+  private static JSONObject value(String v) {
+    JSONObject ret = new JSONObject();
+    ret.put("looked_up", v);
+    return ret;
+  }
+
+  @Test
+  public void testValuesAreSharedBetweenInstances() throws Exception {
+    CacheKey key = new CacheKey("ip_src_addr", "10.0.0.1", config);
+    try(SharedEnrichmentCache writer = open(); SharedEnrichmentCache reader = open()) {
+      Assert.assertNull(reader.getIfPresent(key));
+      writer.put(key, value("foo"));
+      Assert.assertEquals(value("foo"), reader.getIfPresent(key));
+      Assert.assertNull(reader.getIfPresent(new CacheKey("ip_src_addr", "10.0.0.2", config)));
+      Assert.assertEquals(1, reader.stats().getHits());
+      Assert.assertEquals(2, reader.stats().getMisses());
+      Assert.assertEquals(1, writer.stats().getWrites());
+    }
+    //the entries survive the processes which wrote them
+    try(SharedEnrichmentCache cache = open()) {
+      Assert.assertEquals(value("foo"), cache.getIfPresent(key));
+    }
+  }
+
+  @Test
+  public void testLoaderIsOnlyCalledOnMiss() throws Exception {
+    AtomicInteger numLoads = new AtomicInteger();
+    CacheKey key = new CacheKey("ip_src_addr", 10, config);
+    try(SharedEnrichmentCache cache = open()) {
+      for(int i = 0;i < 3;++i) {
+        Assert.assertEquals(value("bar"), cache.get(key, k -> {
+          numLoads.incrementAndGet();
+          return value("bar");
+        }));
+      }
+    }
+    Assert.assertEquals(1, numLoads.get());
+  }
+
+  @Test
+  public void testConfigChangeMisses() throws Exception {
+    SensorEnrichmentConfig changed = JSONUtils.INSTANCE.load("{ \"enrichment\" : { \"fieldMap\" : { \"hbaseEnrichment\" : [ \"ip_dst_addr\" ] } } }"
+                                                            , SensorEnrichmentConfig.class);
+    try(SharedEnrichmentCache cache = open()) {
+      cache.put(new CacheKey("ip_src_addr", "10.0.0.1", config), value("foo"));
+      Assert.assertNull(cache.getIfPresent(new CacheKey("ip_src_addr", "10.0.0.1", changed)));
+    }
+  }
+
+  @Test
+  public void testInvalidateAll() throws Exception {
+    CacheKey key = new CacheKey("ip_src_addr", "10.0.0.1", config);
+    try(SharedEnrichmentCache writer = open(); SharedEnrichmentCache reader = open()) {
+      writer.put(key, value("foo"));
+      reader.invalidateAll();
+      Assert.assertNull(writer.getIfPresent(key));
+      writer.put(key, value("bar"));
+      Assert.assertEquals(value("bar"), reader.getIfPresent(key));
+    }
+  }
+
+  @Test
+  public void testUnshareableEntriesAreNotCached() throws Exception {
+    StringBuilder large = new StringBuilder();
+    for(int i = 0;i < SharedEnrichmentCache.DEFAULT_SLOT_SIZE;++i) {
+      large.append('x');
+    }
+    try(SharedEnrichmentCache cache = open()) {
+      CacheKey tooLarge = new CacheKey("ip_src_addr", "10.0.0.1", config);
+      cache.put(tooLarge, value(large.toString()));
+      Assert.assertNull(cache.getIfPresent(tooLarge));
+      Assert.assertEquals(1, cache.stats().getRejections());
+
+      //stellar enrichments are keyed by the whole message, which is not shared
+      CacheKey stellar = new CacheKey("stellar", value("foo"), config);
+      cache.put(stellar, value("bar"));
+      Assert.assertNull(cache.getIfPresent(stellar));
+      Assert.assertEquals(0, cache.stats().getWrites());
+    }
+  }
+
+  @Test
+  public void testEntriesAreEvictedWhenFull() throws Exception {
+    try(SharedEnrichmentCache cache = open()) {
+      int numEntries = (int) (SIZE / SharedEnrichmentCache.DEFAULT_SLOT_SIZE) * 4;
+      for(int i = 0;i < numEntries;++i) {
+        cache.put(new CacheKey("ip_src_addr", "10.0.0." + i, config), value("" + i));
+      }
+      Assert.assertEquals(numEntries, cache.stats().getWrites());
+      Assert.assertTrue(cache.stats().getEvictions() > 0);
+      Assert.assertEquals(value("" + (numEntries - 1))
+                         , cache.getIfPresent(new CacheKey("ip_src_addr", "10.0.0." + (numEntries - 1), config)));
+    }
+  }
+}
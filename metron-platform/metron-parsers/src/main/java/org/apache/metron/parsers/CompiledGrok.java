@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers;
+
+import oi.thekraken.grok.api.Grok;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A matcher for a compiled {@link Grok} expression.
+ *
+ * <p>The expanded expression is compiled once as a {@link java.util.regex.Pattern} and the field name of
+ * each named group is resolved when the matcher is created, so that a match only needs to read the
+ * groups by index.  The captures are those of a {@link oi.thekraken.grok.api.Match}: groups named
+ * {@value #UNWANTED} are dropped, groups that did not participate in the match are captured as null,
+ * integers are captured as an {@link Integer} and surrounding quotes are removed from other values.
+ */
+public class CompiledGrok {
+
+  public static final String UNWANTED = "UNWANTED";
+
+  private final Pattern pattern;
+  private final int[] groups;
+  private final String[] fields;
+
+  private CompiledGrok(Pattern pattern, int[] groups, String[] fields) {
+    this.pattern = pattern;
+    this.groups = groups;
+    this.fields = fields;
+  }
+
+  /**
+   * Compiles the expression of a {@link Grok} that has already been compiled.
+   *
+   * @param grok The compiled grok.
+   * @return The compiled matcher.
+   * @throws java.util.regex.PatternSyntaxException If the expression is not a valid {@link java.util.regex.Pattern}.
+   */
+  public static CompiledGrok compile(Grok grok) {
+    List<Integer> groups = new ArrayList<>();
+    List<String> fields = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    String regex = removeGroupNames(grok.getNamedRegex(), (index, name) -> {
+      // a grok pattern that is used more than once shares its name, which captures the first use
+      if (!names.add(name)) {
+        return;
+      }
+      String field = grok.getNamedRegexCollectionById(name);
+      if (field == null) {
+        field = name;
+      }
+      if (!field.isEmpty() && !UNWANTED.equals(field)) {
+        groups.add(index);
+        fields.add(field);
+      }
+    });
+    return new CompiledGrok(Pattern.compile(regex), groups.stream().mapToInt(Integer::intValue).toArray(), fields.toArray(new String[0]));
+  }
+
+  /**
+   * Matches a line and adds the captures to a message.
+   *
+   * @param line The line to match.
+   * @param message The message to add the captures to.
+   * @return True if the line matched and false if otherwise.
+   */
+  public boolean match(CharSequence line, Map message) {
+    return match(line, message, field -> true);
+  }
+
+  /**
+   * Matches a line and adds some of the captures to a message.  The other captures are not extracted.
+   *
+   * @param line The line to match.
+   * @param message The message to add the captures to.
+   * @param captured Whether to add the capture of a field.
+   * @return True if the line matched and false if otherwise.
+   */
+  @SuppressWarnings("unchecked")
+  public boolean match(CharSequence line, Map message, Predicate<String> captured) {
+    Matcher matcher = pattern.matcher(line);
+    if (!matcher.find()) {
+      return false;
+    }
+    for (int i = 0; i < groups.length; ++i) {
+      if (captured.test(fields[i])) {
+        message.put(fields[i], toValue(matcher.group(groups[i])));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return The number of fields captured by a match.
+   */
+  public int getFieldCount() {
+    return fields.length;
+  }
+
+  private static Object toValue(String value) {
+    if (value == null || value.isEmpty()) {
+      return value;
+    }
+    if (isInteger(value)) {
+      try {
+        return Integer.parseInt(value);
+      } catch (NumberFormatException e) {
+        // too large for an integer
+      }
+    }
+    char first = value.charAt(0);
+    if ((first == '"' || first == '\'') && value.length() > 1 && value.charAt(value.length() - 1) == first) {
+      return value.substring(1, value.length() - 1);
+    }
+    return value;
+  }
+
+  private static boolean isInteger(String value) {
+    int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+    if (start == value.length()) {
+      return false;
+    }
+    for (int i = start; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  interface GroupConsumer {
+    void accept(int index, String name);
+  }
+
+  /**
+   * Replaces each named capturing group of a regular expression with an unnamed one, which has the same index.
+   * Grok may give more than one group the same name, which a {@link Pattern} does not allow.
+   *
+   * @param regex The regular expression.
+   * @param consumer Accepts the index and name of each named group, in order.
+   * @return The regular expression without group names.
+   */
+  static String removeGroupNames(String regex, GroupConsumer consumer) {
+    StringBuilder unnamed = new StringBuilder(regex.length());
+    int group = 0;
+    int classDepth = 0;
+    for (int i = 0; i < regex.length(); ++i) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        int end = i + 2;
+        if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+          int quoteEnd = regex.indexOf("\\E", i + 2);
+          end = quoteEnd < 0 ? regex.length() : quoteEnd + 2;
+        }
+        end = Math.min(end, regex.length());
+        unnamed.append(regex, i, end);
+        i = end - 1;
+        continue;
+      }
+      if (c == '[') {
+        ++classDepth;
+        unnamed.append(c);
+        // a closing bracket at the start of a class is literal
+        if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+          unnamed.append(regex.charAt(++i));
+        }
+        if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+          unnamed.append(regex.charAt(++i));
+        }
+        continue;
+      }
+      if (c == ']' && classDepth > 0) {
+        --classDepth;
+      } else if (c == '(' && classDepth == 0) {
+        if (i + 1 < regex.length() && regex.charAt(i + 1) != '?') {
+          ++group;
+        } else if (i + 3 < regex.length() && regex.charAt(i + 2) == '<' && Character.isLetter(regex.charAt(i + 3))) {
+          int end = regex.indexOf('>', i + 3);
+          consumer.accept(++group, regex.substring(i + 3, end));
+          unnamed.append(c);
+          i = end;
+          continue;
+        }
+      }
+      unnamed.append(c);
+    }
+    return unnamed.toString();
+  }
+}
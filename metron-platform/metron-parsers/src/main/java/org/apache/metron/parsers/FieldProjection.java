@@ -0,0 +1,278 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers;
+
+import org.apache.metron.common.configuration.FieldTransformer;
+import org.apache.metron.common.field.transformation.FieldTransformation;
+import org.apache.metron.common.field.transformation.RemoveTransformation;
+import org.apache.metron.common.field.transformation.RenameTransformation;
+import org.apache.metron.common.field.transformation.SelectTransformation;
+import org.apache.metron.common.field.transformation.StellarTransformation;
+import org.apache.metron.parsers.interfaces.Projectable;
+import org.apache.metron.stellar.common.StellarProcessor;
+import org.apache.metron.stellar.dsl.VariableResolver;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields of a parsed message that are used by the field transformations of a sensor or that remain after them.
+ * A field that a transformation always removes or replaces before any transformation reads it is not used, so a
+ * {@link Projectable} parser does not need to produce it.
+ *
+ * <p>The projection is found by working back from the last transformation, after which every field is used, to the
+ * first.  Each transformation drops the fields that it always removes or replaces, then adds the fields that it
+ * reads.  A transformation that may read any field, like one without an input or a Stellar expression that
+ * references the whole message, uses every field.  The system fields, which the parsers themselves set, are always
+ * used.
+ */
+public final class FieldProjection implements Serializable {
+
+  /**
+   * Every field.
+   */
+  public static final FieldProjection ALL = new FieldProjection(Collections.emptySet(), true);
+
+  private static final StellarProcessor PROCESSOR = new StellarProcessor();
+
+  // the fields that are used or, if excluded, the fields that are not
+  private final Set<String> fields;
+  private final boolean excluded;
+  // the fields that contain a used field, like foo for foo.bar
+  private final Set<String> parents = new HashSet<>();
+
+  private FieldProjection(Set<String> fields, boolean excluded) {
+    this.fields = Collections.unmodifiableSet(fields);
+    this.excluded = excluded;
+    if (!excluded) {
+      for (String field : fields) {
+        for (int i = field.indexOf('.'); i > 0; i = field.indexOf('.', i + 1)) {
+          parents.add(field.substring(0, i));
+        }
+      }
+    }
+  }
+
+  /**
+   * @param fields The fields that are used.
+   * @return The projection of only those fields.
+   */
+  public static FieldProjection including(Collection<String> fields) {
+    return new FieldProjection(new HashSet<>(fields), false);
+  }
+
+  /**
+   * @param fields The fields that are not used.
+   * @return The projection of every other field.
+   */
+  public static FieldProjection excluding(Collection<String> fields) {
+    return new FieldProjection(new HashSet<>(fields), true);
+  }
+
+  /**
+   * Finds the fields that are used by a list of field transformations or that remain after them.
+   *
+   * @param transformations The field transformations of a sensor, in the order that they are applied.
+   * @return The projection of the used fields.
+   */
+  public static FieldProjection of(List<FieldTransformer> transformations) {
+    FieldProjection projection = ALL;
+    if (transformations != null) {
+      for (int i = transformations.size() - 1; i >= 0; --i) {
+        if (transformations.get(i) != null) {
+          projection = projection.before(transformations.get(i));
+        }
+      }
+    }
+    return projection.add(SelectTransformation.SYSTEM_FIELDS);
+  }
+
+  /**
+   * @param field The name of a field.
+   * @return Whether the field is used.
+   */
+  public boolean contains(String field) {
+    return excluded != fields.contains(field);
+  }
+
+  /**
+   * @param field The name of a field.
+   * @return Whether a field within it, named like {@code field.nested}, may be used.
+   */
+  public boolean containsNested(String field) {
+    return excluded || parents.contains(field);
+  }
+
+  /**
+   * @return Whether every field is used.
+   */
+  public boolean isAll() {
+    return excluded && fields.isEmpty();
+  }
+
+  /**
+   * @return The fields that are used or, if {@link #isExcluded()}, the fields that are not.
+   */
+  public Set<String> getFields() {
+    return fields;
+  }
+
+  /**
+   * @return Whether {@link #getFields()} are the fields that are not used.
+   */
+  public boolean isExcluded() {
+    return excluded;
+  }
+
+  /**
+   * @return The fields that are used before a transformation, given those that are used after it.
+   */
+  private FieldProjection before(FieldTransformer transformer) {
+    FieldTransformation transformation = transformer.getFieldTransformation();
+    // a transformation without an input is given the whole message
+    List<String> input = transformer.getInput() == null || transformer.getInput().isEmpty() ? null : transformer.getInput();
+    List<String> output = transformer.getOutput() == null ? Collections.emptyList() : transformer.getOutput();
+    Map<String, Object> config = transformer.getConfig() == null ? Collections.emptyMap() : transformer.getConfig();
+    if (transformation instanceof SelectTransformation) {
+      Set<String> selected = new HashSet<>(output);
+      selected.addAll(SelectTransformation.SYSTEM_FIELDS);
+      if (input == null) {
+        return retain(selected);
+      }
+      Set<String> removed = new HashSet<>(input);
+      removed.removeAll(selected);
+      return remove(removed);
+    }
+    if (transformation instanceof RemoveTransformation) {
+      Object condition = config.get(RemoveTransformation.CONDITION_CONF);
+      if (!(condition instanceof String)) {
+        return remove(output);
+      }
+      return add(input != null ? input : variables(condition.toString()));
+    }
+    if (transformation instanceof StellarTransformation) {
+      Set<String> assigned = new HashSet<>();
+      Set<String> read = new HashSet<>();
+      for (Map.Entry<String, Object> kv : config.entrySet()) {
+        if (kv.getValue() != null) {
+          if (output.contains(kv.getKey())) {
+            assigned.add(kv.getKey());
+          }
+          Set<String> variables = variables(kv.getValue().toString());
+          if (variables == null && input == null) {
+            return ALL;
+          }
+          if (variables != null) {
+            read.addAll(variables);
+          }
+        }
+      }
+      return remove(assigned).add(input != null ? input : read);
+    }
+    if (transformation instanceof RenameTransformation) {
+      Set<String> renamed = new HashSet<>();
+      for (Map.Entry<String, Object> kv : config.entrySet()) {
+        if (kv.getValue() != null && (input == null || input.contains(kv.getKey()))) {
+          renamed.add(kv.getKey());
+        }
+      }
+      return remove(renamed).add(renamed);
+    }
+    // any other transformation may read all of its input
+    return add(input);
+  }
+
+  /**
+   * @return The variables of a Stellar expression, or null if it may read any field.
+   */
+  private static Set<String> variables(String expression) {
+    Set<String> variables;
+    try {
+      variables = PROCESSOR.variablesUsed(expression);
+    } catch (RuntimeException e) {
+      return null;
+    }
+    if (variables == null) {
+      return Collections.emptySet();
+    }
+    return variables.contains(VariableResolver.ALL_FIELDS) ? null : variables;
+  }
+
+  /**
+   * @param used The fields to add, or null for every field.
+   */
+  private FieldProjection add(Collection<String> used) {
+    if (used == null) {
+      return ALL;
+    }
+    Set<String> ret = new HashSet<>(fields);
+    if (excluded) {
+      ret.removeAll(used);
+    } else {
+      ret.addAll(used);
+    }
+    return new FieldProjection(ret, excluded);
+  }
+
+  private FieldProjection remove(Collection<String> unused) {
+    Set<String> ret = new HashSet<>(fields);
+    if (excluded) {
+      ret.addAll(unused);
+    } else {
+      ret.removeAll(unused);
+    }
+    return new FieldProjection(ret, excluded);
+  }
+
+  private FieldProjection retain(Collection<String> kept) {
+    Set<String> ret = new HashSet<>(kept);
+    if (excluded) {
+      ret.removeAll(fields);
+    } else {
+      ret.retainAll(fields);
+    }
+    return new FieldProjection(ret, false);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    FieldProjection that = (FieldProjection) o;
+    return excluded == that.excluded && fields.equals(that.fields);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * fields.hashCode() + (excluded ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    return isAll() ? "all fields" : (excluded ? "all fields except " : "") + fields;
+  }
+}
@@ -29,6 +29,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.metron.common.Constants;
 import org.apache.metron.parsers.interfaces.MessageParser;
 import org.apache.metron.parsers.interfaces.MessageParserResult;
+import org.apache.metron.parsers.interfaces.Projectable;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,17 +44,28 @@ import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TimeZone;
+import java.util.function.Predicate;
+import java.util.regex.PatternSyntaxException;
 
 
-public class GrokParser implements MessageParser<JSONObject>, Serializable {
+public class GrokParser implements MessageParser<JSONObject>, Projectable, Serializable {
 
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -65,6 +77,13 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
   protected String timestampField;
   protected SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.S z");
   protected String patternsCommonDir = "/patterns/common";
+  protected boolean compiled = false;
+  protected transient CompiledGrok compiledGrok;
+  protected transient DateTimeFormatter dateTimeFormatter;
+  protected List<String> patternLabels;
+  protected boolean indexPatterns = true;
+  protected transient MultiGrok multiGrok;
+  protected FieldProjection projection = FieldProjection.ALL;
 
   @Override
   @SuppressWarnings("unchecked")
@@ -74,7 +93,16 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
     if (!StringUtils.isBlank(multiLineString)) {
       multiLine = Boolean.parseBoolean(multiLineString);
     }
+    String compiledString = (String) parserConfig.get("compiled");
+    if (!StringUtils.isBlank(compiledString)) {
+      compiled = Boolean.parseBoolean(compiledString);
+    }
     this.patternLabel = (String) parserConfig.get("patternLabel");
+    this.patternLabels = (List<String>) parserConfig.get("patternLabels");
+    String indexPatternsString = (String) parserConfig.get("indexPatterns");
+    if (!StringUtils.isBlank(indexPatternsString)) {
+      indexPatterns = Boolean.parseBoolean(indexPatternsString);
+    }
     this.timestampField = (String) parserConfig.get("timestampField");
     List<String> timeFieldsParam = (List<String>) parserConfig.get("timeFields");
     if (timeFieldsParam != null) {
@@ -94,6 +122,16 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
     }
   }
 
+  /**
+   * Drops the fields that are not used from each message.  Unless the parser is a subclass, which may read
+   * any field after matching, the fields that are not used or converted are not extracted from a match of a
+   * compiled expression.
+   */
+  @Override
+  public void project(FieldProjection projection) {
+    this.projection = projection;
+  }
+
   public InputStream openInputStream(String streamName) throws IOException {
     FileSystem fs = FileSystem.get(new Configuration());
     Path path = new Path(streamName);
@@ -126,6 +164,15 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
       }
       grok.addPatternFromReader(new InputStreamReader(patterInputStream));
 
+      if (patternLabels != null && !patternLabels.isEmpty()) {
+        multiGrok = MultiGrok.compile(grok.getPatterns(), patternLabels, compiled, indexPatterns);
+        LOG.debug("Grok parser indexed the patterns {}", multiGrok.getLiterals());
+        if (compiled) {
+          initCompiled();
+        }
+        return;
+      }
+
       if (LOG.isDebugEnabled()) {
         LOG.debug("Grok parser set the following grok expression: {}", grok.getNamedRegexCollectionById(patternLabel));
       }
@@ -135,12 +182,116 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
       grok.compile(grokPattern);
       LOG.debug("Compiled grok pattern {}", grokPattern);
 
+      if (compiled) {
+        initCompiled();
+      }
+
     } catch (Throwable e) {
       LOG.error(e.getMessage(), e);
       throw new RuntimeException("Grok parser Error: " + e.getMessage(), e);
     }
   }
 
+  /**
+   * Compiles the expanded grok expression and the date format.  Either one falls back to the
+   * default behavior if it cannot be compiled.
+   */
+  private void initCompiled() {
+    if (multiGrok == null) {
+      try {
+        compiledGrok = CompiledGrok.compile(grok);
+        LOG.debug("Grok parser compiled {} fields", compiledGrok.getFieldCount());
+      } catch (PatternSyntaxException e) {
+        LOG.warn("Grok parser unable to compile the expression of {}; using the grok matcher: {}", patternLabel, e.getMessage());
+      }
+    }
+    dateTimeFormatter = toDateTimeFormatter(dateFormat.toPattern(), dateFormat.getTimeZone());
+    if (dateTimeFormatter == null) {
+      LOG.warn("Grok parser unable to compile the date format {}; using the DateFormat", dateFormat.toPattern());
+    }
+  }
+
+  /**
+   * Creates a formatter that parses the same dates as a {@link SimpleDateFormat} pattern.
+   *
+   * @return The formatter or null if the pattern uses letters that the formatter does not support.
+   */
+  static DateTimeFormatter toDateTimeFormatter(String pattern, TimeZone timeZone) {
+    DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().parseCaseInsensitive();
+    String letters = "";
+    try {
+      for (int i = 0; i < pattern.length(); ) {
+        char c = pattern.charAt(i);
+        int end = i + 1;
+        if (c == '\'') {
+          // quoted text is the same in both
+          end = pattern.indexOf('\'', i + 1) + 1;
+          while (end > 0 && end < pattern.length() && pattern.charAt(end) == '\'') {
+            end = pattern.indexOf('\'', end + 1) + 1;
+          }
+          if (end <= 0) {
+            return null;
+          }
+          builder.appendPattern(pattern.substring(i, end));
+        } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+          while (end < pattern.length() && pattern.charAt(end) == c) {
+            ++end;
+          }
+          if ("GyMdHhmsSEDkKaZXw".indexOf(c) < 0) {
+            // java.time reads zone names differently, e.g. EST observes daylight saving and IST is Israel, not India
+            return null;
+          }
+          if (c == 'S') {
+            // milliseconds, rather than a fraction of a second
+            builder.appendValue(ChronoField.MILLI_OF_SECOND, Math.min(end - i, 3), 3, SignStyle.NOT_NEGATIVE);
+          } else if (c == 'y' && end - i <= 2) {
+            // an abbreviated year of two digits is within 80 years before and 20 years after now, any other is literal
+            builder.appendValueReduced(ChronoField.YEAR_OF_ERA, 2, 10, LocalDate.now().minusYears(80));
+          } else {
+            builder.appendPattern(pattern.substring(i, end));
+          }
+          letters += c;
+        } else {
+          builder.appendLiteral(c);
+        }
+        i = end;
+      }
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+
+    // the DateFormat defaults each missing field to the start of the epoch
+    if (letters.indexOf('y') < 0) {
+      builder.parseDefaulting(ChronoField.YEAR_OF_ERA, 1970);
+    }
+    if (letters.indexOf('M') < 0 && letters.indexOf('D') < 0) {
+      builder.parseDefaulting(ChronoField.MONTH_OF_YEAR, 1);
+    }
+    if (letters.indexOf('d') < 0 && letters.indexOf('D') < 0) {
+      builder.parseDefaulting(ChronoField.DAY_OF_MONTH, 1);
+    }
+    if (letters.indexOf('H') < 0 && letters.indexOf('k') < 0) {
+      if (letters.indexOf('h') < 0 && letters.indexOf('K') < 0) {
+        builder.parseDefaulting(ChronoField.HOUR_OF_DAY, 0);
+      } else if (letters.indexOf('a') < 0) {
+        builder.parseDefaulting(ChronoField.AMPM_OF_DAY, 0);
+      }
+    }
+    if (letters.indexOf('m') < 0) {
+      builder.parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0);
+    }
+    if (letters.indexOf('s') < 0) {
+      builder.parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0);
+    }
+    // the DateFormat is lenient, so that e.g. the 30th of February is in March
+    DateTimeFormatter formatter = builder.toFormatter(Locale.getDefault()).withResolverStyle(ResolverStyle.LENIENT);
+    if (letters.indexOf('Z') < 0 && letters.indexOf('X') < 0) {
+      // the zone of the DateFormat is only used if the date does not include one
+      formatter = formatter.withZone(timeZone.toZoneId());
+    }
+    return formatter;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Optional<MessageParserResult<JSONObject>> parseOptionalResult(byte[] rawMessage) {
@@ -164,12 +315,9 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
       while ((originalMessage = reader.readLine()) != null) {
         LOG.debug("Grok parser parsing message: {}", originalMessage);
         try {
-          Match gm = grok.match(originalMessage);
-          gm.captures();
           JSONObject message = new JSONObject();
-          message.putAll(gm.toMap());
 
-          if (message.size() == 0) {
+          if (!match(originalMessage, message)) {
             Throwable rte = new RuntimeException("Grok statement produced a null message. Original message was: "
                     + originalMessage + " and the parsed message was: " + message + " . Check the pattern at: "
                     + grokPath);
@@ -188,6 +336,7 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
           }
           message.remove(patternLabel);
           postParse(message);
+          dropUnused(message);
           messages.add(message);
           LOG.debug("Grok parser parsed message: {}", message);
         } catch (Exception e) {
@@ -214,12 +363,9 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
     try {
       originalMessage = new String(rawMessage, "UTF-8");
       LOG.debug("Grok parser parsing message: {}",originalMessage);
-      Match gm = grok.match(originalMessage);
-      gm.captures();
       JSONObject message = new JSONObject();
-      message.putAll(gm.toMap());
 
-      if (message.size() == 0) {
+      if (!match(originalMessage, message)) {
         Throwable rte = new RuntimeException("Grok statement produced a null message. Original message was: "
                 + originalMessage + " and the parsed message was: " + message + " . Check the pattern at: "
                 + grokPath);
@@ -237,6 +383,7 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
         }
         message.remove(patternLabel);
         postParse(message);
+        dropUnused(message);
         messages.add(message);
         LOG.debug("Grok parser parsed message: {}", message);
       }
@@ -251,6 +398,54 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
     return Optional.of(new DefaultMessageParserResult<JSONObject>(messages, errors));
   }
 
+  /**
+   * Matches a line and adds the captures to a message.
+   *
+   * @return Whether the line was parsed, which it is not if it does not match or, unless captures are skipped,
+   *   if it matches without capturing anything.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean match(String originalMessage, JSONObject message) {
+    Predicate<String> captured = projection.isAll() || getClass() != GrokParser.class ? field -> true : this::isCaptured;
+    boolean matched;
+    if (multiGrok != null) {
+      String label = multiGrok.match(originalMessage, message, captured);
+      if (label != null) {
+        message.remove(label);
+      }
+      matched = label != null;
+    } else if (compiledGrok != null) {
+      matched = compiledGrok.match(originalMessage, message, captured);
+    } else {
+      Match gm = grok.match(originalMessage);
+      gm.captures();
+      message.putAll(gm.toMap());
+      matched = !message.isEmpty();
+    }
+    return matched && (!message.isEmpty() || !projection.isAll());
+  }
+
+  private boolean isCaptured(String field) {
+    return projection.contains(field) || field.equals(timestampField) || timeFields.contains(field);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void dropUnused(JSONObject message) {
+    if (!projection.isAll()) {
+      message.keySet().removeIf(field -> !projection.contains((String) field));
+    }
+  }
+
+  /**
+   * Returns the metrics of each pattern, as given by {@link MultiGrok#getValueAndReset()}, when the parser
+   * matches more than one pattern.
+   *
+   * @return The metrics of each pattern, or an empty map if there is a single pattern.
+   */
+  public Map<String, Long> getPatternMetrics() {
+    return multiGrok == null ? Collections.emptyMap() : multiGrok.getValueAndReset();
+  }
+
   @Override
   public boolean validate(JSONObject message) {
     LOG.debug("Grok parser validating message: {}", message);
@@ -272,6 +467,13 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
 
   protected long toEpoch(String datetime) throws ParseException {
     LOG.debug("Grok parser converting timestamp to epoch: {}", datetime);
+    if (dateTimeFormatter != null) {
+      try {
+        return dateTimeFormatter.parse(datetime, Instant::from).toEpochMilli();
+      } catch (DateTimeException e) {
+        LOG.debug("Grok parser falling back to the DateFormat for timestamp: {}", datetime);
+      }
+    }
     LOG.debug("Grok parser's DateFormat has TimeZone: {}", dateFormat.getTimeZone());
 
     Date date = dateFormat.parse(datetime);
@@ -0,0 +1,570 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers;
+
+import oi.thekraken.grok.api.Grok;
+import oi.thekraken.grok.api.Match;
+import oi.thekraken.grok.api.exception.GrokException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Matches a line against a list of grok patterns, in order, and captures the fields of the first one that matches.
+ *
+ * <p>Rather than trying every pattern, the longest literal that any match of a pattern must contain is extracted
+ * from its expression, and all of the literals are searched for at once with an Aho-Corasick automaton.  Only the
+ * patterns whose literal occurs in the line, and the patterns without such a literal, are tried, so the first
+ * pattern that matches is the same as when every pattern is tried in order.
+ *
+ * <p>The number of times each pattern was tried and matched, and the time spent trying it, are reported in the
+ * same way as a Storm metric.
+ */
+public class MultiGrok {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static class Entry {
+    private final String label;
+    private final Grok grok;
+    private final CompiledGrok compiledGrok;
+    private final String literal;
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    private Entry(String label, Grok grok, CompiledGrok compiledGrok, String literal) {
+      this.label = label;
+      this.grok = grok;
+      this.compiledGrok = compiledGrok;
+      this.literal = literal;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean match(String line, Map message, Predicate<String> captured) {
+      if (compiledGrok != null) {
+        return compiledGrok.match(line, message, captured);
+      }
+      Match match = grok.match(line);
+      match.captures();
+      if (match.isNull()) {
+        return false;
+      }
+      message.putAll(match.toMap());
+      return true;
+    }
+  }
+
+  private final Entry[] entries;
+  private final AhoCorasick index;
+  private final BitSet unindexed = new BitSet();
+  private final LongAdder unmatched = new LongAdder();
+
+  private MultiGrok(Entry[] entries, boolean indexed) {
+    this.entries = entries;
+    List<String> literals = new ArrayList<>();
+    for (int i = 0; i < entries.length; ++i) {
+      if (indexed && entries[i].literal != null) {
+        literals.add(entries[i].literal);
+      } else {
+        literals.add(null);
+        unindexed.set(i);
+      }
+    }
+    this.index = new AhoCorasick(literals);
+  }
+
+  /**
+   * Compiles a grok pattern for each label.
+   *
+   * @param patterns The grok pattern definitions.
+   * @param labels The labels of the patterns to match, in order.
+   * @param compiled Match with a {@link CompiledGrok} where the expression can be compiled.
+   * @param indexed Only try the patterns whose required literal occurs in the line.
+   * @return The matcher.
+   * @throws GrokException If a label cannot be compiled.
+   */
+  public static MultiGrok compile(Map<String, String> patterns, List<String> labels, boolean compiled, boolean indexed)
+          throws GrokException {
+    Entry[] entries = new Entry[labels.size()];
+    for (int i = 0; i < entries.length; ++i) {
+      String label = labels.get(i);
+      Grok grok = new Grok();
+      grok.copyPatterns(patterns);
+      grok.compile("%{" + label + "}");
+      CompiledGrok compiledGrok = null;
+      if (compiled) {
+        try {
+          compiledGrok = CompiledGrok.compile(grok);
+        } catch (PatternSyntaxException e) {
+          LOG.warn("Grok parser unable to compile the expression of {}; using the grok matcher: {}", label, e.getMessage());
+        }
+      }
+      String regex = CompiledGrok.removeGroupNames(grok.getNamedRegex(), (group, name) -> {});
+      entries[i] = new Entry(label, grok, compiledGrok, longest(requiredLiterals(regex)));
+      LOG.debug("Grok parser indexed {} by the literal '{}'", label, entries[i].literal);
+    }
+    return new MultiGrok(entries, indexed);
+  }
+
+  /**
+   * Matches a line and adds the captures of the first pattern that matches to a message.
+   *
+   * @param line The line to match.
+   * @param message The message to add the captures to.
+   * @return The label of the pattern that matched or null if none did.
+   */
+  public String match(String line, Map message) {
+    return match(line, message, field -> true);
+  }
+
+  /**
+   * Matches a line and adds some of the captures of the first pattern that matches to a message.  The other
+   * captures are not extracted by the patterns that are compiled.
+   *
+   * @param line The line to match.
+   * @param message The message to add the captures to.
+   * @param captured Whether to add the capture of a field.
+   * @return The label of the pattern that matched or null if none did.
+   */
+  public String match(String line, Map message, Predicate<String> captured) {
+    BitSet candidates = index.search(line);
+    candidates.or(unindexed);
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      Entry entry = entries[i];
+      long start = System.nanoTime();
+      boolean matched = entry.match(line, message, captured);
+      entry.nanos.add(System.nanoTime() - start);
+      entry.attempts.increment();
+      if (matched) {
+        entry.hits.increment();
+        return entry.label;
+      }
+    }
+    unmatched.increment();
+    return null;
+  }
+
+  /**
+   * @return The literal that each pattern is indexed by, or null if it is always tried.
+   */
+  public Map<String, String> getLiterals() {
+    Map<String, String> ret = new TreeMap<>();
+    for (int i = 0; i < entries.length; ++i) {
+      ret.put(entries[i].label, unindexed.get(i) ? null : entries[i].literal);
+    }
+    return ret;
+  }
+
+  /**
+   * Returns, for each pattern, the number of lines it was tried against as {@code <label>.attempts}, the number
+   * that it matched as {@code <label>.hits} and the time in microseconds spent matching as {@code <label>.timeUs},
+   * as well as the number of lines that no pattern matched as {@code unmatched}, since the last call.
+   *
+   * @return The metrics of each pattern.
+   */
+  public Map<String, Long> getValueAndReset() {
+    Map<String, Long> values = new HashMap<>();
+    for (Entry entry : entries) {
+      values.put(entry.label + ".attempts", entry.attempts.sumThenReset());
+      values.put(entry.label + ".hits", entry.hits.sumThenReset());
+      values.put(entry.label + ".timeUs", TimeUnit.NANOSECONDS.toMicros(entry.nanos.sumThenReset()));
+    }
+    values.put("unmatched", unmatched.sumThenReset());
+    return values;
+  }
+
+  private static String longest(List<String> literals) {
+    String ret = null;
+    for (String literal : literals) {
+      if (ret == null || literal.length() > ret.length()) {
+        ret = literal;
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Finds the literals that must occur in any match of a regular expression, without named groups.  The
+   * search is conservative: the literals of optional or alternative parts are left out, and an expression that
+   * may be case insensitive or contains comments has none.
+   *
+   * @param regex The regular expression.
+   * @return The required literals.
+   */
+  static List<String> requiredLiterals(String regex) {
+    for (int i = regex.indexOf("(?"); i >= 0; i = regex.indexOf("(?", i + 2)) {
+      // inline flags, e.g. (?i) or (?ix-s:...)
+      for (int j = i + 2; j < regex.length() && "idmsuxU-".indexOf(regex.charAt(j)) >= 0; ++j) {
+        if (regex.charAt(j) == 'i' || regex.charAt(j) == 'x') {
+          return Collections.emptyList();
+        }
+      }
+    }
+    LiteralScanner scanner = new LiteralScanner(regex);
+    List<String> literals = scanner.sequence();
+    return literals == null ? Collections.emptyList() : literals;
+  }
+
+  private static class LiteralScanner {
+    private final String regex;
+    private int pos;
+
+    private LiteralScanner(String regex) {
+      this.regex = regex;
+    }
+
+    private boolean at(int i, char c) {
+      return i < regex.length() && regex.charAt(i) == c;
+    }
+
+    private void skipTo(char c) {
+      int end = regex.indexOf(c, pos);
+      pos = end < 0 ? regex.length() : end + 1;
+    }
+
+    /**
+     * Scans a sequence up to the closing parenthesis of its group or the end of the expression.
+     *
+     * @return The required literals, or null if the sequence has alternatives.
+     */
+    private List<String> sequence() {
+      List<String> literals = new ArrayList<>();
+      StringBuilder run = new StringBuilder();
+      boolean alternation = false;
+      while (pos < regex.length()) {
+        char c = regex.charAt(pos);
+        if (c == ')') {
+          break;
+        }
+        boolean literal = false;
+        List<String> groupLiterals = null;
+        if (c == '|') {
+          alternation = true;
+          ++pos;
+          flush(run, literals);
+          continue;
+        } else if (c == '(') {
+          flush(run, literals);
+          groupLiterals = group();
+        } else if (c == '[') {
+          flush(run, literals);
+          skipClass();
+        } else if (c == '\\') {
+          literal = escape(run);
+          if (!literal) {
+            flush(run, literals);
+          }
+        } else if (c == '.' || c == '^' || c == '$' || c == '*' || c == '+' || c == '?' || c == '{') {
+          flush(run, literals);
+          ++pos;
+        } else {
+          run.append(c);
+          ++pos;
+          literal = true;
+        }
+
+        int min = quantifier();
+        if (min >= 0 && literal) {
+          // only the last character is repeated
+          char last = run.charAt(run.length() - 1);
+          run.setLength(run.length() - 1);
+          if (min > 0) {
+            run.append(last);
+          }
+          flush(run, literals);
+        }
+        if (groupLiterals != null && min != 0) {
+          literals.addAll(groupLiterals);
+        }
+      }
+      flush(run, literals);
+      return alternation ? null : literals;
+    }
+
+    private static void flush(StringBuilder run, List<String> literals) {
+      if (run.length() > 0) {
+        literals.add(run.toString());
+        run.setLength(0);
+      }
+    }
+
+    /**
+     * @return The required literals of the group.
+     */
+    private List<String> group() {
+      ++pos;
+      boolean lookaround = false;
+      if (at(pos, '?')) {
+        ++pos;
+        if (at(pos, ':') || at(pos, '>')) {
+          ++pos;
+        } else if (at(pos, '=') || at(pos, '!')) {
+          lookaround = true;
+          ++pos;
+        } else if (at(pos, '<') && (at(pos + 1, '=') || at(pos + 1, '!'))) {
+          lookaround = true;
+          pos += 2;
+        } else if (at(pos, '<')) {
+          skipTo('>');
+        } else {
+          // inline flags, which apply to the rest of the enclosing group
+          while (pos < regex.length() && regex.charAt(pos) != ':' && regex.charAt(pos) != ')') {
+            ++pos;
+          }
+          if (at(pos, ')')) {
+            ++pos;
+            return Collections.emptyList();
+          }
+          ++pos;
+        }
+      }
+      List<String> literals = sequence();
+      ++pos;
+      return lookaround || literals == null ? Collections.emptyList() : literals;
+    }
+
+    private void skipClass() {
+      int depth = 0;
+      while (pos < regex.length()) {
+        char c = regex.charAt(pos);
+        if (c == '\\') {
+          pos += 2;
+          continue;
+        }
+        if (c == '[') {
+          ++depth;
+          ++pos;
+          // a closing bracket at the start of a class is literal
+          if (at(pos, '^')) {
+            ++pos;
+          }
+          if (at(pos, ']')) {
+            ++pos;
+          }
+          continue;
+        }
+        ++pos;
+        if (c == ']' && --depth == 0) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Scans an escape and appends it to the run if it is a literal character.
+     *
+     * @return True if the escape is a literal character.
+     */
+    private boolean escape(StringBuilder run) {
+      char c = pos + 1 < regex.length() ? regex.charAt(pos + 1) : '\\';
+      if (c == 'Q') {
+        int end = regex.indexOf("\\E", pos + 2);
+        String quoted = regex.substring(pos + 2, end < 0 ? regex.length() : end);
+        pos = end < 0 ? regex.length() : end + 2;
+        run.append(quoted);
+        return quoted.length() > 0;
+      }
+      pos += 2;
+      if (Character.isLetterOrDigit(c)) {
+        // classes, boundaries, back references and character codes are not literals
+        if ((c == 'p' || c == 'P' || c == 'x' || c == 'N') && at(pos, '{')) {
+          skipTo('}');
+        } else if (c == 'k' && at(pos, '<')) {
+          skipTo('>');
+        } else if (c == 'p' || c == 'P' || c == 'c') {
+          ++pos;
+        } else if (c == 'x') {
+          pos += 2;
+        } else if (c == 'u') {
+          pos += 4;
+        } else if (c >= '0' && c <= '9') {
+          while (pos < regex.length() && Character.isDigit(regex.charAt(pos))) {
+            ++pos;
+          }
+        }
+        return false;
+      }
+      run.append(c);
+      return true;
+    }
+
+    /**
+     * Scans a quantifier, if there is one.
+     *
+     * @return The minimum number of repetitions, or -1 if there is no quantifier.
+     */
+    private int quantifier() {
+      if (pos >= regex.length()) {
+        return -1;
+      }
+      int min;
+      char c = regex.charAt(pos);
+      if (c == '*' || c == '?') {
+        min = 0;
+        ++pos;
+      } else if (c == '+') {
+        min = 1;
+        ++pos;
+      } else if (c == '{' && pos + 1 < regex.length() && Character.isDigit(regex.charAt(pos + 1))) {
+        int start = ++pos;
+        while (pos < regex.length() && Character.isDigit(regex.charAt(pos))) {
+          ++pos;
+        }
+        min = Integer.parseInt(regex.substring(start, pos));
+        skipTo('}');
+      } else {
+        return -1;
+      }
+      // lazy and possessive quantifiers
+      if (at(pos, '?') || at(pos, '+')) {
+        ++pos;
+      }
+      return min;
+    }
+  }
+
+  /**
+   * An Aho-Corasick automaton, which finds which of a set of literals occur in a line in a single pass.
+   */
+  static class AhoCorasick {
+    private char[][] keys = new char[1][0];
+    private int[][] next = new int[1][0];
+    private int[] fail;
+    private BitSet[] outputs = new BitSet[1];
+
+    /**
+     * @param literals The literals, by id.  Null literals are never found.
+     */
+    AhoCorasick(List<String> literals) {
+      int size = 1;
+      for (int id = 0; id < literals.size(); ++id) {
+        String literal = literals.get(id);
+        if (literal == null || literal.isEmpty()) {
+          continue;
+        }
+        int state = 0;
+        for (int i = 0; i < literal.length(); ++i) {
+          int child = child(state, literal.charAt(i));
+          if (child < 0) {
+            child = size++;
+            if (child == keys.length) {
+              keys = Arrays.copyOf(keys, 2 * child);
+              next = Arrays.copyOf(next, 2 * child);
+              outputs = Arrays.copyOf(outputs, 2 * child);
+            }
+            keys[child] = new char[0];
+            next[child] = new int[0];
+            addChild(state, literal.charAt(i), child);
+          }
+          state = child;
+        }
+        if (outputs[state] == null) {
+          outputs[state] = new BitSet();
+        }
+        outputs[state].set(id);
+      }
+      keys = Arrays.copyOf(keys, size);
+      next = Arrays.copyOf(next, size);
+      outputs = Arrays.copyOf(outputs, size);
+
+      // the failure of each state is its longest proper suffix in the trie, found breadth first
+      fail = new int[size];
+      Queue<Integer> queue = new ArrayDeque<>();
+      for (int child : next[0]) {
+        queue.add(child);
+      }
+      while (!queue.isEmpty()) {
+        int state = queue.remove();
+        for (int i = 0; i < keys[state].length; ++i) {
+          int child = next[state][i];
+          fail[child] = step(fail[state], keys[state][i]);
+          if (outputs[fail[child]] != null) {
+            if (outputs[child] == null) {
+              outputs[child] = new BitSet();
+            }
+            outputs[child].or(outputs[fail[child]]);
+          }
+          queue.add(child);
+        }
+      }
+    }
+
+    private int child(int state, char c) {
+      int i = Arrays.binarySearch(keys[state], c);
+      return i < 0 ? -1 : next[state][i];
+    }
+
+    private void addChild(int state, char c, int child) {
+      int i = -Arrays.binarySearch(keys[state], c) - 1;
+      char[] k = new char[keys[state].length + 1];
+      int[] n = new int[k.length];
+      System.arraycopy(keys[state], 0, k, 0, i);
+      System.arraycopy(next[state], 0, n, 0, i);
+      k[i] = c;
+      n[i] = child;
+      System.arraycopy(keys[state], i, k, i + 1, keys[state].length - i);
+      System.arraycopy(next[state], i, n, i + 1, next[state].length - i);
+      keys[state] = k;
+      next[state] = n;
+    }
+
+    private int step(int state, char c) {
+      while (true) {
+        int child = child(state, c);
+        if (child >= 0) {
+          return child;
+        }
+        if (state == 0) {
+          return 0;
+        }
+        state = fail[state];
+      }
+    }
+
+    /**
+     * @return The ids of the literals that occur in the line.
+     */
+    BitSet search(CharSequence line) {
+      BitSet found = new BitSet();
+      int state = 0;
+      for (int i = 0; i < line.length(); ++i) {
+        state = step(state, line.charAt(i));
+        if (outputs[state] != null) {
+          found.or(outputs[state]);
+        }
+      }
+      return found;
+    }
+  }
+}
@@ -22,7 +22,10 @@ import org.apache.metron.common.message.metadata.RawMessage;
 import org.apache.metron.parsers.interfaces.MessageParserResult;
 import org.apache.metron.stellar.dsl.Context;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -57,4 +60,29 @@ public interface ParserRunner<T> {
    */
   ParserRunnerResults<T> execute(String sensorType, RawMessage rawMessage, ParserConfigurations parserConfigurations);
 
+  /**
+   * Parses a batch of messages of the same sensor type.  By default each message is executed in turn.
+   * @param sensorType Sensor type of the messages
+   * @param rawMessages Raw messages including metadata
+   * @param parserConfigurations Parser configurations
+   * @return The ParserRunnerResults of each raw message, in the same order as the raw messages
+   */
+  default List<ParserRunnerResults<T>> executeBatch(String sensorType, List<RawMessage> rawMessages, ParserConfigurations parserConfigurations) {
+    List<ParserRunnerResults<T>> results = new ArrayList<>(rawMessages.size());
+    for (RawMessage rawMessage : rawMessages) {
+      results.add(execute(sensorType, rawMessage, parserConfigurations));
+    }
+    return results;
+  }
+
+  /**
+   * Returns the metrics of the patterns of a sensor's parser since they were last returned, for parsers which
+   * match each message against several patterns.  By default there are none.
+   * @param sensorType Sensor type of the parser
+   * @return The metrics of each pattern, or an empty map if the parser does not have several patterns
+   */
+  default Map<String, Long> getPatternMetrics(String sensorType) {
+    return Collections.emptyMap();
+  }
+
 }
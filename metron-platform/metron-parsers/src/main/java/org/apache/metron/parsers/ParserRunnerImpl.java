@@ -30,6 +30,7 @@ import org.apache.metron.parsers.filters.Filters;
 import org.apache.metron.parsers.interfaces.MessageFilter;
 import org.apache.metron.parsers.interfaces.MessageParser;
 import org.apache.metron.parsers.interfaces.MessageParserResult;
+import org.apache.metron.parsers.interfaces.Projectable;
 import org.apache.metron.parsers.topology.ParserComponent;
 import org.apache.metron.stellar.dsl.Context;
 import org.json.simple.JSONObject;
@@ -39,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -46,7 +48,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -82,17 +83,114 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
     }
   }
 
+  /**
+   * The messages parsed from a batch of raw messages, along with the raw message that each was parsed from.
+   * A message is live until it is filtered out or until its raw message fails.
+   */
+  private static class Batch {
+
+    private final List<RawMessage> rawMessages;
+    private final MessageParserResult<JSONObject>[] parserResults;
+    private final Throwable[] failures;
+    private final List<JSONObject> messages = new ArrayList<>();
+    private final List<Integer> owners = new ArrayList<>();
+    // the messages of each raw message are contiguous and end before the index held for it here
+    private final int[] ends;
+    private final BitSet dropped = new BitSet();
+
+    @SuppressWarnings("unchecked")
+    Batch(List<RawMessage> rawMessages) {
+      this.rawMessages = rawMessages;
+      this.parserResults = new MessageParserResult[rawMessages.size()];
+      this.failures = new Throwable[rawMessages.size()];
+      this.ends = new int[rawMessages.size()];
+    }
+
+    void add(JSONObject message, int owner) {
+      messages.add(message);
+      owners.add(owner);
+    }
+
+    void end(int owner) {
+      ends[owner] = messages.size();
+    }
+
+    void fail(int owner, Throwable e) {
+      if (failures[owner] == null) {
+        failures[owner] = e;
+      }
+    }
+
+    void drop(List<Integer> indices, List<Boolean> emitted) {
+      for (int i = 0; i < indices.size(); ++i) {
+        if (!emitted.get(i)) {
+          dropped.set(indices.get(i));
+        }
+      }
+    }
+
+    boolean isLive(int i) {
+      return !dropped.get(i) && failures[owners.get(i)] == null;
+    }
+
+    List<Integer> live() {
+      List<Integer> live = new ArrayList<>(messages.size());
+      for (int i = 0; i < messages.size(); ++i) {
+        if (isLive(i)) {
+          live.add(i);
+        }
+      }
+      return live;
+    }
+
+    List<Integer> live(int owner) {
+      List<Integer> live = new ArrayList<>();
+      for (int i = owner == 0 ? 0 : ends[owner - 1]; i < ends[owner]; ++i) {
+        if (isLive(i)) {
+          live.add(i);
+        }
+      }
+      return live;
+    }
+
+    List<JSONObject> liveMessages() {
+      return toMessages(live());
+    }
+
+    List<JSONObject> liveMessages(int owner) {
+      return toMessages(live(owner));
+    }
+
+    private List<JSONObject> toMessages(List<Integer> indices) {
+      List<JSONObject> ret = new ArrayList<>(indices.size());
+      for (int i : indices) {
+        ret.add(messages.get(i));
+      }
+      return ret;
+    }
+  }
+
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * The parser config entry which enables field projection, where a {@link Projectable} parser only produces the
+   * fields that are used by the field transformations of the sensor or that remain after them.
+   */
+  public static final String FIELD_PROJECTION_CONFIG = "fieldProjection";
+
   protected transient Consumer<ParserRunnerResults> onSuccess;
   protected transient Consumer<MetronError> onError;
 
   private HashSet<String> sensorTypes;
   private Map<String, ParserComponent> sensorToParserComponentMap;
+  // the field transformations that the parser of each sensor was last projected for
+  private Map<String, List<FieldTransformer>> projectedTransformations = new HashMap<>();
 
   // Stellar variables
   private transient Context stellarContext;
 
+  private transient ParserStageTimings stageTimings;
+
   public ParserRunnerImpl(HashSet<String> sensorTypes) {
     this.sensorTypes = sensorTypes;
   }
@@ -103,6 +201,7 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
 
   public void setSensorToParserComponentMap(Map<String, ParserComponent> sensorToParserComponentMap) {
     this.sensorToParserComponentMap = sensorToParserComponentMap;
+    this.projectedTransformations = new HashMap<>();
   }
 
   public Context getStellarContext() {
@@ -143,6 +242,7 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
     SensorParserConfig sensorParserConfig = parserConfigurations.getSensorParserConfig(sensorType);
     if (sensorParserConfig != null) {
       MessageParser<JSONObject> parser = sensorToParserComponentMap.get(sensorType).getMessageParser();
+      project(sensorType, sensorParserConfig, parser);
       Optional<MessageParserResult<JSONObject>> optionalMessageParserResult = parser.parseOptionalResult(rawMessage.getMessage());
       if (optionalMessageParserResult.isPresent()) {
         MessageParserResult<JSONObject> messageParserResult = optionalMessageParserResult.get();
@@ -159,19 +259,7 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
                   }
                 });
 
-        // If a master exception is thrown by the MessageParser, wrap it with a MetronError and add it to the list of errors
-        messageParserResult.getMasterThrowable().ifPresent(throwable -> parserRunnerResults.addError(new MetronError()
-                .withErrorType(Constants.ErrorType.PARSER_ERROR)
-                .withThrowable(throwable)
-                .withSensorType(Collections.singleton(sensorType))
-                .addRawMessage(rawMessage.getMessage())));
-
-        // If exceptions are thrown by the MessageParser, wrap them with MetronErrors and add them to the list of errors
-        parserRunnerResults.addErrors(messageParserResult.getMessageThrowables().entrySet().stream().map(entry -> new MetronError()
-                .withErrorType(Constants.ErrorType.PARSER_ERROR)
-                .withThrowable(entry.getValue())
-                .withSensorType(Collections.singleton(sensorType))
-                .addRawMessage(entry.getKey())).collect(Collectors.toList()));
+        addParserErrors(sensorType, rawMessage, messageParserResult, parserRunnerResults);
       }
     } else {
       throw new IllegalStateException(String.format("Could not execute parser.  Cannot find configuration for sensor %s.",
@@ -180,6 +268,174 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
     return parserRunnerResults;
   }
 
+  /**
+   * Parses a batch of messages of a sensor.  Rather than post-processing each message as it is parsed, each stage
+   * (parsing, merging metadata, field transformations, filtering and validation) is run over every message of the
+   * batch before the next stage starts.  This allows the field transformations and filter to share work between
+   * the messages of the batch, and the time spent in each stage is recorded in the {@link ParserStageTimings}.
+   *
+   * <p>The results of each raw message are those that {@link #execute(String, RawMessage, ParserConfigurations)}
+   * would return, except that an exception thrown while parsing or post-processing a raw message is not thrown.
+   * Instead, the results of that raw message only contain a PARSER_ERROR and the rest of the batch is unaffected.
+   *
+   * @param sensorType Sensor type of the messages
+   * @param rawMessages Raw messages including metadata
+   * @param parserConfigurations Parser configurations
+   * @return The ParserRunnerResults of each raw message, in the same order as the raw messages
+   */
+  @Override
+  public List<ParserRunnerResults<JSONObject>> executeBatch(String sensorType, List<RawMessage> rawMessages,
+                                                            ParserConfigurations parserConfigurations) {
+    SensorParserConfig sensorParserConfig = parserConfigurations.getSensorParserConfig(sensorType);
+    if (sensorParserConfig == null) {
+      throw new IllegalStateException(String.format("Could not execute parser.  Cannot find configuration for sensor %s.",
+              sensorType));
+    }
+    ParserComponent parserComponent = sensorToParserComponentMap.get(sensorType);
+    MessageParser<JSONObject> parser = parserComponent.getMessageParser();
+    project(sensorType, sensorParserConfig, parser);
+    Batch batch = new Batch(rawMessages);
+
+    // parse each raw message
+    long start = System.nanoTime();
+    for (int i = 0; i < rawMessages.size(); ++i) {
+      try {
+        Optional<MessageParserResult<JSONObject>> messageParserResult = parser.parseOptionalResult(rawMessages.get(i).getMessage());
+        if (messageParserResult.isPresent()) {
+          batch.parserResults[i] = messageParserResult.get();
+          for (JSONObject message : messageParserResult.get().getMessages()) {
+            batch.add(message, i);
+          }
+        }
+      } catch (Throwable e) {
+        batch.fail(i, e);
+      }
+      batch.end(i);
+    }
+    start = record(ParserStageTimings.Stage.PARSE, start, rawMessages.size());
+
+    // merge the metadata of each message
+    for (int i : batch.live()) {
+      try {
+        JSONObject message = batch.messages.get(i);
+        sensorParserConfig.getRawMessageStrategy().mergeMetadata(
+                message,
+                rawMessages.get(batch.owners.get(i)).getMetadata(),
+                sensorParserConfig.getMergeMetadata(),
+                sensorParserConfig.getRawMessageStrategyConfig()
+        );
+        message.put(Constants.SENSOR_TYPE, sensorType);
+      } catch (Throwable e) {
+        batch.fail(batch.owners.get(i), e);
+      }
+    }
+    start = record(ParserStageTimings.Stage.MERGE_METADATA, start, batch.messages.size());
+
+    // transform the messages, then give each a guid
+    applyFieldTransformations(batch, sensorParserConfig);
+    List<Integer> live = batch.live();
+    for (int i : live) {
+      JSONObject message = batch.messages.get(i);
+      if (!message.containsKey(Constants.GUID)) {
+        message.put(Constants.GUID, sensorParserConfig.getGuidStrategy().generate(sensorType, message));
+      }
+    }
+    start = record(ParserStageTimings.Stage.TRANSFORM, start, live.size());
+
+    // filter the messages
+    MessageFilter<JSONObject> filter = parserComponent.getFilter();
+    if (filter != null) {
+      applyFilter(batch, filter);
+    }
+    start = record(ParserStageTimings.Stage.FILTER, start, live.size());
+
+    // validate the messages and collect the results of each raw message
+    List<DefaultParserRunnerResults> results = new ArrayList<>(rawMessages.size());
+    for (int i = 0; i < rawMessages.size(); ++i) {
+      results.add(new DefaultParserRunnerResults());
+    }
+    live = batch.live();
+    for (int i : live) {
+      int owner = batch.owners.get(i);
+      try {
+        ProcessResult processResult = validateMessage(sensorType, batch.messages.get(i), parser, parserConfigurations);
+        if (processResult.isError()) {
+          results.get(owner).addError(processResult.getError());
+        } else {
+          results.get(owner).addMessage(processResult.getMessage());
+        }
+      } catch (Throwable e) {
+        batch.fail(owner, e);
+      }
+    }
+    record(ParserStageTimings.Stage.VALIDATE, start, live.size());
+
+    for (int i = 0; i < rawMessages.size(); ++i) {
+      if (batch.failures[i] != null) {
+        DefaultParserRunnerResults failed = new DefaultParserRunnerResults();
+        failed.addError(new MetronError()
+                .withErrorType(Constants.ErrorType.PARSER_ERROR)
+                .withThrowable(batch.failures[i])
+                .withSensorType(Collections.singleton(sensorType))
+                .addRawMessage(rawMessages.get(i).getMessage()));
+        results.set(i, failed);
+      } else if (batch.parserResults[i] != null) {
+        addParserErrors(sensorType, rawMessages.get(i), batch.parserResults[i], results.get(i));
+      }
+    }
+    return new ArrayList<>(results);
+  }
+
+  /**
+   * @return The time spent in each stage of {@link #executeBatch(String, List, ParserConfigurations)}.
+   */
+  public ParserStageTimings getStageTimings() {
+    if (stageTimings == null) {
+      stageTimings = new ParserStageTimings();
+    }
+    return stageTimings;
+  }
+
+  /**
+   * Returns the metrics of each pattern of a sensor's {@link GrokParser}, when it has several patterns.
+   * @param sensorType Sensor type of the parser
+   * @return The metrics of each pattern, or an empty map if the parser does not have several patterns
+   */
+  @Override
+  public Map<String, Long> getPatternMetrics(String sensorType) {
+    ParserComponent parserComponent = sensorToParserComponentMap == null ? null : sensorToParserComponentMap.get(sensorType);
+    if (parserComponent != null && parserComponent.getMessageParser() instanceof GrokParser) {
+      return ((GrokParser) parserComponent.getMessageParser()).getPatternMetrics();
+    }
+    return Collections.emptyMap();
+  }
+
+  private long record(ParserStageTimings.Stage stage, long start, int count) {
+    long end = System.nanoTime();
+    getStageTimings().record(stage, end - start, count);
+    return end;
+  }
+
+  /**
+   * Adds the errors reported by a MessageParser to the results of a raw message.
+   */
+  private void addParserErrors(String sensorType, RawMessage rawMessage, MessageParserResult<JSONObject> messageParserResult,
+                               DefaultParserRunnerResults parserRunnerResults) {
+    // If a master exception is thrown by the MessageParser, wrap it with a MetronError and add it to the list of errors
+    messageParserResult.getMasterThrowable().ifPresent(throwable -> parserRunnerResults.addError(new MetronError()
+            .withErrorType(Constants.ErrorType.PARSER_ERROR)
+            .withThrowable(throwable)
+            .withSensorType(Collections.singleton(sensorType))
+            .addRawMessage(rawMessage.getMessage())));
+
+    // If exceptions are thrown by the MessageParser, wrap them with MetronErrors and add them to the list of errors
+    parserRunnerResults.addErrors(messageParserResult.getMessageThrowables().entrySet().stream().map(entry -> new MetronError()
+            .withErrorType(Constants.ErrorType.PARSER_ERROR)
+            .withThrowable(entry.getValue())
+            .withSensorType(Collections.singleton(sensorType))
+            .addRawMessage(entry.getKey())).collect(Collectors.toList()));
+  }
+
   /**
    * Initializes MessageParsers and MessageFilters for sensor types configured in this ParserRunner.  Objects are created
    * using reflection and the MessageParser configure and init methods are called.
@@ -188,6 +444,7 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
   private void initializeParsers(Supplier<ParserConfigurations> parserConfigSupplier) {
     LOG.info("Initializing parsers...");
     sensorToParserComponentMap = new HashMap<>();
+    projectedTransformations = new HashMap<>();
     for(String sensorType: sensorTypes) {
       if (parserConfigSupplier.get().getSensorParserConfig(sensorType) == null) {
         throw new IllegalStateException(String.format("Could not initialize parsers.  Cannot find configuration for sensor %s.",
@@ -215,10 +472,36 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
 
       parser.configure(parserConfig.getParserConfig());
       parser.init();
+      project(sensorType, parserConfig, parser);
       sensorToParserComponentMap.put(sensorType, new ParserComponent(parser, filter));
     }
   }
 
+  /**
+   * Restricts a {@link Projectable} parser to the fields that are used by the field transformations of its sensor,
+   * if field projection is enabled.  The parser is projected again whenever the field transformations are changed.
+   *
+   * @param sensorType Sensor type of the parser
+   * @param sensorParserConfig Sensor parser config
+   * @param parser MessageParser for the sensor type
+   */
+  private void project(String sensorType, SensorParserConfig sensorParserConfig, MessageParser<JSONObject> parser) {
+    if (!(parser instanceof Projectable)) {
+      return;
+    }
+    List<FieldTransformer> transformations = sensorParserConfig.getFieldTransformations();
+    if (projectedTransformations.containsKey(sensorType) && projectedTransformations.get(sensorType) == transformations) {
+      return;
+    }
+    FieldProjection projection = FieldProjection.ALL;
+    if (Boolean.parseBoolean(String.valueOf(sensorParserConfig.getParserConfig().getOrDefault(FIELD_PROJECTION_CONFIG, "false")))) {
+      projection = FieldProjection.of(transformations);
+      LOG.info("Projecting the parser of sensor {} to {}", sensorType, projection);
+    }
+    ((Projectable) parser).project(projection);
+    projectedTransformations.put(sensorType, transformations);
+  }
+
   /**
    * Post-processes parsed messages by:
    * <ul>
@@ -252,35 +535,44 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
     message.put(Constants.SENSOR_TYPE, sensorType);
     applyFieldTransformations(message, rawMessage, sensorParserConfig);
     if (!message.containsKey(Constants.GUID)) {
-      message.put(Constants.GUID, UUID.randomUUID().toString());
+      message.put(Constants.GUID, sensorParserConfig.getGuidStrategy().generate(sensorType, message));
     }
     MessageFilter<JSONObject> filter = sensorToParserComponentMap.get(sensorType).getFilter();
     if (filter == null || filter.emit(message, stellarContext)) {
-      boolean isInvalid = !parser.validate(message);
-      List<FieldValidator> failedValidators = null;
-      if (!isInvalid) {
-        failedValidators = getFailedValidators(message, parserConfigurations);
-        isInvalid = !failedValidators.isEmpty();
-      }
-      if (isInvalid) {
-        MetronError error = new MetronError()
-                .withErrorType(Constants.ErrorType.PARSER_INVALID)
-                .withSensorType(Collections.singleton(sensorType))
-                .addRawMessage(message);
-        Set<String> errorFields = failedValidators == null ? null : failedValidators.stream()
-                .flatMap(fieldValidator -> fieldValidator.getInput().stream())
-                .collect(Collectors.toSet());
-        if (errorFields != null && !errorFields.isEmpty()) {
-          error.withErrorFields(errorFields);
-        }
-        processResult = Optional.of(new ProcessResult(error));
-      } else {
-        processResult = Optional.of(new ProcessResult(message));
-      }
+      processResult = Optional.of(validateMessage(sensorType, message, parser, parserConfigurations));
     }
     return processResult;
   }
 
+  /**
+   * Validates a message using the MessageParser validate method and the field validations of the global config.
+   *
+   * @return A ProcessResult with the message if it is valid or with a MetronError if it is not.
+   */
+  private ProcessResult validateMessage(String sensorType, JSONObject message, MessageParser<JSONObject> parser,
+                                        ParserConfigurations parserConfigurations) {
+    boolean isInvalid = !parser.validate(message);
+    List<FieldValidator> failedValidators = null;
+    if (!isInvalid) {
+      failedValidators = getFailedValidators(message, parserConfigurations);
+      isInvalid = !failedValidators.isEmpty();
+    }
+    if (isInvalid) {
+      MetronError error = new MetronError()
+              .withErrorType(Constants.ErrorType.PARSER_INVALID)
+              .withSensorType(Collections.singleton(sensorType))
+              .addRawMessage(message);
+      Set<String> errorFields = failedValidators == null ? null : failedValidators.stream()
+              .flatMap(fieldValidator -> fieldValidator.getInput().stream())
+              .collect(Collectors.toSet());
+      if (errorFields != null && !errorFields.isEmpty()) {
+        error.withErrorFields(errorFields);
+      }
+      return new ProcessResult(error);
+    }
+    return new ProcessResult(message);
+  }
+
   /**
    * Applies Stellar field transformations defined in the sensor parser config.
    * @param message Message parsed by the MessageParser
@@ -309,6 +601,81 @@ public class ParserRunnerImpl implements ParserRunner<JSONObject>, Serializable
     }
   }
 
+  /**
+   * Applies the Stellar field transformations defined in the sensor parser config to a batch of messages.  Each
+   * transformation is applied to the whole batch at once, unless there is metadata that was not merged, in which case
+   * it is applied to the messages of each raw message with that metadata.  If a transformation fails for the whole
+   * batch, it is applied again to the messages of each raw message, so that only the raw messages that cause the
+   * failure fail.
+   */
+  private void applyFieldTransformations(Batch batch, SensorParserConfig sensorParserConfig) {
+    boolean passMetadata = false;
+    if (!sensorParserConfig.getMergeMetadata()) {
+      for (RawMessage rawMessage : batch.rawMessages) {
+        passMetadata |= rawMessage.getMetadata() != null && !rawMessage.getMetadata().isEmpty();
+      }
+    }
+    for (FieldTransformer handler : sensorParserConfig.getFieldTransformations()) {
+      if (handler == null) {
+        continue;
+      }
+      if (!passMetadata) {
+        try {
+          handler.transformAndUpdate(batch.liveMessages(), stellarContext, sensorParserConfig.getParserConfig());
+          continue;
+        } catch (Throwable e) {
+          LOG.debug("Unable to transform the batch; transforming each raw message instead", e);
+        }
+      }
+      for (int owner = 0; owner < batch.rawMessages.size(); ++owner) {
+        List<JSONObject> messages = batch.liveMessages(owner);
+        if (messages.isEmpty()) {
+          continue;
+        }
+        try {
+          if (passMetadata) {
+            //if we haven't merged metadata, then we need to pass them along as configuration params.
+            handler.transformAndUpdate(
+                    messages,
+                    stellarContext,
+                    sensorParserConfig.getParserConfig(),
+                    batch.rawMessages.get(owner).getMetadata()
+            );
+          } else {
+            handler.transformAndUpdate(messages, stellarContext, sensorParserConfig.getParserConfig());
+          }
+        } catch (Throwable e) {
+          batch.fail(owner, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Filters a batch of messages with the MessageFilter of the sensor.  As with the field transformations, a filter
+   * that fails for the whole batch is applied again to the messages of each raw message.
+   */
+  private void applyFilter(Batch batch, MessageFilter<JSONObject> filter) {
+    List<Integer> live = batch.live();
+    try {
+      batch.drop(live, filter.emit(batch.liveMessages(), stellarContext));
+      return;
+    } catch (Throwable e) {
+      LOG.debug("Unable to filter the batch; filtering each raw message instead", e);
+    }
+    for (int owner = 0; owner < batch.rawMessages.size(); ++owner) {
+      List<Integer> messages = batch.live(owner);
+      if (messages.isEmpty()) {
+        continue;
+      }
+      try {
+        batch.drop(messages, filter.emit(batch.liveMessages(owner), stellarContext));
+      } catch (Throwable e) {
+        batch.fail(owner, e);
+      }
+    }
+  }
+
   private List<FieldValidator> getFailedValidators(JSONObject message, ParserConfigurations parserConfigurations) {
     List<FieldValidator> fieldValidations = parserConfigurations.getFieldValidations();
     List<FieldValidator> failedValidators = new ArrayList<>();
@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the time spent in, and the number of messages handled by, each stage of a batched
+ * {@link ParserRunner}.  The timings are reported and reset in the same way as a Storm metric, so that
+ * they can be exported from a bolt or from any other driver of the runner.
+ */
+public class ParserStageTimings {
+
+  public enum Stage {
+    PARSE("parse"),
+    MERGE_METADATA("mergeMetadata"),
+    TRANSFORM("transform"),
+    FILTER("filter"),
+    VALIDATE("validate");
+
+    private final String name;
+
+    Stage(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  private final LongAdder[] nanos = new LongAdder[Stage.values().length];
+  private final LongAdder[] messages = new LongAdder[Stage.values().length];
+
+  public ParserStageTimings() {
+    for (int i = 0; i < nanos.length; ++i) {
+      nanos[i] = new LongAdder();
+      messages[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a run of a stage.
+   *
+   * @param stage The stage.
+   * @param elapsedNanos The time spent in the stage.
+   * @param count The number of messages handled by the stage.
+   */
+  public void record(Stage stage, long elapsedNanos, int count) {
+    nanos[stage.ordinal()].add(elapsedNanos);
+    messages[stage.ordinal()].add(count);
+  }
+
+  public long getNanos(Stage stage) {
+    return nanos[stage.ordinal()].sum();
+  }
+
+  public long getMessages(Stage stage) {
+    return messages[stage.ordinal()].sum();
+  }
+
+  /**
+   * Returns the time in microseconds, as {@code <stage>.timeUs}, and the number of messages, as
+   * {@code <stage>.messages}, of each stage since the last call.
+   *
+   * @return The timings of each stage.
+   */
+  public Map<String, Long> getValueAndReset() {
+    Map<String, Long> values = new HashMap<>();
+    for (Stage stage : Stage.values()) {
+      values.put(stage.getName() + ".timeUs", TimeUnit.NANOSECONDS.toMicros(nanos[stage.ordinal()].sumThenReset()));
+      values.put(stage.getName() + ".messages", messages[stage.ordinal()].sumThenReset());
+    }
+    return values;
+  }
+}
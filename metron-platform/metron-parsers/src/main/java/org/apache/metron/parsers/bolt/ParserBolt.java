@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.function.Function;
 
 import com.github.benmanes.caffeine.cache.Cache;
@@ -61,6 +62,7 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
 
 
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  public static final String PATTERN_METRIC_PREFIX = "grokPatterns.";
   private OutputCollector collector;
   private ParserRunner<JSONObject> parserRunner;
   private Map<String, WriterHandler> sensorToWriterMap;
@@ -201,6 +203,15 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
     messageGetStrategy = MessageGetters.DEFAULT_BYTES_FROM_POSITION.get();
     this.collector = collector;
     this.parserRunner.init(this::getConfigurations, initializeStellar());
+    if (context != null) {
+      for (String sensorType : parserRunner.getSensorTypes()) {
+        // only parsers with several patterns have metrics to report
+        if (!parserRunner.getPatternMetrics(sensorType).isEmpty()) {
+          context.registerMetric(PATTERN_METRIC_PREFIX + sensorType, () -> parserRunner.getPatternMetrics(sensorType)
+                  , getMetricsBucketSecs(stormConf));
+        }
+      }
+    }
 
     // Need to prep all sensors
     for (Map.Entry<String, WriterHandler> entry: sensorToWriterMap.entrySet()) {
@@ -255,18 +266,22 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
               .map(message -> handleMessage(sensorType, originalMessage, tuple, message, collector))
               .filter(result -> result)
               .count();
-      parserRunnerResults.getErrors().forEach(error -> ErrorUtils.handleError(collector, error));
-
-      //if we are supposed to ack the tuple OR if we've never passed this tuple to the bulk writer
-      //(meaning that none of the messages are valid either globally or locally)
-      //then we want to handle the ack ourselves.
-      if (!sensorToWriterMap.get(sensorType).handleAck() || numWritten == 0) {
-        collector.ack(tuple);
+      synchronized (collector) {
+        parserRunnerResults.getErrors().forEach(error -> ErrorUtils.handleError(collector, error));
+
+        //if we are supposed to ack the tuple OR if we've never passed this tuple to the bulk writer
+        //(meaning that none of the messages are valid either globally or locally)
+        //then we want to handle the ack ourselves.
+        if (!sensorToWriterMap.get(sensorType).handleAck() || numWritten == 0) {
+          collector.ack(tuple);
+        }
       }
 
     } catch (Throwable ex) {
       handleError(sensorType, originalMessage, tuple, ex, collector);
-      collector.ack(tuple);
+      synchronized (collector) {
+        collector.ack(tuple);
+      }
     }
   }
 
@@ -288,6 +303,10 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
             ;
     if(cache != null) {
       builder = builder.with(Context.Capabilities.CACHE, () -> cache);
+      Optional<Long> maxInputSize = CachingStellarProcessor.getMaxInputSize(cacheConfig);
+      if(maxInputSize.isPresent()) {
+        builder = builder.with(Context.Capabilities.CACHE_MAX_INPUT_SIZE, maxInputSize::get);
+      }
     }
     Context stellarContext = builder.build();
     StellarFunctions.initialize(stellarContext);
@@ -303,7 +322,9 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
       throw new RuntimeException(
               "This should have been caught in the writerHandler.  If you see this, file a JIRA", e);
     } finally {
-      collector.ack(tuple);
+      synchronized (collector) {
+        collector.ack(tuple);
+      }
     }
   }
 
@@ -324,7 +345,9 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
             .withThrowable(ex)
             .withSensorType(Collections.singleton(sensorType))
             .addRawMessage(originalMessage);
-    ErrorUtils.handleError(collector, error);
+    synchronized (collector) {
+      ErrorUtils.handleError(collector, error);
+    }
   }
 
   @Override
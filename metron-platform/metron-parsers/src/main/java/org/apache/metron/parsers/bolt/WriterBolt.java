@@ -79,7 +79,9 @@ public class WriterBolt extends BaseRichBolt {
       message = (JSONObject) messageGetStrategy.get(tuple);
       handler.write(sensorType, tuple, message, configuration, messageGetStrategy);
       if(!handler.handleAck()) {
-        collector.ack(tuple);
+        synchronized (collector) {
+          collector.ack(tuple);
+        }
       }
     } catch (Throwable e) {
       MetronError error = new MetronError()
@@ -87,8 +89,10 @@ public class WriterBolt extends BaseRichBolt {
               .withThrowable(e)
               .withSensorType(Collections.singleton(sensorType))
               .addRawMessage(message);
-      ErrorUtils.handleError(collector, error);
-      collector.ack(tuple);
+      synchronized (collector) {
+        ErrorUtils.handleError(collector, error);
+        collector.ack(tuple);
+      }
     }
   }
 
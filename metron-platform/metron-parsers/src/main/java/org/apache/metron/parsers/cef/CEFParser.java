@@ -43,9 +43,11 @@ public class CEFParser extends BasicParser {
 	private static final String HEADER_CAPTURE_PATTERN = "[^\\|]*";
 	private static final String EXTENSION_CAPTURE_PATTERN = "(?<!\\\\)=";
 	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	public static final String SCANNER_CONFIG = "scanner";
 
 	private Pattern p;
 	private Pattern pext;
+	private boolean scanner = false;
 
 	public void init() {
 
@@ -103,6 +105,9 @@ public class CEFParser extends BasicParser {
 		List<JSONObject> messages = new ArrayList<>();
 
 		String cefString = new String(rawMessage, UTF_8);
+		if (scanner) {
+			return scan(cefString);
+		}
 
 		Matcher matcher = p.matcher(cefString);
 
@@ -156,59 +161,93 @@ public class CEFParser extends BasicParser {
 				obj.put(key, value);
 			}
 
-			// Apply the labels to custom fields
-			for (Entry<String, String> label : labelMap.entrySet()) {
-				mutate(obj, label.getKey(), label.getValue());
+			messages.add(complete(obj, labelMap, cefString, matcher.group("syslogTime"), matcher.group("syslogHost")));
+		}
+		return messages;
+	}
+
+	/**
+	 * Parses each line of the message with the {@link CEFScanner}, which finds the same fields as the
+	 * patterns.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<JSONObject> scan(String cefString) {
+		List<JSONObject> messages = new ArrayList<>();
+		for (int start = 0, end; start < cefString.length(); start = end + 1) {
+			end = CEFScanner.lineEnd(cefString, start);
+			CEFScanner.Line line = CEFScanner.scanLine(cefString, start, end);
+			if (line == null) {
+				continue;
 			}
+			JSONObject obj = new JSONObject();
+			obj.put("DeviceVendor", line.header[0]);
+			obj.put("DeviceProduct", line.header[1]);
+			obj.put("DeviceVersion", line.header[2]);
+			obj.put("DeviceEvent", line.header[3]);
+			obj.put("Name", line.header[4]);
+			obj.put("Severity", standardizeSeverity(line.header[5]));
 
-			// Rename standard CEF fields to comply with Metron standards
-			obj = mutate(obj, "dst", "ip_dst_addr");
-			obj = mutate(obj, "dpt", "ip_dst_port");
-			obj = convertToInt(obj, "ip_dst_port");
+			Map<String, String> labelMap = new HashMap<String, String>();
+			CEFScanner.scanExtensions(cefString, line.extensionStart, end, obj, labelMap);
 
-			obj = mutate(obj, "src", "ip_src_addr");
-			obj = mutate(obj, "spt", "ip_src_port");
-			obj = convertToInt(obj, "ip_src_port");
+			messages.add(complete(obj, labelMap, cefString, line.syslogTime, line.syslogHost));
+		}
+		return messages;
+	}
 
-			obj = mutate(obj, "act", "deviceAction");
-			// applicationProtocol
-			obj = mutate(obj, "app", "protocol");
+	/**
+	 * Applies the labels, renames the standard fields and adds the timestamp and host of a message.
+	 */
+	@SuppressWarnings("unchecked")
+	private JSONObject complete(JSONObject obj, Map<String, String> labelMap, String cefString, String logTimestamp, String host) {
+		// Apply the labels to custom fields
+		for (Entry<String, String> label : labelMap.entrySet()) {
+			mutate(obj, label.getKey(), label.getValue());
+		}
+
+		// Rename standard CEF fields to comply with Metron standards
+		obj = mutate(obj, "dst", "ip_dst_addr");
+		obj = mutate(obj, "dpt", "ip_dst_port");
+		obj = convertToInt(obj, "ip_dst_port");
+
+		obj = mutate(obj, "src", "ip_src_addr");
+		obj = mutate(obj, "spt", "ip_src_port");
+		obj = convertToInt(obj, "ip_src_port");
 
-			obj.put("original_string", cefString);
+		obj = mutate(obj, "act", "deviceAction");
+		// applicationProtocol
+		obj = mutate(obj, "app", "protocol");
 
-			// apply timestamp from message if present, using rt, syslog
-			// timestamp,
-			// default to current system time
+		obj.put("original_string", cefString);
 
-			if (obj.containsKey("rt")) {
-				String rt = (String) obj.get("rt");
+		// apply timestamp from message if present, using rt, syslog
+		// timestamp,
+		// default to current system time
+
+		if (obj.containsKey("rt")) {
+			String rt = (String) obj.get("rt");
+			try {
+				obj.put("timestamp", DateUtils.parseMultiformat(rt, DateUtils.DATE_FORMATS_CEF));
+			} catch (java.text.ParseException e) {
+				throw new IllegalStateException("rt field present in CEF but cannot be parsed", e);
+			}
+		} else {
+			if (!(logTimestamp == null || logTimestamp.isEmpty())) {
 				try {
-					obj.put("timestamp", DateUtils.parseMultiformat(rt, DateUtils.DATE_FORMATS_CEF));
-				} catch (java.text.ParseException e) {
-					throw new IllegalStateException("rt field present in CEF but cannot be parsed", e);
+					obj.put("timestamp", SyslogUtils.parseTimestampToEpochMillis(logTimestamp, Clock.systemUTC()));
+				} catch (ParseException e) {
+					throw new IllegalStateException("Cannot parse syslog timestamp", e);
 				}
 			} else {
-				String logTimestamp = matcher.group("syslogTime");
-				if (!(logTimestamp == null || logTimestamp.isEmpty())) {
-					try {
-						obj.put("timestamp", SyslogUtils.parseTimestampToEpochMillis(logTimestamp, Clock.systemUTC()));
-					} catch (ParseException e) {
-						throw new IllegalStateException("Cannot parse syslog timestamp", e);
-					}
-				} else {
-					obj.put("timestamp", System.currentTimeMillis());
-				}
-			}
-
-			// add the host
-			String host = matcher.group("syslogHost");
-			if (!(host == null || host.isEmpty())) {
-				obj.put("host", host);
+				obj.put("timestamp", System.currentTimeMillis());
 			}
+		}
 
-			messages.add(obj);
+		// add the host
+		if (!(host == null || host.isEmpty())) {
+			obj.put("host", host);
 		}
-		return messages;
+		return obj;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -259,8 +298,7 @@ public class CEFParser extends BasicParser {
 
 	@Override
 	public void configure(Map<String, Object> config) {
-		// TODO Auto-generated method stub
-
+		scanner = Boolean.parseBoolean((String) config.getOrDefault(SCANNER_CONFIG, "false"));
 	}
 
 	@SuppressWarnings("unchecked")
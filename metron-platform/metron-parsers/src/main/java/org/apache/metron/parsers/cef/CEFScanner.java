@@ -0,0 +1,415 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.parsers.cef;
+
+import java.util.Map;
+
+/**
+ * A single pass scanner for CEF lines, which reads the syslog prefix, the header and the extensions
+ * of a line by index rather than with the patterns of the {@link CEFParser}.  It finds exactly what
+ * those patterns find on a line: the priority, time and host of the syslog prefix when they are at
+ * the start of the line, the last {@code CEF:0|} on the line which is followed by the six header
+ * fields, and the extensions split at each '=' that is not escaped.
+ *
+ * <p>
+ * The names of the standard CEF extensions are looked up in a table rather than copied out of the
+ * line, so only the values of a line are allocated.
+ */
+final class CEFScanner {
+
+  static final int HEADER_FIELDS = 6;
+
+  /**
+   * The parts of a CEF line.
+   */
+  static final class Line {
+    String syslogTime;
+    String syslogHost;
+    final String[] header = new String[HEADER_FIELDS];
+    int extensionStart;
+  }
+
+  private static final String[] MONTHS = {
+          "Jan", "uary", "Feb", "ruary", "Mar", "ch", "Apr", "il", "May", "", "Jun", "e"
+          , "Jul", "y", "Aug", "ust", "Sep", "tember", "Oct", "ober", "Nov", "ember", "Dec", "ember"
+  };
+
+  private static final String[] KEYS = {
+          // the names of the CEF key dictionary, which also cover the names of the custom labels
+          "act", "app", "c6a1", "c6a1Label", "c6a2", "c6a2Label", "c6a3", "c6a3Label", "c6a4", "c6a4Label"
+          , "cat", "cfp1", "cfp1Label", "cfp2", "cfp2Label", "cfp3", "cfp3Label", "cfp4", "cfp4Label"
+          , "cn1", "cn1Label", "cn2", "cn2Label", "cn3", "cn3Label", "cnt"
+          , "cs1", "cs1Label", "cs2", "cs2Label", "cs3", "cs3Label", "cs4", "cs4Label", "cs5", "cs5Label"
+          , "cs6", "cs6Label", "destinationDnsDomain", "destinationServiceName"
+          , "destinationTranslatedAddress", "destinationTranslatedPort", "deviceCustomDate1"
+          , "deviceCustomDate1Label", "deviceCustomDate2", "deviceCustomDate2Label", "deviceDirection"
+          , "deviceDnsDomain", "deviceExternalId", "deviceFacility", "deviceInboundInterface"
+          , "deviceNtDomain", "deviceOutboundInterface", "devicePayloadId", "deviceProcessName"
+          , "deviceTranslatedAddress", "dhost", "dmac", "dntdom", "dpid", "dpriv", "dproc", "dpt", "dst"
+          , "dtz", "duid", "duser", "dvc", "dvchost", "dvcmac", "dvcpid", "end", "externalId", "fileCreateTime"
+          , "fileHash", "fileId", "fileModificationTime", "filePath", "filePermission", "fileType"
+          , "flexDate1", "flexDate1Label", "flexString1", "flexString1Label", "flexString2"
+          , "flexString2Label", "fname", "fsize", "in", "msg", "oldFileCreateTime", "oldFileHash"
+          , "oldFileId", "oldFileModificationTime", "oldFileName", "oldFilePath", "oldFilePermission"
+          , "oldFileSize", "oldFileType", "out", "outcome", "proto", "reason", "request"
+          , "requestClientApplication", "requestContext", "requestCookies", "requestMethod", "rt"
+          , "shost", "smac", "sntdom", "sourceDnsDomain", "sourceServiceName", "sourceTranslatedAddress"
+          , "sourceTranslatedPort", "spid", "spriv", "sproc", "spt", "src", "start", "suid", "suser", "type"
+          , "agentDnsDomain", "agentNtDomain", "agentTranslatedAddress", "agentTranslatedZoneExternalID"
+          , "agentTranslatedZoneURI", "agentZoneExternalID", "agentZoneURI", "agt", "ahost", "aid", "amac"
+          , "art", "at", "atz", "av", "customerExternalID", "customerURI", "destinationZoneURI"
+          , "deviceZoneURI", "dlat", "dlong", "eventId", "rawEvent", "slat", "slong", "sourceZoneURI"
+  };
+
+  private static final String[] TABLE = new String[512];
+  private static final int MASK = TABLE.length - 1;
+  static {
+    for (String key : KEYS) {
+      int slot = key.hashCode() & MASK;
+      while (TABLE[slot] != null && !TABLE[slot].equals(key)) {
+        slot = (slot + 1) & MASK;
+      }
+      TABLE[slot] = key;
+    }
+  }
+
+  private CEFScanner() {
+  }
+
+  /**
+   * Finds the end of the line that starts at an index, which is the first line terminator or the end
+   * of the string.
+   */
+  static int lineEnd(String s, int start) {
+    for (int i = start; i < s.length(); ++i) {
+      char c = s.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return i;
+      }
+    }
+    return s.length();
+  }
+
+  /**
+   * Scans the syslog prefix and the header of a line.
+   *
+   * @param s The string holding the line.
+   * @param start The start of the line.
+   * @param end The end of the line.
+   * @return The parts of the line, or null if the line does not hold a CEF header.
+   */
+  static Line scanLine(String s, int start, int end) {
+    int pos = start;
+    if (pos < end && s.charAt(pos) == '<') {
+      int digits = skipDigits(s, pos + 1, end);
+      if (digits > pos + 1 && digits < end && s.charAt(digits) == '>') {
+        pos = digits + 1;
+      }
+    }
+    String syslogTime = null;
+    int timeEnd = bsdTime(s, pos, end);
+    if (timeEnd < 0) {
+      timeEnd = rfc5424Time(s, pos, end);
+    }
+    if (timeEnd >= 0) {
+      syslogTime = s.substring(pos, timeEnd);
+      pos = timeEnd;
+    }
+    String syslogHost = null;
+    int hostEnd = pos;
+    while (hostEnd < end && isHostChar(s.charAt(hostEnd))) {
+      hostEnd++;
+    }
+    if (hostEnd > pos) {
+      syslogHost = s.substring(pos, hostEnd);
+      pos = hostEnd;
+    }
+
+    // the last header on the line wins, as the patterns skip to it greedily
+    for (int cef = s.lastIndexOf("CEF:", end - 4); cef >= pos; cef = s.lastIndexOf("CEF:", cef - 1)) {
+      int field = cef + 4;
+      if (field < end && s.charAt(field) == ' ') {
+        field++;
+      }
+      if (field + 1 >= end || s.charAt(field) != '0' || s.charAt(field + 1) != '|') {
+        continue;
+      }
+      field += 2;
+      Line line = new Line();
+      int i = 0;
+      for (; i < HEADER_FIELDS; ++i) {
+        int pipe = s.indexOf('|', field);
+        if (pipe < 0 || pipe >= end) {
+          break;
+        }
+        line.header[i] = s.substring(field, pipe);
+        field = pipe + 1;
+      }
+      if (i == HEADER_FIELDS) {
+        line.syslogTime = syslogTime;
+        line.syslogHost = syslogHost;
+        line.extensionStart = field;
+        return line;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Scans the extensions of a line.  The key of each extension is the last word before an unescaped '=',
+   * and its value is everything up to that word.  The values of the keys ending in {@code Label} are
+   * added to the labels rather than the fields.
+   *
+   * @param s The string holding the line.
+   * @param start The start of the extensions.
+   * @param end The end of the line.
+   * @param fields The fields to add the extensions to.
+   * @param labels The labels to add the label extensions to, by the name of the extension they label.
+   */
+  static void scanExtensions(String s, int start, int end, Map<String, Object> fields, Map<String, String> labels) {
+    int eq = nextSeparator(s, start, start, end);
+    if (eq < 0) {
+      return;
+    }
+    int keyStart = start;
+    int keyEnd = eq;
+    int index = eq + 1;
+    while ((eq = nextSeparator(s, start, index, end)) >= 0) {
+      int space = s.lastIndexOf(' ', eq - 1);
+      if (space > index) {
+        put(s, keyStart, keyEnd, trimmed(s, index, space), fields, labels);
+        keyStart = trimStart(s, space, eq);
+        keyEnd = trimEnd(s, keyStart, eq);
+      }
+      index = eq + 1;
+    }
+    put(s, keyStart, keyEnd, s.substring(index, end), fields, labels);
+  }
+
+  /**
+   * Gets the key held in a range of a string, using the table of known keys where possible.
+   */
+  static String key(String s, int start, int end) {
+    int length = end - start;
+    int hash = 0;
+    for (int i = start; i < end; ++i) {
+      hash = 31 * hash + s.charAt(i);
+    }
+    for (int slot = hash & MASK; TABLE[slot] != null; slot = (slot + 1) & MASK) {
+      String key = TABLE[slot];
+      if (key.length() == length && s.regionMatches(start, key, 0, length)) {
+        return key;
+      }
+    }
+    return s.substring(start, end);
+  }
+
+  private static void put(String s, int keyStart, int keyEnd, String value, Map<String, Object> fields, Map<String, String> labels) {
+    if (keyEnd - keyStart >= 5 && s.regionMatches(keyEnd - 5, "Label", 0, 5)) {
+      labels.put(key(s, keyStart, keyEnd - 5), value);
+    } else {
+      fields.put(key(s, keyStart, keyEnd), value);
+    }
+  }
+
+  private static int nextSeparator(String s, int start, int from, int end) {
+    for (int i = from; i < end; ++i) {
+      if (s.charAt(i) == '=' && (i == start || s.charAt(i - 1) != '\\')) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String trimmed(String s, int start, int end) {
+    int from = trimStart(s, start, end);
+    return s.substring(from, trimEnd(s, from, end));
+  }
+
+  private static int trimStart(String s, int start, int end) {
+    while (start < end && s.charAt(start) <= ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  private static int trimEnd(String s, int start, int end) {
+    while (end > start && s.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return end;
+  }
+
+  /**
+   * Matches a time like {@code Apr 7 10:10:10}, returning the end of the time or -1.
+   */
+  private static int bsdTime(String s, int start, int end) {
+    int pos = -1;
+    for (int i = 0; i < MONTHS.length && pos < 0; i += 2) {
+      if (s.startsWith(MONTHS[i], start) && start + 3 <= end) {
+        pos = start + 3;
+        String suffix = MONTHS[i + 1];
+        if (!suffix.isEmpty() && s.startsWith(suffix, pos) && pos + suffix.length() <= end
+                && !isWordChar(s, pos + suffix.length(), end)) {
+          pos += suffix.length();
+        }
+      }
+    }
+    if (pos < 0 || isWordChar(s, pos, end)) {
+      return -1;
+    }
+    int day = pos;
+    while (day < end && s.charAt(day) == ' ') {
+      day++;
+    }
+    if (day == pos) {
+      return -1;
+    }
+    // the day and the hour are tried in the order of their alternatives, as the patterns would
+    for (int dayAlternative = 0; dayAlternative < 4; ++dayAlternative) {
+      int hour = dayEnd(s, day, end, dayAlternative) + 1;
+      if (hour <= 0 || hour > end || s.charAt(hour - 1) != ' '
+              || (hour + 1 < end && s.charAt(hour) == '<' && isDigit(s.charAt(hour + 1)))) {
+        continue;
+      }
+      for (int hourAlternative = 0; hourAlternative < 3; ++hourAlternative) {
+        int ret = clock(s, hourEnd(s, hour, end, hourAlternative), end);
+        if (ret >= 0) {
+          return ret;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static int dayEnd(String s, int pos, int end, int alternative) {
+    char first = pos < end ? s.charAt(pos) : 0;
+    char second = pos + 1 < end ? s.charAt(pos + 1) : 0;
+    switch (alternative) {
+      case 0:
+        return first == '0' && isDigit(second) && second != '0' ? pos + 2 : -1;
+      case 1:
+        return (first == '1' || first == '2') && isDigit(second) ? pos + 2 : -1;
+      case 2:
+        return first == '3' && (second == '0' || second == '1') ? pos + 2 : -1;
+      default:
+        return isDigit(first) && first != '0' ? pos + 1 : -1;
+    }
+  }
+
+  private static int hourEnd(String s, int pos, int end, int alternative) {
+    char first = pos < end ? s.charAt(pos) : 0;
+    char second = pos + 1 < end ? s.charAt(pos + 1) : 0;
+    switch (alternative) {
+      case 0:
+        return first == '2' && isDigit(second, '3') ? pos + 2 : -1;
+      case 1:
+        return (first == '0' || first == '1') && isDigit(second) ? pos + 2 : -1;
+      default:
+        return isDigit(first) ? pos + 1 : -1;
+    }
+  }
+
+  /**
+   * Matches the minutes, seconds and fraction of a time after its hour.
+   */
+  private static int clock(String s, int pos, int end) {
+    if (pos < 0 || pos + 4 >= end || s.charAt(pos) != ':' || !isDigit(s.charAt(pos + 1), '5')
+            || !isDigit(s.charAt(pos + 2)) || s.charAt(pos + 3) != ':' || !isDigit(s.charAt(pos + 4))) {
+      return -1;
+    }
+    int ret = pos + 5;
+    if (isDigit(s.charAt(pos + 4), '5') && ret < end && isDigit(s.charAt(ret))) {
+      ret++;
+    }
+    if (ret + 1 < end && (s.charAt(ret) == ':' || s.charAt(ret) == '.' || s.charAt(ret) == ',')
+            && isDigit(s.charAt(ret + 1))) {
+      ret = skipDigits(s, ret + 1, end);
+    }
+    return ret;
+  }
+
+  /**
+   * Matches a time like {@code 2016-05-01T09:29:11.356-04:00}, returning the end of the time or -1.
+   */
+  private static int rfc5424Time(String s, int start, int end) {
+    if (!digits(s, start, 4, end) || !at(s, start + 4, '-', end) || !digits(s, start + 5, 2, end)
+            || !at(s, start + 7, '-', end) || !digits(s, start + 8, 2, end) || !at(s, start + 10, 'T', end)
+            || !digits(s, start + 11, 2, end) || !at(s, start + 13, ':', end) || !digits(s, start + 14, 2, end)
+            || !at(s, start + 16, ':', end) || !digits(s, start + 17, 2, end)) {
+      return -1;
+    }
+    int pos = start + 19;
+    if (at(s, pos, '.', end) && pos + 1 < end && isDigit(s.charAt(pos + 1))) {
+      pos = skipDigits(s, pos + 1, end);
+    }
+    if (at(s, pos, 'Z', end)) {
+      return pos + 1;
+    }
+    if ((at(s, pos, '+', end) || at(s, pos, '-', end)) && digits(s, pos + 1, 2, end)
+            && at(s, pos + 3, ':', end) && digits(s, pos + 4, 2, end)) {
+      return pos + 6;
+    }
+    return -1;
+  }
+
+  private static boolean isHostChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '.' || (c >= '\\' && c <= '_');
+  }
+
+  private static boolean isWordChar(String s, int pos, int end) {
+    if (pos >= end) {
+      return false;
+    }
+    // a mark after the letters of the month joins them, as it does for a word boundary
+    int c = s.codePointAt(pos);
+    return Character.isLetterOrDigit(c) || c == '_' || Character.getType(c) == Character.NON_SPACING_MARK;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isDigit(char c, char max) {
+    return c >= '0' && c <= max;
+  }
+
+  private static boolean at(String s, int pos, char c, int end) {
+    return pos < end && s.charAt(pos) == c;
+  }
+
+  private static boolean digits(String s, int pos, int count, int end) {
+    if (pos + count > end) {
+      return false;
+    }
+    for (int i = pos; i < pos + count; ++i) {
+      if (!isDigit(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int skipDigits(String s, int pos, int end) {
+    while (pos < end && isDigit(s.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+}
@@ -22,19 +22,25 @@ import com.google.common.collect.ImmutableList;
 import java.lang.invoke.MethodHandles;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.metron.common.csv.CSVConverter;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.parsers.BasicParser;
+import org.apache.metron.parsers.FieldProjection;
+import org.apache.metron.parsers.interfaces.Projectable;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class CSVParser extends BasicParser {
+public class CSVParser extends BasicParser implements Projectable {
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   public static final String TIMESTAMP_FORMAT_CONF = "timestampFormat";
   private transient CSVConverter converter;
+  private FieldProjection projection = FieldProjection.ALL;
+  // the columns that are used, or null if all of them are
+  private transient Map<String, Integer> projectedColumns;
   private SimpleDateFormat timestampFormat;
   @Override
   public void configure(Map<String, Object> parserConfig) {
@@ -44,6 +50,7 @@ public class CSVParser extends BasicParser {
     if(tsFormatObj != null) {
       timestampFormat = new SimpleDateFormat(tsFormatObj.toString());
     }
+    project(projection);
   }
 
   @Override
@@ -51,12 +58,30 @@ public class CSVParser extends BasicParser {
 
   }
 
+  /**
+   * Extracts only the columns that are used.
+   */
+  @Override
+  public void project(FieldProjection projection) {
+    this.projection = projection;
+    if (projection.isAll()) {
+      projectedColumns = null;
+      return;
+    }
+    projectedColumns = new HashMap<>();
+    for (Map.Entry<String, Integer> column : converter.getColumnMap().entrySet()) {
+      if (projection.contains(column.getKey().trim())) {
+        projectedColumns.put(column.getKey(), column.getValue());
+      }
+    }
+  }
+
 
   @Override
   public List<JSONObject> parse(byte[] rawMessage) {
     try {
       String msg = new String(rawMessage, "UTF-8");
-      Map<String, String> value = converter.toMap(msg);
+      Map<String, String> value = projectedColumns == null ? converter.toMap(msg) : converter.toMap(msg, projectedColumns);
       if(value != null) {
         value.put("original_string", msg);
         Object timestampObj = value.get("timestamp");
@@ -27,6 +27,8 @@ import org.apache.metron.stellar.common.StellarPredicateProcessor;
 import org.apache.metron.parsers.interfaces.MessageFilter;
 import org.json.simple.JSONObject;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class StellarFilter implements MessageFilter<JSONObject> {
@@ -58,4 +60,13 @@ public class StellarFilter implements MessageFilter<JSONObject> {
     VariableResolver resolver = new MapVariableResolver(message);
     return processor.parse(query, resolver, functionResolver, context);
   }
+
+  @Override
+  public List<Boolean> emit(List<JSONObject> messages, Context context) {
+    List<VariableResolver> resolvers = new ArrayList<>(messages.size());
+    for(JSONObject message : messages) {
+      resolvers.add(new MapVariableResolver(message));
+    }
+    return processor.parseBatch(query, resolvers, functionResolver, context);
+  }
 }
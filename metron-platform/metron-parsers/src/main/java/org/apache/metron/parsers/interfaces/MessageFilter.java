@@ -19,7 +19,25 @@ package org.apache.metron.parsers.interfaces;
 
 import org.apache.metron.stellar.dsl.Context;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface MessageFilter<T> extends Configurable{
 
 	boolean emit(T message, Context context);
+
+	/**
+	 * Filters a batch of messages.  By default each message is filtered in turn.
+	 *
+	 * @param messages The messages to filter.
+	 * @param context The Stellar context.
+	 * @return Whether to emit each message, in the order of the messages.
+	 */
+	default List<Boolean> emit(List<T> messages, Context context) {
+		List<Boolean> ret = new ArrayList<>(messages.size());
+		for(T message : messages) {
+			ret.add(emit(message, context));
+		}
+		return ret;
+	}
 }
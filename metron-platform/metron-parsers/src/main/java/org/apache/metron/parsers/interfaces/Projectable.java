@@ -0,0 +1,35 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.interfaces;
+
+import org.apache.metron.parsers.FieldProjection;
+
+/**
+ * A parser that can skip the fields of a message that are not used after it is parsed.
+ */
+public interface Projectable {
+
+  /**
+   * Restricts the fields that the parser has to produce.  A parser may still produce fields that are not
+   * in the projection, but it must produce every field that is, as it otherwise would.  This may be called
+   * again with a different projection when the configuration of the sensor changes.
+   *
+   * @param projection The fields that are used after parsing.
+   */
+  void project(FieldProjection projection);
+}
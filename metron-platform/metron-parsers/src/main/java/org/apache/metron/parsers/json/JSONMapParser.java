@@ -18,6 +18,8 @@
 
 package org.apache.metron.parsers.json;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.google.common.base.Joiner;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
@@ -29,19 +31,27 @@ import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
 import com.jayway.jsonpath.spi.json.JsonProvider;
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
 import com.jayway.jsonpath.spi.mapper.MappingProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.metron.common.utils.JSONUtils;
 import org.apache.metron.parsers.BasicParser;
+import org.apache.metron.parsers.FieldProjection;
+import org.apache.metron.parsers.interfaces.Projectable;
 import org.json.simple.JSONObject;
 
-public class JSONMapParser extends BasicParser {
+public class JSONMapParser extends BasicParser implements Projectable {
 
   private interface Handler {
 
@@ -91,21 +101,42 @@ public class JSONMapParser extends BasicParser {
   public static final String WRAP_JSON = "wrapInEntityArray";
   public static final String WRAP_ENTITY_NAME = "wrapEntityName";
   public static final String DEFAULT_WRAP_ENTITY_NAME = "messages";
+  public static final String STREAMING = "streaming";
+  public static final String SKIP_FIELDS = "skipFields";
 
   private static final String WRAP_START_FMT = "{ \"%s\" : [";
   private static final String WRAP_END = "]}";
+  private static final Pattern STREAMING_QUERY = Pattern.compile("\\$((?:\\.[^.\\[\\]*?()@,:'\" ]+|\\['[^']+'\\])+)(?:\\[\\*\\])?");
+  private static final Pattern STREAMING_QUERY_FIELD = Pattern.compile("\\.([^.\\[]+)|\\['([^']+)'\\]");
 
   private MapStrategy mapStrategy = MapStrategy.DROP;
   private transient TypeRef<List<Map<String, Object>>> typeRef = null;
   private String jsonpQuery = null;
   private String wrapEntityName = DEFAULT_WRAP_ENTITY_NAME;
   private boolean wrapJson = false;
+  private boolean streaming = false;
+  private List<String> streamingQuery = null;
+  private Set<String> skipFields = Collections.emptySet();
+  private FieldProjection projection = FieldProjection.ALL;
 
 
   @Override
   public void configure(Map<String, Object> config) {
     String strategyStr = (String) config.getOrDefault(MAP_STRATEGY_CONFIG, MapStrategy.DROP.name());
     mapStrategy = MapStrategy.valueOf(strategyStr);
+    Object streamingObject = config.get(STREAMING);
+    if (streamingObject instanceof String) {
+      streaming = Boolean.valueOf((String) streamingObject);
+    } else if (streamingObject instanceof Boolean) {
+      streaming = (Boolean) streamingObject;
+    }
+    Object skipFieldsObject = config.get(SKIP_FIELDS);
+    if (skipFieldsObject instanceof Collection) {
+      skipFields = new HashSet<>();
+      for (Object field : (Collection<?>) skipFieldsObject) {
+        skipFields.add(field.toString());
+      }
+    }
     if (config.containsKey(JSONP_QUERY)) {
       typeRef = new TypeRef<List<Map<String, Object>>>() { };
       jsonpQuery = (String) config.get(JSONP_QUERY);
@@ -147,7 +178,40 @@ public class JSONMapParser extends BasicParser {
       if (CacheProvider.getCache() == null) {
         CacheProvider.setCache(new LRUCache(100));
       }
+      streamingQuery = toStreamingQuery(jsonpQuery);
+    }
+  }
+
+  /**
+   * Breaks a JSONPath query into the fields that lead to the messages, if the query can be
+   * applied while streaming.  These are queries that only select fields, like {@code $.foo.bar}
+   * or {@code $['foo']['bar'][*]}.
+   *
+   * @return The fields or null if the query cannot be applied while streaming.
+   */
+  static List<String> toStreamingQuery(String jsonpQuery) {
+    if (StringUtils.isBlank(jsonpQuery)) {
+      return null;
+    }
+    Matcher query = STREAMING_QUERY.matcher(jsonpQuery.trim());
+    if (!query.matches()) {
+      return null;
+    }
+    List<String> fields = new ArrayList<>();
+    Matcher field = STREAMING_QUERY_FIELD.matcher(query.group(1));
+    while (field.find()) {
+      fields.add(field.group(1) != null ? field.group(1) : field.group(2));
     }
+    return fields;
+  }
+
+  /**
+   * Only reads the fields that are used.  The fields of a nested map are only read if one of them is used
+   * when unfolding maps, or if the map is used when allowing them.
+   */
+  @Override
+  public void project(FieldProjection projection) {
+    this.projection = projection;
   }
 
   /**
@@ -167,6 +231,9 @@ public class JSONMapParser extends BasicParser {
   @SuppressWarnings("unchecked")
   public List<JSONObject> parse(byte[] rawMessage) {
     try {
+      if (streaming && (StringUtils.isEmpty(jsonpQuery) || streamingQuery != null)) {
+        return Collections.unmodifiableList(parseStreaming(rawMessage));
+      }
       String originalString = new String(rawMessage);
       List<Map<String, Object>> messages = new ArrayList<>();
 
@@ -203,17 +270,129 @@ public class JSONMapParser extends BasicParser {
     }
   }
 
+  /**
+   * Parses the messages in a single pass over the raw message, without building the whole document.
+   * Each message is flattened as it is read, the fields to skip are never materialized and the
+   * original string of each message is the text of that message.
+   */
+  @SuppressWarnings("unchecked")
+  private List<JSONObject> parseStreaming(byte[] rawMessage) throws IOException {
+    byte[] json = rawMessage;
+    if (wrapJson) {
+      json = wrapMessageJson(new String(rawMessage)).getBytes(StandardCharsets.UTF_8);
+    }
+    List<JSONObject> messages = new ArrayList<>();
+    try (JsonParser parser = JSONUtils.INSTANCE.getMapper().getFactory().createParser(json)) {
+      parser.nextToken();
+      if (streamingQuery == null) {
+        messages.add(readMessage(parser, json));
+      } else if (!readQuery(parser, json, messages)) {
+        // as with JSONPath, there are no messages if the query does not select a list of objects
+        messages.clear();
+      }
+    }
+    for (JSONObject message : messages) {
+      if (!message.containsKey("timestamp")) {
+        message.put("timestamp", System.currentTimeMillis());
+      }
+    }
+    return messages;
+  }
+
+  private boolean readQuery(JsonParser parser, byte[] json, List<JSONObject> messages) throws IOException {
+    for (String field : streamingQuery) {
+      if (parser.getCurrentToken() != JsonToken.START_OBJECT || !findField(parser, field)) {
+        return false;
+      }
+    }
+    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+      return false;
+    }
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      messages.add(readMessage(parser, json));
+    }
+    return parser.getCurrentToken() == JsonToken.END_ARRAY;
+  }
+
+  /**
+   * Advances to the value of a field of the current object, skipping the fields before it.
+   */
+  private static boolean findField(JsonParser parser, String field) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.getCurrentName();
+      parser.nextToken();
+      if (field.equals(name)) {
+        return true;
+      }
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  private JSONObject readMessage(JsonParser parser, byte[] json) throws IOException {
+    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      throw new IllegalStateException("Expected a JSON object, but found " + parser.getCurrentToken());
+    }
+    int start = (int) parser.getTokenLocation().getByteOffset();
+    JSONObject message = new JSONObject();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String key = parser.getCurrentName();
+      parser.nextToken();
+      readField(key, parser, message);
+    }
+    int end = (int) parser.getCurrentLocation().getByteOffset();
+    message.put("original_string", new String(json, start, end - start, StandardCharsets.UTF_8));
+    return message;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readField(String key, JsonParser parser, JSONObject message) throws IOException {
+    if (skipFields.contains(key)) {
+      parser.skipChildren();
+    } else if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      if (projection.contains(key)) {
+        message.put(key, parser.readValueAs(Object.class));
+      } else {
+        parser.skipChildren();
+      }
+    } else if (mapStrategy == MapStrategy.DROP
+            || (mapStrategy == MapStrategy.UNFOLD && !projection.containsNested(key))
+            || (mapStrategy == MapStrategy.ALLOW && !projection.contains(key))) {
+      parser.skipChildren();
+    } else if (mapStrategy == MapStrategy.UNFOLD) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String newKey = Joiner.on(".").join(key, parser.getCurrentName());
+        parser.nextToken();
+        readField(newKey, parser, message);
+      }
+    } else {
+      mapStrategy.handle(key, parser.readValueAs(Map.class), message);
+    }
+  }
+
   /**
    * Process all sub-maps via the MapHandler.
-   * We have standardized on one-dimensional maps as our data model.
+   * We have standardized on one-dimensional maps as our data model.  Fields that are not used are dropped.
    */
   @SuppressWarnings("unchecked")
   private JSONObject normalizeJson(Map<String, Object> map) {
     JSONObject ret = new JSONObject();
     for (Map.Entry<String, Object> kv : map.entrySet()) {
       if (kv.getValue() instanceof Map) {
-        mapStrategy.handle(kv.getKey(), (Map) kv.getValue(), ret);
-      } else {
+        if (mapStrategy == MapStrategy.UNFOLD && !projection.isAll()) {
+          if (projection.containsNested(kv.getKey())) {
+            JSONObject unfolded = mapStrategy.handle(kv.getKey(), (Map) kv.getValue(), new JSONObject());
+            unfolded.forEach((key, value) -> {
+              if (projection.contains((String) key)) {
+                ret.put(key, value);
+              }
+            });
+          }
+        } else if (mapStrategy != MapStrategy.ALLOW || projection.contains(kv.getKey())) {
+          mapStrategy.handle(kv.getKey(), (Map) kv.getValue(), ret);
+        }
+      } else if (projection.contains(kv.getKey())) {
         ret.put(kv.getKey(), kv.getValue());
       }
     }
@@ -0,0 +1,246 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.metron.common.Constants;
+import org.apache.metron.common.configuration.ParserConfigurations;
+import org.apache.metron.common.configuration.SensorParserConfig;
+import org.apache.metron.common.error.MetronError;
+import org.apache.metron.common.message.metadata.RawMessage;
+import org.apache.metron.common.message.metadata.RawMessageUtil;
+import org.apache.metron.parsers.ParserRunnerImpl;
+import org.apache.metron.parsers.ParserRunnerResults;
+import org.apache.metron.stellar.dsl.Context;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Reads raw messages from kafka, parses them with a {@link ParserRunnerImpl} and writes the parsed messages and
+ * the errors back to kafka, without Storm.  Each pipeline owns its consumer and its parsers and runs on a single
+ * thread, so the partitions assigned to the consumer are processed in order.  The producer may be shared between
+ * pipelines.
+ *
+ * <p>
+ * Each poll is handled as one batch: the records of each partition are parsed together, every message is sent
+ * asynchronously and the offsets are only committed once all of the sends have been acknowledged.  If a send fails,
+ * the consumer is rewound to the start of the batch so that it is read again, which gives the same at least once
+ * guarantee as the parser topology.
+ */
+public class KafkaParserPipeline implements Runnable {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  /**
+   * The kafka spout of the parser topology emits the topic, so it is the only record field used as metadata.
+   */
+  private static final String TOPIC_FIELD = "topic";
+
+  private final Consumer<byte[], byte[]> consumer;
+  private final Producer<String, String> producer;
+  private final ParserRunnerImpl parserRunner;
+  private final Supplier<ParserConfigurations> configSupplier;
+  private final long pollTimeoutMs;
+  private final Map<String, String> topicToSensorMap = new HashMap<>();
+  private volatile boolean running = true;
+
+  public KafkaParserPipeline(Consumer<byte[], byte[]> consumer
+                            , Producer<String, String> producer
+                            , ParserRunnerImpl parserRunner
+                            , Supplier<ParserConfigurations> configSupplier
+                            , long pollTimeoutMs
+                            ) {
+    this.consumer = consumer;
+    this.producer = producer;
+    this.parserRunner = parserRunner;
+    this.configSupplier = configSupplier;
+    this.pollTimeoutMs = pollTimeoutMs;
+  }
+
+  /**
+   * Initializes the parsers of each sensor.
+   *
+   * @param stellarContext The Stellar context used by the parsers.
+   * @return This pipeline.
+   */
+  public KafkaParserPipeline init(Context stellarContext) {
+    parserRunner.init(configSupplier, stellarContext);
+    for (String sensorType : parserRunner.getSensorTypes()) {
+      SensorParserConfig config = configSupplier.get().getSensorParserConfig(sensorType);
+      if (config == null) {
+        throw new IllegalStateException("Unable to retrieve a parser config for " + sensorType);
+      }
+      config.init();
+      topicToSensorMap.put(getSensorTopic(sensorType, config), sensorType);
+    }
+    return this;
+  }
+
+  public ParserRunnerImpl getParserRunner() {
+    return parserRunner;
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (running) {
+        processBatch();
+      }
+    } catch (WakeupException e) {
+      if (running) {
+        throw e;
+      }
+    } finally {
+      consumer.close();
+    }
+  }
+
+  /**
+   * Stops the pipeline after the batch in progress.  The consumer is closed by the thread running the pipeline.
+   */
+  public void stop() {
+    running = false;
+    consumer.wakeup();
+  }
+
+  /**
+   * Polls once, then parses, writes and commits the records that were read.
+   *
+   * @return The number of records that were committed.
+   */
+  public int processBatch() {
+    ConsumerRecords<byte[], byte[]> records = consumer.poll(pollTimeoutMs);
+    if (records.isEmpty()) {
+      return 0;
+    }
+    ParserConfigurations configs = configSupplier.get();
+    List<Future<RecordMetadata>> acks = new ArrayList<>();
+    Map<TopicPartition, Long> batchOffsets = new HashMap<>();
+    Map<TopicPartition, OffsetAndMetadata> commitOffsets = new HashMap<>();
+    for (TopicPartition partition : records.partitions()) {
+      List<ConsumerRecord<byte[], byte[]>> partitionRecords = records.records(partition);
+      String sensorType = topicToSensorMap.get(partition.topic());
+      if (sensorType == null) {
+        throw new IllegalStateException("Unable to find a sensor for the topic " + partition.topic());
+      }
+      SensorParserConfig sensorParserConfig = configs.getSensorParserConfig(sensorType);
+      String outputTopic = getOutputTopic(sensorParserConfig);
+      String errorTopic = getErrorTopic(sensorType, sensorParserConfig, configs);
+
+      List<RawMessage> rawMessages = new ArrayList<>(partitionRecords.size());
+      for (ConsumerRecord<byte[], byte[]> record : partitionRecords) {
+        try {
+          rawMessages.add(getRawMessage(record, sensorParserConfig));
+        } catch (Exception e) {
+          MetronError error = new MetronError()
+                  .withErrorType(Constants.ErrorType.PARSER_ERROR)
+                  .withThrowable(e)
+                  .withSensorType(Collections.singleton(sensorType))
+                  .addRawMessage(record.value());
+          acks.add(producer.send(new ProducerRecord<>(errorTopic, error.getJSONObject().toJSONString())));
+        }
+      }
+      for (ParserRunnerResults<JSONObject> results : parserRunner.executeBatch(sensorType, rawMessages, configs)) {
+        for (JSONObject message : results.getMessages()) {
+          acks.add(producer.send(new ProducerRecord<>(outputTopic, message.toJSONString())));
+        }
+        for (MetronError error : results.getErrors()) {
+          acks.add(producer.send(new ProducerRecord<>(errorTopic, error.getJSONObject().toJSONString())));
+        }
+      }
+      batchOffsets.put(partition, partitionRecords.get(0).offset());
+      commitOffsets.put(partition, new OffsetAndMetadata(partitionRecords.get(partitionRecords.size() - 1).offset() + 1));
+    }
+
+    producer.flush();
+    try {
+      for (Future<RecordMetadata> ack : acks) {
+        ack.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      rewind(batchOffsets);
+      return 0;
+    } catch (ExecutionException e) {
+      LOG.error("Unable to write the batch of {} records; it will be read again", records.count(), e.getCause());
+      rewind(batchOffsets);
+      return 0;
+    }
+    try {
+      consumer.commitSync(commitOffsets);
+    } catch (WakeupException e) {
+      // woken up to stop; the batch was written, so it is committed before stopping
+      consumer.commitSync(commitOffsets);
+      throw e;
+    }
+    return records.count();
+  }
+
+  private void rewind(Map<TopicPartition, Long> batchOffsets) {
+    for (Map.Entry<TopicPartition, Long> offset : batchOffsets.entrySet()) {
+      consumer.seek(offset.getKey(), offset.getValue());
+    }
+  }
+
+  private static RawMessage getRawMessage(ConsumerRecord<byte[], byte[]> record, SensorParserConfig sensorParserConfig) {
+    Map<String, Object> fields = Collections.singletonMap(TOPIC_FIELD, record.topic());
+    return RawMessageUtil.INSTANCE.getRawMessage( sensorParserConfig.getRawMessageStrategy()
+                                                , record.key()
+                                                , fields
+                                                , record.value()
+                                                , sensorParserConfig.getReadMetadata()
+                                                , sensorParserConfig.getRawMessageStrategyConfig()
+                                                );
+  }
+
+  public static String getSensorTopic(String sensorType, SensorParserConfig sensorParserConfig) {
+    return sensorParserConfig.getSensorTopic() != null ? sensorParserConfig.getSensorTopic() : sensorType;
+  }
+
+  public static String getOutputTopic(SensorParserConfig sensorParserConfig) {
+    return sensorParserConfig.getOutputTopic() != null ? sensorParserConfig.getOutputTopic() : Constants.ENRICHMENT_TOPIC;
+  }
+
+  public static String getErrorTopic(String sensorType, SensorParserConfig sensorParserConfig, ParserConfigurations configs) {
+    String errorTopic = sensorParserConfig.getErrorTopic();
+    if (errorTopic == null) {
+      errorTopic = (String) configs.getGlobalConfig().get(Constants.PARSER_ERROR_TOPIC_GLOBALS_KEY);
+    }
+    if (errorTopic == null) {
+      throw new IllegalStateException("Unable to find an error topic for " + sensorType);
+    }
+    return errorTopic;
+  }
+}
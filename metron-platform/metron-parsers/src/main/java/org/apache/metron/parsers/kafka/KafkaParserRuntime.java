@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.kafka;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.metron.common.configuration.ConfigurationsUtils;
+import org.apache.metron.common.configuration.ParserConfigurations;
+import org.apache.metron.common.configuration.SensorParserConfig;
+import org.apache.metron.common.zookeeper.ZKConfigurationsCache;
+import org.apache.metron.parsers.ParserRunnerImpl;
+import org.apache.metron.stellar.common.CachingStellarProcessor;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the parsers of a set of sensors directly against kafka, without Storm.  The parser configurations are read
+ * from zookeeper and kept up to date in the same way as in the parser topology.
+ *
+ * <p>
+ * The runtime starts a number of {@link KafkaParserPipeline}s, each on its own thread with its own consumer in the
+ * same consumer group, so kafka assigns each partition of the sensor topics to exactly one pipeline.  The pipelines
+ * share a single producer, which batches the writes of all of them.
+ */
+public class KafkaParserRuntime implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final String zookeeperUrl;
+  private final List<String> sensorTypes;
+  private final int numPipelines;
+  private final long pollTimeoutMs;
+  private final long metricsIntervalMs;
+  private final Map<String, Object> consumerConfig;
+  private final Map<String, Object> producerConfig;
+
+  private CuratorFramework client;
+  private ZKConfigurationsCache cache;
+  private Producer<String, String> producer;
+  private ScheduledExecutorService metricsReporter;
+  private final List<KafkaParserPipeline> pipelines = new ArrayList<>();
+  private final List<Thread> threads = new ArrayList<>();
+
+  /**
+   * @param zookeeperUrl The zookeeper quorum holding the parser configurations.
+   * @param sensorTypes The sensors to parse.
+   * @param numPipelines The number of pipelines, and so of consumers, to run.
+   * @param pollTimeoutMs The time each consumer waits for records.
+   * @param metricsIntervalMs How often the parser stage timings are logged.
+   * @param consumerConfig The kafka consumer configuration.  Offsets are always committed by the runtime.
+   * @param producerConfig The kafka producer configuration.
+   */
+  public KafkaParserRuntime(String zookeeperUrl
+                           , List<String> sensorTypes
+                           , int numPipelines
+                           , long pollTimeoutMs
+                           , long metricsIntervalMs
+                           , Map<String, Object> consumerConfig
+                           , Map<String, Object> producerConfig
+                           ) {
+    this.zookeeperUrl = zookeeperUrl;
+    this.sensorTypes = sensorTypes;
+    this.numPipelines = numPipelines;
+    this.pollTimeoutMs = pollTimeoutMs;
+    this.metricsIntervalMs = metricsIntervalMs;
+    this.consumerConfig = new HashMap<>(consumerConfig);
+    this.consumerConfig.put("enable.auto.commit", "false");
+    this.consumerConfig.putIfAbsent("key.deserializer", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+    this.consumerConfig.putIfAbsent("value.deserializer", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+    this.producerConfig = new HashMap<>(producerConfig);
+    this.producerConfig.putIfAbsent("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+    this.producerConfig.putIfAbsent("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+  }
+
+  public void start() throws Exception {
+    client = ConfigurationsUtils.getClient(zookeeperUrl);
+    client.start();
+    cache = new ZKConfigurationsCache(client, ZKConfigurationsCache.ConfiguredTypes.PARSER);
+    cache.start();
+    Supplier<ParserConfigurations> configSupplier = () -> cache.get(ParserConfigurations.class);
+
+    List<String> topics = new ArrayList<>();
+    for (String sensorType : sensorTypes) {
+      SensorParserConfig config = configSupplier.get().getSensorParserConfig(sensorType);
+      if (config == null) {
+        throw new IllegalStateException("Unable to retrieve a parser config for " + sensorType);
+      }
+      topics.add(KafkaParserPipeline.getSensorTopic(sensorType, config));
+    }
+    Context stellarContext = initializeStellar(configSupplier);
+
+    producer = new KafkaProducer<>(producerConfig);
+    for (int i = 0; i < numPipelines; ++i) {
+      KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(consumerConfig);
+      consumer.subscribe(topics);
+      KafkaParserPipeline pipeline = new KafkaParserPipeline(consumer
+              , producer
+              , new ParserRunnerImpl(new HashSet<>(sensorTypes))
+              , configSupplier
+              , pollTimeoutMs
+      ).init(stellarContext);
+      pipelines.add(pipeline);
+      Thread thread = new Thread(pipeline, "parser-" + String.join("__", sensorTypes) + "-" + i);
+      thread.setUncaughtExceptionHandler((t, e) -> LOG.error("Parser pipeline {} failed", t.getName(), e));
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+
+    if (metricsIntervalMs > 0) {
+      metricsReporter = Executors.newSingleThreadScheduledExecutor();
+      metricsReporter.scheduleAtFixedRate(this::reportMetrics, metricsIntervalMs, metricsIntervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Waits for the pipelines to stop.
+   */
+  public void join() throws InterruptedException {
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  protected Context initializeStellar(Supplier<ParserConfigurations> configSupplier) {
+    Map<String, Object> cacheConfig = new HashMap<>();
+    for (String sensorType : sensorTypes) {
+      cacheConfig.putAll(configSupplier.get().getSensorParserConfig(sensorType).getCacheConfig());
+    }
+    Cache<CachingStellarProcessor.Key, Object> stellarCache = CachingStellarProcessor.createCache(cacheConfig);
+
+    Context.Builder builder = new Context.Builder()
+            .with(Context.Capabilities.ZOOKEEPER_CLIENT, () -> client)
+            .with(Context.Capabilities.GLOBAL_CONFIG, () -> configSupplier.get().getGlobalConfig())
+            .with(Context.Capabilities.STELLAR_CONFIG, () -> configSupplier.get().getGlobalConfig())
+            ;
+    if (stellarCache != null) {
+      builder = builder.with(Context.Capabilities.CACHE, () -> stellarCache);
+      Optional<Long> maxInputSize = CachingStellarProcessor.getMaxInputSize(cacheConfig);
+      if (maxInputSize.isPresent()) {
+        builder = builder.with(Context.Capabilities.CACHE_MAX_INPUT_SIZE, maxInputSize::get);
+      }
+    }
+    Context stellarContext = builder.build();
+    StellarFunctions.initialize(stellarContext);
+    return stellarContext;
+  }
+
+  private void reportMetrics() {
+    for (KafkaParserPipeline pipeline : pipelines) {
+      LOG.info("Parser stage timings for {}: {}", pipeline.getParserRunner().getSensorTypes()
+              , pipeline.getParserRunner().getStageTimings().getValueAndReset());
+    }
+  }
+
+  @Override
+  public void close() {
+    if (metricsReporter != null) {
+      metricsReporter.shutdownNow();
+    }
+    for (KafkaParserPipeline pipeline : pipelines) {
+      pipeline.stop();
+    }
+    try {
+      join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (producer != null) {
+      producer.close();
+    }
+    if (cache != null) {
+      cache.close();
+    }
+    if (client != null) {
+      client.close();
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.kafka;
+
+import com.google.common.base.Joiner;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.apache.metron.common.utils.JSONUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Starts a {@link KafkaParserRuntime} for a set of sensors.
+ */
+public class KafkaParserRuntimeCLI {
+
+  public enum RuntimeOptions {
+    HELP("h", code -> {
+      Option o = new Option(code, "help", false, "This screen");
+      o.setRequired(false);
+      return o;
+    }),
+    ZK_QUORUM("z", code -> {
+      Option o = new Option(code, "zk", true, "Zookeeper Quorum URL (zk1:2181,zk2:2181,...");
+      o.setArgName("ZK_QUORUM");
+      o.setRequired(true);
+      return o;
+    }),
+    BROKER_URL("k", code -> {
+      Option o = new Option(code, "kafka", true, "Kafka Broker URL");
+      o.setArgName("BROKER_URL");
+      o.setRequired(true);
+      return o;
+    }),
+    SENSOR_TYPES("s", code -> {
+      Option o = new Option(code, "sensor", true, "Sensor Types as comma-separated list");
+      o.setArgName("SENSOR_TYPES");
+      o.setRequired(true);
+      return o;
+    }),
+    NUM_PIPELINES("np", code -> {
+      Option o = new Option(code, "num_pipelines", true, "Number of pipelines, each with its own consumer; defaults to 1");
+      o.setArgName("NUM_PIPELINES");
+      o.setRequired(false);
+      return o;
+    }),
+    GROUP_ID("g", code -> {
+      Option o = new Option(code, "group_id", true, "Kafka consumer group; defaults to the sensor types joined with __");
+      o.setArgName("GROUP_ID");
+      o.setRequired(false);
+      return o;
+    }),
+    POLL_TIMEOUT("pt", code -> {
+      Option o = new Option(code, "poll_timeout", true, "Time in milliseconds to wait for records in each poll; defaults to 1000");
+      o.setArgName("TIMEOUT_IN_MS");
+      o.setRequired(false);
+      return o;
+    }),
+    METRICS_INTERVAL("mi", code -> {
+      Option o = new Option(code, "metrics_interval", true, "Time in milliseconds between logging the parser stage timings; defaults to 60000, 0 to disable");
+      o.setArgName("INTERVAL_IN_MS");
+      o.setRequired(false);
+      return o;
+    }),
+    CONSUMER_CONFIG("cc", code -> {
+      Option o = new Option(code, "consumer_config", true, "Extra kafka consumer config options in the form of a JSON file with a map for content.");
+      o.setArgName("JSON_FILE");
+      o.setRequired(false);
+      return o;
+    }),
+    PRODUCER_CONFIG("pc", code -> {
+      Option o = new Option(code, "producer_config", true, "Extra kafka producer config options in the form of a JSON file with a map for content.");
+      o.setArgName("JSON_FILE");
+      o.setRequired(false);
+      return o;
+    })
+    ;
+    Option option;
+    String shortCode;
+
+    RuntimeOptions(String shortCode, Function<String, Option> optionHandler) {
+      this.shortCode = shortCode;
+      this.option = optionHandler.apply(shortCode);
+    }
+
+    public boolean has(CommandLine cli) {
+      return cli.hasOption(shortCode);
+    }
+
+    public String get(CommandLine cli) {
+      return cli.getOptionValue(shortCode);
+    }
+
+    public String get(CommandLine cli, String def) {
+      return has(cli)?cli.getOptionValue(shortCode):def;
+    }
+
+    public static CommandLine parse(CommandLineParser parser, String[] args) throws ParseException {
+      try {
+        CommandLine cli = parser.parse(getOptions(), args);
+        if(HELP.has(cli)) {
+          printHelp();
+          System.exit(0);
+        }
+        return cli;
+      } catch (ParseException e) {
+        System.err.println("Unable to parse args: " + Joiner.on(' ').join(args));
+        e.printStackTrace(System.err);
+        printHelp();
+        throw e;
+      }
+    }
+
+    public static void printHelp() {
+      HelpFormatter formatter = new HelpFormatter();
+      formatter.printHelp( "KafkaParserRuntimeCLI", getOptions());
+    }
+
+    public static Options getOptions() {
+      Options ret = new Options();
+      for(RuntimeOptions o : RuntimeOptions.values()) {
+        ret.addOption(o.option);
+      }
+      return ret;
+    }
+  }
+
+  public KafkaParserRuntime createRuntime(CommandLine cmd) throws IOException {
+    List<String> sensorTypes = Arrays.stream(RuntimeOptions.SENSOR_TYPES.get(cmd).split(","))
+            .map(String::trim)
+            .collect(Collectors.toList());
+    String brokerUrl = RuntimeOptions.BROKER_URL.get(cmd);
+
+    Map<String, Object> consumerConfig = new HashMap<>();
+    if (RuntimeOptions.CONSUMER_CONFIG.has(cmd)) {
+      consumerConfig.putAll(readJSONMapFromFile(RuntimeOptions.CONSUMER_CONFIG.get(cmd)));
+    }
+    consumerConfig.put("bootstrap.servers", brokerUrl);
+    consumerConfig.put("group.id", RuntimeOptions.GROUP_ID.get(cmd, String.join("__", sensorTypes)));
+
+    Map<String, Object> producerConfig = new HashMap<>();
+    if (RuntimeOptions.PRODUCER_CONFIG.has(cmd)) {
+      producerConfig.putAll(readJSONMapFromFile(RuntimeOptions.PRODUCER_CONFIG.get(cmd)));
+    }
+    producerConfig.put("bootstrap.servers", brokerUrl);
+    producerConfig.putIfAbsent("acks", "all");
+
+    return new KafkaParserRuntime(RuntimeOptions.ZK_QUORUM.get(cmd)
+            , sensorTypes
+            , Integer.parseInt(RuntimeOptions.NUM_PIPELINES.get(cmd, "1"))
+            , Long.parseLong(RuntimeOptions.POLL_TIMEOUT.get(cmd, "1000"))
+            , Long.parseLong(RuntimeOptions.METRICS_INTERVAL.get(cmd, "60000"))
+            , consumerConfig
+            , producerConfig
+    );
+  }
+
+  private static Map<String, Object> readJSONMapFromFile(String path) throws IOException {
+    return JSONUtils.INSTANCE.load(new File(path), JSONUtils.MAP_SUPPLIER);
+  }
+
+  public static void main(String[] args) {
+    try {
+      CommandLine cmd = RuntimeOptions.parse(new PosixParser(), args);
+      KafkaParserRuntime runtime = new KafkaParserRuntimeCLI().createRuntime(cmd);
+      Runtime.getRuntime().addShutdownHook(new Thread(runtime::close));
+      runtime.start();
+      runtime.join();
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(-1);
+    }
+  }
+}
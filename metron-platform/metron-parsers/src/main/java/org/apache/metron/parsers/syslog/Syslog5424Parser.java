@@ -47,6 +47,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 
 /**
@@ -55,7 +56,9 @@ import java.util.Optional;
 public class Syslog5424Parser implements MessageParser<JSONObject>, Serializable {
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   public static final String NIL_POLICY_CONFIG = "nilPolicy";
+  public static final String SCANNER_CONFIG = "scanner";
   private transient SyslogParser syslogParser;
+  private transient Syslog5424Scanner scanner;
 
   @Override
   public void configure(Map<String, Object> config) {
@@ -67,6 +70,8 @@ public class Syslog5424Parser implements MessageParser<JSONObject>, Serializable
             .withNilPolicy(nilPolicy)
             .withDeviations(EnumSet.of(AllowableDeviations.PRIORITY,AllowableDeviations.VERSION))
             .build();
+    boolean useScanner = Boolean.parseBoolean((String) config.getOrDefault(SCANNER_CONFIG, "false"));
+    scanner = useScanner ? new Syslog5424Scanner(nilPolicy) : null;
   }
 
   @Override
@@ -99,15 +104,20 @@ public class Syslog5424Parser implements MessageParser<JSONObject>, Serializable
       String originalString = new String(rawMessage);
       List<JSONObject> returnList = new ArrayList<>();
       Map<Object,Throwable> errorMap = new HashMap<>();
+      Consumer<Map<String, Object>> consumer = (m) -> {
+        JSONObject jsonObject = new JSONObject(m);
+        // be sure to put in the original string, and the timestamp.
+        // we wil just copy over the timestamp from the syslog
+        jsonObject.put("original_string", originalString);
+        setTimestamp(jsonObject);
+        returnList.add(jsonObject);
+      };
+      if (scanner != null) {
+        scanner.scanLines(originalString, consumer, errorMap::put);
+        return Optional.of(new DefaultMessageParserResult<JSONObject>(returnList,errorMap));
+      }
       try (Reader reader = new BufferedReader(new StringReader(originalString))) {
-        syslogParser.parseLines(reader, (m) -> {
-          JSONObject jsonObject = new JSONObject(m);
-          // be sure to put in the original string, and the timestamp.
-          // we wil just copy over the timestamp from the syslog
-          jsonObject.put("original_string", originalString);
-          setTimestamp(jsonObject);
-          returnList.add(jsonObject);
-        },errorMap::put);
+        syslogParser.parseLines(reader, consumer, errorMap::put);
 
         return Optional.of(new DefaultMessageParserResult<JSONObject>(returnList,errorMap));
       }
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.parsers.syslog;
+
+import com.github.palindromicity.syslog.NilPolicy;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.apache.metron.parsers.ParseException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A single pass scanner for RFC 5424 syslog lines, which reads the header, the structured data and the
+ * message of each line by index.  It produces the same fields as the syslog library used by the
+ * {@link Syslog5424Parser}, allowing the priority and the version to be missing as that parser does, and
+ * the structured data elements to be separated by a space.
+ *
+ * <p>
+ * The fields are named by {@link SyslogFieldKeys}, and the values of the structured data parameters are
+ * kept as they are written, escapes included, as the syslog library keeps them.
+ */
+final class Syslog5424Scanner {
+
+  private static final String PRI = SyslogFieldKeys.HEADER_PRI.getField();
+  private static final String FACILITY = SyslogFieldKeys.HEADER_PRI_FACILITY.getField();
+  private static final String SEVERITY = SyslogFieldKeys.HEADER_PRI_SEVERITY.getField();
+  private static final String VERSION = SyslogFieldKeys.HEADER_VERSION.getField();
+  private static final String TIMESTAMP = SyslogFieldKeys.HEADER_TIMESTAMP.getField();
+  private static final String HOSTNAME = SyslogFieldKeys.HEADER_HOSTNAME.getField();
+  private static final String APPNAME = SyslogFieldKeys.HEADER_APPNAME.getField();
+  private static final String PROCID = SyslogFieldKeys.HEADER_PROCID.getField();
+  private static final String MSGID = SyslogFieldKeys.HEADER_MSGID.getField();
+  private static final String MESSAGE = SyslogFieldKeys.MESSAGE.getField();
+  private static final String STRUCTURED_DATA = SyslogFieldKeys.STRUCTURED_BASE.getField();
+
+  private static final String NIL = "-";
+  private static final int MAX_SD_NAME = 32;
+
+  private final NilPolicy nilPolicy;
+
+  Syslog5424Scanner(NilPolicy nilPolicy) {
+    this.nilPolicy = nilPolicy;
+  }
+
+  /**
+   * Scans each line of a string, splitting the lines as {@link java.io.BufferedReader#readLine()} does.
+   * Empty lines are skipped.
+   *
+   * @param s The lines.
+   * @param consumer Called with the fields of each line.
+   * @param errorConsumer Called with each line which cannot be scanned and the reason.
+   */
+  void scanLines(String s, Consumer<Map<String, Object>> consumer, BiConsumer<String, Throwable> errorConsumer) {
+    int start = 0;
+    while (start < s.length()) {
+      int end = start;
+      while (end < s.length() && s.charAt(end) != '\n' && s.charAt(end) != '\r') {
+        end++;
+      }
+      if (end > start) {
+        try {
+          consumer.accept(scan(s, start, end));
+        } catch (ParseException e) {
+          errorConsumer.accept(s.substring(start, end), e);
+        }
+      }
+      start = end + (end + 1 < s.length() && s.charAt(end) == '\r' && s.charAt(end + 1) == '\n' ? 2 : 1);
+    }
+  }
+
+  /**
+   * Scans a line.
+   *
+   * @param s The string holding the line.
+   * @param start The start of the line.
+   * @param end The end of the line.
+   * @return The fields of the line.
+   * @throws ParseException If the line is not a syslog line.
+   */
+  Map<String, Object> scan(String s, int start, int end) throws ParseException {
+    Map<String, Object> fields = new HashMap<>();
+    int pos = start;
+    if (pos < end && s.charAt(pos) == '<') {
+      int close = digitsEnd(s, pos + 1, end);
+      if (close == pos + 1 || close > pos + 4 || close >= end || s.charAt(close) != '>') {
+        throw error("Invalid priority", s, start, pos);
+      }
+      int pri = Integer.parseInt(s.substring(pos + 1, close));
+      if (pri > 191) {
+        throw error("Invalid priority", s, start, pos);
+      }
+      fields.put(PRI, s.substring(pos + 1, close));
+      fields.put(FACILITY, Integer.toString(pri >> 3));
+      fields.put(SEVERITY, Integer.toString(pri & 7));
+      pos = close + 1;
+    }
+    int versionEnd = digitsEnd(s, pos, end);
+    if (versionEnd > pos && versionEnd < end && s.charAt(versionEnd) == ' ') {
+      if (s.charAt(pos) == '0' || versionEnd - pos > 3) {
+        throw error("Invalid version", s, start, pos);
+      }
+      fields.put(VERSION, s.substring(pos, versionEnd));
+      pos = versionEnd + 1;
+    } else if (pos < end && s.charAt(pos) == ' ' && pos > start) {
+      pos++;
+    }
+
+    int timestampEnd = tokenEnd(s, pos, end);
+    if (!isNil(s, pos, timestampEnd) && !isTimestamp(s, pos, timestampEnd)) {
+      throw error("Invalid timestamp", s, start, pos);
+    }
+    pos = header(fields, TIMESTAMP, s, start, pos, timestampEnd, end, Integer.MAX_VALUE);
+    pos = header(fields, HOSTNAME, s, start, pos, tokenEnd(s, pos, end), end, 255);
+    pos = header(fields, APPNAME, s, start, pos, tokenEnd(s, pos, end), end, 48);
+    pos = header(fields, PROCID, s, start, pos, tokenEnd(s, pos, end), end, 128);
+    pos = header(fields, MSGID, s, start, pos, tokenEnd(s, pos, end), end, 32);
+    if (pos >= end) {
+      throw error("Missing structured data", s, start, pos);
+    }
+
+    if (s.charAt(pos) == '-') {
+      pos++;
+    } else if (s.charAt(pos) == '[') {
+      pos = element(fields, s, start, pos + 1, end);
+      // the elements are adjacent, but some senders separate them with a space
+      while (pos < end && (s.charAt(pos) == '[' || (s.startsWith(" [", pos) && pos + 1 < end))) {
+        pos = element(fields, s, start, pos + (s.charAt(pos) == '[' ? 1 : 2), end);
+      }
+    } else {
+      throw error("Invalid structured data", s, start, pos);
+    }
+
+    if (pos < end) {
+      if (s.charAt(pos) != ' ') {
+        throw error("Expected a space", s, start, pos);
+      }
+      fields.put(MESSAGE, s.substring(pos + 1, end));
+    }
+    return fields;
+  }
+
+  /**
+   * Adds a header field, which is followed by a space.
+   *
+   * @return The start of the next field.
+   */
+  private int header(Map<String, Object> fields, String field, String s, int start, int pos, int tokenEnd, int end
+          , int maxLength) throws ParseException {
+    if (tokenEnd == pos || tokenEnd - pos > maxLength) {
+      throw error("Invalid " + field, s, start, pos);
+    }
+    if (tokenEnd >= end || s.charAt(tokenEnd) != ' ') {
+      throw error("Expected a space", s, start, tokenEnd);
+    }
+    if (!isNil(s, pos, tokenEnd)) {
+      fields.put(field, s.substring(pos, tokenEnd));
+    } else if (nilPolicy == NilPolicy.DASH) {
+      fields.put(field, NIL);
+    } else if (nilPolicy == NilPolicy.NULL) {
+      fields.put(field, null);
+    }
+    return tokenEnd + 1;
+  }
+
+  /**
+   * Adds the parameters of a structured data element, starting after its '['.
+   *
+   * @return The end of the element.
+   */
+  private int element(Map<String, Object> fields, String s, int start, int pos, int end) throws ParseException {
+    int idEnd = nameEnd(s, pos, end);
+    if (idEnd == pos || idEnd - pos > MAX_SD_NAME) {
+      throw error("Invalid structured data id", s, start, pos);
+    }
+    String prefix = new StringBuilder(STRUCTURED_DATA.length() + idEnd - pos + 1)
+            .append(STRUCTURED_DATA).append(s, pos, idEnd).append('.').toString();
+    pos = idEnd;
+    while (pos < end && s.charAt(pos) == ' ') {
+      int nameStart = pos + 1;
+      int nameEnd = nameEnd(s, nameStart, end);
+      if (nameEnd == nameStart || nameEnd - nameStart > MAX_SD_NAME || nameEnd + 1 >= end
+              || s.charAt(nameEnd) != '=' || s.charAt(nameEnd + 1) != '"') {
+        throw error("Invalid structured data parameter", s, start, nameStart);
+      }
+      int valueStart = nameEnd + 2;
+      int valueEnd = valueStart;
+      // an escaped quote does not end the value
+      while (valueEnd < end && s.charAt(valueEnd) != '"') {
+        valueEnd += s.charAt(valueEnd) == '\\' && valueEnd + 1 < end ? 2 : 1;
+      }
+      if (valueEnd >= end) {
+        throw error("Unterminated structured data value", s, start, valueStart);
+      }
+      String name = new StringBuilder(prefix.length() + nameEnd - nameStart)
+              .append(prefix).append(s, nameStart, nameEnd).toString();
+      fields.put(name, s.substring(valueStart, valueEnd));
+      pos = valueEnd + 1;
+    }
+    if (pos >= end || s.charAt(pos) != ']') {
+      throw error("Unterminated structured data element", s, start, pos);
+    }
+    return pos + 1;
+  }
+
+  private static boolean isTimestamp(String s, int start, int end) {
+    // full-date "T" partial-time time-offset, as in 2014-06-20T09:14:07.123+00:00
+    if (end - start < 20 || !digits(s, start, 4) || s.charAt(start + 4) != '-' || !digits(s, start + 5, 2)
+            || s.charAt(start + 7) != '-' || !digits(s, start + 8, 2) || s.charAt(start + 10) != 'T'
+            || !digits(s, start + 11, 2) || s.charAt(start + 13) != ':' || !digits(s, start + 14, 2)
+            || s.charAt(start + 16) != ':' || !digits(s, start + 17, 2)) {
+      return false;
+    }
+    int pos = start + 19;
+    if (s.charAt(pos) == '.') {
+      int fractionEnd = digitsEnd(s, pos + 1, end);
+      if (fractionEnd == pos + 1 || fractionEnd - pos > 7) {
+        return false;
+      }
+      pos = fractionEnd;
+    }
+    if (pos >= end) {
+      return false;
+    }
+    if (pos + 1 == end && s.charAt(pos) == 'Z') {
+      return true;
+    }
+    return pos + 6 == end && (s.charAt(pos) == '+' || s.charAt(pos) == '-') && digits(s, pos + 1, 2)
+            && s.charAt(pos + 3) == ':' && digits(s, pos + 4, 2);
+  }
+
+  private static boolean isNil(String s, int start, int end) {
+    return end == start + 1 && s.charAt(start) == '-';
+  }
+
+  /**
+   * Finds the end of a run of printable US-ASCII characters.
+   */
+  private static int tokenEnd(String s, int pos, int end) {
+    while (pos < end && s.charAt(pos) > ' ' && s.charAt(pos) < 127) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * Finds the end of a structured data id or parameter name, which are printable US-ASCII without
+   * '=', ' ', ']' and '"'.
+   */
+  private static int nameEnd(String s, int pos, int end) {
+    while (pos < end) {
+      char c = s.charAt(pos);
+      if (c <= ' ' || c >= 127 || c == '=' || c == ']' || c == '"') {
+        break;
+      }
+      pos++;
+    }
+    return pos;
+  }
+
+  private static int digitsEnd(String s, int pos, int end) {
+    while (pos < end && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+      pos++;
+    }
+    return pos;
+  }
+
+  private static boolean digits(String s, int pos, int count) {
+    for (int i = pos; i < pos + count; ++i) {
+      if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static ParseException error(String reason, String s, int start, int pos) {
+    return new ParseException(reason + " at position " + (pos - start));
+  }
+}
@@ -26,7 +26,9 @@ import org.json.simple.JSONObject;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class FiltersTest {
@@ -47,4 +49,17 @@ public class FiltersTest {
     }
   }
 
+  @Test
+  public void testBatchQueryFilter() throws Exception {
+    Map<String, Object> config = new HashMap<String, Object>() {{
+      put("filter.query", "IN_SUBNET(ip_src_addr, '192.168.0.0/16')");
+    }};
+    MessageFilter<JSONObject> filter = Filters.get(Filters.STELLAR.name(), config);
+    List<JSONObject> batch = Arrays.asList(
+            new JSONObject(ImmutableMap.of("ip_src_addr", "192.168.0.1")),
+            new JSONObject(ImmutableMap.of("ip_src_addr", "10.0.0.1")),
+            new JSONObject(ImmutableMap.of("ip_src_addr", "192.168.1.1")));
+    Assert.assertEquals(Arrays.asList(true, false, true), filter.emit(batch, Context.EMPTY_CONTEXT()));
+  }
+
 }
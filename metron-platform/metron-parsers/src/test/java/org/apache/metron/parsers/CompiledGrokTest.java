@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+public class CompiledGrokTest {
+
+  @Test
+  public void testRemoveGroupNames() {
+    List<String> groups = new ArrayList<>();
+    String regex = CompiledGrok.removeGroupNames(
+            "(?<name0>\\d+)(x)(?:y)(?<!z)[(?<a>]\\((?<name1>(?<name0>\\w))\\Q(?<q>\\E(?<name2>.)"
+            , (index, name) -> groups.add(index + "=" + name));
+    Assert.assertEquals("(\\d+)(x)(?:y)(?<!z)[(?<a>]\\(((\\w))\\Q(?<q>\\E(.)", regex);
+    Assert.assertEquals(Arrays.asList("1=name0", "3=name1", "4=name0", "5=name2"), groups);
+  }
+
+  @Test
+  public void testDateTimeFormatterAgreesWithDateFormat() throws Exception {
+    String[][] formats = {
+            { "yyyy-MM-dd HH:mm:ss.S", "2016-01-28 15:29:48.5" },
+            { "yyyy-MM-dd'T'HH:mm:ss.SSSZ", "2016-01-28T15:29:48.512-0500" },
+            { "MMM dd yyyy HH:mm:ss", "Jan 28 2016 15:29:48" },
+            { "MMM dd HH:mm:ss", "Jan 28 15:29:48" },
+            { "dd/MMM/yyyy:HH:mm:ss Z", "28/Jan/2016:15:29:48 +0100" },
+            { "yyyy-MM-dd hh:mm a", "2016-01-28 03:29 PM" },
+            { "yy-MM-dd HH:mm:ss", "99-01-28 15:29:48" },
+            { "yy-MM-dd HH:mm:ss", "16-01-28 15:29:48" },
+            { "yyMMdd HH:mm:ss", "991231 15:29:48" },
+            { "yy-MM-dd HH:mm:ss", "2016-01-28 15:29:48" },
+            { "yyyy-MM-dd HH:mm:ss", "2016-02-30 15:29:48" },
+            { "yyyy-MM-dd HH:mm:ss", "2016-01-28 24:29:48" }
+    };
+    for (String[] format : formats) {
+      SimpleDateFormat dateFormat = new SimpleDateFormat(format[0]);
+      dateFormat.setTimeZone(TimeZone.getTimeZone("America/New_York"));
+      DateTimeFormatter formatter = GrokParser.toDateTimeFormatter(format[0], dateFormat.getTimeZone());
+      Assert.assertNotNull(format[0], formatter);
+      Assert.assertEquals(format[0], dateFormat.parse(format[1]).getTime(), formatter.parse(format[1], Instant::from).toEpochMilli());
+    }
+  }
+
+  @Test
+  public void testUnsupportedDateFormats() {
+    Assert.assertNull(GrokParser.toDateTimeFormatter("yyyy-MM-dd u", TimeZone.getDefault()));
+    Assert.assertNull(GrokParser.toDateTimeFormatter("yyyy-MM-dd 'T", TimeZone.getDefault()));
+    Assert.assertNull(GrokParser.toDateTimeFormatter("yyyy-MM-dd HH:mm:ss.S z", TimeZone.getDefault()));
+  }
+}
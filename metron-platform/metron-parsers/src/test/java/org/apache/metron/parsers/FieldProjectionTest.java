@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers;
+
+import org.apache.metron.common.configuration.FieldTransformer;
+import org.apache.metron.common.configuration.SensorParserConfig;
+import org.apache.metron.common.field.transformation.SelectTransformation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FieldProjectionTest {
+
+  private static List<FieldTransformer> transformations(String... transformations) throws Exception {
+    String config = "{ \"parserClassName\" : \"org.apache.metron.parsers.csv.CSVParser\", \"sensorTopic\" : \"csv\","
+            + " \"fieldTransformations\" : [ " + String.join(",", transformations) + " ] }";
+    return SensorParserConfig.fromBytes(config.getBytes()).getFieldTransformations();
+  }
+
+  private static FieldProjection including(String... fields) {
+    List<String> ret = new ArrayList<>(SelectTransformation.SYSTEM_FIELDS);
+    ret.addAll(Arrays.asList(fields));
+    return FieldProjection.including(ret);
+  }
+
+  @Test
+  public void testNoTransformations() throws Exception {
+    Assert.assertTrue(FieldProjection.of(transformations()).isAll());
+    Assert.assertTrue(FieldProjection.of(null).isAll());
+  }
+
+  @Test
+  public void testSelect() throws Exception {
+    FieldProjection projection = FieldProjection.of(transformations(
+            "{ \"transformation\" : \"SELECT\", \"output\" : [ \"a\", \"b.c\" ] }"
+    ));
+    Assert.assertEquals(including("a", "b.c"), projection);
+    Assert.assertTrue(projection.contains("timestamp"));
+    Assert.assertFalse(projection.contains("d"));
+    Assert.assertTrue(projection.containsNested("b"));
+    Assert.assertFalse(projection.containsNested("a"));
+  }
+
+  @Test
+  public void testSelectWithInput() throws Exception {
+    FieldProjection projection = FieldProjection.of(transformations(
+            "{ \"transformation\" : \"SELECT\", \"input\" : [ \"a\", \"b\", \"timestamp\" ], \"output\" : [ \"a\" ] }"
+    ));
+    Assert.assertEquals(FieldProjection.excluding(Collections.singleton("b")), projection);
+    Assert.assertTrue(projection.contains("c"));
+    Assert.assertTrue(projection.containsNested("c"));
+  }
+
+  @Test
+  public void testReadsBeforeSelect() throws Exception {
+    FieldProjection projection = FieldProjection.of(transformations(
+            "{ \"transformation\" : \"STELLAR\", \"output\" : [ \"a\", \"b\" ], \"config\" : { \"tmp\" : \"TO_UPPER(c)\", \"a\" : \"TO_LOWER(tmp)\", \"b\" : \"d + 1\" } }",
+            "{ \"transformation\" : \"RENAME\", \"config\" : { \"e\" : \"f\" } }",
+            "{ \"transformation\" : \"SELECT\", \"output\" : [ \"a\", \"f\", \"g\" ] }"
+    ));
+    // a is always assigned, so the parsed a is not used, but the variable tmp may be read from the message and
+    // f is only replaced if there is an e
+    Assert.assertEquals(including("c", "d", "e", "f", "g", "tmp"), projection);
+  }
+
+  @Test
+  public void testReadsAfterSelect() throws Exception {
+    FieldProjection projection = FieldProjection.of(transformations(
+            "{ \"transformation\" : \"SELECT\", \"output\" : [ \"a\" ] }",
+            "{ \"transformation\" : \"STELLAR\", \"output\" : [ \"b\" ], \"config\" : { \"b\" : \"TO_UPPER(c)\" } }"
+    ));
+    // c is removed before it is read
+    Assert.assertEquals(including("a"), projection);
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    FieldProjection projection = FieldProjection.of(transformations(
+            "{ \"transformation\" : \"REMOVE\", \"input\" : [ \"a\", \"b\" ] }"
+    ));
+    Assert.assertEquals(FieldProjection.excluding(Arrays.asList("a", "b")), projection);
+    Assert.assertFalse(projection.contains("a"));
+    Assert.assertTrue(projection.contains("c"));
+  }
+
+  @Test
+  public void testConditionalRemove() throws Exception {
+    FieldProjection projection = FieldProjection.of(transformations(
+            "{ \"transformation\" : \"REMOVE\", \"input\" : [ \"a\" ], \"config\" : { \"condition\" : \"a == 'x'\" } }",
+            "{ \"transformation\" : \"SELECT\", \"output\" : [ \"b\" ] }"
+    ));
+    Assert.assertEquals(including("a", "b"), projection);
+  }
+
+  @Test
+  public void testWholeMessage() throws Exception {
+    Assert.assertTrue(FieldProjection.of(transformations(
+            "{ \"transformation\" : \"STELLAR\", \"output\" : [ \"size\" ], \"config\" : { \"size\" : \"LENGTH(_)\" } }",
+            "{ \"transformation\" : \"SELECT\", \"output\" : [ \"size\" ] }"
+    )).isAll());
+    Assert.assertTrue(FieldProjection.of(transformations(
+            "{ \"transformation\" : \"IP_PROTOCOL\", \"output\" : [ \"protocol\" ] }",
+            "{ \"transformation\" : \"SELECT\", \"output\" : [ \"protocol\" ] }"
+    )).isAll());
+    Assert.assertEquals(including("protocol"), FieldProjection.of(transformations(
+            "{ \"transformation\" : \"IP_PROTOCOL\", \"input\" : [ \"protocol\" ] }",
+            "{ \"transformation\" : \"SELECT\", \"output\" : [ \"protocol\" ] }"
+    )));
+  }
+}
@@ -27,24 +27,59 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TimeZone;
 
 public abstract class GrokParserTest {
 
   @Test
   public void test() throws IOException, ParseException {
+    test(getParserConfig());
+  }
+
+  @Test
+  public void testCompiled() throws IOException, ParseException {
+    Map<String, Object> parserConfig = getParserConfig();
+    parserConfig.put("compiled", "true");
+    test(parserConfig);
+  }
 
+  @Test
+  public void testZoneNamesAgreeWithDateFormat() throws Exception {
+    String dateFormat = "yyyy-MM-dd HH:mm:ss.S z";
+    Map<String, Object> parserConfig = getParserConfig();
+    parserConfig.put("dateFormat", dateFormat);
+    parserConfig.put("compiled", "true");
+    GrokParser grokParser = new GrokParser();
+    grokParser.configure(parserConfig);
+    grokParser.init();
+
+    SimpleDateFormat expected = new SimpleDateFormat(dateFormat);
+    expected.setTimeZone(TimeZone.getTimeZone("UTC"));
+    for (String timestamp : new String[] { "2016-07-01 12:00:00.5 EST"
+                                         , "2016-07-01 12:00:00.5 PST"
+                                         , "2016-01-01 12:00:00.5 IST"
+                                         , "2016-01-28 15:29:48.512 UTC" }) {
+      Assert.assertEquals(timestamp, expected.parse(timestamp).getTime(), grokParser.toEpoch(timestamp));
+    }
+  }
+
+  private Map<String, Object> getParserConfig() {
     Map<String, Object> parserConfig = new HashMap<>();
     parserConfig.put("grokPath", getGrokPath());
     parserConfig.put("patternLabel", getGrokPatternLabel());
     parserConfig.put("timestampField", getTimestampField());
     parserConfig.put("dateFormat", getDateFormat());
     parserConfig.put("timeFields", getTimeFields());
+    return parserConfig;
+  }
 
+  private void test(Map<String, Object> parserConfig) throws IOException, ParseException {
     GrokParser grokParser = new GrokParser();
     grokParser.configure(parserConfig);
     grokParser.init();
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers;
+
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MultiGrokTest {
+
+  private static final Map<String, String> PATTERNS = new HashMap<>();
+  static {
+    PATTERNS.put("INT", "(?:[+-]?(?:[0-9]+))");
+    PATTERNS.put("WORD", "\\b\\w+\\b");
+    PATTERNS.put("IP", "(?:\\d{1,3}\\.){3}\\d{1,3}");
+    PATTERNS.put("BUILT", "Built (?:inbound|outbound) %{WORD:protocol} connection %{INT:connection_id} for %{IP:ip_src_addr}");
+    PATTERNS.put("TEARDOWN", "Teardown %{WORD:protocol} connection %{INT:connection_id}");
+    PATTERNS.put("DENY", "(?:Deny|Denied) %{WORD:protocol} from %{IP:ip_src_addr}");
+    PATTERNS.put("ANY", "%{WORD:word} %{INT:number}");
+  }
+
+  private static final List<String> LABELS = Arrays.asList("BUILT", "TEARDOWN", "DENY", "ANY");
+
+  private static final List<String> LINES = Arrays.asList(
+          "Built inbound TCP connection 123 for 10.0.0.1",
+          "Teardown UDP connection 456 duration 0:00:01",
+          "Deny TCP from 10.0.0.2 to 10.0.0.3",
+          "Teardown of 789",
+          "nothing to see here"
+  );
+
+  @Test
+  public void testRequiredLiterals() {
+    Assert.assertEquals(Arrays.asList("abc", "de"), MultiGrok.requiredLiterals("abc\\d+de"));
+    Assert.assertEquals(Arrays.asList("a.b", "c"), MultiGrok.requiredLiterals("a\\.b[xyz]c"));
+    Assert.assertEquals(Arrays.asList("a", "b", "d"), MultiGrok.requiredLiterals("ab?b+c*d"));
+    Assert.assertEquals(Arrays.asList("ab", "c"), MultiGrok.requiredLiterals("(?:ab)(x|y)(z)?(c){2}"));
+    Assert.assertEquals(Arrays.asList("x"), MultiGrok.requiredLiterals("(?=foo)\\Qx\\E(?<!bar)"));
+    Assert.assertEquals(Arrays.asList("end"), MultiGrok.requiredLiterals("\\p{Alpha}\\u0041\\x{41}\\1end"));
+    Assert.assertEquals(Collections.emptyList(), MultiGrok.requiredLiterals("foo|bar"));
+    Assert.assertEquals(Collections.emptyList(), MultiGrok.requiredLiterals("(?i)foo"));
+    Assert.assertEquals(Collections.emptyList(), MultiGrok.requiredLiterals("(?ix:foo)"));
+  }
+
+  @Test
+  public void testAhoCorasick() {
+    MultiGrok.AhoCorasick index = new MultiGrok.AhoCorasick(Arrays.asList("he", "she", null, "his", "hers", "e"));
+    BitSet found = index.search("ushers");
+    Assert.assertEquals("{0, 1, 4, 5}", found.toString());
+    Assert.assertTrue(index.search("xyz").isEmpty());
+  }
+
+  @Test
+  public void testIndexedAgreesWithSequential() throws Exception {
+    MultiGrok indexed = MultiGrok.compile(PATTERNS, LABELS, false, true);
+    MultiGrok sequential = MultiGrok.compile(PATTERNS, LABELS, false, false);
+    MultiGrok compiled = MultiGrok.compile(PATTERNS, LABELS, true, true);
+    for (String line : LINES) {
+      Map<String, Object> expected = new HashMap<>();
+      Map<String, Object> actual = new HashMap<>();
+      Map<String, Object> actualCompiled = new HashMap<>();
+      Assert.assertEquals(line, sequential.match(line, expected), indexed.match(line, actual));
+      Assert.assertEquals(line, expected, actual);
+      compiled.match(line, actualCompiled);
+      Assert.assertEquals(line, expected, actualCompiled);
+    }
+    Assert.assertEquals(" connection ", indexed.getLiterals().get("BUILT"));
+    Assert.assertEquals(" from ", indexed.getLiterals().get("DENY"));
+    Assert.assertEquals(" ", indexed.getLiterals().get("ANY"));
+    Assert.assertNull(sequential.getLiterals().get("BUILT"));
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    MultiGrok indexed = MultiGrok.compile(PATTERNS, LABELS, true, true);
+    for (String line : LINES) {
+      indexed.match(line, new HashMap<>());
+    }
+    Map<String, Long> metrics = indexed.getValueAndReset();
+    // only the lines with a connection are tried against the connection patterns
+    Assert.assertEquals(2L, (long) metrics.get("BUILT.attempts"));
+    Assert.assertEquals(1L, (long) metrics.get("BUILT.hits"));
+    Assert.assertEquals(1L, (long) metrics.get("TEARDOWN.attempts"));
+    Assert.assertEquals(1L, (long) metrics.get("TEARDOWN.hits"));
+    Assert.assertEquals(1L, (long) metrics.get("DENY.attempts"));
+    Assert.assertEquals(1L, (long) metrics.get("DENY.hits"));
+    Assert.assertEquals(1L, (long) metrics.get("ANY.hits"));
+    Assert.assertEquals(1L, (long) metrics.get("unmatched"));
+    Assert.assertEquals(0L, (long) indexed.getValueAndReset().get("BUILT.attempts"));
+  }
+
+  @Test
+  public void testGrokParserWithPatternLabels() {
+    Map<String, Object> parserConfig = new HashMap<>();
+    parserConfig.put("grokPath", "/patterns/asa");
+    parserConfig.put("patternLabels", Arrays.asList("CISCOFW106023", "CISCOFW302013_302014_302015_302016"));
+    parserConfig.put("compiled", "true");
+    GrokParser parser = new GrokParser();
+    parser.configure(parserConfig);
+    parser.init();
+    String line = "%ASA-6-302013: Built inbound TCP connection 76245503 for outside:10.22.8.223/59614(DOMAIN\\user) to inside:10.22.8.78/8102 (10.22.8.78/8102) (DOMAIN\\user)";
+    List<JSONObject> messages = parser.parseOptionalResult(line.getBytes()).get().getMessages();
+    Assert.assertEquals(1, messages.size());
+    Assert.assertEquals("10.22.8.223", messages.get(0).get("src_ip"));
+    Assert.assertFalse(messages.get(0).containsKey("CISCOFW302013_302014_302015_302016"));
+    Map<String, Long> metrics = parser.getPatternMetrics();
+    Assert.assertEquals(1L, (long) metrics.get("CISCOFW302013_302014_302015_302016.hits"));
+    Assert.assertEquals(0L, (long) metrics.get("CISCOFW106023.attempts"));
+  }
+
+  @Test
+  public void testGrokParserWithProjection() {
+    String line = "%ASA-6-302013: Built inbound TCP connection 76245503 for outside:10.22.8.223/59614(DOMAIN\\user) to inside:10.22.8.78/8102 (10.22.8.78/8102) (DOMAIN\\user)";
+    FieldProjection projection = FieldProjection.including(Arrays.asList("src_ip", "dst_port", "timestamp", "original_string"));
+    for (String compiled : Arrays.asList("false", "true")) {
+      Map<String, Object> parserConfig = new HashMap<>();
+      parserConfig.put("grokPath", "/patterns/asa");
+      parserConfig.put("patternLabels", Arrays.asList("CISCOFW106023", "CISCOFW302013_302014_302015_302016"));
+      parserConfig.put("compiled", compiled);
+      GrokParser parser = new GrokParser();
+      parser.configure(parserConfig);
+      parser.init();
+      JSONObject expected = parser.parseOptionalResult(line.getBytes()).get().getMessages().get(0);
+      expected.keySet().removeIf(field -> !projection.contains((String) field));
+      parser.project(projection);
+      List<JSONObject> messages = parser.parseOptionalResult(line.getBytes()).get().getMessages();
+      Assert.assertEquals(compiled, Collections.singletonList(expected), messages);
+      Assert.assertEquals(compiled, "10.22.8.223", messages.get(0).get("src_ip"));
+    }
+  }
+}
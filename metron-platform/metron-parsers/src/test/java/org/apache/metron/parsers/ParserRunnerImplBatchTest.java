@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers;
+
+import org.apache.metron.common.Constants;
+import org.apache.metron.common.configuration.ParserConfigurations;
+import org.apache.metron.common.configuration.SensorParserConfig;
+import org.apache.metron.common.error.MetronError;
+import org.apache.metron.common.field.transformation.FieldTransformation;
+import org.apache.metron.common.message.metadata.RawMessage;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ParserRunnerImplBatchTest {
+
+  private static final String GLOBAL_CONFIG = "{ \"fieldValidations\" : [ { \"input\" : [ \"ip_src_addr\" ], \"validation\" : \"IP\" } ] }";
+
+  private static final String JSON_CONFIG = "{"
+          + " \"parserClassName\" : \"org.apache.metron.parsers.json.JSONMapParser\","
+          + " \"filterClassName\" : \"STELLAR\","
+          + " \"sensorTopic\" : \"json\","
+          + " \"parserConfig\" : { \"filter.query\" : \"keep == true\" },"
+          + " \"fieldTransformations\" : ["
+          + "   { \"transformation\" : \"STELLAR\", \"output\" : [ \"upper\" ], \"config\" : { \"upper\" : \"TO_UPPER(name)\" } },"
+          + "   { \"transformation\" : \"" + FailingTransformation.class.getName() + "\", \"input\" : [ \"fail\" ] }"
+          + " ]"
+          + "}";
+
+  /**
+   * Fails when a message has a fail field.
+   */
+  public static class FailingTransformation implements FieldTransformation {
+    @Override
+    public Map<String, Object> map(Map<String, Object> input, List<String> outputField, LinkedHashMap<String, Object> fieldMappingConfig,
+                                   Context context, Map<String, Object>... sensorConfig) {
+      if (input.get("fail") != null) {
+        throw new IllegalStateException("Unable to transform " + input);
+      }
+      return Collections.emptyMap();
+    }
+  }
+
+  private ParserConfigurations parserConfigurations;
+  private ParserRunnerImpl parserRunner;
+
+  @Before
+  public void setup() throws Exception {
+    parserConfigurations = new ParserConfigurations();
+    parserConfigurations.updateSensorParserConfig("json", SensorParserConfig.fromBytes(JSON_CONFIG.getBytes()));
+    parserConfigurations.updateGlobalConfig(JSONUtils.INSTANCE.load(GLOBAL_CONFIG, JSONUtils.MAP_SUPPLIER));
+    Context context = Context.EMPTY_CONTEXT();
+    StellarFunctions.initialize(context);
+    parserRunner = new ParserRunnerImpl(new HashSet<>(Collections.singleton("json")));
+    parserRunner.init(() -> parserConfigurations, context);
+  }
+
+  private static RawMessage raw(String message) {
+    return new RawMessage(message.getBytes(), new HashMap<>());
+  }
+
+  private static List<JSONObject> withoutGuids(List<JSONObject> messages) {
+    List<JSONObject> ret = new ArrayList<>();
+    for (JSONObject message : messages) {
+      JSONObject copy = new JSONObject(message);
+      Assert.assertNotNull(copy.remove(Constants.GUID));
+      ret.add(copy);
+    }
+    return ret;
+  }
+
+  private static List<String> errorTypes(List<MetronError> errors) {
+    List<String> ret = new ArrayList<>();
+    for (MetronError error : errors) {
+      ret.add((String) error.getJSONObject().get(Constants.ErrorFields.ERROR_TYPE.getName()));
+    }
+    return ret;
+  }
+
+  @Test
+  public void shouldAgreeWithExecute() {
+    List<RawMessage> rawMessages = Arrays.asList(
+            raw("{ \"name\" : \"valid\", \"keep\" : true, \"ip_src_addr\" : \"10.0.0.1\", \"timestamp\" : 1 }"),
+            raw("{ \"name\" : \"filtered\", \"keep\" : false, \"ip_src_addr\" : \"10.0.0.2\", \"timestamp\" : 2 }"),
+            raw("{ \"name\" : \"invalid\", \"keep\" : true, \"ip_src_addr\" : \"not an ip\", \"timestamp\" : 3 }"),
+            raw("{ \"name\" : \"unparseable\""),
+            raw("{ \"name\" : \"another\", \"keep\" : true, \"ip_src_addr\" : \"10.0.0.5\", \"timestamp\" : 5 }")
+    );
+    List<ParserRunnerResults<JSONObject>> batchResults = parserRunner.executeBatch("json", rawMessages, parserConfigurations);
+    Assert.assertEquals(rawMessages.size(), batchResults.size());
+    for (int i = 0; i < rawMessages.size(); ++i) {
+      ParserRunnerResults<JSONObject> expected = parserRunner.execute("json", rawMessages.get(i), parserConfigurations);
+      ParserRunnerResults<JSONObject> actual = batchResults.get(i);
+      Assert.assertEquals(withoutGuids(expected.getMessages()), withoutGuids(actual.getMessages()));
+      Assert.assertEquals(errorTypes(expected.getErrors()), errorTypes(actual.getErrors()));
+    }
+    Assert.assertEquals("VALID", batchResults.get(0).getMessages().get(0).get("upper"));
+    Assert.assertTrue(batchResults.get(1).getMessages().isEmpty());
+    Assert.assertEquals(Collections.singletonList(Constants.ErrorType.PARSER_INVALID.getType()), errorTypes(batchResults.get(2).getErrors()));
+    Assert.assertEquals(Collections.singletonList(Constants.ErrorType.PARSER_ERROR.getType()), errorTypes(batchResults.get(3).getErrors()));
+
+    ParserStageTimings timings = parserRunner.getStageTimings();
+    Assert.assertEquals(5, timings.getMessages(ParserStageTimings.Stage.PARSE));
+    Assert.assertEquals(4, timings.getMessages(ParserStageTimings.Stage.MERGE_METADATA));
+    Assert.assertEquals(3, timings.getMessages(ParserStageTimings.Stage.VALIDATE));
+    Map<String, Long> values = timings.getValueAndReset();
+    Assert.assertEquals(5L, (long) values.get("parse.messages"));
+    Assert.assertEquals(0, timings.getMessages(ParserStageTimings.Stage.PARSE));
+  }
+
+  @Test
+  public void shouldOnlyFailTheRawMessageThatFails() {
+    List<RawMessage> rawMessages = Arrays.asList(
+            raw("{ \"name\" : \"first\", \"keep\" : true, \"ip_src_addr\" : \"10.0.0.1\" }"),
+            raw("{ \"name\" : \"second\", \"keep\" : true, \"fail\" : true, \"ip_src_addr\" : \"10.0.0.2\" }"),
+            raw("{ \"name\" : \"third\", \"keep\" : true, \"ip_src_addr\" : \"10.0.0.3\" }")
+    );
+    List<ParserRunnerResults<JSONObject>> results = parserRunner.executeBatch("json", rawMessages, parserConfigurations);
+    Assert.assertEquals("FIRST", results.get(0).getMessages().get(0).get("upper"));
+    Assert.assertTrue(results.get(0).getErrors().isEmpty());
+    Assert.assertTrue(results.get(1).getMessages().isEmpty());
+    Assert.assertEquals(1, results.get(1).getErrors().size());
+    Assert.assertEquals(Collections.singletonList(Constants.ErrorType.PARSER_ERROR.getType()), errorTypes(results.get(1).getErrors()));
+    Assert.assertTrue(results.get(1).getErrors().get(0).getThrowable().get() instanceof IllegalStateException);
+    Assert.assertEquals("THIRD", results.get(2).getMessages().get(0).get("upper"));
+  }
+
+  @Test
+  public void shouldProjectTheParser() throws Exception {
+    String config = "{"
+            + " \"parserClassName\" : \"org.apache.metron.parsers.csv.CSVParser\","
+            + " \"sensorTopic\" : \"csv\","
+            + " \"parserConfig\" : { \"columns\" : { \"name\" : 0, \"unused\" : 5 }, \"fieldProjection\" : \"%s\" },"
+            + " \"fieldTransformations\" : ["
+            + "   { \"transformation\" : \"STELLAR\", \"output\" : [ \"upper\" ], \"config\" : { \"upper\" : \"TO_UPPER(name)\" } },"
+            + "   { \"transformation\" : \"SELECT\", \"output\" : [ \"upper\" ] }"
+            + " ]"
+            + "}";
+    ParserConfigurations configurations = new ParserConfigurations();
+    configurations.updateSensorParserConfig("csv", SensorParserConfig.fromBytes(String.format(config, "true").getBytes()));
+    ParserRunnerImpl runner = new ParserRunnerImpl(new HashSet<>(Collections.singleton("csv")));
+    runner.init(() -> configurations, Context.EMPTY_CONTEXT());
+
+    // the unused column is not read, so a line without it is parsed
+    ParserRunnerResults<JSONObject> results = runner.execute("csv", raw("foo,bar"), configurations);
+    Assert.assertTrue(results.getErrors().isEmpty());
+    Assert.assertEquals("FOO", results.getMessages().get(0).get("upper"));
+    Assert.assertFalse(results.getMessages().get(0).containsKey("name"));
+
+    // the parser is projected again when the config changes
+    configurations.updateSensorParserConfig("csv", SensorParserConfig.fromBytes(String.format(config, "false").getBytes()));
+    results = runner.executeBatch("csv", Collections.singletonList(raw("foo,bar")), configurations).get(0);
+    Assert.assertTrue(results.getMessages().isEmpty());
+    Assert.assertEquals(Collections.singletonList(Constants.ErrorType.PARSER_ERROR.getType()), errorTypes(results.getErrors()));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldThrowWithoutConfig() {
+    parserRunner.executeBatch("missing", Collections.singletonList(raw("{}")), parserConfigurations);
+  }
+}
@@ -24,6 +24,8 @@ import org.apache.metron.common.configuration.SensorParserConfig;
 import org.apache.metron.common.error.MetronError;
 import org.apache.metron.common.message.MessageGetStrategy;
 import org.apache.metron.common.message.metadata.RawMessage;
+import org.apache.metron.common.writer.AsyncBulkMessageWriter;
+import org.apache.metron.common.writer.BulkWriterResponse;
 import org.apache.metron.parsers.DefaultParserRunnerResults;
 import org.apache.metron.parsers.ParserRunnerResults;
 import org.apache.metron.parsers.ParserRunnerImpl;
@@ -32,6 +34,7 @@ import org.apache.metron.storm.kafka.flux.SimpleStormKafkaBuilder.FieldsConfigur
 import org.apache.metron.test.bolt.BaseBoltTest;
 import org.apache.metron.test.error.MetronErrorJSONMatcher;
 import org.apache.storm.Config;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.tuple.Tuple;
 import org.json.simple.JSONObject;
 import org.junit.Assert;
@@ -40,20 +43,28 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mock;
+import org.mockito.stubbing.Answer;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -225,6 +236,42 @@ public class ParserBoltTest extends BaseBoltTest {
     verify(writerHandler).setDefaultBatchTimeout(14);
   }
 
+  @Test
+  public void shouldRegisterPatternMetrics() {
+    SensorParserConfig sensorParserConfig = mock(SensorParserConfig.class);
+    when(sensorParserConfig.getParserConfig()).thenReturn(new HashMap<>());
+    when(parserRunner.getSensorTypes()).thenReturn(new HashSet<String>() {{
+      add("yaf");
+      add("bro");
+    }});
+    // only the yaf parser has several patterns
+    when(parserRunner.getPatternMetrics("yaf")).thenReturn(Collections.singletonMap("unmatched", 0L));
+    when(parserRunner.getPatternMetrics("bro")).thenReturn(Collections.emptyMap());
+
+    ParserBolt parserBolt = spy(new ParserBolt("zookeeperUrl", parserRunner, new HashMap<String, WriterHandler>() {{
+      put("yaf", writerHandler);
+    }}) {
+
+      @Override
+      protected SensorParserConfig getSensorParserConfig(String sensorType) {
+        return sensorParserConfig;
+      }
+
+      @Override
+      public ParserConfigurations getConfigurations() {
+        return mock(ParserConfigurations.class);
+      }
+    });
+    doReturn(stellarContext).when(parserBolt).initializeStellar();
+    parserBolt.setCuratorFramework(client);
+    parserBolt.setZKCache(cache);
+
+    parserBolt.prepare(new HashMap(), topologyContext, outputCollector);
+
+    verify(topologyContext).registerMetric(eq(ParserBolt.PATTERN_METRIC_PREFIX + "yaf"), any(IMetric.class), anyInt());
+    verify(topologyContext, never()).registerMetric(eq(ParserBolt.PATTERN_METRIC_PREFIX + "bro"), any(IMetric.class), anyInt());
+  }
+
   @Test
   public void shouldThrowExceptionOnMissingConfig() {
     exception.expect(IllegalStateException.class);
@@ -441,4 +488,75 @@ public class ParserBoltTest extends BaseBoltTest {
     verify(outputCollector, times(1)).reportError(any(IllegalStateException.class));
     verify(outputCollector, times(1)).ack(t1);
   }
+
+  @Test
+  public void shouldNotCallCollectorConcurrentlyWithAsyncWriter() throws Exception {
+    when(messageGetStrategy.get(any())).thenReturn("originalMessage".getBytes(StandardCharsets.UTF_8));
+    when(t1.getStringByField(FieldsConfiguration.TOPIC.getFieldName())).thenReturn("yafTopic");
+    MockParserRunner mockParserRunner = new MockParserRunner(new HashSet<String>() {{ add("yaf"); }});
+    ParserConfigurations parserConfigurations = new ParserConfigurations();
+    SensorParserConfig sensorParserConfig = new SensorParserConfig();
+    sensorParserConfig.getParserConfig().put(IndexingConfigurations.BATCH_SIZE_CONF, 1);
+    parserConfigurations.updateSensorParserConfig("yaf", sensorParserConfig);
+
+    // the writer acks each tuple from a thread of its own, as the KafkaWriter does in async mode
+    List<Thread> callbackThreads = new ArrayList<>();
+    AsyncBulkMessageWriter<JSONObject> asyncWriter = mock(AsyncBulkMessageWriter.class);
+    when(asyncWriter.isAsync()).thenReturn(true);
+    when(asyncWriter.writeAsync(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+      Iterable<Tuple> tuples = (Iterable<Tuple>) invocation.getArguments()[2];
+      AsyncBulkMessageWriter.Callback callback = (AsyncBulkMessageWriter.Callback) invocation.getArguments()[4];
+      Thread thread = new Thread(() -> tuples.forEach(callback::onSuccess));
+      callbackThreads.add(thread);
+      thread.start();
+      return new BulkWriterResponse();
+    });
+    WriterHandler asyncWriterHandler = new WriterHandler(asyncWriter);
+    asyncWriterHandler.init(new HashMap(), topologyContext, outputCollector, parserConfigurations);
+
+    // record any call to the collector made while another is in progress
+    AtomicInteger inCollector = new AtomicInteger();
+    AtomicBoolean concurrent = new AtomicBoolean();
+    Answer<Object> checkConcurrent = invocation -> {
+      if (inCollector.incrementAndGet() > 1) {
+        concurrent.set(true);
+      }
+      Thread.sleep(1);
+      inCollector.decrementAndGet();
+      return null;
+    };
+    doAnswer(checkConcurrent).when(outputCollector).ack(any());
+    doAnswer(checkConcurrent).when(outputCollector).emit(any(String.class), any(List.class));
+    doAnswer(checkConcurrent).when(outputCollector).reportError(any());
+
+    ParserBolt parserBolt = new ParserBolt("zookeeperUrl", mockParserRunner, new HashMap<String, WriterHandler>() {{
+      put("yaf", asyncWriterHandler);
+    }}) {
+
+      @Override
+      public ParserConfigurations getConfigurations() {
+        return parserConfigurations;
+      }
+    };
+    parserBolt.setMessageGetStrategy(messageGetStrategy);
+    parserBolt.setOutputCollector(outputCollector);
+    parserBolt.setTopicToSensorMap(new HashMap<String, String>() {{
+      put("yafTopic", "yaf");
+    }});
+    JSONObject message = new JSONObject();
+    message.put("field", "value");
+    mockParserRunner.setMessage(message);
+
+    // valid messages are acked by the writer's threads while invalid ones are errored and acked by the bolt
+    for (int i = 0; i < 100; i++) {
+      mockParserRunner.setInvalid(i % 2 == 1);
+      parserBolt.execute(t1);
+    }
+    for (Thread thread : callbackThreads) {
+      thread.join();
+    }
+
+    verify(outputCollector, times(100)).ack(t1);
+    Assert.assertFalse(concurrent.get());
+  }
 }
@@ -23,7 +23,10 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -270,6 +273,83 @@ public class CEFParserTest {
 		Assert.assertEquals("chocolate!", inner.get("test_test_test").asText());
 	}
 
+	/**
+	 * Lines which exercise the corners of the header and extension patterns.
+	 */
+	private static final List<String> EDGE_CASES = Arrays.asList(
+			"<14>Apr  7 10:10:10 hostname CEF: 0|Vendor|Product|1.0|100|name|Low|src=10.0.0.1 dst=10.0.0.2",
+			"January 05 23:59:60.123 CEF:0|Vendor|Product|1.0|100|name|3|rt=1459517280810 act=a b=c d",
+			"Dec 31 9:00:00,5 host.example_1 CEF:0|Vendor|Product|1.0|100|name|Medium|act=x",
+			"Sept 19 08:26:10 host CEF:0|Vendor|Product|1.0|100|name|High|act=x",
+			"Jun 35 08:26:10 host CEF:0|Vendor|Product|1.0|100|name|High|act=x",
+			"Jun 3 <1:26:10 host CEF:0|Vendor|Product|1.0|100|name|High|act=x",
+			"2016-04-01T09:29:11.356-0400 CEF:0|Adallom|Adallom|1.0|56fe|ALERT|0|start=1459517280810",
+			"2016-04-01T09:29:11Z my\\host^ CEF:0|Vendor|Product|1.0|100|name|Very-High|a=b",
+			"CEF:0|Vendor|Product|1.0|100|name|10|msg=see CEF:0|a|b|c|d|e|f|src=10.0.0.9",
+			"CEF:0|Vendor|Product|1.0|100|name|10|msg=see CEF:0|a|b|c| src=10.0.0.9",
+			"CEF:0|Vendor|Product|1.0|100|name|10| src =10.0.0.1  dst= 10.0.0.2 cs1=a\\=b cs1Label=x=y z",
+			"CEF:0|Vendor|Product|1.0|100|name|10|=a b=c cn1=1 cn1Label=Label=again label=q Label=w",
+			"CEF:0|Vendor|Product|1.0|100|name|10|a=b=c d=e f=g",
+			"CEF:0|Vendor|Product|1.0|100|name|10|src=1.1.1.1 | dst=2.2.2.2|"
+	);
+
+	@Test
+	public void testScannerAgreesWithPatterns() throws Exception {
+		List<String> lines = new ArrayList<>(EDGE_CASES);
+		for (String corpus : new String[] { "adallom.cef", "cyberark.cef", "waf.cef", "palo.cef" }) {
+			lines.addAll(Resources.readLines(Resources.getResource(getClass(), corpus), UTF_8));
+		}
+		lines.add(sample);
+		CEFParser scanner = new CEFParser();
+		Map<String, Object> config = new HashMap<>();
+		config.put(CEFParser.SCANNER_CONFIG, "true");
+		scanner.configure(config);
+		scanner.init();
+		for (String line : lines) {
+			List<JSONObject> expected;
+			try {
+				expected = parse(line);
+			} catch (RuntimeException e) {
+				try {
+					scanner.parse(line.getBytes(UTF_8));
+					Assert.fail(line);
+				} catch (RuntimeException scannerException) {
+					Assert.assertEquals(line, e.toString(), scannerException.toString());
+				}
+				continue;
+			}
+			List<JSONObject> actual = scanner.parse(line.getBytes(UTF_8));
+			Assert.assertEquals(line, expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); ++i) {
+				// the messages without a time of their own are given the current time
+				long expectedTimestamp = (long) expected.get(i).remove("timestamp");
+				long actualTimestamp = (long) actual.get(i).remove("timestamp");
+				Assert.assertTrue(line, Math.abs(expectedTimestamp - actualTimestamp) < 60000);
+				Assert.assertEquals(line, expected.get(i), actual.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void testScannerReadsEachLine() {
+		CEFParser scanner = new CEFParser();
+		Map<String, Object> config = new HashMap<>();
+		config.put(CEFParser.SCANNER_CONFIG, "true");
+		scanner.configure(config);
+		scanner.init();
+		String message = "CEF:0|Security|threatmanager|1.0|100|first|10|src=10.0.0.1\n"
+				+ "not a CEF line\r\n"
+				+ "CEF:0|Security|threatmanager|1.0|100|second|10|src=10.0.0.2 spt=1232\n";
+		List<JSONObject> messages = scanner.parse(message.getBytes(UTF_8));
+		Assert.assertEquals(2, messages.size());
+		Assert.assertEquals("first", messages.get(0).get("Name"));
+		Assert.assertEquals("10.0.0.1", messages.get(0).get("ip_src_addr"));
+		Assert.assertEquals("second", messages.get(1).get("Name"));
+		Assert.assertEquals(1232, messages.get(1).get("ip_src_port"));
+		Assert.assertEquals(message, messages.get(1).get("original_string"));
+		Assert.assertTrue(scanner.parse("CEF:0|Security|threatmanager|1.0|100|short".getBytes(UTF_8)).isEmpty());
+	}
+
 	protected boolean validateJsonData(final String jsonSchema, final String jsonData) throws Exception {
 		final JsonNode d = JsonLoader.fromString(jsonData);
 		final JsonNode s = JsonLoader.fromString(jsonSchema);
@@ -23,13 +23,17 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Level;
 import org.apache.metron.common.configuration.SensorParserConfig;
 import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.parsers.FieldProjection;
 import org.apache.metron.test.utils.UnitTestHelper;
 import org.json.simple.JSONObject;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CSVParserTest {
   /**
@@ -121,4 +125,27 @@ public class CSVParserTest {
       UnitTestHelper.setLog4jLevel(CSVParser.class, Level.ERROR);
     }
   }
+
+  @Test
+  public void testProjection() throws IOException {
+    Map<String, Object> config = new HashMap<>();
+    Map<String, Object> columns = new HashMap<>();
+    columns.put("col1", 0);
+    columns.put(" col2", 1);
+    columns.put("timestamp", 2);
+    config.put("columns", columns);
+    CSVParser parser = new CSVParser();
+    parser.configure(config);
+    parser.project(FieldProjection.including(Arrays.asList("col2", "timestamp", "original_string")));
+    JSONObject o = parser.parse(Bytes.toBytes("foo, bar ,1000")).get(0);
+    Assert.assertEquals(3, o.size());
+    Assert.assertEquals("bar", o.get("col2"));
+    Assert.assertEquals(1000L, o.get("timestamp"));
+    Assert.assertEquals("foo, bar ,1000", o.get("original_string"));
+
+    parser.project(FieldProjection.ALL);
+    o = parser.parse(Bytes.toBytes("foo, bar ,1000")).get(0);
+    Assert.assertEquals(4, o.size());
+    Assert.assertEquals("foo", o.get("col1"));
+  }
 }
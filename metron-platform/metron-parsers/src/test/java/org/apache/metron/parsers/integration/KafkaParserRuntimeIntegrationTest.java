@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.integration;
+
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.metron.common.configuration.ConfigurationsUtils;
+import org.apache.metron.common.configuration.ParserConfigurations;
+import org.apache.metron.common.configuration.SensorParserConfig;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.integration.BaseIntegrationTest;
+import org.apache.metron.integration.ComponentRunner;
+import org.apache.metron.integration.components.KafkaComponent;
+import org.apache.metron.integration.components.ZKServerComponent;
+import org.apache.metron.parsers.ParserRunnerImpl;
+import org.apache.metron.parsers.kafka.KafkaParserPipeline;
+import org.apache.metron.parsers.kafka.KafkaParserRuntime;
+import org.apache.metron.stellar.dsl.Context;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the standalone parser runtime against kafka, restarting it to check that the offsets of the batches which
+ * were written, and only those, are committed.
+ */
+public class KafkaParserRuntimeIntegrationTest extends BaseIntegrationTest {
+  private static final String SENSOR_TYPE = "json";
+  private static final String INPUT_TOPIC = "json_in";
+  private static final String OUTPUT_TOPIC = "json_out";
+  private static final String ERROR_TOPIC = "parser_error";
+  private static final String GROUP_ID = "json_parser";
+  private static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+
+  private static final String GLOBAL_CONFIG = "{ \"parser.error.topic\" : \"" + ERROR_TOPIC + "\" }";
+
+  private static final String SENSOR_CONFIG = "{"
+          + " \"parserClassName\" : \"org.apache.metron.parsers.json.JSONMapParser\","
+          + " \"sensorTopic\" : \"" + INPUT_TOPIC + "\","
+          + " \"outputTopic\" : \"" + OUTPUT_TOPIC + "\""
+          + "}";
+
+  /**
+   * Fails every write, counting them.
+   */
+  private static class FailingProducer extends MockProducer<String, String> {
+    AtomicInteger attempts = new AtomicInteger();
+
+    FailingProducer() {
+      super(true, new StringSerializer(), new StringSerializer());
+    }
+
+    @Override
+    public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record, Callback callback) {
+      attempts.incrementAndGet();
+      CompletableFuture<RecordMetadata> ret = new CompletableFuture<>();
+      ret.completeExceptionally(new IllegalStateException("Unable to write"));
+      return ret;
+    }
+  }
+
+  @Test
+  public void shouldCommitWrittenBatchesAcrossRestarts() throws Exception {
+    Properties topologyProperties = new Properties();
+    ZKServerComponent zkServerComponent = getZKServerComponent(topologyProperties);
+    KafkaComponent kafkaComponent = getKafkaComponent(topologyProperties, Arrays.asList(
+            new KafkaComponent.Topic(INPUT_TOPIC, 1),
+            new KafkaComponent.Topic(OUTPUT_TOPIC, 1),
+            new KafkaComponent.Topic(ERROR_TOPIC, 1)));
+    ComponentRunner runner = new ComponentRunner.Builder()
+            .withComponent("zk", zkServerComponent)
+            .withComponent("kafka", kafkaComponent)
+            .withMillisecondsBetweenAttempts(5000)
+            .withNumRetries(10)
+            .withCustomShutdownOrder(new String[]{"kafka", "zk"})
+            .build();
+    try {
+      runner.start();
+      String zookeeperUrl = zkServerComponent.getConnectionString();
+      ConfigurationsUtils.writeGlobalConfigToZookeeper(GLOBAL_CONFIG.getBytes(), zookeeperUrl);
+      ConfigurationsUtils.writeSensorParserConfigToZookeeper(SENSOR_TYPE, SENSOR_CONFIG.getBytes(), zookeeperUrl);
+
+      // the first messages are written, and committed by the time the runtime is closed
+      kafkaComponent.writeMessages(INPUT_TOPIC, message("first"), message("second"));
+      try (KafkaParserRuntime runtime = createRuntime(zookeeperUrl, kafkaComponent)) {
+        runtime.start();
+        waitForOutput(kafkaComponent, 2);
+      }
+
+      // a batch which cannot be written is not committed before the parser dies
+      kafkaComponent.writeMessages(INPUT_TOPIC, message("third"));
+      failToWrite(kafkaComponent);
+      Assert.assertEquals(Arrays.asList("first", "second"), readOutput(kafkaComponent));
+
+      // so once the parser restarts, it is read again along with the new messages, and nothing else is
+      kafkaComponent.writeMessages(INPUT_TOPIC, message("fourth"));
+      try (KafkaParserRuntime runtime = createRuntime(zookeeperUrl, kafkaComponent)) {
+        runtime.start();
+        waitForOutput(kafkaComponent, 4);
+      }
+      Assert.assertEquals(Arrays.asList("first", "second", "third", "fourth"), readOutput(kafkaComponent));
+      Assert.assertTrue(kafkaComponent.readMessages(ERROR_TOPIC).isEmpty());
+    } finally {
+      runner.stop();
+    }
+  }
+
+  private static String message(String name) {
+    return "{ \"name\" : \"" + name + "\" }";
+  }
+
+  private static Map<String, Object> consumerConfig(KafkaComponent kafkaComponent) {
+    Map<String, Object> consumerConfig = new HashMap<>();
+    consumerConfig.put("bootstrap.servers", kafkaComponent.getBrokerList());
+    consumerConfig.put("group.id", GROUP_ID);
+    consumerConfig.put("auto.offset.reset", "earliest");
+    return consumerConfig;
+  }
+
+  private static KafkaParserRuntime createRuntime(String zookeeperUrl, KafkaComponent kafkaComponent) {
+    Map<String, Object> producerConfig = new HashMap<>();
+    producerConfig.put("bootstrap.servers", kafkaComponent.getBrokerList());
+    return new KafkaParserRuntime(zookeeperUrl
+            , Collections.singletonList(SENSOR_TYPE)
+            , 1
+            , 100
+            , 0
+            , consumerConfig(kafkaComponent)
+            , producerConfig
+    );
+  }
+
+  /**
+   * Reads the input with a parser whose writes fail, until it has tried to write, then closes its consumer
+   * without committing, as a worker which dies would.
+   */
+  private static void failToWrite(KafkaComponent kafkaComponent) throws Exception {
+    ParserConfigurations parserConfigurations = new ParserConfigurations();
+    parserConfigurations.updateSensorParserConfig(SENSOR_TYPE, SensorParserConfig.fromBytes(SENSOR_CONFIG.getBytes()));
+    parserConfigurations.updateGlobalConfig(JSONUtils.INSTANCE.load(GLOBAL_CONFIG, JSONUtils.MAP_SUPPLIER));
+    Map<String, Object> consumerConfig = consumerConfig(kafkaComponent);
+    consumerConfig.put("enable.auto.commit", "false");
+    consumerConfig.put("key.deserializer", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+    consumerConfig.put("value.deserializer", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+    KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(consumerConfig);
+    consumer.subscribe(Collections.singletonList(INPUT_TOPIC));
+    FailingProducer producer = new FailingProducer();
+    KafkaParserPipeline pipeline = new KafkaParserPipeline(consumer
+            , producer
+            , new ParserRunnerImpl(new HashSet<>(Collections.singleton(SENSOR_TYPE)))
+            , () -> parserConfigurations
+            , 100
+    ).init(Context.EMPTY_CONTEXT());
+    try {
+      long start = System.currentTimeMillis();
+      while (producer.attempts.get() == 0 && System.currentTimeMillis() - start < TIMEOUT_MS) {
+        Assert.assertEquals(0, pipeline.processBatch());
+      }
+      Assert.assertEquals(1, producer.attempts.get());
+    } finally {
+      consumer.close();
+    }
+  }
+
+  private static void waitForOutput(KafkaComponent kafkaComponent, int count) throws Exception {
+    long start = System.currentTimeMillis();
+    while (readOutput(kafkaComponent).size() < count && System.currentTimeMillis() - start < TIMEOUT_MS) {
+      Thread.sleep(100);
+    }
+    Assert.assertEquals(count, readOutput(kafkaComponent).size());
+  }
+
+  private static List<String> readOutput(KafkaComponent kafkaComponent) throws Exception {
+    List<String> names = new ArrayList<>();
+    for (byte[] message : kafkaComponent.readMessages(OUTPUT_TOPIC)) {
+      names.add((String) ((JSONObject) new JSONParser().parse(new String(message))).get("name"));
+    }
+    return names;
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.json;
+
+import org.apache.log4j.Level;
+import org.apache.metron.parsers.BasicParser;
+import org.apache.metron.parsers.FieldProjection;
+import org.apache.metron.test.utils.UnitTestHelper;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JSONMapParserStreamingTest {
+
+  static final String JSON = "{ \"foo\" : \"bar\", \"number\" : 2.0, \"count\" : 7, \"big\" : 12345678901, \"flag\" : true"
+          + ", \"none\" : null, \"list\" : [ 1, \"two\", { \"three\" : 3 } ]"
+          + ", \"collection\" : { \"blah\" : 7, \"bigblah\" : { \"innerBlah\" : \"baz\", \"reallyInnerBlah\" : { \"color\" : \"grey\" }}}"
+          + ", \"timestamp\" : 1000 }";
+
+  static final String JSON_LIST = "{ \"header\" : { \"skip\" : [ { \"a\" : 1 } ] }, \"foo\" : [ { \"name\" : \"foo1\", \"value\" : \"bar\" }"
+          + ", { \"name\" : \"foo2\", \"value\" : { \"inner\" : \"\u00e9\" } } ] }";
+
+  private static JSONMapParser parser(String mapStrategy, boolean streaming, Object... config) {
+    Map<String, Object> parserConfig = new HashMap<>();
+    parserConfig.put(JSONMapParser.MAP_STRATEGY_CONFIG, mapStrategy);
+    parserConfig.put(JSONMapParser.STREAMING, streaming);
+    for (int i = 0; i < config.length; i += 2) {
+      parserConfig.put((String) config[i], config[i + 1]);
+    }
+    JSONMapParser parser = new JSONMapParser();
+    parser.configure(parserConfig);
+    return parser;
+  }
+
+  private static JSONObject withoutOriginalString(JSONObject message) {
+    JSONObject ret = new JSONObject(message);
+    ret.remove("original_string");
+    return ret;
+  }
+
+  @Test
+  public void testStreamingAgreesWithDefault() {
+    for (String mapStrategy : Arrays.asList("DROP", "UNFOLD", "ALLOW")) {
+      List<JSONObject> expected = parser(mapStrategy, false).parse(JSON.getBytes());
+      List<JSONObject> actual = parser(mapStrategy, true).parse(JSON.getBytes());
+      Assert.assertEquals(mapStrategy, 1, actual.size());
+      Assert.assertEquals(mapStrategy, withoutOriginalString(expected.get(0)), withoutOriginalString(actual.get(0)));
+      Assert.assertEquals(mapStrategy, JSON, actual.get(0).get("original_string"));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStreamingCollectionHandlingError() {
+    UnitTestHelper.setLog4jLevel(BasicParser.class, Level.FATAL);
+    try {
+      parser("ERROR", true).parse(JSON.getBytes());
+    } finally {
+      UnitTestHelper.setLog4jLevel(BasicParser.class, Level.ERROR);
+    }
+  }
+
+  @Test
+  public void testStreamingQuery() {
+    List<JSONObject> output = parser("UNFOLD", true, JSONMapParser.JSONP_QUERY, "$.foo").parse(JSON_LIST.getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(2, output.size());
+    Assert.assertEquals("foo1", output.get(0).get("name"));
+    Assert.assertEquals("bar", output.get(0).get("value"));
+    Assert.assertEquals("{ \"name\" : \"foo1\", \"value\" : \"bar\" }", output.get(0).get("original_string"));
+    Assert.assertEquals("foo2", output.get(1).get("name"));
+    Assert.assertEquals("\u00e9", output.get(1).get("value.inner"));
+    Assert.assertEquals("{ \"name\" : \"foo2\", \"value\" : { \"inner\" : \"\u00e9\" } }", output.get(1).get("original_string"));
+    Assert.assertTrue(output.get(1).get("timestamp") instanceof Number);
+  }
+
+  @Test
+  public void testStreamingQueryWithoutList() {
+    Assert.assertTrue(parser("DROP", true, JSONMapParser.JSONP_QUERY, "$['header']").parse(JSON_LIST.getBytes()).isEmpty());
+    Assert.assertTrue(parser("DROP", true, JSONMapParser.JSONP_QUERY, "$.missing[*]").parse(JSON_LIST.getBytes()).isEmpty());
+  }
+
+  @Test
+  public void testStreamingWrappedQuery() {
+    String messages = "{ \"name\" : \"foo1\" },\n{ \"name\" : \"foo2\" },";
+    List<JSONObject> output = parser("DROP", true
+            , JSONMapParser.JSONP_QUERY, "$.foo"
+            , JSONMapParser.WRAP_JSON, true
+            , JSONMapParser.WRAP_ENTITY_NAME, "foo").parse(messages.getBytes());
+    Assert.assertEquals(2, output.size());
+    Assert.assertEquals("foo1", output.get(0).get("name"));
+    Assert.assertEquals("{ \"name\" : \"foo2\" }", output.get(1).get("original_string"));
+  }
+
+  @Test
+  public void testSkipFields() {
+    List<JSONObject> output = parser("UNFOLD", true
+            , JSONMapParser.SKIP_FIELDS, Arrays.asList("list", "number", "collection.bigblah")).parse(JSON.getBytes());
+    JSONObject message = output.get(0);
+    Assert.assertFalse(message.containsKey("list"));
+    Assert.assertFalse(message.containsKey("number"));
+    Assert.assertFalse(message.containsKey("collection.bigblah.innerBlah"));
+    Assert.assertEquals(7, message.get("collection.blah"));
+    Assert.assertEquals("bar", message.get("foo"));
+  }
+
+  @Test
+  public void testProjection() {
+    List<FieldProjection> projections = Arrays.asList(
+            FieldProjection.including(Arrays.asList("foo", "collection", "collection.bigblah.innerBlah", "timestamp", "original_string")),
+            FieldProjection.excluding(Arrays.asList("list", "collection.blah")),
+            FieldProjection.including(Collections.singleton("original_string"))
+    );
+    for (String mapStrategy : Arrays.asList("DROP", "UNFOLD", "ALLOW")) {
+      JSONObject all = parser(mapStrategy, false).parse(JSON.getBytes()).get(0);
+      for (FieldProjection projection : projections) {
+        JSONObject expected = new JSONObject(all);
+        expected.keySet().removeIf(field -> !projection.contains((String) field));
+        for (boolean streaming : Arrays.asList(false, true)) {
+          JSONMapParser parser = parser(mapStrategy, streaming);
+          parser.project(projection);
+          JSONObject actual = parser.parse(JSON.getBytes()).get(0);
+          if (!projection.contains("timestamp")) {
+            // the current time is used when there is no timestamp
+            Assert.assertNotEquals(1000L, actual.remove("timestamp"));
+          }
+          Assert.assertEquals(mapStrategy + " " + projection, withoutOriginalString(expected), withoutOriginalString(actual));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testToStreamingQuery() {
+    Assert.assertEquals(Arrays.asList("foo"), JSONMapParser.toStreamingQuery("$.foo"));
+    Assert.assertEquals(Arrays.asList("foo", "bar"), JSONMapParser.toStreamingQuery("$.foo.bar[*]"));
+    Assert.assertEquals(Arrays.asList("foo bar", "baz"), JSONMapParser.toStreamingQuery("$['foo bar']['baz']"));
+    Assert.assertNull(JSONMapParser.toStreamingQuery("$..foo"));
+    Assert.assertNull(JSONMapParser.toStreamingQuery("$.foo[0]"));
+    Assert.assertNull(JSONMapParser.toStreamingQuery("$.foo[?(@.name == 'foo1')]"));
+    Assert.assertNull(JSONMapParser.toStreamingQuery(""));
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.metron.common.Constants;
+import org.apache.metron.common.configuration.ParserConfigurations;
+import org.apache.metron.common.configuration.SensorParserConfig;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.parsers.ParserRunnerImpl;
+import org.apache.metron.stellar.dsl.Context;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+public class KafkaParserPipelineTest {
+
+  private static final String GLOBAL_CONFIG = "{ \"parser.error.topic\" : \"parser_error\" }";
+
+  private static final String JSON_CONFIG = "{"
+          + " \"parserClassName\" : \"org.apache.metron.parsers.json.JSONMapParser\","
+          + " \"sensorTopic\" : \"json_in\","
+          + " \"outputTopic\" : \"json_out\","
+          + " \"readMetadata\" : true,"
+          + " \"mergeMetadata\" : true"
+          + "}";
+
+  private static final TopicPartition PARTITION = new TopicPartition("json_in", 0);
+
+  /**
+   * Fails the writes while failing is set.
+   */
+  private static class FailingProducer extends MockProducer<String, String> {
+    boolean failing;
+
+    FailingProducer() {
+      super(true, new StringSerializer(), new StringSerializer());
+    }
+
+    @Override
+    public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record, Callback callback) {
+      if (failing) {
+        CompletableFuture<RecordMetadata> ret = new CompletableFuture<>();
+        ret.completeExceptionally(new IllegalStateException("Unable to write"));
+        return ret;
+      }
+      return super.send(record, callback);
+    }
+  }
+
+  private ParserConfigurations parserConfigurations;
+  private MockConsumer<byte[], byte[]> consumer;
+  private FailingProducer producer;
+  private KafkaParserPipeline pipeline;
+
+  @Before
+  public void setup() throws Exception {
+    parserConfigurations = new ParserConfigurations();
+    parserConfigurations.updateSensorParserConfig("json", SensorParserConfig.fromBytes(JSON_CONFIG.getBytes()));
+    parserConfigurations.updateGlobalConfig(JSONUtils.INSTANCE.load(GLOBAL_CONFIG, JSONUtils.MAP_SUPPLIER));
+    consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    consumer.assign(Collections.singletonList(PARTITION));
+    consumer.updateBeginningOffsets(Collections.singletonMap(PARTITION, 0L));
+    producer = new FailingProducer();
+    pipeline = new KafkaParserPipeline(consumer
+            , producer
+            , new ParserRunnerImpl(new HashSet<>(Collections.singleton("json")))
+            , () -> parserConfigurations
+            , 0
+    ).init(Context.EMPTY_CONTEXT());
+  }
+
+  private void addRecord(long offset, String key, String value) {
+    consumer.addRecord(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset
+            , key == null ? null : key.getBytes(), value.getBytes()));
+  }
+
+  private List<JSONObject> sent(String topic) throws Exception {
+    List<JSONObject> ret = new ArrayList<>();
+    for (ProducerRecord<String, String> record : producer.history()) {
+      if (record.topic().equals(topic)) {
+        ret.add((JSONObject) new JSONParser().parse(record.value()));
+      }
+    }
+    return ret;
+  }
+
+  @Test
+  public void shouldWriteMessagesAndErrorsThenCommit() throws Exception {
+    addRecord(0, "{ \"source\" : \"collector\" }", "{ \"name\" : \"first\" }");
+    addRecord(1, null, "{ \"name\" : \"unparseable\"");
+    addRecord(2, null, "{ \"name\" : \"second\" }");
+
+    Assert.assertEquals(3, pipeline.processBatch());
+
+    List<JSONObject> messages = sent("json_out");
+    Assert.assertEquals(2, messages.size());
+    Assert.assertEquals("first", messages.get(0).get("name"));
+    Assert.assertEquals("collector", messages.get(0).get("metron.metadata.source"));
+    Assert.assertEquals("json_in", messages.get(0).get("metron.metadata.topic"));
+    Assert.assertEquals("second", messages.get(1).get("name"));
+    List<JSONObject> errors = sent("parser_error");
+    Assert.assertEquals(1, errors.size());
+    Assert.assertEquals(Constants.ErrorType.PARSER_ERROR.getType(), errors.get(0).get(Constants.ErrorFields.ERROR_TYPE.getName()));
+    Assert.assertEquals(new OffsetAndMetadata(3), consumer.committed(PARTITION));
+
+    Assert.assertEquals(0, pipeline.processBatch());
+  }
+
+  @Test
+  public void shouldRereadTheBatchWhenAWriteFails() throws Exception {
+    addRecord(0, null, "{ \"name\" : \"first\" }");
+    addRecord(1, null, "{ \"name\" : \"second\" }");
+
+    producer.failing = true;
+    Assert.assertEquals(0, pipeline.processBatch());
+    Assert.assertNull(consumer.committed(PARTITION));
+
+    producer.failing = false;
+    Assert.assertEquals(2, pipeline.processBatch());
+    Assert.assertEquals(2, sent("json_out").size());
+    Assert.assertEquals(new OffsetAndMetadata(2), consumer.committed(PARTITION));
+  }
+
+  @Test
+  public void shouldWriteAnErrorForInvalidMetadata() throws Exception {
+    addRecord(0, "not json", "{ \"name\" : \"first\" }");
+    addRecord(1, null, "{ \"name\" : \"second\" }");
+
+    Assert.assertEquals(2, pipeline.processBatch());
+    Assert.assertEquals(1, sent("json_out").size());
+    Assert.assertEquals(1, sent("parser_error").size());
+    Assert.assertEquals(new OffsetAndMetadata(2), consumer.committed(PARTITION));
+  }
+
+  @Test
+  public void shouldCommitTheBatchWhenWokenUpWhileCommitting() throws Exception {
+    // the consumer is woken up to stop while the written batch is being committed
+    consumer = new MockConsumer<byte[], byte[]>(OffsetResetStrategy.EARLIEST) {
+      boolean wokenUp = true;
+
+      @Override
+      public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        if (wokenUp) {
+          wokenUp = false;
+          throw new WakeupException();
+        }
+        super.commitSync(offsets);
+      }
+    };
+    consumer.assign(Collections.singletonList(PARTITION));
+    consumer.updateBeginningOffsets(Collections.singletonMap(PARTITION, 0L));
+    pipeline = new KafkaParserPipeline(consumer
+            , producer
+            , new ParserRunnerImpl(new HashSet<>(Collections.singleton("json")))
+            , () -> parserConfigurations
+            , 0
+    ).init(Context.EMPTY_CONTEXT());
+    addRecord(0, null, "{ \"name\" : \"first\" }");
+
+    try {
+      pipeline.processBatch();
+      Assert.fail("Expected the wakeup to be passed on");
+    } catch (WakeupException e) {
+      Assert.assertEquals(1, sent("json_out").size());
+      Assert.assertEquals(new OffsetAndMetadata(1), consumer.committed(PARTITION));
+    }
+  }
+
+  @Test
+  public void shouldStopWhenWokenUp() {
+    pipeline.stop();
+    pipeline.run();
+    Assert.assertTrue(consumer.closed());
+  }
+}
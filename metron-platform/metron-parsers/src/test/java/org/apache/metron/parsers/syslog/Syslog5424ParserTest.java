@@ -20,18 +20,30 @@ package org.apache.metron.parsers.syslog;
 
 import com.github.palindromicity.syslog.NilPolicy;
 import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.apache.metron.integration.utils.TestUtils;
 import org.apache.metron.parsers.interfaces.MessageParserResult;
+import org.apache.metron.test.TestDataType;
+import org.apache.metron.test.utils.SampleDataUtils;
 import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 import org.junit.Assert;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+/**
+ * Runs each test with the syslog library and with the scanner, which should produce the same messages.
+ */
+@RunWith(Parameterized.class)
 public class Syslog5424ParserTest {
   private static final String SYSLOG_LINE_ALL = "<14>1 2014-06-20T09:14:07+00:00 loggregator"
           + " d0602076-b14a-4c55-852a-981e7afeed38 DEA MSG-01"
@@ -66,6 +78,35 @@ public class Syslog5424ParserTest {
   private static final String expectedEventID1 = "1011";
   private static final String expectedEventID2 = "2022";
 
+  private static final String SYSLOG_LINE_ESCAPED = "<165>2003-10-11T22:14:15.003Z mymachine.example.com evntslog - ID47"
+          + " [exampleSDID@32473 iut=\"3\" eventSource=\"Appli\\\"cation\\]\" eventID=\"10\\11\"] [origin]";
+
+  @Parameterized.Parameters(name = "scanner={0}")
+  public static Collection<Object[]> data() {
+    return Arrays.asList(new Object[][] { { false }, { true } });
+  }
+
+  private final boolean useScanner;
+
+  public Syslog5424ParserTest(boolean useScanner) {
+    this.useScanner = useScanner;
+  }
+
+  private Syslog5424Parser parser(NilPolicy nilPolicy, boolean useScanner) {
+    Syslog5424Parser parser = new Syslog5424Parser();
+    Map<String, Object> config = new HashMap<>();
+    if (nilPolicy != null) {
+      config.put(Syslog5424Parser.NIL_POLICY_CONFIG, nilPolicy.name());
+    }
+    config.put(Syslog5424Parser.SCANNER_CONFIG, Boolean.toString(useScanner));
+    parser.configure(config);
+    return parser;
+  }
+
+  private Syslog5424Parser parser(NilPolicy nilPolicy) {
+    return parser(nilPolicy, useScanner);
+  }
+
   @Test
   public void testHappyPath() {
     test(null, SYSLOG_LINE_ALL, (message) -> Assert.assertEquals(expectedMessageId, message.get(SyslogFieldKeys.HEADER_MSGID.getField())));
@@ -95,22 +136,14 @@ public class Syslog5424ParserTest {
   }
 
   public void test(NilPolicy nilPolicy, String line, Consumer<JSONObject> msgIdChecker) {
-    Syslog5424Parser parser = new Syslog5424Parser();
-    Map<String, Object> config = new HashMap<>();
-    if (nilPolicy != null) {
-      config.put(Syslog5424Parser.NIL_POLICY_CONFIG, nilPolicy.name());
-    }
-    parser.configure(config);
+    Syslog5424Parser parser = parser(nilPolicy);
 
-    parser.parseOptionalResult(line.getBytes());
+    parser.parseOptionalResult(line.getBytes()).ifPresent(result -> result.getMessages().forEach(msgIdChecker));
   }
 
   @Test
   public void testReadMultiLine() throws Exception {
-    Syslog5424Parser parser = new Syslog5424Parser();
-    Map<String, Object> config = new HashMap<>();
-    config.put(Syslog5424Parser.NIL_POLICY_CONFIG, NilPolicy.DASH.name());
-    parser.configure(config);
+    Syslog5424Parser parser = parser(NilPolicy.DASH);
     StringBuilder builder = new StringBuilder();
     builder
             .append(SYSLOG_LINE_ALL)
@@ -127,10 +160,7 @@ public class Syslog5424ParserTest {
 
   @Test
   public void testReadMultiLineWithErrors() throws Exception {
-    Syslog5424Parser parser = new Syslog5424Parser();
-    Map<String, Object> config = new HashMap<>();
-    config.put(Syslog5424Parser.NIL_POLICY_CONFIG, NilPolicy.DASH.name());
-    parser.configure(config);
+    Syslog5424Parser parser = parser(NilPolicy.DASH);
     StringBuilder builder = new StringBuilder();
     builder
             .append("HEREWEGO!!!!\n")
@@ -151,6 +181,7 @@ public class Syslog5424ParserTest {
   public void testMissingTimestamp() {
     Syslog5424Parser parser = new Syslog5424Parser();
     Map<String, Object> config = new HashMap<>();
+    config.put(Syslog5424Parser.SCANNER_CONFIG, Boolean.toString(useScanner));
     config.put(Syslog5424Parser.NIL_POLICY_CONFIG, NilPolicy.DASH.name());
     parser.configure(config);
     Optional<MessageParserResult<JSONObject>> output  = parser.parseOptionalResult(SYSLOG_LINE_MISSING_DATE.getBytes());
@@ -158,7 +189,6 @@ public class Syslog5424ParserTest {
     Assert.assertTrue(output.isPresent());
     String timeStampString = output.get().getMessages().get(0).get("timestamp").toString();
     DateTimeFormatter.ISO_DATE_TIME.parse(timeStampString);
-    config.clear();
     config.put(Syslog5424Parser.NIL_POLICY_CONFIG, NilPolicy.NULL.name());
     parser.configure(config);
     output = parser.parseOptionalResult(SYSLOG_LINE_MISSING_DATE.getBytes());
@@ -167,7 +197,6 @@ public class Syslog5424ParserTest {
     timeStampString = output.get().getMessages().get(0).get("timestamp").toString();
     DateTimeFormatter.ISO_DATE_TIME.parse(timeStampString);
 
-    config.clear();
     config.put(Syslog5424Parser.NIL_POLICY_CONFIG, NilPolicy.OMIT.name());
     parser.configure(config);
 
@@ -178,4 +207,108 @@ public class Syslog5424ParserTest {
     timeStampString = output.get().getMessages().get(0).get("timestamp").toString();
     DateTimeFormatter.ISO_DATE_TIME.parse(timeStampString);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testAllFields() {
+    List<JSONObject> messages = parser(NilPolicy.OMIT).parseOptionalResult(SYSLOG_LINE_ALL.getBytes()).get().getMessages();
+    Assert.assertEquals(1, messages.size());
+    JSONObject message = messages.get(0);
+    Assert.assertEquals(expectedPri, message.get(SyslogFieldKeys.HEADER_PRI.getField()));
+    Assert.assertEquals(expectedFacility, message.get(SyslogFieldKeys.HEADER_PRI_FACILITY.getField()));
+    Assert.assertEquals(expectedSeverity, message.get(SyslogFieldKeys.HEADER_PRI_SEVERITY.getField()));
+    Assert.assertEquals(expectedVersion, message.get(SyslogFieldKeys.HEADER_VERSION.getField()));
+    Assert.assertEquals(expectedTimestamp, message.get(SyslogFieldKeys.HEADER_TIMESTAMP.getField()));
+    Assert.assertEquals(expectedHostName, message.get(SyslogFieldKeys.HEADER_HOSTNAME.getField()));
+    Assert.assertEquals(expectedAppName, message.get(SyslogFieldKeys.HEADER_APPNAME.getField()));
+    Assert.assertEquals(expectedProcId, message.get(SyslogFieldKeys.HEADER_PROCID.getField()));
+    Assert.assertEquals(expectedMessageId, message.get(SyslogFieldKeys.HEADER_MSGID.getField()));
+    Assert.assertEquals(expectedIUT1, message.get(structuredData("exampleSDID@32473", "iut")));
+    Assert.assertEquals(expectedEventSource1, message.get(structuredData("exampleSDID@32473", "eventSource")));
+    Assert.assertEquals(expectedEventID1, message.get(structuredData("exampleSDID@32473", "eventID")));
+    Assert.assertEquals(expectedIUT2, message.get(structuredData("exampleSDID@32480", "iut")));
+    Assert.assertEquals(expectedEventSource2, message.get(structuredData("exampleSDID@32480", "eventSource")));
+    Assert.assertEquals(expectedEventID2, message.get(structuredData("exampleSDID@32480", "eventID")));
+    Assert.assertEquals(expectedMessage, message.get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertEquals(expectedTimestamp, message.get("timestamp"));
+    Assert.assertEquals(SYSLOG_LINE_ALL, message.get("original_string"));
+  }
+
+  @Test
+  public void testMatchesSampleData() throws Exception {
+    List<byte[]> raw = TestUtils.readSampleData(SampleDataUtils.getSampleDataPath("syslog5424", TestDataType.RAW));
+    List<byte[]> parsed = TestUtils.readSampleData(SampleDataUtils.getSampleDataPath("syslog5424", TestDataType.PARSED));
+    Syslog5424Parser parser = parser(NilPolicy.DASH);
+    for (int i = 0; i < raw.size(); ++i) {
+      JSONObject expected = (JSONObject) new JSONParser().parse(new String(parsed.get(i)));
+      expected.remove("guid");
+      expected.remove("source.type");
+      Assert.assertEquals(expected, parser.parseOptionalResult(raw.get(i)).get().getMessages().get(0));
+    }
+  }
+
+  @Test
+  public void testMatchesLibrary() throws Exception {
+    List<byte[]> lines = TestUtils.readSampleData(SampleDataUtils.getSampleDataPath("syslog5424", TestDataType.RAW));
+    lines.add(SYSLOG_LINE_ALL.getBytes());
+    lines.add(SYSLOG_LINE_MISSING.getBytes());
+    lines.add(SYSLOG_LINE_ESCAPED.getBytes());
+    for (NilPolicy nilPolicy : NilPolicy.values()) {
+      Syslog5424Parser library = parser(nilPolicy, false);
+      Syslog5424Parser parser = parser(nilPolicy);
+      for (byte[] line : lines) {
+        Assert.assertEquals(library.parseOptionalResult(line).get().getMessages()
+                , parser.parseOptionalResult(line).get().getMessages());
+      }
+    }
+  }
+
+  @Test
+  public void testNilPolicy() {
+    JSONObject omitted = parser(NilPolicy.OMIT).parseOptionalResult(SYSLOG_LINE_MISSING.getBytes()).get().getMessages().get(0);
+    Assert.assertFalse(omitted.containsKey(SyslogFieldKeys.HEADER_MSGID.getField()));
+    JSONObject dashed = parser(NilPolicy.DASH).parseOptionalResult(SYSLOG_LINE_MISSING.getBytes()).get().getMessages().get(0);
+    Assert.assertEquals("-", dashed.get(SyslogFieldKeys.HEADER_MSGID.getField()));
+    JSONObject nulled = parser(NilPolicy.NULL).parseOptionalResult(SYSLOG_LINE_MISSING_DATE.getBytes()).get().getMessages().get(0);
+    Assert.assertTrue(nulled.containsKey(SyslogFieldKeys.HEADER_MSGID.getField()));
+    Assert.assertNull(nulled.get(SyslogFieldKeys.HEADER_MSGID.getField()));
+    Assert.assertNull(nulled.get(SyslogFieldKeys.HEADER_TIMESTAMP.getField()));
+    DateTimeFormatter.ISO_DATE_TIME.parse(nulled.get("timestamp").toString());
+  }
+
+  @Test
+  public void testStructuredData() {
+    JSONObject message = parser(NilPolicy.OMIT).parseOptionalResult(SYSLOG_LINE_ESCAPED.getBytes()).get().getMessages().get(0);
+    Assert.assertEquals("20", message.get(SyslogFieldKeys.HEADER_PRI_FACILITY.getField()));
+    Assert.assertEquals("5", message.get(SyslogFieldKeys.HEADER_PRI_SEVERITY.getField()));
+    Assert.assertFalse(message.containsKey(SyslogFieldKeys.HEADER_VERSION.getField()));
+    Assert.assertFalse(message.containsKey(SyslogFieldKeys.HEADER_PROCID.getField()));
+    // the values are kept as they are written
+    Assert.assertEquals("Appli\\\"cation\\]", message.get(structuredData("exampleSDID@32473", "eventSource")));
+    Assert.assertEquals("10\\11", message.get(structuredData("exampleSDID@32473", "eventID")));
+    Assert.assertFalse(message.containsKey(SyslogFieldKeys.MESSAGE.getField()));
+  }
+
+  @Test
+  public void testReadMultiLineWithInvalidLines() {
+    StringBuilder builder = new StringBuilder();
+    builder
+            .append("HEREWEGO!!!!\n")
+            .append(SYSLOG_LINE_ALL)
+            .append("\r\n")
+            .append(SYSLOG_LINE_MISSING)
+            .append("\n")
+            .append("BOOM!\n")
+            .append(SYSLOG_LINE_ALL)
+            .append("\n<14>1 2014-06-20T09:14:07+00:00 loggregator app - - [unterminated")
+            .append("\n<14>1 2014-06-20 loggregator app - - -");
+    Optional<MessageParserResult<JSONObject>> output = parser(NilPolicy.DASH).parseOptionalResult(builder.toString().getBytes());
+    Assert.assertTrue(output.isPresent());
+    Assert.assertEquals(3, output.get().getMessages().size());
+    Assert.assertEquals(4, output.get().getMessageThrowables().size());
+    Assert.assertTrue(output.get().getMessageThrowables().containsKey("BOOM!"));
+  }
+
+  private static String structuredData(String id, String name) {
+    return String.format(SyslogFieldKeys.STRUCTURED_ELEMENT_ID_PNAME_FMT.getField(), id, name);
+  }
+}
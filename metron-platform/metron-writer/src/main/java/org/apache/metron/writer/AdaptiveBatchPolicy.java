@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.writer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chooses the batch size and timeout of the batches of one sensor from what the {@link BulkWriterComponent}
+ * observes: the rate at which messages arrive, how long the writer takes to write a batch, the size of the
+ * messages, and whether writes fail or take longer than the latency target.
+ *
+ * <p>With a maximum latency, the timeout is what remains of it after the expected write time, and the batch
+ * size is the number of messages expected to arrive within that timeout, so that a batch fills up about when
+ * it is due.  With a maximum number of bytes, the batch size is also capped by the number of messages of the
+ * observed average size that fit in it.  A write that fails, or takes longer than the maximum latency, which is
+ * how a writer held back by its destination shows up, halves the batch size; writes within the target win it
+ * back gradually.  The configured batch size and timeout always bound the batch.
+ *
+ * <p>Without either target, the configured batch size and timeout are used as they are.
+ *
+ * <p>It also counts the batches of the sensor by the reason they were flushed, to be reported as metrics.
+ *
+ * <p>A batch written asynchronously is observed on whichever thread completes it, so it is thread safe.
+ */
+public class AdaptiveBatchPolicy {
+
+  /**
+   * Why a batch was flushed.
+   */
+  public enum FlushReason {
+    /**
+     * The batch reached the batch size.
+     */
+    BATCH_SIZE,
+    /**
+     * The batch was found to be older than the timeout when a message arrived.
+     */
+    TIMEOUT,
+    /**
+     * The batch was found to be older than the timeout on a tick.
+     */
+    TICK,
+    /**
+     * The sensor has a batch size of 1, so each message is written on its own.
+     */
+    UNBATCHED
+  }
+
+  /**
+   * The weight of the latest observation in the moving averages.
+   */
+  private static final double SMOOTHING = 0.2;
+
+  /**
+   * Only one in this many messages is measured, since that means serializing it.
+   */
+  static final int SIZE_SAMPLE_INTERVAL = 64;
+
+  private static final double MIN_BACKOFF = 1.0 / 64;
+  private static final double BACKOFF_RECOVERY = 1.0 / 16;
+
+  private long maxLatencyMs;
+  private long maxBatchBytes;
+  private double arrivalRate = Double.NaN; // messages per ms
+  private double writeMs = Double.NaN;
+  private double messageBytes = Double.NaN;
+  private double backoff = 1.0;
+  private long messageCount;
+  private int batchSize;
+  private long[] flushes = new long[FlushReason.values().length];
+  private long flushedMessages;
+  private long failures;
+
+  /**
+   * @param maxLatencyMs The most time a message should wait to be written, or 0 for none
+   * @param maxBatchBytes The most bytes of messages in a batch, or 0 for none
+   */
+  public synchronized void configure(long maxLatencyMs, long maxBatchBytes) {
+    this.maxLatencyMs = maxLatencyMs;
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  public synchronized boolean isAdaptive() {
+    return maxLatencyMs > 0 || maxBatchBytes > 0;
+  }
+
+  /**
+   * Observes a message added to a batch.  Its size is the length of its JSON in UTF-8, as it is written.
+   *
+   * @param message The message
+   */
+  public synchronized void onMessage(Object message) {
+    if(maxBatchBytes > 0 && messageCount++ % SIZE_SAMPLE_INTERVAL == 0) {
+      messageBytes = smooth(messageBytes, message.toString().getBytes(StandardCharsets.UTF_8).length);
+    }
+  }
+
+  /**
+   * @param maxBatchSize The configured batch size
+   * @return The size of the next batch
+   */
+  public synchronized int getBatchSize(int maxBatchSize) {
+    double size = maxBatchSize;
+    if(maxLatencyMs > 0 && !Double.isNaN(arrivalRate)) {
+      size = Math.min(size, arrivalRate * getWaitMs());
+    }
+    if(maxBatchBytes > 0 && !Double.isNaN(messageBytes)) {
+      size = Math.min(size, maxBatchBytes / Math.max(1.0, messageBytes));
+    }
+    if(isAdaptive()) {
+      size *= backoff;
+    }
+    batchSize = (int) Math.max(1, Math.min(maxBatchSize, size));
+    return batchSize;
+  }
+
+  /**
+   * @param maxTimeoutMs The configured batch timeout
+   * @return The timeout of the next batch
+   */
+  public synchronized long getTimeoutMs(long maxTimeoutMs) {
+    if(maxLatencyMs > 0) {
+      return Math.min(maxTimeoutMs, (long) getWaitMs());
+    }
+    return maxTimeoutMs;
+  }
+
+  /**
+   * The time a message can wait in a batch; what is left of the maximum latency after the time taken to write.
+   */
+  private double getWaitMs() {
+    return Math.max(0, maxLatencyMs - (Double.isNaN(writeMs) ? 0 : writeMs));
+  }
+
+  /**
+   * Observes a flushed batch.
+   *
+   * @param reason Why the batch was flushed
+   * @param size The number of messages in the batch
+   * @param batchAgeMs The time from the first message of the batch to the flush
+   * @param writeMs The time taken to write the batch, until the writer completed it if it is written asynchronously
+   * @param failed Whether writing any of the batch failed
+   */
+  public synchronized void onFlush(FlushReason reason, int size, long batchAgeMs, long writeMs, boolean failed) {
+    flushes[reason.ordinal()]++;
+    flushedMessages += size;
+    if(failed) {
+      failures++;
+    }
+    this.writeMs = smooth(this.writeMs, writeMs);
+    if(reason != FlushReason.UNBATCHED) {
+      arrivalRate = smooth(arrivalRate, (double) size / Math.max(1, batchAgeMs));
+    }
+    if(failed || (maxLatencyMs > 0 && writeMs > maxLatencyMs)) {
+      backoff = Math.max(MIN_BACKOFF, backoff / 2);
+    }
+    else {
+      backoff = Math.min(1.0, backoff + BACKOFF_RECOVERY);
+    }
+  }
+
+  private static double smooth(double average, double value) {
+    return Double.isNaN(average) ? value : average + SMOOTHING * (value - average);
+  }
+
+  /**
+   * Returns the metrics of the sensor since the last call: the latest batch size chosen, the number of batches
+   * flushed for each reason (as {@code flush.<reason>}), the number of messages flushed, the number of batches
+   * which failed, and the average time taken to write a batch.
+   *
+   * @return The metrics
+   */
+  public synchronized Map<String, Object> getValueAndReset() {
+    Map<String, Object> values = new HashMap<>();
+    values.put("batchSize", batchSize);
+    for(FlushReason reason : FlushReason.values()) {
+      values.put("flush." + reason.name().toLowerCase(), flushes[reason.ordinal()]);
+    }
+    values.put("messages", flushedMessages);
+    values.put("failures", failures);
+    values.put("writeMs", Double.isNaN(writeMs) ? 0.0 : writeMs);
+    flushes = new long[FlushReason.values().length];
+    flushedMessages = 0;
+    failures = 0;
+    return values;
+  }
+}
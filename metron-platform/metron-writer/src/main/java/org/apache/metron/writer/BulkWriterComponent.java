@@ -30,12 +30,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
 import org.apache.metron.common.error.MetronError;
 import org.apache.metron.common.message.MessageGetStrategy;
 import org.apache.metron.common.system.Clock;
 import org.apache.metron.common.utils.ErrorUtils;
+import org.apache.metron.common.writer.AsyncBulkMessageWriter;
 import org.apache.metron.common.writer.BulkMessageWriter;
 import org.apache.metron.common.writer.BulkWriterResponse;
 import org.apache.storm.task.OutputCollector;
@@ -68,6 +70,19 @@ import org.slf4j.LoggerFactory;
  *   will not age out of the Storm topology, but it does not guarantee the flush interval requested, for
  *   sensor types not receiving at least one message every second.
  *
+ * If the writer is an {@link AsyncBulkMessageWriter} in async mode, and this component handles both commits
+ * and errors, a flush hands the batch to the writer without waiting on it.  Each tuple is then acked, or
+ * errored, when the writer reports its outcome, which may be on a thread of the writer's own.  As the
+ * OutputCollector is not thread safe, every call to it is synchronized on the collector, as is done by bolts
+ * which ack from other threads, and a bolt using this component must synchronize its own calls likewise.
+ * Such a batch is only observed by its {@link AdaptiveBatchPolicy} once the outcome of every tuple is known,
+ * so that the policy sees the time the writer took to complete the batch, and whether any of it failed.
+ *
+ * If a sensor configures a maximum latency or a maximum number of bytes per batch, its batch size and timeout
+ * adapt, within the configured batchSize and batchTimeout, to the observed rate of messages, writer latency and
+ * failures; see {@link AdaptiveBatchPolicy}.  The batch sizes chosen and the reasons batches are flushed are
+ * available as metrics through {@link #getValueAndReset()}.
+ *
  * @param <MESSAGE_T>
  */
 public class BulkWriterComponent<MESSAGE_T> {
@@ -76,6 +91,7 @@ public class BulkWriterComponent<MESSAGE_T> {
   private Map<String, Collection<Tuple>> sensorTupleMap = new HashMap<>();
   private Map<String, List<MESSAGE_T>> sensorMessageMap = new HashMap<>();
   private Map<String, long[]> batchTimeoutMap = new HashMap<>();
+  private Map<String, AdaptiveBatchPolicy> batchPolicyMap = new HashMap<>();
   private OutputCollector collector;
   //In test scenarios, defaultBatchTimeout may not be correctly initialized, so do it here.
   //This is a conservative defaultBatchTimeout for a vanilla bolt with batchTimeoutDivisor=2
@@ -85,6 +101,7 @@ public class BulkWriterComponent<MESSAGE_T> {
   private boolean handleError = true;
   private static final int LAST_CREATE_TIME_MS = 0; //index zero'th element of long[] in batchTimeoutMap
   private static final int TIMEOUT_MS = 1;          //index next element of long[] in batchTimeoutMap
+  private static final int BATCH_SIZE = 2;          //index of the batch size chosen for the batch in batchTimeoutMap
   private Clock clock = new Clock();
 
   public BulkWriterComponent(OutputCollector collector) {
@@ -107,7 +124,9 @@ public class BulkWriterComponent<MESSAGE_T> {
   }
 
   public void commit(Iterable<Tuple> tuples) {
-    tuples.forEach(t -> collector.ack(t));
+    synchronized (collector) {
+      tuples.forEach(t -> collector.ack(t));
+    }
     if(LOG.isDebugEnabled()) {
       LOG.debug("Acking {} tuples", Iterables.size(tuples));
     }
@@ -119,17 +138,19 @@ public class BulkWriterComponent<MESSAGE_T> {
 
   public void error(String sensorType, Throwable e, Iterable<Tuple> tuples, MessageGetStrategy messageGetStrategy) {
     LOG.error(format("Failing %d tuple(s); sensorType=%s", Iterables.size(tuples), sensorType), e);
-    tuples.forEach(t -> {
-      MetronError error = new MetronError()
-              .withSensorType(Collections.singleton(sensorType))
-              .withErrorType(Constants.ErrorType.INDEXING_ERROR)
-              .withThrowable(e)
-              .addRawMessage(messageGetStrategy.get(t));
-      collector.emit(Constants.ERROR_STREAM, new Values(error.getJSONObject()));
-      collector.ack(t);
-    });
-    // there is only one error to report for all of the failed tuples
-    collector.reportError(e);
+    synchronized (collector) {
+      tuples.forEach(t -> {
+        MetronError error = new MetronError()
+                .withSensorType(Collections.singleton(sensorType))
+                .withErrorType(Constants.ErrorType.INDEXING_ERROR)
+                .withThrowable(e)
+                .addRawMessage(messageGetStrategy.get(t));
+        collector.emit(Constants.ERROR_STREAM, new Values(error.getJSONObject()));
+        collector.ack(t);
+      });
+      // there is only one error to report for all of the failed tuples
+      collector.reportError(e);
+    }
 
   }
 
@@ -157,8 +178,10 @@ public class BulkWriterComponent<MESSAGE_T> {
    * @param error
    */
   private void handleError(Tuple tuple, MetronError error) {
-    collector.ack(tuple);
-    ErrorUtils.handleError(collector, error);
+    synchronized (collector) {
+      collector.ack(tuple);
+      ErrorUtils.handleError(collector, error);
+    }
   }
 
   public void error(String sensorType, BulkWriterResponse errors, MessageGetStrategy messageGetStrategy) {
@@ -194,7 +217,9 @@ public class BulkWriterComponent<MESSAGE_T> {
                    ) throws Exception
   {
     if (!configurations.isEnabled(sensorType)) {
-      collector.ack(tuple);
+      synchronized (collector) {
+        collector.ack(tuple);
+      }
       return;
     }
     int batchSize = configurations.getBatchSize(sensorType);
@@ -212,7 +237,8 @@ public class BulkWriterComponent<MESSAGE_T> {
       }
       messageList.add(message);
 
-      flush(sensorType, bulkMessageWriter, configurations, messageGetStrategy, tupleList, messageList);
+      flush(sensorType, bulkMessageWriter, configurations, messageGetStrategy, tupleList, messageList
+              , AdaptiveBatchPolicy.FlushReason.UNBATCHED);
       return;
     }
 
@@ -220,10 +246,11 @@ public class BulkWriterComponent<MESSAGE_T> {
     long[] batchTimeoutInfo = batchTimeoutMap.get(sensorType);
     if (batchTimeoutInfo == null) {
       //lazily create the batchTimeoutInfo array, once per sensor.
-      batchTimeoutInfo = new long[] {0L, 0L};
+      batchTimeoutInfo = new long[] {0L, 0L, 0L};
       batchTimeoutMap.put(sensorType, batchTimeoutInfo);
     }
 
+    AdaptiveBatchPolicy batchPolicy = getBatchPolicy(sensorType);
     Collection<Tuple> tupleList = sensorTupleMap.get(sensorType);
     if (tupleList == null) {
       //This block executes at the beginning of every batch, per sensor.
@@ -235,9 +262,13 @@ public class BulkWriterComponent<MESSAGE_T> {
       if (batchTimeoutSecs <= 0 || batchTimeoutSecs > defaultBatchTimeout) {
         batchTimeoutSecs = defaultBatchTimeout;
       }
-      batchTimeoutInfo[TIMEOUT_MS] = TimeUnit.SECONDS.toMillis(batchTimeoutSecs);
+      //the batch size and timeout of this batch, which adapt within the configured ones if the sensor sets targets
+      batchPolicy.configure(configurations.getMaxLatency(sensorType), configurations.getMaxBatchBytes(sensorType));
+      batchTimeoutInfo[TIMEOUT_MS] = batchPolicy.getTimeoutMs(TimeUnit.SECONDS.toMillis(batchTimeoutSecs));
+      batchTimeoutInfo[BATCH_SIZE] = batchPolicy.getBatchSize(batchSize);
     }
     tupleList.add(tuple);
+    batchPolicy.onMessage(message);
 
     List<MESSAGE_T> messageList = sensorMessageMap.get(sensorType);
     if (messageList == null) {
@@ -247,15 +278,17 @@ public class BulkWriterComponent<MESSAGE_T> {
     messageList.add(message);
 
     //Check for batchSize flush
-    if (tupleList.size() >= batchSize) {
-      flush(sensorType, bulkMessageWriter, configurations, messageGetStrategy, tupleList, messageList);
+    if (tupleList.size() >= Math.min(batchSize, batchTimeoutInfo[BATCH_SIZE])) {
+      flush(sensorType, bulkMessageWriter, configurations, messageGetStrategy, tupleList, messageList
+              , AdaptiveBatchPolicy.FlushReason.BATCH_SIZE);
       return;
     }
     //Check for batchTimeout flush (if the tupleList isn't brand new).
     //Debugging note: If your queue always flushes at length==2 regardless of feed rate,
     //it may mean defaultBatchTimeout has somehow been set to zero.
     if (tupleList.size() > 1 && (clock.currentTimeMillis() - batchTimeoutInfo[LAST_CREATE_TIME_MS] >= batchTimeoutInfo[TIMEOUT_MS])) {
-      flush(sensorType, bulkMessageWriter, configurations, messageGetStrategy, tupleList, messageList);
+      flush(sensorType, bulkMessageWriter, configurations, messageGetStrategy, tupleList, messageList
+              , AdaptiveBatchPolicy.FlushReason.TIMEOUT);
       return;
     }
   }
@@ -266,11 +299,25 @@ public class BulkWriterComponent<MESSAGE_T> {
 		                , MessageGetStrategy messageGetStrategy
                     , Collection<Tuple> tupleList
                     , List<MESSAGE_T> messageList
+                    , AdaptiveBatchPolicy.FlushReason reason
                     ) throws Exception
   {
     long startTime = System.currentTimeMillis(); //no need to mock, so use real time
+    long[] batchTimeoutInfo = batchTimeoutMap.get(sensorType);
+    long batchAge = batchTimeoutInfo == null ? 0 : clock.currentTimeMillis() - batchTimeoutInfo[LAST_CREATE_TIME_MS];
+    AsyncBatch asyncBatch = null;
+    boolean failed = true;
     try {
-      BulkWriterResponse response = bulkMessageWriter.write(sensorType, configurations, tupleList, messageList);
+      BulkWriterResponse response;
+      if(isAsync(bulkMessageWriter)) {
+        asyncBatch = new AsyncBatch(getBatchPolicy(sensorType), reason, tupleList.size(), batchAge, startTime);
+        // the response only holds the tuples whose outcome was known on hand off, the rest go to the callback
+        response = ((AsyncBulkMessageWriter<MESSAGE_T>) bulkMessageWriter)
+                .writeAsync(sensorType, configurations, tupleList, messageList, createCallback(sensorType, messageGetStrategy, asyncBatch));
+      }
+      else {
+        response = bulkMessageWriter.write(sensorType, configurations, tupleList, messageList);
+      }
 
       // Commit or error piecemeal.
       if(handleCommit) {
@@ -282,6 +329,11 @@ public class BulkWriterComponent<MESSAGE_T> {
       } else if (response.hasErrors()) {
         throw new IllegalStateException("Unhandled bulk errors in response: " + response.getErrors());
       }
+      failed = response.hasErrors();
+      if(asyncBatch != null) {
+        asyncBatch.handedOff(response);
+        asyncBatch = null;
+      }
     } catch (Throwable e) {
       if(handleError) {
         error(sensorType, e, tupleList, messageGetStrategy);
@@ -293,10 +345,94 @@ public class BulkWriterComponent<MESSAGE_T> {
     finally {
       sensorTupleMap.remove(sensorType);
       sensorMessageMap.remove(sensorType);
+      long endTime = System.currentTimeMillis();
+      long elapsed = endTime - startTime;
+      if(!isAsync(bulkMessageWriter) || asyncBatch != null) {
+        // an async batch which was handed off is observed once it completes, otherwise it failed as a whole
+        getBatchPolicy(sensorType).onFlush(reason, tupleList.size(), batchAge, elapsed, failed);
+      }
+      LOG.debug("Bulk batch for sensor {} flushed on {} completed in ~{} ms", sensorType, reason, elapsed);
+    }
+  }
+
+  private boolean isAsync(BulkMessageWriter<MESSAGE_T> bulkMessageWriter) {
+    return handleCommit && handleError
+            && bulkMessageWriter instanceof AsyncBulkMessageWriter
+            && ((AsyncBulkMessageWriter<MESSAGE_T>) bulkMessageWriter).isAsync();
+  }
+
+  /**
+   * Creates the callback through which an async writer reports the outcome of each tuple of a batch.
+   * @param sensorType The sensor type of the batch
+   * @param messageGetStrategy How to get the message of a failed tuple
+   * @param batch The batch, which is told of each outcome
+   * @return The callback
+   */
+  protected AsyncBulkMessageWriter.Callback createCallback(String sensorType, MessageGetStrategy messageGetStrategy
+          , AsyncBatch batch) {
+    return new AsyncBulkMessageWriter.Callback() {
+      @Override
+      public void onSuccess(Tuple tuple) {
+        commit(Collections.singletonList(tuple));
+        batch.completed(1, false);
+      }
+
+      @Override
+      public void onError(Throwable e, Tuple tuple) {
+        error(sensorType, e, Collections.singletonList(tuple), messageGetStrategy);
+        batch.completed(1, true);
+      }
+    };
+  }
+
+  /**
+   * A batch handed off to an async writer, which counts the tuples whose outcome is still unknown, and tells
+   * the batch policy how long the batch took, and whether any of it failed, once the last outcome is known.
+   * The outcomes may be known on any thread, in any order, and before the writer returns from the hand off.
+   */
+  protected static class AsyncBatch {
+    private final AdaptiveBatchPolicy batchPolicy;
+    private final AdaptiveBatchPolicy.FlushReason reason;
+    private final int size;
+    private final long batchAgeMs;
+    private final long startTime;
+    private final AtomicInteger pending;
+    private volatile boolean failed;
+
+    AsyncBatch(AdaptiveBatchPolicy batchPolicy, AdaptiveBatchPolicy.FlushReason reason, int size, long batchAgeMs
+            , long startTime) {
+      this.batchPolicy = batchPolicy;
+      this.reason = reason;
+      this.size = size;
+      this.batchAgeMs = batchAgeMs;
+      this.startTime = startTime;
+      this.pending = new AtomicInteger(size);
+    }
+
+    /**
+     * Accounts for the tuples whose outcome was known when the batch was handed off.
+     * @param response The response of the hand off
+     */
+    void handedOff(BulkWriterResponse response) {
+      int known = Iterables.size(response.getSuccesses());
+      for(Collection<Tuple> errors : response.getErrors().values()) {
+        known += errors.size();
+      }
+      completed(known, response.hasErrors());
+    }
+
+    /**
+     * @param count The number of tuples whose outcome is now known
+     * @param failed Whether any of them failed
+     */
+    void completed(int count, boolean failed) {
+      if(failed) {
+        this.failed = true;
+      }
+      if(count > 0 && pending.addAndGet(-count) == 0) {
+        batchPolicy.onFlush(reason, size, batchAgeMs, System.currentTimeMillis() - startTime, this.failed);
+      }
     }
-    long endTime = System.currentTimeMillis();
-    long elapsed = endTime - startTime;
-    LOG.debug("Bulk batch for sensor {} completed in ~{} ns", sensorType, elapsed);
   }
 
   // Flushes all queues older than their batchTimeouts.
@@ -313,12 +449,32 @@ public class BulkWriterComponent<MESSAGE_T> {
       if (batchTimeoutInfo == null  //Shouldn't happen, but conservatively flush if so
           || clock.currentTimeMillis() - batchTimeoutInfo[LAST_CREATE_TIME_MS] >= batchTimeoutInfo[TIMEOUT_MS]) {
         flush(sensorType, bulkMessageWriter, configurations, messageGetStrategy
-	            , sensorTupleMap.get(sensorType), sensorMessageMap.get(sensorType));
+	            , sensorTupleMap.get(sensorType), sensorMessageMap.get(sensorType), AdaptiveBatchPolicy.FlushReason.TICK);
         return;
       }
     }
   }
 
+  private AdaptiveBatchPolicy getBatchPolicy(String sensorType) {
+    return batchPolicyMap.computeIfAbsent(sensorType, k -> new AdaptiveBatchPolicy());
+  }
+
+  /**
+   * Returns the batching metrics of each sensor since the last call, as given by
+   * {@link AdaptiveBatchPolicy#getValueAndReset()}, with each metric prefixed by the sensor type.
+   *
+   * @return The metrics
+   */
+  public Map<String, Object> getValueAndReset() {
+    Map<String, Object> values = new HashMap<>();
+    for(Map.Entry<String, AdaptiveBatchPolicy> batchPolicy : batchPolicyMap.entrySet()) {
+      for(Map.Entry<String, Object> value : batchPolicy.getValue().getValueAndReset().entrySet()) {
+        values.put(batchPolicy.getKey() + "." + value.getKey(), value.getValue());
+      }
+    }
+    return values;
+  }
+
   /**
    * @param defaultBatchTimeout
    */
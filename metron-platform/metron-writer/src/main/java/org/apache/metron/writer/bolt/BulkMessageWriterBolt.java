@@ -20,8 +20,11 @@ package org.apache.metron.writer.bolt;
 import static org.apache.storm.utils.TupleUtils.isTick;
 
 import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.bolt.ConfiguredBolt;
@@ -49,6 +52,10 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
 
   private static final Logger LOG = LoggerFactory
           .getLogger(BulkMessageWriterBolt.class);
+  /**
+   * The name of the metric of the batches of each sensor; see {@link BulkWriterComponent#getValueAndReset()}.
+   */
+  public static final String BATCH_METRIC = "batching";
   private BulkMessageWriter<JSONObject> bulkMessageWriter;
   private BulkWriterComponent<JSONObject> writerComponent = null;
   private String messageGetStrategyType = MessageGetters.DEFAULT_JSON_FROM_FIELD.name();
@@ -154,7 +161,7 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
     WriterConfiguration writerconf = configurationXform
         .apply(getConfigurationStrategy().createWriterConfig(bulkMessageWriter, getConfigurations()));
 
-    BatchTimeoutHelper timeoutHelper = new BatchTimeoutHelper(writerconf::getAllConfiguredTimeouts, batchTimeoutDivisor);
+    BatchTimeoutHelper timeoutHelper = new BatchTimeoutHelper(() -> getAllBatchTimeouts(writerconf), batchTimeoutDivisor);
     this.requestedTickFreqSecs = timeoutHelper.getRecommendedTickInterval();
     //And while we've got BatchTimeoutHelper handy, capture the defaultBatchTimeout for writerComponent.
     this.defaultBatchTimeout = timeoutHelper.getDefaultBatchTimeout();
@@ -168,6 +175,20 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
     return conf;
   }
 
+  /**
+   * The batch timeouts of all sensors, in seconds, including the maximum latencies, as a batch may have to
+   * be flushed within the maximum latency of its sensor.
+   */
+  private static List<Integer> getAllBatchTimeouts(WriterConfiguration writerconf) {
+    List<Integer> timeouts = new ArrayList<>(writerconf.getAllConfiguredTimeouts());
+    for (long maxLatencyMs : writerconf.getAllConfiguredMaxLatencies()) {
+      if (maxLatencyMs > 0) {
+        timeouts.add((int) Math.max(1, Math.min(Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toSeconds(maxLatencyMs))));
+      }
+    }
+    return timeouts;
+  }
+
 
 
   @Override
@@ -175,6 +196,9 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
     setWriterComponent(new BulkWriterComponent<>(collector));
     this.collector = collector;
     super.prepare(stormConf, context, collector);
+    if(context != null) {
+      context.registerMetric(BATCH_METRIC, () -> getWriterComponent().getValueAndReset(), getMetricsBucketSecs(stormConf));
+    }
     if (messageGetField != null) {
       messageGetStrategy = MessageGetters.valueOf(messageGetStrategyType).get(messageGetField);
     } else {
@@ -192,7 +216,7 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
       if (defaultBatchTimeout == 0) {
         //This means getComponentConfiguration was never called to initialize defaultBatchTimeout,
         //probably because we are in a unit test scenario.  So calculate it here.
-        BatchTimeoutHelper timeoutHelper = new BatchTimeoutHelper(writerconf::getAllConfiguredTimeouts, batchTimeoutDivisor);
+        BatchTimeoutHelper timeoutHelper = new BatchTimeoutHelper(() -> getAllBatchTimeouts(writerconf), batchTimeoutDivisor);
         defaultBatchTimeout = timeoutHelper.getDefaultBatchTimeout();
       }
       getWriterComponent().setDefaultBatchTimeout(defaultBatchTimeout);
@@ -227,7 +251,9 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
         throw new RuntimeException("This should have been caught in the writerComponent.  If you see this, file a JIRA", e);
       }
       finally {
-        collector.ack(tuple);
+        synchronized (collector) {
+          collector.ack(tuple);
+        }
       }
       return;
     }
@@ -252,7 +278,9 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
 
       if (writerConfiguration.isDefault(sensorType)) {
         //want to warn, but not fail the tuple
-        collector.reportError(new Exception("WARNING: Default and (likely) unoptimized writer config used for " + bulkMessageWriter.getName() + " writer and sensor " + sensorType));
+        synchronized (collector) {
+          collector.reportError(new Exception("WARNING: Default and (likely) unoptimized writer config used for " + bulkMessageWriter.getName() + " writer and sensor " + sensorType));
+        }
       }
 
       getWriterComponent().write(sensorType
@@ -23,6 +23,7 @@ import org.apache.metron.stellar.dsl.MapVariableResolver;
 import org.apache.metron.stellar.dsl.StellarFunctions;
 import org.apache.metron.stellar.dsl.VariableResolver;
 import org.apache.metron.stellar.common.StellarProcessor;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.tuple.Tuple;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
@@ -38,14 +39,34 @@ import org.json.simple.JSONObject;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class HdfsWriter implements BulkMessageWriter<JSONObject>, Serializable {
+  /**
+   * The format of the files written.
+   */
+  public enum OutputFormat {
+    /**
+     * A line of JSON per message.
+     */
+    TEXT,
+    /**
+     * Compressed Parquet files with a column per field.
+     */
+    PARQUET
+  }
+
+  public static final int DEFAULT_SCHEMA_SAMPLE_SIZE = 1000;
   List<RotationAction> rotationActions = new ArrayList<>();
   FileRotationPolicy rotationPolicy = new NoRotationPolicy();
   SyncPolicy syncPolicy;
   FileNameFormat fileNameFormat;
-  Map<SourceHandlerKey, SourceHandler> sourceHandlerMap = new HashMap<>();
+  Map<SourceHandlerKey, SourceHandler> sourceHandlerMap = new ConcurrentHashMap<>();
+  Map<String, TelemetrySchema> inferredSchemaMap = new ConcurrentHashMap<>();
   int maxOpenFiles = 500;
+  OutputFormat outputFormat = OutputFormat.TEXT;
+  int schemaSampleSize = DEFAULT_SCHEMA_SAMPLE_SIZE;
+  CompressionCodecName compression = CompressionCodecName.SNAPPY;
   transient StellarProcessor stellarProcessor;
   transient Map stormConfig;
   transient SyncPolicyCreator syncPolicyCreator;
@@ -75,6 +96,31 @@ public class HdfsWriter implements BulkMessageWriter<JSONObject>, Serializable {
     return this;
   }
 
+  public HdfsWriter withOutputFormat(String outputFormat) {
+    this.outputFormat = OutputFormat.valueOf(outputFormat.toUpperCase());
+    return this;
+  }
+
+  /**
+   * @param schemaSampleSize The number of messages from which to infer the schema of a Parquet file, when none
+   *                         is declared for the sensor
+   */
+  public HdfsWriter withSchemaSampleSize(int schemaSampleSize) {
+    if(schemaSampleSize <= 0) {
+      throw new IllegalArgumentException("The schema sample size must be positive: " + schemaSampleSize);
+    }
+    this.schemaSampleSize = schemaSampleSize;
+    return this;
+  }
+
+  /**
+   * @param compression The compression codec of Parquet files, e.g. SNAPPY or GZIP
+   */
+  public HdfsWriter withCompression(String compression) {
+    this.compression = CompressionCodecName.valueOf(compression.toUpperCase());
+    return this;
+  }
+
   @Override
   public void init(Map stormConfig, TopologyContext topologyContext, WriterConfiguration configurations) {
     this.stormConfig = stormConfig;
@@ -102,15 +148,17 @@ public class HdfsWriter implements BulkMessageWriter<JSONObject>, Serializable {
 
     // Currently treating all the messages in a group for pass/failure.
     try {
-      // Messages can all result in different HDFS paths, because of Stellar Expressions, so we'll need to iterate through
+      // Messages can all result in different HDFS paths, because of Stellar Expressions, so group them by path
+      // and write each group to its file at once
+      String pathFunction = (String)configurations.getSensorConfig(sourceType).getOrDefault(IndexingConfigurations.OUTPUT_PATH_FUNCTION_CONF, "");
+      Map<String, List<JSONObject>> messagesByPath = new LinkedHashMap<>();
       for(JSONObject message : messages) {
-        String path = getHdfsPathExtension(
-                sourceType,
-                (String)configurations.getSensorConfig(sourceType).getOrDefault(IndexingConfigurations.OUTPUT_PATH_FUNCTION_CONF, ""),
-                message
-        );
-        SourceHandler handler = getSourceHandler(sourceType, path, configurations);
-        handler.handle(message, sourceType, configurations, syncPolicyCreator);
+        String path = getHdfsPathExtension(sourceType, pathFunction, message);
+        messagesByPath.computeIfAbsent(path, k -> new ArrayList<>()).add(message);
+      }
+      for(Map.Entry<String, List<JSONObject>> pathMessages : messagesByPath.entrySet()) {
+        SourceHandler handler = getSourceHandler(sourceType, pathMessages.getKey(), configurations);
+        handler.handle(pathMessages.getValue(), sourceType, configurations, syncPolicyCreator);
       }
     } catch (Exception e) {
       response.addAllErrors(e, tuples);
@@ -149,20 +197,48 @@ public class HdfsWriter implements BulkMessageWriter<JSONObject>, Serializable {
     sourceHandlerMap.clear();
   }
 
-  synchronized SourceHandler getSourceHandler(String sourceType, String stellarResult, WriterConfiguration config) throws IOException {
+  SourceHandler getSourceHandler(String sourceType, String stellarResult, WriterConfiguration config) throws IOException {
     SourceHandlerKey key = new SourceHandlerKey(sourceType, stellarResult);
     SourceHandler ret = sourceHandlerMap.get(key);
     if(ret == null) {
-      if(sourceHandlerMap.size() >= maxOpenFiles) {
-        throw new IllegalStateException("Too many HDFS files open!");
+      // only opening a file takes the lock; handlers of open files are looked up without it
+      synchronized (this) {
+        ret = sourceHandlerMap.get(key);
+        if(ret == null) {
+          ret = createSourceHandler(key, sourceType, config);
+        }
       }
+    }
+    return ret;
+  }
+
+  private SourceHandler createSourceHandler(SourceHandlerKey key, String sourceType, WriterConfiguration config) throws IOException {
+    SourceHandler ret;
+    if(sourceHandlerMap.size() >= maxOpenFiles) {
+      throw new IllegalStateException("Too many HDFS files open!");
+    }
+    if(outputFormat == OutputFormat.PARQUET) {
+      Map<String, Object> declaredSchema = config == null ? null
+              : IndexingConfigurations.getOutputSchema(config.getSensorConfig(sourceType), sourceType);
+      ret = new ParquetSourceHandler(rotationActions,
+                                     rotationPolicy,
+                                     syncPolicyCreator.create(sourceType, config),
+                                     new PathExtensionFileNameFormat(key.getStellarResult(), fileNameFormat),
+                                     new SourceHandlerCallback(sourceHandlerMap, key),
+                                     sourceType,
+                                     declaredSchema == null ? null : TelemetrySchema.fromConfig(declaredSchema),
+                                     inferredSchemaMap,
+                                     schemaSampleSize,
+                                     compression);
+    }
+    else {
       ret = new SourceHandler(rotationActions,
                               rotationPolicy,
                               syncPolicyCreator.create(sourceType, config),
                               new PathExtensionFileNameFormat(key.getStellarResult(), fileNameFormat),
                               new SourceHandlerCallback(sourceHandlerMap, key));
-      sourceHandlerMap.put(key, ret);
     }
+    sourceHandlerMap.put(key, ret);
     return ret;
   }
 }
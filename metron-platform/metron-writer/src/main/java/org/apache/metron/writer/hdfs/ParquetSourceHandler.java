@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.writer.hdfs;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.storm.hdfs.bolt.format.FileNameFormat;
+import org.apache.storm.hdfs.bolt.rotation.FileRotationPolicy;
+import org.apache.storm.hdfs.bolt.sync.SyncPolicy;
+import org.apache.storm.hdfs.common.rotation.RotationAction;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A SourceHandler which writes Parquet files rather than lines of JSON.
+ *
+ * <p>A Parquet file is only readable once it is closed, so the messages of a file become visible when it is
+ * rotated. As the messages of an open file are lost if the worker dies, the file is also rotated whenever the
+ * sync policy would sync it, which bounds the messages at risk. Unless a schema is declared for the sensor, the
+ * schema of each file is inferred from its first messages, which are held back until there are enough of them.
+ * The inferred schemas of a sensor only ever gain columns: the schema of each file extends the sensor's schema,
+ * shared by the handlers of the sensor, so a column keeps the type it had in earlier files.
+ */
+public class ParquetSourceHandler extends SourceHandler {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private String sensor;
+  private TelemetrySchema declaredSchema;
+  private Map<String, TelemetrySchema> inferredSchemas;
+  private int sampleSize;
+  private CompressionCodecName compression;
+  private transient List<JSONObject> sample = new ArrayList<>();
+  private transient ParquetWriter<JSONObject> writer;
+
+  public ParquetSourceHandler(List<RotationAction> rotationActions
+                             , FileRotationPolicy rotationPolicy
+                             , SyncPolicy syncPolicy
+                             , FileNameFormat fileNameFormat
+                             , SourceHandlerCallback cleanupCallback
+                             , String sensor
+                             , TelemetrySchema declaredSchema
+                             , Map<String, TelemetrySchema> inferredSchemas
+                             , int sampleSize
+                             , CompressionCodecName compression) throws IOException {
+    super(rotationActions, rotationPolicy, syncPolicy, fileNameFormat, cleanupCallback);
+    this.sensor = sensor;
+    this.declaredSchema = declaredSchema;
+    this.inferredSchemas = inferredSchemas;
+    this.sampleSize = sampleSize;
+    this.compression = compression;
+  }
+
+  @Override
+  protected void handle(List<JSONObject> messages, String sensor, WriterConfiguration config, SyncPolicyCreator syncPolicyCreator) throws IOException {
+    long dataSize;
+    boolean sync = false;
+    synchronized (this.writeLock) {
+      for (JSONObject message : messages) {
+        if (writer != null) {
+          writer.write(message);
+        }
+        else {
+          sample.add(message);
+          if (declaredSchema != null || sample.size() >= sampleSize) {
+            openWriter();
+          }
+        }
+        sync |= this.syncPolicy.mark(null, writer == null ? 0 : writer.getDataSize());
+      }
+      dataSize = writer == null ? 0 : writer.getDataSize();
+      if (sync) {
+        //recreate the sync policy for the next file just in case something changed in the config
+        //and the sync policy depends on the config.
+        this.syncPolicy = syncPolicyCreator.create(sensor, config);
+      }
+    }
+
+    // an open file cannot be synced, so it is closed instead
+    if (sync || this.rotationPolicy.mark(null, dataSize)) {
+      rotateOutputFile(); // synchronized
+      this.rotationPolicy.reset();
+    }
+  }
+
+  /**
+   * Opens a writer of the current file, with the declared schema or the sensor's schema extended by one inferred
+   * from the sample, and writes the sample to it.
+   */
+  private void openWriter() throws IOException {
+    TelemetrySchema schema = declaredSchema != null ? declaredSchema
+            : inferredSchemas.merge(sensor, TelemetrySchema.infer(sample), TelemetrySchema::extend);
+    LOG.debug("Writing {} with {}", currentFile, schema);
+    writer = new TelemetryWriteSupport.Builder(currentFile, schema)
+            .withConf(fs.getConf())
+            .withCompressionCodec(compression)
+            .build();
+    for (JSONObject message : sample) {
+      writer.write(message);
+    }
+    sample.clear();
+  }
+
+  /**
+   * Nothing is opened until the schema is known.
+   *
+   * @return The path of the next output file
+   */
+  @Override
+  protected Path createOutputFile() throws IOException {
+    return getOutputPath();
+  }
+
+  /**
+   * Closes the current file, first writing anything held back, so that every rotation leaves a file for the
+   * rotation actions.
+   */
+  @Override
+  protected void closeOutputFile() throws IOException {
+    synchronized (this.writeLock) {
+      if (sample == null) {
+        // rotated before construction is complete
+        return;
+      }
+      if (writer == null) {
+        openWriter();
+      }
+      writer.close();
+      writer = null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ParquetSourceHandler{" +
+            "sensor='" + sensor + '\'' +
+            ", declaredSchema=" + declaredSchema +
+            ", sampleSize=" + sampleSize +
+            ", compression=" + compression +
+            ", sampled=" + (sample == null ? 0 : sample.size()) +
+            ", " + super.toString() +
+            '}';
+  }
+}
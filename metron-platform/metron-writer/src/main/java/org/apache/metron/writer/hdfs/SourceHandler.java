@@ -18,10 +18,12 @@
 
 package org.apache.metron.writer.hdfs;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Timer;
@@ -51,7 +53,7 @@ public class SourceHandler {
   private long offset = 0;
   private int rotation = 0;
   private transient FSDataOutputStream out;
-  private transient final Object writeLock = new Object();
+  protected transient final Object writeLock = new Object();
   protected transient Timer rotationTimer; // only used for TimedRotationPolicy
   protected transient FileSystem fs;
   protected transient Path currentFile;
@@ -70,7 +72,27 @@ public class SourceHandler {
 
 
   protected void handle(JSONObject message, String sensor, WriterConfiguration config, SyncPolicyCreator syncPolicyCreator) throws IOException {
-    byte[] bytes = (message.toJSONString() + "\n").getBytes();
+    handle(Collections.singletonList(message), sensor, config, syncPolicyCreator);
+  }
+
+  /**
+   * Writes a batch of messages with a single write to the file, deciding once for the batch whether to sync and
+   * whether to rotate.  The messages are serialized before the lock is taken.
+   *
+   * @param messages The messages to write
+   * @param sensor The sensor of the messages
+   * @param config The writer configuration
+   * @param syncPolicyCreator Creates the sync policy once the file is synced
+   */
+  protected void handle(List<JSONObject> messages, String sensor, WriterConfiguration config, SyncPolicyCreator syncPolicyCreator) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    int[] lengths = new int[messages.size()];
+    for (int i = 0; i < messages.size(); i++) {
+      byte[] line = (messages.get(i).toJSONString() + "\n").getBytes();
+      lengths[i] = line.length;
+      buffer.write(line, 0, line.length);
+    }
+    byte[] bytes = buffer.toByteArray();
     synchronized (this.writeLock) {
       try {
         out.write(bytes);
@@ -86,9 +108,15 @@ public class SourceHandler {
           throw writeException;
         }
       }
-      this.offset += bytes.length;
+      // the sync policy still sees every message, so count based policies behave as they do for single messages,
+      // but the file is synced at most once per batch.
+      boolean sync = false;
+      for (int length : lengths) {
+        this.offset += length;
+        sync |= this.syncPolicy.mark(null, this.offset);
+      }
 
-      if (this.syncPolicy.mark(null, this.offset)) {
+      if (sync) {
         if (this.out instanceof HdfsDataOutputStream) {
           ((HdfsDataOutputStream) this.out)
               .hsync(EnumSet.of(HdfsDataOutputStream.SyncFlag.UPDATE_LENGTH));
@@ -148,8 +176,15 @@ public class SourceHandler {
     LOG.info("File rotation took {} ms", time);
   }
 
-  private Path createOutputFile() throws IOException {
-    Path path = new Path(this.fileNameFormat.getPath(), this.fileNameFormat.getName(this.rotation, System.currentTimeMillis()));
+  /**
+   * @return The path of the next output file.
+   */
+  protected Path getOutputPath() {
+    return new Path(this.fileNameFormat.getPath(), this.fileNameFormat.getName(this.rotation, System.currentTimeMillis()));
+  }
+
+  protected Path createOutputFile() throws IOException {
+    Path path = getOutputPath();
     if(fs.getScheme().equals("file")) {
       //in the situation where we're running this in a local filesystem, flushing doesn't work.
       fs.mkdirs(path.getParent());
@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.writer.hdfs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Type.Repetition;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * The columns of a columnar file of telemetry.  Each column holds a field whose values are all of one
+ * primitive type.  Any other field of a message, because it is not a column or its value is of another type,
+ * is written to the "extras" column, a map of the field name to the value as a string.
+ */
+public class TelemetrySchema {
+  public static final String EXTRAS_COLUMN = "extras";
+  public static final String SCHEMA_NAME = "telemetry";
+
+  public enum ColumnType {
+    LONG(PrimitiveTypeName.INT64),
+    DOUBLE(PrimitiveTypeName.DOUBLE),
+    BOOLEAN(PrimitiveTypeName.BOOLEAN),
+    STRING(PrimitiveTypeName.BINARY);
+
+    private PrimitiveTypeName primitiveType;
+
+    ColumnType(PrimitiveTypeName primitiveType) {
+      this.primitiveType = primitiveType;
+    }
+
+    /**
+     * @param value A value of a message
+     * @return Whether the value can be written to a column of this type
+     */
+    public boolean accepts(Object value) {
+      switch (this) {
+        case LONG:
+          return of(value) == LONG;
+        case DOUBLE:
+          return value instanceof Number;
+        case BOOLEAN:
+          return value instanceof Boolean;
+        default:
+          return value instanceof String;
+      }
+    }
+
+    /**
+     * @param value A value of a message
+     * @return The type of column for the value, or null if it is not a primitive
+     */
+    public static ColumnType of(Object value) {
+      if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        return LONG;
+      }
+      if (value instanceof Double || value instanceof Float) {
+        return DOUBLE;
+      }
+      if (value instanceof Boolean) {
+        return BOOLEAN;
+      }
+      if (value instanceof String) {
+        return STRING;
+      }
+      return null;
+    }
+  }
+
+  private final Map<String, ColumnType> columns;
+
+  public TelemetrySchema(Map<String, ColumnType> columns) {
+    Map<String, ColumnType> sorted = new TreeMap<>(columns);
+    sorted.remove(EXTRAS_COLUMN);
+    this.columns = Collections.unmodifiableMap(sorted);
+  }
+
+  /**
+   * Infers a schema from a sample of messages.  A field becomes a column if all of its values are of one type.
+   * Every number becomes a column of doubles, so that a field does not become a column of longs in one file
+   * and of doubles in the next, which readers could not merge.
+   *
+   * @param messages The sample of messages
+   * @return The schema
+   */
+  public static TelemetrySchema infer(Iterable<JSONObject> messages) {
+    Map<String, ColumnType> columns = new TreeMap<>();
+    Set<String> mixed = new HashSet<>();
+    for (JSONObject message : messages) {
+      for (Object entry : message.entrySet()) {
+        String field = (String) ((Map.Entry) entry).getKey();
+        Object value = ((Map.Entry) entry).getValue();
+        if (value == null || mixed.contains(field)) {
+          continue;
+        }
+        ColumnType type = ColumnType.of(value);
+        if (type == ColumnType.LONG) {
+          type = ColumnType.DOUBLE;
+        }
+        ColumnType previous = columns.get(field);
+        if (type != null && (previous == null || previous == type)) {
+          columns.put(field, type);
+        }
+        else {
+          mixed.add(field);
+          columns.remove(field);
+        }
+      }
+    }
+    return new TelemetrySchema(columns);
+  }
+
+  /**
+   * Extends this schema with the columns of another.  A column of this schema keeps its type, so that the
+   * files written with the extended schema can be read along with those written with this one; values which
+   * do not fit the type are written to the extras.
+   *
+   * @param other The schema of further messages, e.g. one inferred from a later sample
+   * @return The columns of this schema and the columns of the other which this does not have
+   */
+  public TelemetrySchema extend(TelemetrySchema other) {
+    Map<String, ColumnType> extended = new TreeMap<>(other.getColumns());
+    extended.putAll(columns);
+    return new TelemetrySchema(extended);
+  }
+
+  /**
+   * Reads a declared schema; a map of each field to the name of its type, e.g. "long".
+   *
+   * @param declared The declared schema
+   * @return The schema
+   */
+  public static TelemetrySchema fromConfig(Map<String, Object> declared) {
+    Map<String, ColumnType> columns = new TreeMap<>();
+    for (Map.Entry<String, Object> column : declared.entrySet()) {
+      try {
+        columns.put(column.getKey(), ColumnType.valueOf(column.getValue().toString().toUpperCase()));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown type " + column.getValue() + " of field " + column.getKey()
+                + "; expected one of long, double, boolean or string", e);
+      }
+    }
+    return new TelemetrySchema(columns);
+  }
+
+  public Map<String, ColumnType> getColumns() {
+    return columns;
+  }
+
+  /**
+   * @param message A message
+   * @return The fields of the message which are not written to their own column, with their values as strings.
+   */
+  public Map<String, String> getExtras(JSONObject message) {
+    Map<String, String> extras = new TreeMap<>();
+    for (Object entry : message.entrySet()) {
+      String field = (String) ((Map.Entry) entry).getKey();
+      Object value = ((Map.Entry) entry).getValue();
+      if (value == null) {
+        continue;
+      }
+      ColumnType type = columns.get(field);
+      if (type == null || !type.accepts(value)) {
+        extras.put(field, value instanceof String ? (String) value : JSONValue.toJSONString(value));
+      }
+    }
+    return extras;
+  }
+
+  /**
+   * @return The Parquet schema; an optional column for each field and the map of extras.
+   */
+  public MessageType toMessageType() {
+    List<Type> fields = new ArrayList<>();
+    for (Map.Entry<String, ColumnType> column : columns.entrySet()) {
+      ColumnType type = column.getValue();
+      if (type == ColumnType.STRING) {
+        fields.add(new PrimitiveType(Repetition.OPTIONAL, type.primitiveType, column.getKey(), OriginalType.UTF8));
+      }
+      else {
+        fields.add(new PrimitiveType(Repetition.OPTIONAL, type.primitiveType, column.getKey()));
+      }
+    }
+    fields.add(new GroupType(Repetition.OPTIONAL, EXTRAS_COLUMN, OriginalType.MAP,
+            new GroupType(Repetition.REPEATED, "key_value",
+                    new PrimitiveType(Repetition.REQUIRED, PrimitiveTypeName.BINARY, "key", OriginalType.UTF8),
+                    new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.BINARY, "value", OriginalType.UTF8))));
+    return new MessageType(SCHEMA_NAME, fields);
+  }
+
+  @Override
+  public String toString() {
+    return "TelemetrySchema{" +
+            "columns=" + columns +
+            '}';
+  }
+}
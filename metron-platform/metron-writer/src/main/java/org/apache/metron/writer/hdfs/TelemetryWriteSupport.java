@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.writer.hdfs;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.json.simple.JSONObject;
+
+/**
+ * Writes messages to Parquet, a column for each field of the schema and the rest of the fields to the map of
+ * extras.
+ */
+public class TelemetryWriteSupport extends WriteSupport<JSONObject> {
+  private TelemetrySchema schema;
+  private RecordConsumer recordConsumer;
+
+  public TelemetryWriteSupport(TelemetrySchema schema) {
+    this.schema = schema;
+  }
+
+  @Override
+  public WriteContext init(Configuration configuration) {
+    Map<String, String> metadata = new HashMap<>();
+    metadata.put("metron.schema", schema.getColumns().toString());
+    return new WriteContext(schema.toMessageType(), metadata);
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer recordConsumer) {
+    this.recordConsumer = recordConsumer;
+  }
+
+  @Override
+  public void write(JSONObject message) {
+    recordConsumer.startMessage();
+    int index = 0;
+    for (Map.Entry<String, TelemetrySchema.ColumnType> column : schema.getColumns().entrySet()) {
+      Object value = message.get(column.getKey());
+      if (value != null && column.getValue().accepts(value)) {
+        recordConsumer.startField(column.getKey(), index);
+        switch (column.getValue()) {
+          case LONG:
+            recordConsumer.addLong(((Number) value).longValue());
+            break;
+          case DOUBLE:
+            recordConsumer.addDouble(((Number) value).doubleValue());
+            break;
+          case BOOLEAN:
+            recordConsumer.addBoolean((Boolean) value);
+            break;
+          default:
+            recordConsumer.addBinary(Binary.fromString((String) value));
+        }
+        recordConsumer.endField(column.getKey(), index);
+      }
+      index++;
+    }
+    Map<String, String> extras = schema.getExtras(message);
+    if (!extras.isEmpty()) {
+      recordConsumer.startField(TelemetrySchema.EXTRAS_COLUMN, index);
+      recordConsumer.startGroup();
+      recordConsumer.startField("key_value", 0);
+      for (Map.Entry<String, String> extra : extras.entrySet()) {
+        recordConsumer.startGroup();
+        recordConsumer.startField("key", 0);
+        recordConsumer.addBinary(Binary.fromString(extra.getKey()));
+        recordConsumer.endField("key", 0);
+        recordConsumer.startField("value", 1);
+        recordConsumer.addBinary(Binary.fromString(extra.getValue()));
+        recordConsumer.endField("value", 1);
+        recordConsumer.endGroup();
+      }
+      recordConsumer.endField("key_value", 0);
+      recordConsumer.endGroup();
+      recordConsumer.endField(TelemetrySchema.EXTRAS_COLUMN, index);
+    }
+    recordConsumer.endMessage();
+  }
+
+  /**
+   * Builds a ParquetWriter of messages with a schema.
+   */
+  public static class Builder extends ParquetWriter.Builder<JSONObject, Builder> {
+    private TelemetrySchema schema;
+
+    public Builder(Path file, TelemetrySchema schema) {
+      super(file);
+      this.schema = schema;
+    }
+
+    @Override
+    protected Builder self() {
+      return this;
+    }
+
+    @Override
+    protected WriteSupport<JSONObject> getWriteSupport(Configuration conf) {
+      return new TelemetryWriteSupport(schema);
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.metron.writer.kafka;
 
 import com.google.common.base.Joiner;
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.util.AbstractMap;
@@ -27,15 +28,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.metron.common.message.MessageEncodings;
 import org.apache.metron.common.utils.KafkaUtils;
 import org.apache.metron.common.utils.StringUtils;
-import org.apache.metron.common.writer.BulkMessageWriter;
+import org.apache.metron.common.writer.AsyncBulkMessageWriter;
 import org.apache.metron.common.writer.BulkWriterResponse;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.writer.AbstractWriter;
@@ -45,7 +50,7 @@ import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSONObject>, Serializable {
+public class KafkaWriter extends AbstractWriter implements AsyncBulkMessageWriter<JSONObject>, Serializable {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   public enum Configurations {
      BROKER("kafka.brokerUrl")
@@ -55,7 +60,10 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     ,REQUIRED_ACKS("kafka.requiredAcks")
     ,TOPIC("kafka.topic")
     ,TOPIC_FIELD("kafka.topicField")
-    ,PRODUCER_CONFIGS("kafka.producerConfigs");
+    ,PRODUCER_CONFIGS("kafka.producerConfigs")
+    ,ASYNC("kafka.async")
+    ,MAX_IN_FLIGHT("kafka.maxInFlight")
+    ,ENCODING("kafka.encoding");
     ;
     String key;
     Configurations(String key) {
@@ -81,16 +89,24 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
    * @see <a href="https://docs.hortonworks.com/HDPDocuments/HDP2/HDP-2.6.4/bk_kafka-component-guide/content/kafka-producer-settings.html">https://docs.hortonworks.com/HDPDocuments/HDP2/HDP-2.6.4/bk_kafka-component-guide/content/kafka-producer-settings.html</a>
    */
   private static final int DEFAULT_BATCH_SIZE = 1_024 * 64; // 64 kilobytes
+  /**
+   * Default number of messages written asynchronously which may await acknowledgement at once.
+   */
+  public static final int DEFAULT_MAX_IN_FLIGHT = 10_000;
   private String brokerUrl;
   private String keySerializer = "org.apache.kafka.common.serialization.StringSerializer";
   private String valueSerializer = "org.apache.kafka.common.serialization.StringSerializer";
   private int requiredAcks = 1;
   private String kafkaTopic = Constants.ENRICHMENT_TOPIC;
   private String kafkaTopicField = null;
-  private KafkaProducer kafkaProducer;
+  private Producer kafkaProducer;
   private String configPrefix = null;
   private String zkQuorum = null;
   private Map<String, Object> producerConfigs = new HashMap<>();
+  private boolean async = false;
+  private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+  private transient Semaphore inFlight;
+  private MessageEncodings encoding = MessageEncodings.JSON;
 
   public KafkaWriter() {}
 
@@ -147,6 +163,44 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     return this;
   }
 
+  /**
+   * In async mode, a batch is handed to the producer without flushing it, so the producer batches
+   * on its own terms (e.g. linger.ms), and tuples are acked as the producer acknowledges them.
+   * @param async Whether to write asynchronously
+   */
+  public KafkaWriter withAsync(boolean async) {
+    this.async = async;
+    return this;
+  }
+
+  /**
+   * @param maxInFlight The number of messages written asynchronously which may await acknowledgement at once.
+   */
+  public KafkaWriter withMaxInFlight(int maxInFlight) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException(String.format("maxInFlight must be positive. Value provided was %s", maxInFlight));
+    }
+    this.maxInFlight = maxInFlight;
+    return this;
+  }
+
+  /**
+   * Messages are written as JSON text by default.  Any other encoding is written with a byte array
+   * serializer, rather than the value serializer.
+   * @param encoding The name of one of the {@link MessageEncodings}
+   */
+  public KafkaWriter withEncoding(String encoding) {
+    this.encoding = MessageEncodings.valueOf(encoding.toUpperCase());
+    return this;
+  }
+
+  /**
+   * Used only for unit testing.
+   */
+  protected void setKafkaProducer(Producer kafkaProducer) {
+    this.kafkaProducer = kafkaProducer;
+  }
+
   public Optional<String> getConfigPrefix() {
     return Optional.ofNullable(configPrefix);
   }
@@ -186,6 +240,18 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     if(producerConfigs != null) {
       withProducerConfigs(producerConfigs);
     }
+    Boolean async = Configurations.ASYNC.getAndConvert(getConfigPrefix(), configMap, Boolean.class);
+    if(async != null) {
+      withAsync(async);
+    }
+    Integer maxInFlight = Configurations.MAX_IN_FLIGHT.getAndConvert(getConfigPrefix(), configMap, Integer.class);
+    if(maxInFlight != null) {
+      withMaxInFlight(maxInFlight);
+    }
+    String encoding = Configurations.ENCODING.getAndConvert(getConfigPrefix(), configMap, String.class);
+    if(encoding != null) {
+      withEncoding(encoding);
+    }
   }
 
   @Override
@@ -198,14 +264,17 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
         throw new IllegalStateException("Cannot read kafka brokers from zookeeper and you didn't specify them, giving up!", e);
       }
     }
-    this.kafkaProducer = new KafkaProducer<>(createProducerConfigs());
+    if(this.kafkaProducer == null) {
+      this.kafkaProducer = new KafkaProducer<>(createProducerConfigs());
+    }
+    this.inFlight = new Semaphore(maxInFlight);
   }
 
   public Map<String, Object> createProducerConfigs() {
     Map<String, Object> producerConfig = new HashMap<>();
     producerConfig.put("bootstrap.servers", brokerUrl);
     producerConfig.put("key.serializer", keySerializer);
-    producerConfig.put("value.serializer", valueSerializer);
+    producerConfig.put("value.serializer", encoding == MessageEncodings.JSON ? valueSerializer : ByteArraySerializer.class.getName());
     producerConfig.put("request.required.acks", requiredAcks);
     producerConfig.put(ProducerConfig.BATCH_SIZE_CONFIG, DEFAULT_BATCH_SIZE);
     producerConfig.putAll(producerConfigs == null?new HashMap<>():producerConfigs);
@@ -226,6 +295,14 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     return Optional.ofNullable(t);
   }
 
+  /**
+   * @param message The message
+   * @return The value of the message's record; JSON text, or the bytes of any other encoding
+   */
+  private Object encode(JSONObject message) throws IOException {
+    return encoding == MessageEncodings.JSON ? message.toJSONString() : encoding.encode(message);
+  }
+
   @Override
   public BulkWriterResponse write(String sensorType, WriterConfiguration configurations,
       Iterable<Tuple> tuples, List<JSONObject> messages) {
@@ -234,9 +311,9 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     int i = 0;
     for (Tuple tuple : tuples) {
       JSONObject message = messages.get(i++);
-      String jsonMessage;
+      Object value;
       try {
-         jsonMessage = message.toJSONString();
+         value = encode(message);
       } catch (Throwable t) {
         writerResponse.addError(t, tuple);
         continue;
@@ -244,12 +321,12 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
       Optional<String> topic = getKafkaTopic(message);
       if(topic.isPresent()) {
         Future future = kafkaProducer
-            .send(new ProducerRecord<String, String>(topic.get(), jsonMessage));
+            .send(new ProducerRecord<String, Object>(topic.get(), value));
         // we want to manage the batching
         results.add(new AbstractMap.SimpleEntry<>(tuple, future));
       }
       else {
-        LOG.debug("Dropping {} because no topic is specified.", jsonMessage);
+        LOG.debug("Dropping {} because no topic is specified.", message);
       }
     }
 
@@ -272,6 +349,71 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     return writerResponse;
   }
 
+  @Override
+  public boolean isAsync() {
+    return async;
+  }
+
+  /**
+   * Sends the messages without flushing the producer.  Each tuple is reported to the callback when the
+   * producer completes its record.  At most maxInFlight records await completion at once; beyond that,
+   * this blocks until the producer completes enough of them.
+   */
+  @Override
+  public BulkWriterResponse writeAsync(String sensorType, WriterConfiguration configurations,
+      Iterable<Tuple> tuples, List<JSONObject> messages, AsyncBulkMessageWriter.Callback callback) {
+    BulkWriterResponse writerResponse = new BulkWriterResponse();
+    int i = 0;
+    for (Tuple tuple : tuples) {
+      JSONObject message = messages.get(i++);
+      Object value;
+      try {
+         value = encode(message);
+      } catch (Throwable t) {
+        writerResponse.addError(t, tuple);
+        continue;
+      }
+      Optional<String> topic = getKafkaTopic(message);
+      if(!topic.isPresent()) {
+        LOG.debug("Dropping {} because no topic is specified.", message);
+        // the outcome of every tuple must be reported, and there is nothing more to do with this one
+        writerResponse.addSuccess(tuple);
+        continue;
+      }
+      try {
+        inFlight.acquire();
+      } catch (InterruptedException e) {
+        // fail the rest of the batch quickly, as each further acquire is interrupted as well
+        Thread.currentThread().interrupt();
+        writerResponse.addError(e, tuple);
+        continue;
+      }
+      try {
+        kafkaProducer.send(new ProducerRecord<String, Object>(topic.get(), value), (metadata, exception) -> {
+          inFlight.release();
+          if (exception == null) {
+            callback.onSuccess(tuple);
+          }
+          else {
+            callback.onError(exception, tuple);
+          }
+        });
+      } catch (Exception e) {
+        // the record was never handed to the producer, so its callback will not be called
+        inFlight.release();
+        writerResponse.addError(e, tuple);
+      }
+    }
+    return writerResponse;
+  }
+
+  /**
+   * @return The number of messages written asynchronously which await acknowledgement.
+   */
+  public int getInFlight() {
+    return inFlight == null ? 0 : maxInFlight - inFlight.availablePermits();
+  }
+
   @Override
   public String getName() {
     return "kafka";
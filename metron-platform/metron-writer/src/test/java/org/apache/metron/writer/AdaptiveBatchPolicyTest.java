@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.writer;
+
+import java.util.Map;
+import org.apache.metron.writer.AdaptiveBatchPolicy.FlushReason;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveBatchPolicyTest {
+
+  @Test
+  public void usesConfiguredBatchWithoutTargets() {
+    AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy();
+    policy.configure(0, 0);
+    policy.onFlush(FlushReason.BATCH_SIZE, 10, 1000, 5000, true);
+    Assert.assertFalse(policy.isAdaptive());
+    Assert.assertEquals(100, policy.getBatchSize(100));
+    Assert.assertEquals(6000, policy.getTimeoutMs(6000));
+  }
+
+  @Test
+  public void sizesBatchToArrivalRateWithinLatency() {
+    AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy();
+    policy.configure(1000, 0);
+    // until anything is observed, the whole latency is the timeout
+    Assert.assertEquals(1000, policy.getTimeoutMs(6000));
+    Assert.assertEquals(5000, policy.getBatchSize(5000));
+
+    // 100 messages in 200 ms, written in 200 ms; so 800 ms to wait, in which 400 messages arrive
+    policy.onFlush(FlushReason.TIMEOUT, 100, 200, 200, false);
+    Assert.assertEquals(800, policy.getTimeoutMs(6000));
+    Assert.assertEquals(400, policy.getBatchSize(5000));
+    Assert.assertEquals(300, policy.getBatchSize(300));
+    Assert.assertEquals(500, policy.getTimeoutMs(500));
+  }
+
+  @Test
+  public void capsBatchByBytes() {
+    AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy();
+    policy.configure(0, 1000);
+    policy.onMessage("0123456789");
+    Assert.assertEquals(100, policy.getBatchSize(5000));
+    Assert.assertEquals(6000, policy.getTimeoutMs(6000));
+  }
+
+  @Test
+  public void capsBatchByUtf8Bytes() {
+    AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy();
+    policy.configure(0, 1000);
+    // 5 characters, each 2 bytes in UTF-8
+    policy.onMessage("\u00e9\u00e9\u00e9\u00e9\u00e9");
+    Assert.assertEquals(100, policy.getBatchSize(5000));
+  }
+
+  @Test
+  public void backsOffOnFailuresAndRecovers() {
+    AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy();
+    policy.configure(0, 1000);
+    policy.onMessage("0123456789");
+    policy.onFlush(FlushReason.BATCH_SIZE, 100, 1000, 10, true);
+    Assert.assertEquals(50, policy.getBatchSize(5000));
+    policy.onFlush(FlushReason.BATCH_SIZE, 50, 1000, 10, true);
+    Assert.assertEquals(25, policy.getBatchSize(5000));
+    for(int i = 0; i < 16; i++) {
+      policy.onFlush(FlushReason.BATCH_SIZE, 25, 1000, 10, false);
+    }
+    Assert.assertEquals(100, policy.getBatchSize(5000));
+  }
+
+  @Test
+  public void reportsAndResetsMetrics() {
+    AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy();
+    policy.configure(1000, 0);
+    policy.getBatchSize(10);
+    policy.onFlush(FlushReason.BATCH_SIZE, 10, 100, 20, false);
+    policy.onFlush(FlushReason.TICK, 3, 2000, 40, true);
+    Map<String, Object> metrics = policy.getValueAndReset();
+    Assert.assertEquals(10, metrics.get("batchSize"));
+    Assert.assertEquals(1L, metrics.get("flush.batch_size"));
+    Assert.assertEquals(1L, metrics.get("flush.tick"));
+    Assert.assertEquals(0L, metrics.get("flush.timeout"));
+    Assert.assertEquals(13L, metrics.get("messages"));
+    Assert.assertEquals(1L, metrics.get("failures"));
+    Assert.assertEquals(24.0, (double) metrics.get("writeMs"), 1e-9);
+
+    metrics = policy.getValueAndReset();
+    Assert.assertEquals(0L, metrics.get("flush.batch_size"));
+    Assert.assertEquals(0L, metrics.get("messages"));
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.metron.writer;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
@@ -31,11 +32,13 @@ import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
 import org.apache.metron.common.error.MetronError;
 import org.apache.metron.common.message.MessageGetStrategy;
 import org.apache.metron.common.utils.ErrorUtils;
+import org.apache.metron.common.writer.AsyncBulkMessageWriter;
 import org.apache.metron.common.writer.BulkMessageWriter;
 import org.apache.metron.common.writer.BulkWriterResponse;
 import org.apache.metron.test.error.MetronErrorJSONMatcher;
@@ -48,6 +51,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.powermock.core.classloader.annotations.PrepareForTest;
@@ -203,6 +207,37 @@ public class BulkWriterComponentTest {
     verifyNoMoreInteractions(collector);
   }
 
+  @Test
+  public void writeAsyncShouldObserveBatchOnceCompleted() throws Exception {
+    Throwable e = new Exception("test exception");
+    AsyncBulkMessageWriter<JSONObject> asyncWriter = mock(AsyncBulkMessageWriter.class);
+    when(asyncWriter.isAsync()).thenReturn(true);
+    ArgumentCaptor<AsyncBulkMessageWriter.Callback> callback = ArgumentCaptor.forClass(AsyncBulkMessageWriter.Callback.class);
+    when(asyncWriter.writeAsync(eq(sensorType), eq(configurations), eq(Arrays.asList(tuple1, tuple2)), eq(Arrays.asList(message1, message2)), callback.capture()))
+            .thenReturn(new BulkWriterResponse());
+
+    BulkWriterComponent<JSONObject> bulkWriterComponent = new BulkWriterComponent<>(collector);
+    bulkWriterComponent.write(sensorType, tuple1, message1, asyncWriter, configurations, messageGetStrategy);
+    bulkWriterComponent.write(sensorType, tuple2, message2, asyncWriter, configurations, messageGetStrategy);
+
+    // the batch is handed off, but not yet complete
+    verify(collector, times(0)).ack(tuple1);
+    Map<String, Object> metrics = bulkWriterComponent.getValueAndReset();
+    assertEquals(0L, metrics.get(sensorType + ".messages"));
+
+    callback.getValue().onSuccess(tuple1);
+    assertEquals(0L, bulkWriterComponent.getValueAndReset().get(sensorType + ".messages"));
+    callback.getValue().onError(e, tuple2);
+
+    verify(collector, times(1)).ack(tuple1);
+    verify(collector, times(1)).ack(tuple2);
+    verify(collector, times(1)).reportError(e);
+    metrics = bulkWriterComponent.getValueAndReset();
+    assertEquals(2L, metrics.get(sensorType + ".messages"));
+    assertEquals(1L, metrics.get(sensorType + ".failures"));
+    assertEquals(1L, metrics.get(sensorType + ".flush.batch_size"));
+  }
+
   @Test
   public void errorAllShouldClearMapsAndHandleErrors() throws Exception {
     Throwable e = new Exception("test exception");
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.metron.common.configuration.IndexingConfigurations;
 import org.apache.metron.common.configuration.writer.IndexingWriterConfiguration;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
@@ -491,6 +492,43 @@ public class HdfsWriterTest {
     }
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testHandleBatchSyncsOnce() throws Exception {
+    String function = "FORMAT('test-%s/%s', test.key, test.key)";
+    WriterConfiguration config = buildWriterConfiguration(function);
+    HdfsWriter writer = new HdfsWriter().withFileNameFormat(testFormat);
+    writer.init(new HashMap<String, String>(), createTopologyContext(), config);
+
+    ArrayList<JSONObject> messages = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      JSONObject message = new JSONObject();
+      message.put("test.key", "test.value");
+      message.put("test.index", i);
+      messages.add(message);
+    }
+
+    // every message marks the sync policy, but the batch is synced, and the policy recreated, once
+    AtomicInteger syncs = new AtomicInteger();
+    SyncPolicyCreator creator = (sensor, conf) -> {
+      syncs.incrementAndGet();
+      return new CountSyncPolicy(1);
+    };
+    SourceHandler handler = writer.getSourceHandler(SENSOR_NAME, "test-test.value/test.value", config);
+    handler.syncPolicy = new CountSyncPolicy(2);
+    handler.handle(messages, SENSOR_NAME, config, creator);
+    writer.close();
+
+    Assert.assertEquals(1, syncs.get());
+    File outputFolder = new File(folder.getAbsolutePath() + "/test-test.value/test.value/");
+    Assert.assertEquals(1, outputFolder.listFiles().length);
+    List<String> lines = Files.readAllLines(outputFolder.listFiles()[0].toPath());
+    Assert.assertEquals(3, lines.size());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(messages.get(i).toJSONString(), lines.get(i));
+    }
+  }
+
   protected WriterConfiguration buildWriterConfiguration(String function) {
     IndexingConfigurations indexingConfig = new IndexingConfigurations();
     Map<String, Object> sensorIndexingConfig = new HashMap<>();
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.writer.hdfs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.common.configuration.IndexingConfigurations;
+import org.apache.metron.common.configuration.writer.IndexingWriterConfiguration;
+import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.storm.hdfs.bolt.format.DefaultFileNameFormat;
+import org.apache.storm.hdfs.bolt.format.FileNameFormat;
+import org.apache.storm.hdfs.bolt.sync.CountSyncPolicy;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Writes Parquet files to the local filesystem and reads them back.
+ */
+public class ParquetSourceHandlerTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final String SENSOR_NAME = "sensor";
+  private static final String WRITER_NAME = "writerName";
+
+  private File folder;
+  private FileNameFormat testFormat;
+  private WriterConfiguration config;
+
+  @Before
+  public void setup() throws IOException {
+    folder = tempFolder.newFolder();
+    testFormat = new DefaultFileNameFormat()
+            .withPath(folder.toString())
+            .withExtension(".parquet")
+            .withPrefix("prefix-");
+    IndexingConfigurations indexingConfig = new IndexingConfigurations();
+    Map<String, Object> sensorIndexingConfig = new HashMap<>();
+    sensorIndexingConfig.put(WRITER_NAME, new HashMap<String, Object>());
+    indexingConfig.updateSensorIndexingConfig(SENSOR_NAME, sensorIndexingConfig);
+    config = new IndexingWriterConfiguration(WRITER_NAME, indexingConfig);
+  }
+
+  @Test
+  public void testRotationLeavesReadableFile() throws Exception {
+    // the rotation action reads the file, so it must be closed by then
+    List<List<Group>> rotated = new ArrayList<>();
+    HdfsWriter writer = new HdfsWriter()
+            .withFileNameFormat(testFormat)
+            .withOutputFormat("PARQUET")
+            .withSchemaSampleSize(2)
+            .withSyncPolicy(new CountSyncPolicy(100))
+            .addRotationAction((fs, path) -> rotated.add(read(path)));
+    writer.init(new HashMap<String, String>(), createTopologyContext(), config);
+
+    writer.write(SENSOR_NAME, config, new ArrayList<Tuple>(), Arrays.asList(message("10.0.0.1", 1234L), message("10.0.0.2", 5678L)));
+    writer.write(SENSOR_NAME, config, new ArrayList<Tuple>(), Collections.singletonList(message("10.0.0.3", 80L)));
+    writer.getSourceHandler(SENSOR_NAME, SENSOR_NAME, config).rotateOutputFile();
+    writer.close();
+
+    Assert.assertEquals(1, rotated.size());
+    List<Group> rows = rotated.get(0);
+    Assert.assertEquals(3, rows.size());
+    Assert.assertEquals("10.0.0.1", rows.get(0).getString("ip_src_addr", 0));
+    Assert.assertEquals(1234.0, rows.get(0).getDouble("ip_src_port", 0), 0.0);
+    Assert.assertEquals("10.0.0.3", rows.get(2).getString("ip_src_addr", 0));
+    Assert.assertEquals(80.0, rows.get(2).getDouble("ip_src_port", 0), 0.0);
+
+    // a field which is not a column is in the extras
+    Assert.assertEquals(Collections.singletonMap("tags", "[\"x\",\"y\"]"), getExtras(rows.get(0)));
+  }
+
+  @Test
+  public void testSampleWrittenOnClose() throws Exception {
+    HdfsWriter writer = new HdfsWriter()
+            .withFileNameFormat(testFormat)
+            .withOutputFormat("PARQUET")
+            .withSyncPolicy(new CountSyncPolicy(100));
+    writer.init(new HashMap<String, String>(), createTopologyContext(), config);
+
+    // far fewer messages than the sample size, so they are held back until the file is closed
+    writer.write(SENSOR_NAME, config, new ArrayList<Tuple>(), Arrays.asList(message("10.0.0.1", 1234L), message("10.0.0.2", 5678L)));
+    writer.close();
+
+    List<File> files = listParquetFiles();
+    Assert.assertEquals(1, files.size());
+    List<Group> rows = read(new Path(files.get(0).getAbsolutePath()));
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals("10.0.0.2", rows.get(1).getString("ip_src_addr", 0));
+  }
+
+  @Test
+  public void testSyncRotates() throws Exception {
+    List<Path> rotated = new ArrayList<>();
+    HdfsWriter writer = new HdfsWriter()
+            .withFileNameFormat(testFormat)
+            .withOutputFormat("PARQUET")
+            .withSchemaSampleSize(1)
+            .withSyncPolicy(new CountSyncPolicy(2))
+            .addRotationAction((fs, path) -> rotated.add(path));
+    writer.init(new HashMap<String, String>(), createTopologyContext(), config);
+
+    // the second message triggers the sync policy, which closes the file in place of a sync
+    writer.write(SENSOR_NAME, config, new ArrayList<Tuple>(), Collections.singletonList(message("10.0.0.1", 1234L)));
+    writer.write(SENSOR_NAME, config, new ArrayList<Tuple>(), Collections.singletonList(message("10.0.0.2", 5678L)));
+    Assert.assertEquals(1, rotated.size());
+    List<Group> rows = read(rotated.get(0));
+    Assert.assertEquals(2, rows.size());
+
+    // the next file is inferred from a port which is not a number, but the column keeps its type
+    JSONObject message = message("10.0.0.3", 80L);
+    message.put("ip_src_port", "http");
+    writer.write(SENSOR_NAME, config, new ArrayList<Tuple>(), Collections.singletonList(message));
+    writer.close();
+
+    List<File> files = listParquetFiles();
+    Assert.assertEquals(2, files.size());
+    files.removeIf(file -> file.getName().equals(rotated.get(0).getName()));
+    rows = read(new Path(files.get(0).getAbsolutePath()));
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals(0, rows.get(0).getFieldRepetitionCount("ip_src_port"));
+    Assert.assertEquals("http", getExtras(rows.get(0)).get("ip_src_port"));
+  }
+
+  private static JSONObject message(String ipSrcAddr, long ipSrcPort) {
+    JSONObject message = new JSONObject();
+    message.put("ip_src_addr", ipSrcAddr);
+    message.put("ip_src_port", ipSrcPort);
+    message.put("tags", Arrays.asList("x", "y"));
+    return message;
+  }
+
+  private static List<Group> read(Path path) throws IOException {
+    List<Group> rows = new ArrayList<>();
+    try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), path).build()) {
+      for (Group row = reader.read(); row != null; row = reader.read()) {
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+
+  private static Map<String, String> getExtras(Group row) {
+    Map<String, String> extras = new HashMap<>();
+    if (row.getFieldRepetitionCount(TelemetrySchema.EXTRAS_COLUMN) > 0) {
+      Group map = row.getGroup(TelemetrySchema.EXTRAS_COLUMN, 0);
+      for (int i = 0; i < map.getFieldRepetitionCount("key_value"); i++) {
+        Group entry = map.getGroup("key_value", i);
+        extras.put(entry.getString("key", 0), entry.getString("value", 0));
+      }
+    }
+    return extras;
+  }
+
+  private List<File> listParquetFiles() {
+    // ignore the checksums of the local filesystem
+    List<File> files = new ArrayList<>();
+    for (File file : new File(folder, SENSOR_NAME).listFiles()) {
+      if (file.getName().endsWith(".parquet") && !file.getName().startsWith(".")) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  private TopologyContext createTopologyContext(){
+    Map<Integer, String> taskToComponent = new HashMap<Integer, String>();
+    taskToComponent.put(7, "Xcom");
+    return new TopologyContext(null, null, taskToComponent, null, null, null, null, null, 7, 6703, null, null, null, null, null, null);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.writer.hdfs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.metron.writer.hdfs.TelemetrySchema.ColumnType;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TelemetrySchemaTest {
+
+  private static JSONObject first() {
+    JSONObject message = new JSONObject();
+    message.put("ip_src_addr", "10.0.0.1");
+    message.put("ip_src_port", 1234L);
+    message.put("duration", 1L);
+    message.put("is_alert", true);
+    message.put("mixed", "a");
+    message.put("tags", Arrays.asList("x", "y"));
+    return message;
+  }
+
+  private static JSONObject second() {
+    JSONObject message = new JSONObject();
+    message.put("ip_src_addr", "10.0.0.2");
+    message.put("ip_src_port", 5678L);
+    message.put("duration", 0.5);
+    message.put("mixed", 2L);
+    message.put("extras", "reserved");
+    return message;
+  }
+
+  @Test
+  public void testInfer() {
+    JSONObject first = first();
+    JSONObject second = second();
+    TelemetrySchema schema = TelemetrySchema.infer(Arrays.asList(first, second));
+
+    Map<String, ColumnType> expected = new HashMap<>();
+    expected.put("ip_src_addr", ColumnType.STRING);
+    expected.put("ip_src_port", ColumnType.DOUBLE);
+    expected.put("duration", ColumnType.DOUBLE);
+    expected.put("is_alert", ColumnType.BOOLEAN);
+    Assert.assertEquals(expected, schema.getColumns());
+
+    Map<String, String> extras = schema.getExtras(first);
+    Assert.assertEquals(2, extras.size());
+    Assert.assertEquals("a", extras.get("mixed"));
+    Assert.assertEquals("[\"x\",\"y\"]", extras.get("tags"));
+    extras = schema.getExtras(second);
+    Assert.assertEquals(2, extras.size());
+    Assert.assertEquals("2", extras.get("mixed"));
+    Assert.assertEquals("reserved", extras.get("extras"));
+  }
+
+  @Test
+  public void testExtend() {
+    TelemetrySchema schema = TelemetrySchema.infer(Arrays.asList(first()));
+    JSONObject later = new JSONObject();
+    later.put("ip_src_addr", 1L);
+    later.put("ip_dst_addr", "10.0.0.3");
+    later.put("mixed", 2L);
+    TelemetrySchema extended = schema.extend(TelemetrySchema.infer(Arrays.asList(later)));
+
+    // the columns of the earlier files keep their types, whatever the later sample holds
+    Map<String, ColumnType> expected = new HashMap<>(schema.getColumns());
+    expected.put("ip_dst_addr", ColumnType.STRING);
+    Assert.assertEquals(expected, extended.getColumns());
+    Assert.assertEquals(ColumnType.STRING, extended.getColumns().get("mixed"));
+    Assert.assertEquals("1", extended.getExtras(later).get("ip_src_addr"));
+    Assert.assertEquals("2", extended.getExtras(later).get("mixed"));
+  }
+
+  @Test
+  public void testDeclared() {
+    Map<String, Object> declared = new HashMap<>();
+    declared.put("ip_src_addr", "string");
+    declared.put("ip_src_port", "long");
+    TelemetrySchema schema = TelemetrySchema.fromConfig(declared);
+
+    JSONObject message = first();
+    message.put("ip_src_port", "not a port");
+    Map<String, String> extras = schema.getExtras(message);
+    Assert.assertFalse(extras.containsKey("ip_src_addr"));
+    Assert.assertEquals("not a port", extras.get("ip_src_port"));
+    Assert.assertEquals("1", extras.get("duration"));
+    Assert.assertEquals("true", extras.get("is_alert"));
+    Assert.assertEquals(3, schema.toMessageType().getFieldCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDeclaredUnknownType() {
+    Map<String, Object> declared = new HashMap<>();
+    declared.put("ip_src_addr", "inet");
+    TelemetrySchema.fromConfig(declared);
+  }
+}
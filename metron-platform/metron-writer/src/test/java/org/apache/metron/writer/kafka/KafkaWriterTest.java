@@ -18,16 +18,34 @@
 
 package org.apache.metron.writer.kafka;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
 import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.ParserConfigurations;
 import org.apache.metron.common.configuration.SensorParserConfig;
 import org.apache.metron.common.configuration.writer.ParserWriterConfiguration;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.metron.common.message.MessageEncodings;
+import org.apache.metron.common.message.MessageGetStrategy;
+import org.apache.metron.common.writer.AsyncBulkMessageWriter;
+import org.apache.metron.common.writer.BulkWriterResponse;
+import org.apache.metron.writer.BulkWriterComponent;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.tuple.Tuple;
 import org.json.simple.JSONObject;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -148,4 +166,114 @@ public class KafkaWriterTest {
                        );
     Assert.assertTrue( writer.getKafkaTopic(new JSONObject()).isPresent() );
   }
+
+  @Test
+  public void testWriteAsyncAcksAsProducerCompletes() throws Exception {
+    KafkaWriter writer = new KafkaWriter();
+    WriterConfiguration configuration = createConfiguration(
+            new HashMap<String, Object>() {{
+              put("kafka.brokerUrl" , "localhost:6667");
+              put("kafka.topic" , SENSOR_TYPE);
+              put("kafka.async" , "true");
+              put("kafka.maxInFlight" , 2);
+              put("batchSize" , 2);
+            }}
+    );
+    writer.configure(SENSOR_TYPE, configuration);
+    Assert.assertTrue(writer.isAsync());
+    MockProducer<String, String> producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+    writer.setKafkaProducer(producer);
+    writer.init(null, null, configuration);
+
+    OutputCollector collector = mock(OutputCollector.class);
+    BulkWriterComponent<JSONObject> component = new BulkWriterComponent<>(collector);
+    Tuple tuple1 = mock(Tuple.class);
+    Tuple tuple2 = mock(Tuple.class);
+    JSONObject message1 = new JSONObject() {{
+      put("value", "message1");
+    }};
+    JSONObject message2 = new JSONObject() {{
+      put("value", "message2");
+    }};
+    MessageGetStrategy messageGetStrategy = tuple -> tuple == tuple1 ? message1 : message2;
+    component.write(SENSOR_TYPE, tuple1, message1, writer, configuration, messageGetStrategy);
+    component.write(SENSOR_TYPE, tuple2, message2, writer, configuration, messageGetStrategy);
+
+    // the batch is handed off without waiting for the producer
+    Assert.assertEquals(2, producer.history().size());
+    Assert.assertEquals(2, writer.getInFlight());
+    verify(collector, never()).ack(tuple1);
+    verify(collector, never()).ack(tuple2);
+
+    producer.completeNext();
+    verify(collector, times(1)).ack(tuple1);
+    verify(collector, never()).ack(tuple2);
+    Assert.assertEquals(1, writer.getInFlight());
+
+    producer.errorNext(new RuntimeException("test exception"));
+    verify(collector, times(1)).emit(eq(Constants.ERROR_STREAM), any());
+    verify(collector, times(1)).ack(tuple2);
+    Assert.assertEquals(0, writer.getInFlight());
+  }
+
+  @Test
+  public void testWriteAsyncReportsMessagesWithoutTopic() throws Exception {
+    KafkaWriter writer = new KafkaWriter();
+    WriterConfiguration configuration = createConfiguration(
+            new HashMap<String, Object>() {{
+              put("kafka.brokerUrl" , "localhost:6667");
+              put("kafka.topicField" , "kafka_topic");
+              put("kafka.async" , "true");
+            }}
+    );
+    writer.configure(SENSOR_TYPE, configuration);
+    MockProducer<String, String> producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+    writer.setKafkaProducer(producer);
+    writer.init(null, null, configuration);
+
+    Tuple tuple1 = mock(Tuple.class);
+    Tuple tuple2 = mock(Tuple.class);
+    JSONObject message1 = new JSONObject() {{
+      put("kafka_topic", "metron");
+    }};
+    JSONObject message2 = new JSONObject();
+    AsyncBulkMessageWriter.Callback callback = mock(AsyncBulkMessageWriter.Callback.class);
+    BulkWriterResponse response = writer.writeAsync(SENSOR_TYPE, configuration, Arrays.asList(tuple1, tuple2)
+            , Arrays.asList(message1, message2), callback);
+
+    // the message without a topic is dropped, but its tuple is still reported
+    Assert.assertEquals(1, producer.history().size());
+    Assert.assertEquals(Arrays.asList(tuple2), response.getSuccesses());
+    producer.completeNext();
+    verify(callback, times(1)).onSuccess(tuple1);
+    verify(callback, never()).onSuccess(tuple2);
+  }
+
+  @Test
+  public void testWriteWithBinaryEncoding() throws Exception {
+    KafkaWriter writer = new KafkaWriter();
+    WriterConfiguration configuration = createConfiguration(
+            new HashMap<String, Object>() {{
+              put("kafka.brokerUrl" , "localhost:6667");
+              put("kafka.topic" , SENSOR_TYPE);
+              put("kafka.encoding" , "smile");
+            }}
+    );
+    writer.configure(SENSOR_TYPE, configuration);
+    Assert.assertEquals(ByteArraySerializer.class.getName(), writer.createProducerConfigs().get("value.serializer"));
+    MockProducer<String, Object> producer = new MockProducer<>(true, new StringSerializer(), null);
+    writer.setKafkaProducer(producer);
+    writer.init(null, null, configuration);
+
+    Tuple tuple = mock(Tuple.class);
+    JSONObject message = new JSONObject() {{
+      put("value", "message");
+      put("timestamp", 1L);
+    }};
+    BulkWriterResponse response = writer.write(SENSOR_TYPE, configuration, Arrays.asList(tuple), Arrays.asList(message));
+    Assert.assertEquals(Arrays.asList(tuple), response.getSuccesses());
+    byte[] value = (byte[]) producer.history().get(0).value();
+    Assert.assertEquals(MessageEncodings.SMILE, MessageEncodings.of(value));
+    Assert.assertEquals(message, MessageEncodings.decodeAny(value));
+  }
 }
@@ -18,15 +18,14 @@
 
 package org.apache.metron.stellar.common;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.CacheLoader;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Joiner;
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.TokenStream;
 
+import java.lang.invoke.MethodHandles;
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +38,7 @@ import org.apache.metron.stellar.dsl.Context.ActivityType;
 import org.apache.metron.stellar.dsl.DefaultVariableResolver;
 import org.apache.metron.stellar.dsl.ErrorListener;
 import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.StellarBatchFunction;
 import org.apache.metron.stellar.dsl.StellarFunctions;
 import org.apache.metron.stellar.dsl.VariableResolver;
 import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
@@ -48,6 +48,9 @@ import org.apache.metron.stellar.common.evaluators.NumberLiteralEvaluator;
 import org.apache.metron.stellar.common.generated.StellarLexer;
 import org.apache.metron.stellar.common.generated.StellarParser;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 /**
@@ -58,52 +61,76 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
  * @see StellarPredicateProcessor
  */
 public class BaseStellarProcessor<T> {
-  public static final int DEFAULT_CACHE_SIZE = 500;
-  public static final int DEFAULT_EXPIRY_TIME = 10;
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final int DEFAULT_CACHE_SIZE = (int) ExpressionCache.DEFAULT_MAX_SIZE;
+  public static final int DEFAULT_EXPIRY_TIME = ExpressionCache.DEFAULT_MAX_TIME_RETAIN;
   public static final TimeUnit DEFAULT_EXPIRY_TIME_UNITS = TimeUnit.MINUTES;
 
-  /**
-   * The default expression cache.  This is used when the expression cache is not otherwise specified.
-   */
-  private static Cache<String, StellarCompiler.Expression> defaultExpressionCache;
-  static {
-    defaultExpressionCache = createCache(DEFAULT_CACHE_SIZE, DEFAULT_EXPIRY_TIME, DEFAULT_EXPIRY_TIME_UNITS);
-  }
   /**
    * The class containing the type that the Stellar expression being processed will evaluate to.
    */
   private Class<T> clazz;
 
   /**
-   * @param clazz The class containing the type that the Stellar expression being processed will evaluate to.
+   * The expression cache of this processor or null, if the shared expression cache is used.
    */
-  Cache<String, StellarCompiler.Expression> expressionCache;
+  private ExpressionCache expressionCache;
 
   /**
-   * Create a default stellar processor.  This processor uses the static expression cache.
+   * The backend used to evaluate compiled expressions.
+   */
+  private StellarBackend backend = StellarBackend.getDefault();
+
+  /**
+   * Create a default stellar processor.  This processor uses the shared expression cache, see
+   * {@link ExpressionCache#getShared()}.
    */
   BaseStellarProcessor(final Class<T> clazz) {
-    this(clazz, defaultExpressionCache);
+    this(clazz, null);
   }
 
   BaseStellarProcessor(final Class<T> clazz, int cacheSize, int expiryTime, TimeUnit expiryUnit) {
-    this(clazz, createCache(cacheSize, expiryTime, expiryUnit));
+    this(clazz, new ExpressionCache(cacheSize, expiryTime, expiryUnit));
   }
 
-  BaseStellarProcessor(final Class<T> clazz, Cache<String, StellarCompiler.Expression> expressionCache) {
+  BaseStellarProcessor(final Class<T> clazz, ExpressionCache expressionCache) {
     this.clazz = clazz;
     this.expressionCache = expressionCache;
   }
 
-  static Cache<String, StellarCompiler.Expression> createCache( int cacheSize
-                                                       , int expiryTime
-                                                       , TimeUnit expiryUnit
-                                                       ) {
-    CacheLoader<String, StellarCompiler.Expression> loader = key -> compile(key);
-    return Caffeine.newBuilder()
-                   .maximumSize(cacheSize)
-                   .expireAfterAccess(expiryTime, expiryUnit)
-                   .build(loader);
+  /**
+   * @return The backend used to evaluate compiled expressions.
+   */
+  public StellarBackend getBackend() {
+    return backend;
+  }
+
+  /**
+   * Sets the backend used to evaluate compiled expressions.  The expression cache is shared between
+   * processors, so processors using different backends may safely evaluate the same expressions.
+   *
+   * @param backend The backend to use.
+   */
+  public void setBackend(StellarBackend backend) {
+    this.backend = backend;
+  }
+
+  /**
+   * @return The cache of compiled expressions used by this processor.
+   */
+  public ExpressionCache getExpressionCache() {
+    return expressionCache == null ? ExpressionCache.getShared() : expressionCache;
+  }
+
+  /**
+   * Returns the compiled form of the given expression, from the expression cache if possible.
+   *
+   * @param rule The Stellar expression.
+   * @return The compiled expression.
+   */
+  protected StellarCompiler.Expression getExpression(final String rule) {
+    return getExpressionCache().get(rule);
   }
 
   /**
@@ -118,7 +145,7 @@ public class BaseStellarProcessor<T> {
     }
     StellarCompiler.Expression expression = null;
     try {
-      expression = expressionCache.get(rule, r -> compile(r));
+      expression = getExpression(rule);
     } catch (Throwable e) {
       throw new ParseException("Unable to parse: " + rule + " due to: " + e.getMessage(), e);
     }
@@ -142,23 +169,125 @@ public class BaseStellarProcessor<T> {
       context.setActivityType(ActivityType.PARSE_ACTIVITY);
     }
     try {
-      expression = expressionCache.get(rule, r -> compile(r));
+      expression = getExpression(rule);
     } catch (Throwable e) {
       throw createException(rule, variableResolver, e);
     }
+    // the expression state is pooled per thread, as is the operand stack used by the backend
+    EvaluationFrame frame = EvaluationFrame.acquire();
     try {
-      return clazz.cast(expression
-          .apply(new StellarCompiler.ExpressionState(context, functionResolver, variableResolver)));
+      return clazz.cast(backend.apply(expression
+          , frame.getState().reset(context, functionResolver, variableResolver)));
     }
     catch(Throwable e) {
       throw createException(rule, variableResolver, e);
     }
     finally {
+        frame.release();
         // always reset the activity type
         context.setActivityType(null);
     }
   }
 
+  /**
+   * Parses the given Stellar expression, {@code rule}, and evaluates it for each of a batch of messages.  The
+   * expression is compiled and the evaluation state is set up once for the batch, rather than once per message.
+   *
+   * <p>If the expression is a single call of a {@link StellarBatchFunction} whose arguments are variables and
+   * literals, the whole batch is evaluated with one call of the function.  If that call fails, the messages are
+   * evaluated one at a time, so that the failure is attributed to the message that caused it.
+   *
+   * @param rule The Stellar expression to parse and evaluate.
+   * @param variableResolvers A {@link VariableResolver} for each message.
+   * @param functionResolver The {@link FunctionResolver} to determine values of functions used in the Stellar expression, {@code rule}.
+   * @param context The context used during validation.
+   * @return The value of the evaluated Stellar expression for each message, in the order of the resolvers.
+   * @throws ParseException If the expression can not be evaluated for one of the messages.
+   */
+  public List<T> parseBatch(final String rule, final List<? extends VariableResolver> variableResolvers, final FunctionResolver functionResolver, final Context context) {
+    List<T> results = new ArrayList<>(variableResolvers.size());
+    if (rule == null || isEmpty(rule.trim())) {
+      for (int i = 0; i < variableResolvers.size(); ++i) {
+        results.add(null);
+      }
+      return results;
+    }
+    if (variableResolvers.isEmpty()) {
+      return results;
+    }
+    ActivityType activityType = context.getActivityType() == null ? ActivityType.PARSE_ACTIVITY : context.getActivityType();
+    StellarCompiler.Expression expression = null;
+    try {
+      expression = getExpression(rule);
+    } catch (Throwable e) {
+      throw createException(rule, variableResolvers.get(0), e);
+    }
+    try {
+      context.setActivityType(activityType);
+      if (applyBatchCall(expression, variableResolvers, functionResolver, context, results)) {
+        return results;
+      }
+      EvaluationFrame frame = EvaluationFrame.acquire();
+      try {
+        for (VariableResolver variableResolver : variableResolvers) {
+          // a function may itself evaluate an expression, which resets the activity type
+          context.setActivityType(activityType);
+          try {
+            results.add(clazz.cast(backend.apply(expression
+                , frame.getState().reset(context, functionResolver, variableResolver))));
+          } catch (Throwable e) {
+            throw createException(rule, variableResolver, e);
+          }
+        }
+      } finally {
+        frame.release();
+      }
+      return results;
+    } finally {
+      // always reset the activity type
+      context.setActivityType(null);
+    }
+  }
+
+  /**
+   * Evaluates a batch with a single call of a {@link StellarBatchFunction}, if the expression allows it.
+   *
+   * @return True if the results of the batch were added; false if the messages must be evaluated one at a time.
+   */
+  private boolean applyBatchCall(StellarCompiler.Expression expression
+                               , List<? extends VariableResolver> variableResolvers
+                               , FunctionResolver functionResolver
+                               , Context context
+                               , List<T> results
+                               ) {
+    StellarCompiler.BatchCall call = expression.getBatchCall();
+    if (call == null) {
+      return false;
+    }
+    try {
+      StellarBatchFunction function = call.resolve(context, functionResolver);
+      if (function == null) {
+        return false;
+      }
+      List<List<Object>> args = new ArrayList<>(variableResolvers.size());
+      for (VariableResolver variableResolver : variableResolvers) {
+        args.add(call.getArguments(context, variableResolver));
+      }
+      List<Object> values = function.applyBatch(args, context);
+      if (values == null || values.size() != args.size()) {
+        return false;
+      }
+      for (Object value : values) {
+        results.add(clazz.cast(value));
+      }
+      return true;
+    } catch (Throwable e) {
+      LOG.debug("Unable to evaluate the batch with a single call; evaluating each message", e);
+      results.clear();
+      return false;
+    }
+  }
+
   private ParseException createException(String rule, VariableResolver resolver, Throwable t) {
     String message = "Unable to parse: " + rule + " due to: " + t.getMessage();
     Set<String> variablesUsed = variablesUsed(rule);
@@ -179,6 +308,16 @@ public class BaseStellarProcessor<T> {
    * @return The Expression, which can be reevaluated without reparsing in different Contexts and Resolvers.
    */
   public static StellarCompiler.Expression compile(final String rule) {
+    return compile(rule, StellarCompiler.isOptimizedByDefault());
+  }
+
+  /**
+   * Parses the given Stellar expression, {@code rule}.
+   * @param rule The Stellar expression to parse.
+   * @param optimize Whether to fold constant sub-expressions and eliminate branches that can never be taken.
+   * @return The Expression, which can be reevaluated without reparsing in different Contexts and Resolvers.
+   */
+  public static StellarCompiler.Expression compile(final String rule, final boolean optimize) {
     if (rule == null || isEmpty(rule.trim())) {
       return null;
     }
@@ -191,9 +330,11 @@ public class BaseStellarProcessor<T> {
     StellarParser parser = new StellarParser(tokens);
 
     StellarCompiler treeBuilder = new StellarCompiler(
+        new StellarCompiler.Expression(new ArrayDeque<>()),
         ArithmeticEvaluator.INSTANCE,
         NumberLiteralEvaluator.INSTANCE,
-        ComparisonExpressionWithOperatorEvaluator.INSTANCE
+        ComparisonExpressionWithOperatorEvaluator.INSTANCE,
+        optimize
     );
     parser.addParseListener(treeBuilder);
     parser.removeErrorListeners();
@@ -19,20 +19,22 @@ package org.apache.metron.stellar.common;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.ParseException;
 import org.apache.metron.stellar.dsl.VariableResolver;
 import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -42,7 +44,6 @@ import java.util.concurrent.TimeUnit;
 public class CachingStellarProcessor extends StellarProcessor {
 
   private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-  private static ThreadLocal<Map<String, Set<String>> > variableCache = ThreadLocal.withInitial(() -> new HashMap<>());
 
   /**
    * A property that defines the maximum cache size.
@@ -59,24 +60,52 @@ public class CachingStellarProcessor extends StellarProcessor {
    */
   public static String RECORD_STATS = "stellar.cache.record.stats";
 
+  /**
+   * A property that defines the largest input that is cached.  The size of the input is the sum of the size of
+   * each variable used by the expression, where the size of a string is its length, the size of a collection or
+   * map is its number of elements and the size of any other value is 1.  Expressions over larger inputs are
+   * executed without the cache, as hashing and retaining the input would cost more than executing the expression.
+   */
+  public static String MAX_INPUT_SIZE_PARAM = "stellar.cache.maxInputSize";
+
   /**
    * The cache key is based on the expression and input values.
+   *
+   * <p>The input is held as the values of the variables used by the expression, ordered by variable name,
+   * and the hash code is computed once when the key is created.
    */
   public static class Key {
 
     /**
      * The expression to execute.
      */
-    private String expression;
+    private final String expression;
+
+    /**
+     * The names of the variables that serve as input to the expression, sorted.
+     */
+    private final String[] variables;
 
     /**
-     * The variables that serve as input to the expression.
+     * The value of each variable that serves as input to the expression.
      */
-    private Map<String, Object> input;
+    private final Object[] values;
+
+    private final int hashCode;
 
     public Key(String expression, Map<String, Object> input) {
+      this(expression, sortedNames(input), input);
+    }
+
+    private Key(String expression, String[] variables, Map<String, Object> input) {
+      this(expression, variables, valuesOf(variables, input));
+    }
+
+    Key(String expression, String[] variables, Object[] values) {
       this.expression = expression;
-      this.input = input;
+      this.variables = variables;
+      this.values = values;
+      this.hashCode = 31 * expression.hashCode() + Arrays.hashCode(values);
     }
 
     public String getExpression() {
@@ -84,6 +113,10 @@ public class CachingStellarProcessor extends StellarProcessor {
     }
 
     public Map<String, Object> getInput() {
+      Map<String, Object> input = new HashMap<>();
+      for(int i = 0; i < variables.length; ++i) {
+        input.put(variables[i], values[i]);
+      }
       return input;
     }
 
@@ -98,27 +131,38 @@ public class CachingStellarProcessor extends StellarProcessor {
       }
 
       Key key = (Key) o;
-      return new EqualsBuilder()
-              .append(expression, key.expression)
-              .append(input, key.input)
-              .isEquals();
+      return hashCode == key.hashCode
+              && expression.equals(key.expression)
+              && (variables == key.variables || Arrays.equals(variables, key.variables))
+              && Arrays.equals(values, key.values);
     }
 
     @Override
     public int hashCode() {
-      return new HashCodeBuilder(17, 37)
-              .append(expression)
-              .append(input)
-              .toHashCode();
+      return hashCode;
     }
 
     @Override
     public String toString() {
       return new ToStringBuilder(this)
               .append("expression", expression)
-              .append("input", input)
+              .append("input", getInput())
               .toString();
     }
+
+    private static String[] sortedNames(Map<String, Object> input) {
+      String[] names = input.keySet().toArray(new String[0]);
+      Arrays.sort(names);
+      return names;
+    }
+
+    private static Object[] valuesOf(String[] variables, Map<String, Object> input) {
+      Object[] values = new Object[variables.length];
+      for(int i = 0; i < variables.length; ++i) {
+        values[i] = input.get(variables[i]);
+      }
+      return values;
+    }
   }
 
   /**
@@ -143,9 +187,13 @@ public class CachingStellarProcessor extends StellarProcessor {
     Optional<Object> cacheOpt = context.getCapability(Context.Capabilities.CACHE, false);
     if(cacheOpt.isPresent()) {
 
-      // use the cache
+      // use the cache, unless the input is too large to be worth caching
       Cache<Key, Object> cache = (Cache<Key, Object>) cacheOpt.get();
-      Key k = toKey(expression, variableResolver);
+      Key k = toKey(expression, variableResolver, getMaxInputSize(context));
+      if(k == null) {
+        LOG.debug("Input too large to cache; expression={}", expression);
+        return parseUncached(expression, variableResolver, functionResolver, context);
+      }
       return cache.get(k, x -> parseUncached(x.expression, variableResolver, functionResolver, context));
 
     } else {
@@ -155,6 +203,35 @@ public class CachingStellarProcessor extends StellarProcessor {
     }
   }
 
+  /**
+   * Parses and evaluates the given Stellar expression, {@code expression}, for each of a batch of messages.
+   * When a cache is present, each result is taken from the cache if possible; otherwise the batch is
+   * evaluated as by the {@link StellarProcessor}.
+   *
+   * @param expression The Stellar expression to parse and evaluate.
+   * @param variableResolvers A {@link VariableResolver} for each message.
+   * @param functionResolver The {@link FunctionResolver} to determine values of functions used in
+   *     the Stellar expression, {@code expression}.
+   * @param context The context used during validation.
+   * @return The value of the evaluated Stellar expression for each message.
+   */
+  @Override
+  public List<Object> parseBatch(
+      String expression,
+      List<? extends VariableResolver> variableResolvers,
+      FunctionResolver functionResolver,
+      Context context) {
+
+    if(!context.getCapability(Context.Capabilities.CACHE, false).isPresent()) {
+      return super.parseBatch(expression, variableResolvers, functionResolver, context);
+    }
+    List<Object> results = new ArrayList<>(variableResolvers.size());
+    for(VariableResolver variableResolver : variableResolvers) {
+      results.add(parse(expression, variableResolver, functionResolver, context));
+    }
+    return results;
+  }
+
   protected Object parseUncached(String expression, VariableResolver variableResolver, FunctionResolver functionResolver, Context context) {
     LOG.debug("Executing Stellar; expression={}", expression);
     return super.parse(expression, variableResolver, functionResolver, context);
@@ -168,21 +245,75 @@ public class CachingStellarProcessor extends StellarProcessor {
    * @return A key with which to do a cache lookup.
    */
   protected Key toKey(String expression, VariableResolver resolver) {
+    return toKey(expression, resolver, Long.MAX_VALUE);
+  }
 
-    // fetch only the variables used in the expression
-    Set<String> variablesUsed = variableCache.get().computeIfAbsent(expression, this::variablesUsed);
+  /**
+   * Create a cache key using the expression and all variables used by that expression.
+   *
+   * @param expression The Stellar expression.
+   * @param resolver The variable resolver.
+   * @param maxInputSize The largest input to create a key for.
+   * @return A key with which to do a cache lookup or null, if the input is larger than {@code maxInputSize}.
+   */
+  protected Key toKey(String expression, VariableResolver resolver, long maxInputSize) {
+
+    // fetch only the variables used in the expression; these are known once the expression is compiled
+    String[] variables;
+    try {
+      variables = getExpression(expression).getVariableNames();
+    } catch (Throwable e) {
+      throw new ParseException("Unable to parse: " + expression + " due to: " + e.getMessage(), e);
+    }
 
     // resolve each of the variables used by the expression
-    Map<String, Object> input = new HashMap<>();
-    for(String v : variablesUsed) {
-      input.computeIfAbsent(v, resolver::resolve);
+    Object[] values = new Object[variables.length];
+    long inputSize = 0;
+    for(int i = 0; i < variables.length; ++i) {
+      values[i] = resolver.resolve(variables[i]);
+      inputSize += sizeOf(values[i]);
+      if(inputSize > maxInputSize) {
+        return null;
+      }
     }
 
-    Key cacheKey = new Key(expression, input);
+    Key cacheKey = new Key(expression, variables, values);
     LOG.debug("Created cache key; {}", cacheKey);
     return cacheKey;
   }
 
+  private static long sizeOf(Object value) {
+    if(value instanceof CharSequence) {
+      return ((CharSequence) value).length();
+    } else if(value instanceof Collection) {
+      return ((Collection<?>) value).size();
+    } else if(value instanceof Map) {
+      return ((Map<?, ?>) value).size();
+    }
+    return 1;
+  }
+
+  private static long getMaxInputSize(Context context) {
+    Optional<Object> maxInputSize = context.getCapability(Context.Capabilities.CACHE_MAX_INPUT_SIZE, false);
+    if(maxInputSize.isPresent()) {
+      Long size = ConversionUtils.convert(maxInputSize.get(), Long.class);
+      if(size != null && size >= 0) {
+        return size;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Returns the largest input to cache given a cache config.
+   *
+   * @param config The cache config.
+   * @return The largest input to cache, if one is configured.
+   */
+  public static Optional<Long> getMaxInputSize(Map<String, Object> config) {
+    return Optional.ofNullable(config == null ? null : getParam(config, MAX_INPUT_SIZE_PARAM, null, Long.class));
+  }
+
   /**
    * Create a cache given a config.  Note that if the cache size is {@literal <}= 0, then no cache will be returned.
    * @param config
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.google.common.collect.Iterables;
+import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.Token;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A Stellar expression that has been linked into a flat program.
+ *
+ * <p>The interpreter in {@link StellarCompiler.Expression#apply(StellarCompiler.ExpressionState)} walks the
+ * token deque and, for every token, compares the token class against each of the short circuit markers and scans
+ * forward to find the end of skipped IF/ELSE, MATCH and boolean branches.  All of that only depends on the shape
+ * of the expression, so here it is done once up front: each token is assigned an opcode and the targets of every
+ * forward scan are resolved into jump tables.  Evaluation is then a single switch per token.
+ *
+ * <p>The semantics are exactly those of the interpreter, including the implicit falsey handling of null values
+ * and empty collections in a conditional context.  Expressions containing constructs the linker does not know
+ * about are not linked at all (see {@link #link(StellarCompiler.Expression)}) and continue to be interpreted.
+ */
+public class CompiledExpression {
+
+  static final byte PUSH = 0;
+  static final byte CALL = 1;
+  static final byte FRAME = 2;
+  static final byte BOOLEAN_ARG = 3;
+  static final byte IF = 4;
+  static final byte ELSE = 5;
+  static final byte MATCH_CHECK = 6;
+  static final byte MATCH_CLAUSE_END = 7;
+  static final byte MARKER = 8;
+  static final byte UNSUPPORTED = 9;
+
+  private static final int NOT_FOUND = -1;
+
+  private final Token<?>[] tokens;
+  private final StellarCompiler.DeferredFunction[] functions;
+  private final byte[] ops;
+
+  /**
+   * Whether the token's value marks a conditional context; see {@code Expression#isBoolean}.
+   */
+  private final boolean[] conditionalValue;
+
+  /**
+   * Whether the token's type marks a conditional context; see {@code Expression#isEmptyList}.
+   */
+  private final boolean[] conditionalType;
+
+  /**
+   * The position following a branch that is skipped because of the value on top of the stack.
+   */
+  private final int[] jump;
+
+  /**
+   * The position at which evaluation lands when the remainder of a chosen IF or MATCH is skipped.
+   */
+  private final int[] skip;
+
+  private CompiledExpression(Token<?>[] tokens) {
+    int n = tokens.length;
+    this.tokens = tokens;
+    this.functions = new StellarCompiler.DeferredFunction[n];
+    this.ops = new byte[n];
+    this.conditionalValue = new boolean[n];
+    this.conditionalType = new boolean[n];
+    this.jump = new int[n];
+    this.skip = new int[n];
+  }
+
+  /**
+   * Links an expression.
+   *
+   * @param expression The expression to link.
+   * @return The linked expression or null if the expression contains constructs that can only be interpreted.
+   */
+  public static CompiledExpression link(StellarCompiler.Expression expression) {
+    if (expression == null || expression instanceof LambdaExpression) {
+      // lambdas are instantiated per evaluation, so linking them would cost more than it saves
+      return null;
+    }
+    Token<?>[] tokens = new Token<?>[expression.getTokenDeque().size()];
+    int pos = 0;
+    for (Iterator<Token<?>> it = expression.getTokenDeque().descendingIterator(); it.hasNext(); ) {
+      tokens[pos++] = it.next();
+    }
+
+    CompiledExpression compiled = new CompiledExpression(tokens);
+    for (int i = 0; i < tokens.length; ++i) {
+      Token<?> token = tokens[i];
+      Class<?> type = token.getUnderlyingType();
+      if (type == null) {
+        return null;
+      }
+      byte op = opcode(type);
+      if (op == UNSUPPORTED) {
+        return null;
+      }
+      compiled.ops[i] = op;
+      if (op == CALL) {
+        compiled.functions[i] = (StellarCompiler.DeferredFunction) token.getValue();
+      }
+      compiled.conditionalType[i] = isConditional(type);
+      compiled.conditionalValue[i] = token.getValue() != null && isConditional(token.getValue().getClass());
+    }
+    for (int i = 0; i < tokens.length; ++i) {
+      compiled.jump[i] = compiled.resolveJump(i);
+      compiled.skip[i] = compiled.resolveSkip(i);
+    }
+    return compiled;
+  }
+
+  private static byte opcode(Class<?> type) {
+    if (type == StellarCompiler.DeferredFunction.class) {
+      return CALL;
+    } else if (type == StellarCompiler.ShortCircuitFrame.class) {
+      return FRAME;
+    } else if (type == StellarCompiler.BooleanArg.class) {
+      return BOOLEAN_ARG;
+    } else if (type == StellarCompiler.IfExpr.class) {
+      return IF;
+    } else if (type == StellarCompiler.ElseExpr.class) {
+      return ELSE;
+    } else if (type == StellarCompiler.MatchClauseCheckExpr.class) {
+      return MATCH_CHECK;
+    } else if (type == StellarCompiler.MatchClauseEnd.class) {
+      return MATCH_CLAUSE_END;
+    } else if (type == StellarCompiler.ThenExpr.class
+            || type == StellarCompiler.EndConditional.class
+            || type == StellarCompiler.MatchClausesEnd.class) {
+      return MARKER;
+    } else if (StellarCompiler.ShortCircuitOp.class.isAssignableFrom(type)) {
+      // a short circuit op that the linker does not know how to branch on
+      return UNSUPPORTED;
+    }
+    return PUSH;
+  }
+
+  private static boolean isConditional(Class<?> type) {
+    return type == StellarCompiler.BooleanArg.class
+        || type == StellarCompiler.IfExpr.class
+        || type == StellarCompiler.MatchClauseCheckExpr.class;
+  }
+
+  /**
+   * Resolves the jump target for the token at a position.
+   *
+   * <ul>
+   *   <li>IF (taken when the condition is false): the token following the ELSE.</li>
+   *   <li>MATCH_CHECK (taken when the check is false): the token following the end of the clause.</li>
+   *   <li>BOOLEAN_ARG (taken when the boolean expression short circuits): the token following the frame.</li>
+   * </ul>
+   */
+  private int resolveJump(int i) {
+    switch (ops[i]) {
+      case IF:
+        return after(find(i, StellarCompiler.ElseExpr.class));
+      case MATCH_CHECK:
+        return after(find(i, StellarCompiler.MatchClauseEnd.class));
+      case BOOLEAN_ARG:
+        return after(findFrame(i, tokens[i].getMultiArgContext()));
+      default:
+        return NOT_FOUND;
+    }
+  }
+
+  /**
+   * Resolves the skip target for the token at a position.
+   *
+   * <ul>
+   *   <li>ELSE (once the THEN branch was chosen): the end of the conditional.</li>
+   *   <li>MATCH_CHECK or MATCH_CLAUSE_END (once a clause matched): the end of all clauses.</li>
+   * </ul>
+   */
+  private int resolveSkip(int i) {
+    switch (ops[i]) {
+      case ELSE:
+        return landOn(find(i, StellarCompiler.EndConditional.class));
+      case MATCH_CHECK:
+      case MATCH_CLAUSE_END:
+        return landOn(find(i, StellarCompiler.MatchClausesEnd.class));
+      default:
+        return NOT_FOUND;
+    }
+  }
+
+  private int find(int from, Class<?> type) {
+    for (int j = from + 1; j < tokens.length; ++j) {
+      if (tokens[j].getUnderlyingType() == type) {
+        return j;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  private int findFrame(int from, FrameContext.Context context) {
+    for (int j = from + 1; j < tokens.length; ++j) {
+      if (ops[j] == FRAME && tokens[j].getMultiArgContext() == context) {
+        return j;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * The interpreter lands on the last token when a scan that lands on its target runs off the end.
+   */
+  private int landOn(int found) {
+    return found == NOT_FOUND ? tokens.length - 1 : found;
+  }
+
+  /**
+   * The interpreter stops when a scan that consumes its target runs off the end.
+   */
+  private int after(int found) {
+    return found == NOT_FOUND ? tokens.length : found + 1;
+  }
+
+  /**
+   * Evaluates the linked expression.
+   *
+   * @param state The state of the expression; the resolvers and context.
+   * @return The result of the evaluation.
+   */
+  public Object apply(StellarCompiler.ExpressionState state) {
+    EvaluationFrame frame = EvaluationFrame.acquire();
+    try {
+      return apply(state, frame.getStack());
+    } finally {
+      frame.release();
+    }
+  }
+
+  private Object apply(StellarCompiler.ExpressionState state, Deque<Token<?>> stack) {
+    boolean skipElse = false;
+    boolean skipMatchClauses = false;
+    int pc = 0;
+    while (pc < tokens.length) {
+      int i = pc;
+      if (skipElse && ops[i] == ELSE) {
+        i = skip[i];
+        skipElse = false;
+      }
+      if (skipMatchClauses && (ops[i] == MATCH_CLAUSE_END || ops[i] == MATCH_CHECK)) {
+        i = skip[i];
+        skipMatchClauses = false;
+      }
+      pc = i + 1;
+
+      Token<?> curr = stack.peek();
+      if (curr != null && isFalsey(i, curr.getValue())) {
+        curr = Token.ofBoolean(false, curr.getMultiArgContext());
+        stack.removeFirst();
+        stack.addFirst(curr);
+      }
+
+      byte op = ops[i];
+      switch (op) {
+        case PUSH:
+          stack.push(tokens[i]);
+          break;
+        case CALL:
+          functions[i].apply(stack, state);
+          break;
+        case BOOLEAN_ARG:
+          if (curr != null && curr.getValue() instanceof Boolean && shortCircuits(i, (Boolean) curr.getValue())) {
+            FrameContext.Context context = curr.getMultiArgContext();
+            pc = context == tokens[i].getMultiArgContext() ? jump[i] : after(findFrame(i, context));
+          }
+          break;
+        case IF:
+          if (curr != null && curr.getValue() instanceof Boolean) {
+            stack.pop();
+            if ((Boolean) curr.getValue()) {
+              skipElse = true;
+            } else {
+              pc = jump[i];
+            }
+          }
+          break;
+        case MATCH_CHECK:
+          if (curr != null && curr.getValue() instanceof Boolean) {
+            stack.pop();
+            if ((Boolean) curr.getValue()) {
+              skipMatchClauses = true;
+            } else {
+              pc = jump[i];
+            }
+          }
+          break;
+        default:
+          // frames and markers only delimit branches
+          break;
+      }
+    }
+
+    if (stack.isEmpty()) {
+      throw new ParseException("Invalid predicate: Empty stack.");
+    }
+    Token<?> token = stack.pop();
+    if (stack.isEmpty()) {
+      return token.getValue();
+    }
+    throw new ParseException("Invalid parse, found " + token);
+  }
+
+  private boolean shortCircuits(int i, boolean value) {
+    FrameContext.Context context = tokens[i].getMultiArgContext();
+    if (context == null) {
+      return false;
+    }
+    return (context.getVariety() == FrameContext.BOOLEAN_OR && value)
+        || (context.getVariety() == FrameContext.BOOLEAN_AND && !value);
+  }
+
+  private boolean isFalsey(int i, Object value) {
+    if (value == null) {
+      return conditionalValue[i];
+    }
+    if (conditionalType[i]) {
+      if (value instanceof Iterable) {
+        return Iterables.isEmpty((Iterable) value);
+      } else if (value instanceof Map) {
+        return ((Map) value).isEmpty();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The number of tokens in the linked program.
+   */
+  public int size() {
+    return tokens.length;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import org.apache.metron.stellar.dsl.Token;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The mutable state needed to evaluate a single Stellar expression; the operand stack and the
+ * {@link StellarCompiler.ExpressionState}.
+ *
+ * <p>Frames are pooled per thread so that the steady state evaluation of a compiled expression does not
+ * allocate them.  Evaluation is reentrant (a Stellar function or a lambda may itself evaluate an expression),
+ * so each thread keeps a stack of frames; {@link #acquire()} hands out the frame at the current depth and
+ * {@link #release()} returns it.  A frame must be released by the thread that acquired it, in the reverse
+ * order of acquisition, which a try/finally around the evaluation guarantees.
+ */
+public class EvaluationFrame {
+
+  private static final ThreadLocal<Pool> POOL = ThreadLocal.withInitial(Pool::new);
+
+  private static class Pool {
+    private final List<EvaluationFrame> frames = new ArrayList<>();
+    private int depth = 0;
+
+    EvaluationFrame acquire() {
+      if (depth == frames.size()) {
+        frames.add(new EvaluationFrame(this));
+      }
+      return frames.get(depth++);
+    }
+
+    void release() {
+      depth--;
+    }
+  }
+
+  private final Pool pool;
+  private final Deque<Token<?>> stack = new ArrayDeque<>();
+  private final StellarCompiler.ExpressionState state = new StellarCompiler.ExpressionState(null, null, null);
+
+  private EvaluationFrame(Pool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @return A frame for the exclusive use of the calling thread until it is released.
+   */
+  public static EvaluationFrame acquire() {
+    return POOL.get().acquire();
+  }
+
+  /**
+   * Returns the frame to the pool of the current thread.  References held by the frame are cleared so that
+   * a pooled frame does not retain messages or resolvers.
+   */
+  public void release() {
+    stack.clear();
+    state.reset(null, null, null);
+    pool.release();
+  }
+
+  /**
+   * @return The operand stack, which is empty when the frame is acquired.
+   */
+  public Deque<Token<?>> getStack() {
+    return stack;
+  }
+
+  /**
+   * @return The expression state of this frame; it must be reset before use.
+   */
+  public StellarCompiler.ExpressionState getState() {
+    return state;
+  }
+}
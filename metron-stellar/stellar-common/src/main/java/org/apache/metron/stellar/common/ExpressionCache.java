@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of compiled Stellar expressions, keyed by the expression.
+ *
+ * <p>A single cache is shared by all processors that are not given a cache of their own.  The shared
+ * cache can be sized from the global config with {@link #configure(Map)}; the following properties
+ * are recognized.
+ * <ul>
+ *   <li>{@value #MAX_SIZE_PARAM} - The maximum number of expressions to retain.</li>
+ *   <li>{@value #MAX_TIME_RETAIN_PARAM} - The number of minutes that an expression is retained after it was last used.</li>
+ *   <li>{@value #MAX_TOKENS_PARAM} - If set, the cache is bounded by the total number of tokens of the expressions
+ *   that it retains, rather than by the number of expressions.</li>
+ * </ul>
+ *
+ * <p>The cache records hits, misses, evictions and the time spent compiling; see {@link #getStats()}.
+ */
+public class ExpressionCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * A property that defines the maximum number of expressions in the shared cache.
+   */
+  public static final String MAX_SIZE_PARAM = "stellar.expression.cache.maxSize";
+
+  /**
+   * A property that defines the max time in minutes that an expression is retained after it was last used.
+   */
+  public static final String MAX_TIME_RETAIN_PARAM = "stellar.expression.cache.maxTimeRetain";
+
+  /**
+   * A property that defines the maximum number of tokens in the shared cache.
+   */
+  public static final String MAX_TOKENS_PARAM = "stellar.expression.cache.maxTokens";
+
+  public static final long DEFAULT_MAX_SIZE = 500;
+  public static final int DEFAULT_MAX_TIME_RETAIN = 10;
+
+  private static volatile ExpressionCache shared = new ExpressionCache(DEFAULT_MAX_SIZE, DEFAULT_MAX_TIME_RETAIN, TimeUnit.MINUTES);
+
+  private final Cache<String, StellarCompiler.Expression> cache;
+  private final long maxSize;
+  private final long maxTokens;
+  private final long expiryTime;
+  private final TimeUnit expiryUnit;
+
+  /**
+   * Create a cache that is bounded by the number of expressions.
+   *
+   * @param maxSize The maximum number of expressions.
+   * @param expiryTime The time that an expression is retained after it was last used.
+   * @param expiryUnit The unit of the expiry time.
+   */
+  public ExpressionCache(long maxSize, long expiryTime, TimeUnit expiryUnit) {
+    this(maxSize, 0, expiryTime, expiryUnit);
+  }
+
+  /**
+   * @param maxSize The maximum number of expressions; ignored if the cache is bounded by tokens.
+   * @param maxTokens The maximum number of tokens or 0 to bound the cache by the number of expressions.
+   * @param expiryTime The time that an expression is retained after it was last used.
+   * @param expiryUnit The unit of the expiry time.
+   */
+  public ExpressionCache(long maxSize, long maxTokens, long expiryTime, TimeUnit expiryUnit) {
+    this.maxSize = maxSize;
+    this.maxTokens = maxTokens;
+    this.expiryTime = expiryTime;
+    this.expiryUnit = expiryUnit;
+
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .expireAfterAccess(expiryTime, expiryUnit)
+            .recordStats();
+    if(maxTokens > 0) {
+      this.cache = builder
+              .maximumWeight(maxTokens)
+              .weigher((String rule, StellarCompiler.Expression expression) -> weigh(expression))
+              .build();
+    } else {
+      this.cache = builder
+              .maximumSize(maxSize)
+              .build();
+    }
+  }
+
+  /**
+   * Returns the compiled expression, compiling it if it is not already cached.
+   *
+   * @param rule The Stellar expression.
+   * @return The compiled expression.
+   */
+  public StellarCompiler.Expression get(String rule) {
+    return cache.get(rule, BaseStellarProcessor::compile);
+  }
+
+  /**
+   * @return The number of expressions cached.
+   */
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  /**
+   * The statistics of this cache.  The load statistics describe the compilation of expressions; a failed
+   * load is an expression that could not be compiled.
+   *
+   * @return The statistics since this cache was created.
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Performs any pending maintenance, such as evictions.
+   */
+  public void cleanUp() {
+    cache.cleanUp();
+  }
+
+  /**
+   * @return The cache shared by processors that were not given a cache of their own.
+   */
+  public static ExpressionCache getShared() {
+    return shared;
+  }
+
+  /**
+   * Sizes the shared cache from the given configuration.  The shared cache is only replaced if its
+   * settings have changed, in which case the expressions cached so far are dropped.
+   *
+   * @param config The global config.
+   */
+  public static synchronized void configure(Map<String, Object> config) {
+    if(config == null) {
+      return;
+    }
+
+    long maxSize = getParam(config, MAX_SIZE_PARAM, DEFAULT_MAX_SIZE, Long.class);
+    long maxTokens = getParam(config, MAX_TOKENS_PARAM, 0L, Long.class);
+    int maxTimeRetain = getParam(config, MAX_TIME_RETAIN_PARAM, DEFAULT_MAX_TIME_RETAIN, Integer.class);
+    if(maxSize <= 0 || maxTimeRetain <= 0) {
+      LOG.error("Ignoring invalid expression cache configuration; {} = {}, {} = {}"
+              , MAX_SIZE_PARAM, maxSize, MAX_TIME_RETAIN_PARAM, maxTimeRetain);
+      return;
+    }
+
+    ExpressionCache current = shared;
+    if(current.maxSize != maxSize
+            || current.maxTokens != Math.max(maxTokens, 0)
+            || current.expiryUnit.toMinutes(current.expiryTime) != maxTimeRetain) {
+      LOG.info("Resizing the expression cache; {} = {}, {} = {}, {} = {}"
+              , MAX_SIZE_PARAM, maxSize, MAX_TOKENS_PARAM, maxTokens, MAX_TIME_RETAIN_PARAM, maxTimeRetain);
+      shared = new ExpressionCache(maxSize, Math.max(maxTokens, 0), maxTimeRetain, TimeUnit.MINUTES);
+    }
+  }
+
+  private static int weigh(StellarCompiler.Expression expression) {
+    return Math.max(1, expression.getTokenDeque().size());
+  }
+
+  private static <T> T getParam(Map<String, Object> config, String key, T defaultVal, Class<T> clazz) {
+    Object o = config.get(key);
+    if(o == null) {
+      return defaultVal;
+    }
+    T ret = ConversionUtils.convert(o, clazz);
+    return ret == null?defaultVal:ret;
+  }
+}
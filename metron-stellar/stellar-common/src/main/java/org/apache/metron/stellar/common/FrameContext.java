@@ -17,20 +17,35 @@
  */
 package org.apache.metron.stellar.common;
 
+import org.apache.metron.stellar.dsl.Token;
+
 public enum FrameContext {
   BOOLEAN_AND,
   BOOLEAN_OR;
 
   public static class Context {
     private FrameContext variety;
+    private final Token<Boolean> trueToken;
+    private final Token<Boolean> falseToken;
+
     public Context(FrameContext variety) {
       this.variety = variety;
+      this.trueToken = new Token<>(true, Boolean.class, this);
+      this.falseToken = new Token<>(false, Boolean.class, this);
     }
 
     public FrameContext getVariety() {
       return variety;
     }
 
+    /**
+     * @param value The boolean value.
+     * @return A shared token holding the value within this context.
+     */
+    public Token<Boolean> getBooleanToken(boolean value) {
+      return value ? trueToken : falseToken;
+    }
+
     @Override
     public String toString() {
       return "Context{" +
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+/**
+ * The strategies available to evaluate a compiled Stellar expression.
+ *
+ * <p>The backend may be chosen per processor with {@link BaseStellarProcessor#setBackend(StellarBackend)}.  The
+ * default for all processors in a JVM is read from the {@value #BACKEND_PROPERTY} system property.
+ */
+public enum StellarBackend {
+
+  /**
+   * Walks the token deque of the expression on every evaluation.
+   */
+  INTERPRETER {
+    @Override
+    public Object apply(StellarCompiler.Expression expression, StellarCompiler.ExpressionState state) {
+      return expression.apply(state);
+    }
+  },
+
+  /**
+   * Evaluates the linked form of the expression; see {@link CompiledExpression}.  Expressions that can not
+   * be linked are interpreted.
+   */
+  COMPILED {
+    @Override
+    public Object apply(StellarCompiler.Expression expression, StellarCompiler.ExpressionState state) {
+      CompiledExpression compiled = expression.getCompiled();
+      return compiled == null ? expression.apply(state) : compiled.apply(state);
+    }
+  };
+
+  /**
+   * The system property defining the default backend.
+   */
+  public static final String BACKEND_PROPERTY = "stellar.backend";
+
+  /**
+   * @return The default backend as defined by the {@value #BACKEND_PROPERTY} system property.
+   */
+  public static StellarBackend getDefault() {
+    String backend = System.getProperty(BACKEND_PROPERTY);
+    return backend == null ? INTERPRETER : StellarBackend.valueOf(backend.trim().toUpperCase());
+  }
+
+  /**
+   * Evaluates an expression.
+   *
+   * @param expression The expression to evaluate.
+   * @param state The state of the expression; the resolvers and context.
+   * @return The result of the evaluation.
+   */
+  public abstract Object apply(StellarCompiler.Expression expression, StellarCompiler.ExpressionState state);
+}
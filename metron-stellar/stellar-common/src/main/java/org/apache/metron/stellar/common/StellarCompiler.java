@@ -21,17 +21,23 @@ import com.google.common.base.Joiner;
 import java.io.Serializable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -44,6 +50,8 @@ import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.FunctionMarker;
 import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.Stellar;
+import org.apache.metron.stellar.dsl.StellarBatchFunction;
 import org.apache.metron.stellar.dsl.StellarFunction;
 import org.apache.metron.stellar.dsl.Token;
 import org.apache.metron.stellar.dsl.VariableResolver;
@@ -56,11 +64,69 @@ public class StellarCompiler extends StellarBaseListener {
   private static Token<?> EXPRESSION_REFERENCE = new Token<>(null, Object.class);
   private static Token<?> LAMBDA_VARIABLES = new Token<>(null, Object.class);
 
+  /**
+   * The system property that disables constant folding and dead branch elimination; see {@link #isOptimizedByDefault()}.
+   */
+  public static final String OPTIMIZE_PROPERTY = "stellar.optimize";
+
+  private static final Set<Class<?>> CONSTANT_TYPES = ImmutableSet.of(
+          String.class, Boolean.class, Integer.class, Long.class, Float.class, Double.class);
+
+  private static final Set<Class<?>> IMMUTABLE_TYPES = ImmutableSet.of(
+          String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+          Float.class, Double.class);
+
   private Expression expression;
   private final ArithmeticEvaluator arithmeticEvaluator;
   private final NumberLiteralEvaluator numberLiteralEvaluator;
   private final ComparisonExpressionWithOperatorEvaluator comparisonExpressionWithOperatorEvaluator;
 
+  /**
+   * Whether to fold constant sub-expressions and to eliminate branches that can never be taken.
+   */
+  private final boolean optimize;
+
+  /*
+   * The positions of the tokens that the optimizer needs to find again once the enclosing rule exits.  A
+   * position is counted from the bottom of the token deque, which does not change as tokens are pushed.
+   */
+  private final Deque<Integer> logicalStarts = new ArrayDeque<>();
+  private final Deque<Integer> ifPositions = new ArrayDeque<>();
+  private final Deque<Integer> elsePositions = new ArrayDeque<>();
+  private final Deque<Integer> functionArgStarts = new ArrayDeque<>();
+  private final Deque<MatchPositions> matchPositions = new ArrayDeque<>();
+
+  /**
+   * The positions of a match expression and of each of its clauses.
+   */
+  private static class MatchPositions {
+    private final int start;
+    private final List<ClausePositions> clauses = new ArrayList<>();
+
+    MatchPositions(int start) {
+      this.start = start;
+    }
+
+    ClausePositions currentClause() {
+      return clauses.get(clauses.size() - 1);
+    }
+  }
+
+  /**
+   * The positions of a match clause; its first token, its check and its end.  A clause is guarded when
+   * its check is a single lexer token, which is followed by a function that protects against a null check.
+   */
+  private static class ClausePositions {
+    private final int start;
+    private int check;
+    private int end;
+    private boolean guarded;
+
+    ClausePositions(int start) {
+      this.start = start;
+    }
+  }
+
   public interface ShortCircuitOp {}
 
   public static class ShortCircuitFrame {}
@@ -81,9 +147,24 @@ public class StellarCompiler extends StellarBaseListener {
               , FunctionResolver functionResolver
               , VariableResolver variableResolver
                           ) {
+      reset(context, functionResolver, variableResolver);
+    }
+
+    /**
+     * Points this state at a new context and resolvers so that it can be reused; see {@link EvaluationFrame}.
+     */
+    ExpressionState reset(Context context, FunctionResolver functionResolver, VariableResolver variableResolver) {
       this.context = context;
       this.variableResolver = variableResolver;
       this.functionResolver = functionResolver;
+      return this;
+    }
+
+    /**
+     * @return A copy of this state that is safe to retain after the evaluation using this state completes.
+     */
+    ExpressionState copy() {
+      return new ExpressionState(context, functionResolver, variableResolver);
     }
   }
 
@@ -91,22 +172,138 @@ public class StellarCompiler extends StellarBaseListener {
     final Deque<Token<?>> tokenDeque;
     final Deque<FrameContext.Context> multiArgumentState;
     final Set<String> variablesUsed;
+
+    /**
+     * The linked form of this expression; built the first time the expression is evaluated by the
+     * {@link StellarBackend#COMPILED} backend.
+     */
+    private transient volatile CompiledExpression compiled;
+    private transient volatile boolean linked;
+
+    /**
+     * The variables used by this expression, in a stable order; see {@link #getVariableNames()}.
+     */
+    private transient volatile String[] variableNames;
+
+    /**
+     * A readable name for each deferred function of this expression; see {@link #describe()}.
+     */
+    private transient Map<DeferredFunction, String> descriptions;
+
+    /**
+     * The call that may make up this expression; see {@link #getBatchCall()}.
+     */
+    private transient BatchCall batchCall;
+
     public Expression(Deque<Token<?>> tokenDeque) {
       this.tokenDeque = tokenDeque;
       this.variablesUsed = new HashSet<>();
       this.multiArgumentState = new ArrayDeque<>();
+      this.descriptions = new IdentityHashMap<>();
     }
 
     public void clear() {
       tokenDeque.clear();
       variablesUsed.clear();
       multiArgumentState.clear();
+      descriptions.clear();
+      compiled = null;
+      linked = false;
+      variableNames = null;
+      batchCall = null;
     }
 
     public Deque<Token<?>> getTokenDeque() {
       return tokenDeque;
     }
 
+    /**
+     * Returns the variables used by this expression, sorted by name.  The same array is returned on
+     * every call, so it must not be modified.
+     *
+     * @return The names of the variables used by this expression.
+     */
+    String[] getVariableNames() {
+      String[] names = variableNames;
+      if (names == null) {
+        names = variablesUsed.toArray(new String[0]);
+        Arrays.sort(names);
+        variableNames = names;
+      }
+      return names;
+    }
+
+    /**
+     * @return The function call that makes up this expression, if the expression is a single call of a function
+     * whose arguments are variables and literals, otherwise null.
+     */
+    BatchCall getBatchCall() {
+      BatchCall call = batchCall;
+      return call != null && call.isWholeExpression(tokenDeque) ? call : null;
+    }
+
+    /**
+     * Describes the tokens of this expression in the order in which they are evaluated.  Constants are shown
+     * as values, strings are quoted, and operators, variables and function calls are shown by name.  This
+     * makes it possible to see what the compiler folded away.
+     *
+     * @return The token stream of this expression.
+     */
+    public String describe() {
+      List<String> tokens = new ArrayList<>();
+      for (Iterator<Token<?>> it = getTokenDeque().descendingIterator(); it.hasNext(); ) {
+        tokens.add(describe(it.next()));
+      }
+      return Joiner.on(' ').join(tokens);
+    }
+
+    private String describe(Token<?> token) {
+      Class<?> type = token.getUnderlyingType();
+      Object value = token.getValue();
+      if (type == DeferredFunction.class) {
+        String description = descriptions == null ? null : descriptions.get(value);
+        return description == null ? "FUNCTION" : description;
+      } else if (type == FunctionMarker.class) {
+        return "(";
+      } else if (type == ShortCircuitFrame.class) {
+        return "FRAME";
+      } else if (type == BooleanArg.class) {
+        return "ARG";
+      } else if (type == IfExpr.class) {
+        return "IF";
+      } else if (type == ThenExpr.class) {
+        return "THEN";
+      } else if (type == ElseExpr.class) {
+        return "ELSE";
+      } else if (type == EndConditional.class) {
+        return "END_IF";
+      } else if (type == MatchClauseCheckExpr.class) {
+        return "CHECK";
+      } else if (type == MatchClauseEnd.class) {
+        return "END_CLAUSE";
+      } else if (type == MatchClausesEnd.class) {
+        return "END_MATCH";
+      }
+      return describeConstant(value);
+    }
+
+    void describe(DeferredFunction function, String description) {
+      descriptions.put(function, description);
+    }
+
+    /**
+     * Returns the linked form of this expression, linking it on first use.
+     *
+     * @return The linked expression or null if this expression can only be interpreted.
+     */
+    public CompiledExpression getCompiled() {
+      if (!linked) {
+        compiled = CompiledExpression.link(this);
+        linked = true;
+      }
+      return compiled;
+    }
+
     /**
      * When treating empty or missing values as false, we need to ensure we ONLY do so in a conditional context.
      * @param tokenValueType
@@ -154,7 +351,15 @@ public class StellarCompiler extends StellarBaseListener {
     }
 
     public Object apply(ExpressionState state) {
-      Deque<Token<?>> instanceDeque = new ArrayDeque<>();
+      EvaluationFrame frame = EvaluationFrame.acquire();
+      try {
+        return apply(state, frame.getStack());
+      } finally {
+        frame.release();
+      }
+    }
+
+    private Object apply(ExpressionState state, Deque<Token<?>> instanceDeque) {
       {
         boolean skipElse = false;
         boolean skipMatchClauses = false;
@@ -193,7 +398,7 @@ public class StellarCompiler extends StellarBaseListener {
             //* null or missing variable
             //* empty list
             // then we want to treat it as explicitly false by replacing the current token.
-            curr = new Token<>(false, Boolean.class, curr.getMultiArgContext());
+            curr = Token.ofBoolean(false, curr.getMultiArgContext());
             instanceDeque.removeFirst();
             instanceDeque.addFirst(curr);
           }
@@ -303,16 +508,44 @@ public class StellarCompiler extends StellarBaseListener {
           final ArithmeticEvaluator arithmeticEvaluator,
           final NumberLiteralEvaluator numberLiteralEvaluator,
           final ComparisonExpressionWithOperatorEvaluator comparisonExpressionWithOperatorEvaluator
+  ){
+    this(expression, arithmeticEvaluator, numberLiteralEvaluator, comparisonExpressionWithOperatorEvaluator, false);
+  }
+
+  /**
+   * @param optimize Whether to fold constant sub-expressions and to eliminate branches that can never be taken.
+   */
+  public StellarCompiler(
+          final Expression expression,
+          final ArithmeticEvaluator arithmeticEvaluator,
+          final NumberLiteralEvaluator numberLiteralEvaluator,
+          final ComparisonExpressionWithOperatorEvaluator comparisonExpressionWithOperatorEvaluator,
+          final boolean optimize
   ){
     this.expression = expression;
     this.arithmeticEvaluator = arithmeticEvaluator;
     this.numberLiteralEvaluator = numberLiteralEvaluator;
     this.comparisonExpressionWithOperatorEvaluator = comparisonExpressionWithOperatorEvaluator;
+    this.optimize = optimize;
+  }
+
+  /**
+   * Expressions are optimized unless the system property {@value #OPTIMIZE_PROPERTY} is false.
+   *
+   * @return Whether expressions are optimized when they are compiled.
+   */
+  public static boolean isOptimizedByDefault() {
+    return !"false".equalsIgnoreCase(System.getProperty(OPTIMIZE_PROPERTY));
   }
 
   @Override
   public void enterTransformation(StellarParser.TransformationContext ctx) {
     expression.clear();
+    logicalStarts.clear();
+    ifPositions.clear();
+    elsePositions.clear();
+    functionArgStarts.clear();
+    matchPositions.clear();
   }
 
   private boolean handleIn(final Token<?> left, final Token<?> right) {
@@ -355,48 +588,70 @@ public class StellarCompiler extends StellarBaseListener {
   @Override
   public void exitArithExpr_plus(StellarParser.ArithExpr_plusContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>((tokenDeque, state) -> {
+    final BiFunction<Number, Number, Token<? extends Number>> op = ArithmeticEvaluator.ArithmeticEvaluatorFunctions.addition(context);
+    if (foldConstants(2, args -> arithmeticEvaluator.evaluate(op, getArithExpressionPair(args.get(0), args.get(1))))) {
+      return;
+    }
+    pushFunction("+", (tokenDeque, state) -> {
       Pair<Token<? extends Number>, Token<? extends Number>> p = getArithExpressionPair(tokenDeque);
-      tokenDeque.push(arithmeticEvaluator.evaluate(ArithmeticEvaluator.ArithmeticEvaluatorFunctions.addition(context), p));
-    }, DeferredFunction.class, context));
+      tokenDeque.push(arithmeticEvaluator.evaluate(op, p));
+    }, context);
   }
 
   @Override
   public void exitArithExpr_minus(StellarParser.ArithExpr_minusContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-    Pair<Token<? extends Number>, Token<? extends Number>> p = getArithExpressionPair(tokenDeque);
-    tokenDeque.push(arithmeticEvaluator.evaluate(ArithmeticEvaluator.ArithmeticEvaluatorFunctions.subtraction(context), p));
-    }, DeferredFunction.class, context));
+    final BiFunction<Number, Number, Token<? extends Number>> op = ArithmeticEvaluator.ArithmeticEvaluatorFunctions.subtraction(context);
+    if (foldConstants(2, args -> arithmeticEvaluator.evaluate(op, getArithExpressionPair(args.get(0), args.get(1))))) {
+      return;
+    }
+    pushFunction("-", (tokenDeque, state) -> {
+      Pair<Token<? extends Number>, Token<? extends Number>> p = getArithExpressionPair(tokenDeque);
+      tokenDeque.push(arithmeticEvaluator.evaluate(op, p));
+    }, context);
   }
 
   @Override
   public void exitArithExpr_div(StellarParser.ArithExpr_divContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-    Pair<Token<? extends Number>, Token<? extends Number>> p = getArithExpressionPair(tokenDeque);
-    tokenDeque.push(arithmeticEvaluator.evaluate(ArithmeticEvaluator.ArithmeticEvaluatorFunctions.division(context), p));
-    }, DeferredFunction.class, context));
+    final BiFunction<Number, Number, Token<? extends Number>> op = ArithmeticEvaluator.ArithmeticEvaluatorFunctions.division(context);
+    if (foldConstants(2, args -> arithmeticEvaluator.evaluate(op, getArithExpressionPair(args.get(0), args.get(1))))) {
+      return;
+    }
+    pushFunction("/", (tokenDeque, state) -> {
+      Pair<Token<? extends Number>, Token<? extends Number>> p = getArithExpressionPair(tokenDeque);
+      tokenDeque.push(arithmeticEvaluator.evaluate(op, p));
+    }, context);
   }
 
   @Override
   public void exitArithExpr_mul(StellarParser.ArithExpr_mulContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-    Pair<Token<? extends Number>, Token<? extends Number>> p = getArithExpressionPair(tokenDeque);
-    tokenDeque.push(arithmeticEvaluator.evaluate(ArithmeticEvaluator.ArithmeticEvaluatorFunctions.multiplication(context), p));
-    }, DeferredFunction.class, context));
+    final BiFunction<Number, Number, Token<? extends Number>> op = ArithmeticEvaluator.ArithmeticEvaluatorFunctions.multiplication(context);
+    if (foldConstants(2, args -> arithmeticEvaluator.evaluate(op, getArithExpressionPair(args.get(0), args.get(1))))) {
+      return;
+    }
+    pushFunction("*", (tokenDeque, state) -> {
+      Pair<Token<? extends Number>, Token<? extends Number>> p = getArithExpressionPair(tokenDeque);
+      tokenDeque.push(arithmeticEvaluator.evaluate(op, p));
+    }, context);
   }
 
   @SuppressWarnings("unchecked")
   private Pair<Token<? extends Number>, Token<? extends Number>> getArithExpressionPair(Deque<Token<?>> tokenDeque) {
-    Token<? extends Number> right = (Token<? extends Number>) popDeque(tokenDeque);
-    Token<? extends Number> left = (Token<? extends Number>) popDeque(tokenDeque);
-    return Pair.of(left, right);
+    Token<?> right = popDeque(tokenDeque);
+    Token<?> left = popDeque(tokenDeque);
+    return getArithExpressionPair(left, right);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Pair<Token<? extends Number>, Token<? extends Number>> getArithExpressionPair(Token<?> left, Token<?> right) {
+    return Pair.of((Token<? extends Number>) left, (Token<? extends Number>) right);
   }
 
   @Override
   public void exitIf_expr(StellarParser.If_exprContext ctx) {
+    ifPositions.push(expression.tokenDeque.size());
     expression.tokenDeque.push(new Token<>(new IfExpr(), IfExpr.class, getArgContext()));
   }
 
@@ -407,6 +662,7 @@ public class StellarCompiler extends StellarBaseListener {
 
   @Override
   public void enterElse_expr(StellarParser.Else_exprContext ctx) {
+    elsePositions.push(expression.tokenDeque.size());
     expression.tokenDeque.push(new Token<>(new ElseExpr(), ElseExpr.class, getArgContext()));
   }
 
@@ -415,51 +671,117 @@ public class StellarCompiler extends StellarBaseListener {
     expression.tokenDeque.push(new Token<>(new EndConditional(), EndConditional.class, getArgContext()));
   }
 
+  @Override
+  public void exitTernaryFuncWithoutIf(StellarParser.TernaryFuncWithoutIfContext ctx) {
+    exitConditional();
+  }
+
+  @Override
+  public void exitTernaryFuncWithIf(StellarParser.TernaryFuncWithIfContext ctx) {
+    exitConditional();
+  }
+
+  /**
+   * Eliminates the branch of a conditional that can never be taken because the condition is a constant.
+   */
+  private void exitConditional() {
+    final int ifPosition = ifPositions.pop();
+    final int elsePosition = elsePositions.pop();
+    if (!optimize || ifPosition == 0) {
+      return;
+    }
+    // the condition is a single token when it is a constant
+    final int start = ifPosition - 1;
+    List<Token<?>> tokens = peekFrom(start);
+    Token<?> condition = tokens.get(0);
+    int elseIndex = elsePosition - start;
+    if (!isConstant(condition)
+        || !(condition.getValue() == null || condition.getValue() instanceof Boolean)
+        || tokens.get(1).getUnderlyingType() != IfExpr.class
+        || tokens.get(2).getUnderlyingType() != ThenExpr.class
+        || tokens.get(elseIndex).getUnderlyingType() != ElseExpr.class
+        || tokens.get(tokens.size() - 1).getUnderlyingType() != EndConditional.class) {
+      return;
+    }
+    // a missing condition is false, as it is when the expression is evaluated
+    List<Token<?>> branch = Boolean.TRUE.equals(condition.getValue())
+            ? tokens.subList(3, elseIndex)
+            : tokens.subList(elseIndex + 1, tokens.size() - 1);
+    replaceFrom(start, branch);
+  }
+
   @Override
   public void exitInExpressionStatement(StellarParser.InExpressionStatementContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+    if (foldConstants(2, args -> Token.ofBoolean(handleIn(args.get(1), args.get(0)), context))) {
+      return;
+    }
+    pushFunction("in", (tokenDeque, state) -> {
     Token<?> left = popDeque(tokenDeque);
     Token<?> right = popDeque(tokenDeque);
-    tokenDeque.push(new Token<>(handleIn(left, right), Boolean.class, context));
-    }, DeferredFunction.class, context));
+    tokenDeque.push(Token.ofBoolean(handleIn(left, right), context));
+    }, context);
   }
 
 
   @Override
   public void exitNInExpressionStatement(StellarParser.NInExpressionStatementContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+    if (foldConstants(2, args -> Token.ofBoolean(!handleIn(args.get(1), args.get(0)), context))) {
+      return;
+    }
+    pushFunction("not in", (tokenDeque, state) -> {
     Token<?> left = popDeque(tokenDeque);
     Token<?> right = popDeque(tokenDeque);
-    tokenDeque.push(new Token<>(!handleIn(left, right), Boolean.class, context));
-    }, DeferredFunction.class, context));
+    tokenDeque.push(Token.ofBoolean(!handleIn(left, right), context));
+    }, context);
   }
 
   @Override
   public void exitNotFunc(StellarParser.NotFuncContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-    Token<Boolean> arg = (Token<Boolean>) popDeque(tokenDeque);
-    Boolean v = Optional.ofNullable(ConversionUtils.convert(arg.getValue(), Boolean.class)).orElse(false);
-    tokenDeque.push(new Token<>(!v, Boolean.class, context));
-    }, DeferredFunction.class, context));
+    if (foldConstants(1, args -> Token.ofBoolean(!toBoolean(args.get(0)), context))) {
+      return;
+    }
+    pushFunction("NOT", (tokenDeque, state) -> {
+    Token<?> arg = popDeque(tokenDeque);
+    tokenDeque.push(Token.ofBoolean(!toBoolean(arg), context));
+    }, context);
   }
 
 
   @Override
   public void exitVariable(StellarParser.VariableContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-      String varName = ctx.getText();
-      if(state.context.getActivityType().equals(ActivityType.PARSE_ACTIVITY) && !state.variableResolver.exists(varName)) {
+    final String varName = ctx.getText();
+    pushFunction(varName, new VariableReference(varName, context), context);
+    expression.variablesUsed.add(varName);
+  }
+
+  /**
+   * Pushes the value of a variable.
+   */
+  static class VariableReference implements DeferredFunction {
+    private final String name;
+    private final FrameContext.Context context;
+
+    VariableReference(String name, FrameContext.Context context) {
+      this.name = name;
+      this.context = context;
+    }
+
+    @Override
+    public void apply(Deque<Token<?>> tokenDeque, ExpressionState state) {
+      tokenDeque.push(new Token<>(resolve(state.context, state.variableResolver), Object.class, context));
+    }
+
+    Object resolve(Context context, VariableResolver variableResolver) {
+      if(context.getActivityType().equals(ActivityType.PARSE_ACTIVITY) && !variableResolver.exists(name)) {
         // when parsing, missing variables are an error!
-        throw new ParseException(String.format("variable: %s is not defined",varName));
+        throw new ParseException(String.format("variable: %s is not defined",name));
       }
-      Object resolved = state.variableResolver.resolve(varName);
-      tokenDeque.push(new Token<>(resolved, Object.class, context));
-    }, DeferredFunction.class, context));
-    expression.variablesUsed.add(ctx.getText());
+      return variableResolver.resolve(name);
+    }
   }
 
   @Override
@@ -495,9 +817,11 @@ public class StellarCompiler extends StellarBaseListener {
     //emulate it like this.  See  https://github.com/antlr/antlr4/issues/802
     if(ctx.getParent() instanceof StellarParser.LogicalExpressionOrContext) {
       expression.multiArgumentState.push(FrameContext.BOOLEAN_OR.create());
+      logicalStarts.push(expression.tokenDeque.size());
     }
     else if(ctx.getParent() instanceof StellarParser.LogicalExpressionAndContext) {
       expression.multiArgumentState.push(FrameContext.BOOLEAN_AND.create());
+      logicalStarts.push(expression.tokenDeque.size());
     }
   }
 
@@ -517,11 +841,14 @@ public class StellarCompiler extends StellarBaseListener {
     final FrameContext.Context context = getArgContext();
     popArgContext();
     final FrameContext.Context parentContext = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+    if (foldLogical(logicalStarts.pop(), (l, r) -> l && r, false, parentContext)) {
+      return;
+    }
+    pushFunction("&&", (tokenDeque, state) -> {
     Token<?> left = popDeque(tokenDeque);
     Token<?> right = popDeque(tokenDeque);
-    tokenDeque.push(new Token<>(booleanOp(left, right, (l, r) -> l && r, "&&"), Boolean.class, parentContext));
-    }, DeferredFunction.class, context));
+    tokenDeque.push(Token.ofBoolean(booleanOp(left, right, (l, r) -> l && r, "&&"), parentContext));
+    }, context);
     expression.tokenDeque.push(new Token<>(new ShortCircuitFrame(), ShortCircuitFrame.class, context));
   }
 
@@ -530,12 +857,15 @@ public class StellarCompiler extends StellarBaseListener {
     final FrameContext.Context context = getArgContext();
     popArgContext();
     final FrameContext.Context parentContext = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+    if (foldLogical(logicalStarts.pop(), (l, r) -> l || r, true, parentContext)) {
+      return;
+    }
+    pushFunction("||", (tokenDeque, state) -> {
     Token<?> left = popDeque(tokenDeque);
     Token<?> right = popDeque(tokenDeque);
 
-    tokenDeque.push(new Token<>(booleanOp(left, right, (l, r) -> l || r, "||"), Boolean.class, parentContext));
-    }, DeferredFunction.class, context));
+    tokenDeque.push(Token.ofBoolean(booleanOp(left, right, (l, r) -> l || r, "||"), parentContext));
+    }, context);
     expression.tokenDeque.push(new Token<>(new ShortCircuitFrame(), ShortCircuitFrame.class, context));
   }
 
@@ -556,9 +886,50 @@ public class StellarCompiler extends StellarBaseListener {
   }
 
   private boolean booleanOp(final Token<?> left, final Token<?> right, final BooleanOp op, final String opName) {
-    Boolean l = Optional.ofNullable(ConversionUtils.convert(left.getValue(), Boolean.class)).orElse(false);
-    Boolean r = Optional.ofNullable(ConversionUtils.convert(right.getValue(), Boolean.class)).orElse(false);
-    return op.op(l, r);
+    return op.op(toBoolean(left), toBoolean(right));
+  }
+
+  private static boolean toBoolean(final Token<?> token) {
+    return Optional.ofNullable(ConversionUtils.convert(token.getValue(), Boolean.class)).orElse(false);
+  }
+
+  /**
+   * Folds a boolean expression whose result is already decided by constants.  That is the case when the left
+   * side short circuits the expression or when both sides are constant.
+   *
+   * @param start The position of the first token of the left side.
+   * @param op The boolean operator.
+   * @param isOr Whether the expression is an 'or', which short circuits on true, rather than an 'and'.
+   * @param parentContext The context of the result.
+   * @return True if the expression was folded.
+   */
+  private boolean foldLogical(int start, BooleanOp op, boolean isOr, FrameContext.Context parentContext) {
+    if (!optimize) {
+      return false;
+    }
+    // the tokens are the left side, the argument marker and then the right side
+    List<Token<?>> tokens = peekFrom(start);
+    if (tokens.size() < 3 || !isBooleanConstant(tokens.get(0)) || tokens.get(1).getUnderlyingType() != BooleanArg.class) {
+      return false;
+    }
+    boolean left = Boolean.TRUE.equals(tokens.get(0).getValue());
+    boolean result;
+    if (left == isOr) {
+      result = left;
+    } else if (tokens.size() == 3 && isBooleanConstant(tokens.get(2))) {
+      result = op.op(left, Boolean.TRUE.equals(tokens.get(2).getValue()));
+    } else {
+      return false;
+    }
+    replaceFrom(start, Collections.singletonList(Token.ofBoolean(result, parentContext)));
+    return true;
+  }
+
+  /**
+   * A missing value is false in a boolean expression, so null is a boolean constant as well.
+   */
+  private static boolean isBooleanConstant(Token<?> token) {
+    return isConstant(token) && (token.getValue() == null || token.getValue() instanceof Boolean);
   }
 
 
@@ -612,10 +983,11 @@ public class StellarCompiler extends StellarBaseListener {
       instanceDeque.addLast(t);
     }
     final List<String> variables = hasArgs? (List<String>) instanceDeque.removeLast().getValue() :new ArrayList<>();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-      LambdaExpression expr = new LambdaExpression(variables, instanceDeque, state);
+    pushFunction("LAMBDA", (tokenDeque, state) -> {
+      // the lambda may outlive this evaluation, so it can not hold on to a pooled state
+      LambdaExpression expr = new LambdaExpression(variables, instanceDeque, state.copy());
       tokenDeque.push(new Token<>(expr, Object.class, context));
-    }, DeferredFunction.class, context) );
+    }, context);
   }
 
   @Override
@@ -641,9 +1013,13 @@ public class StellarCompiler extends StellarBaseListener {
   @Override
   public void exitTransformationFunc(StellarParser.TransformationFuncContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+    final String functionName = ctx.getChild(0).getText();
+    final int argStart = functionArgStarts.pop();
+    if (optimize && foldFunctionCall(functionName, argStart, context)) {
+      return;
+    }
+    pushFunction(functionName, (tokenDeque, state) -> {
       // resolve and initialize the function
-      String functionName = ctx.getChild(0).getText();
       StellarFunction function = resolveFunction(state.functionResolver, functionName);
       initializeFunction(state.context, function, functionName);
 
@@ -651,7 +1027,178 @@ public class StellarCompiler extends StellarBaseListener {
       List<Object> args = getFunctionArguments(popDeque(tokenDeque));
       Object result = function.apply(args, state.context);
       tokenDeque.push(new Token<>(result, Object.class, context));
-    }, DeferredFunction.class, context));
+    }, context);
+    recordBatchCall(functionName, argStart, context);
+  }
+
+  /**
+   * Records a function call whose arguments are variables and literals, in case the call turns out to be
+   * the whole expression.
+   *
+   * @param functionName The name of the function.
+   * @param argStart The position of the marker that starts the arguments.
+   * @param context The context of the result.
+   */
+  private void recordBatchCall(String functionName, int argStart, FrameContext.Context context) {
+    if (argStart != 0 || context != null) {
+      return;
+    }
+    // the tokens are the marker, the arguments, the function that collects the arguments and the call
+    List<Token<?>> tokens = peekFrom(argStart);
+    if (tokens.size() < 3 || tokens.get(0).getUnderlyingType() != FunctionMarker.class) {
+      return;
+    }
+    List<Token<?>> args = tokens.subList(1, tokens.size() - 2);
+    VariableReference[] variables = new VariableReference[args.size()];
+    Object[] constants = new Object[args.size()];
+    for (int i = 0; i < args.size(); ++i) {
+      Token<?> arg = args.get(i);
+      if (arg.getValue() instanceof VariableReference) {
+        variables[i] = (VariableReference) arg.getValue();
+      } else if (isConstant(arg)) {
+        constants[i] = arg.getValue();
+      } else {
+        return;
+      }
+    }
+    expression.batchCall = new BatchCall(functionName, variables, constants, tokens.get(tokens.size() - 1), tokens.size());
+  }
+
+  /**
+   * A call of a function whose arguments are variables and literals, which makes up a whole expression.  When
+   * the function is a {@link StellarBatchFunction}, a batch of messages can be evaluated with a single call of
+   * the function; see {@link BaseStellarProcessor#parseBatch(String, List, FunctionResolver, Context)}.
+   */
+  class BatchCall {
+    private final String functionName;
+
+    /**
+     * The variable that is each argument or null, if the argument is a literal.
+     */
+    private final VariableReference[] variables;
+
+    /**
+     * The value of each argument that is a literal.
+     */
+    private final Object[] constants;
+
+    private final Token<?> call;
+    private final int size;
+
+    BatchCall(String functionName, VariableReference[] variables, Object[] constants, Token<?> call, int size) {
+      this.functionName = functionName;
+      this.variables = variables;
+      this.constants = constants;
+      this.call = call;
+      this.size = size;
+    }
+
+    /**
+     * @return True if the call is still the whole of the expression.
+     */
+    boolean isWholeExpression(Deque<Token<?>> tokenDeque) {
+      return tokenDeque.size() == size && tokenDeque.peek() == call;
+    }
+
+    /**
+     * Resolves the function called.
+     *
+     * @return The function or null if it is not a {@link StellarBatchFunction}.
+     */
+    StellarBatchFunction resolve(Context context, FunctionResolver functionResolver) {
+      StellarFunction function = resolveFunction(functionResolver, functionName);
+      if (!(function instanceof StellarBatchFunction)) {
+        return null;
+      }
+      initializeFunction(context, function, functionName);
+      return (StellarBatchFunction) function;
+    }
+
+    /**
+     * Resolves the arguments of the call for a single message.
+     */
+    List<Object> getArguments(Context context, VariableResolver variableResolver) {
+      List<Object> args = new ArrayList<>(variables.length);
+      for (int i = 0; i < variables.length; ++i) {
+        args.add(variables[i] == null ? constants[i] : variables[i].resolve(context, variableResolver));
+      }
+      return args;
+    }
+  }
+
+  /**
+   * Replaces a function call whose arguments are all constants with a single call that does not need to
+   * collect its arguments from the stack.
+   *
+   * @param functionName The name of the function.
+   * @param argStart The position of the marker that starts the arguments.
+   * @param context The context of the result.
+   * @return True if the call was replaced.
+   */
+  private boolean foldFunctionCall(String functionName, int argStart, FrameContext.Context context) {
+    // the tokens are the marker, the arguments and the function that collects the arguments
+    List<Token<?>> tokens = peekFrom(argStart);
+    if (tokens.size() < 2 || tokens.get(0).getUnderlyingType() != FunctionMarker.class) {
+      return false;
+    }
+    List<Object> args = new ArrayList<>();
+    for (Token<?> token : tokens.subList(1, tokens.size() - 1)) {
+      if (!isConstant(token)) {
+        return false;
+      }
+      args.add(token.getValue());
+    }
+    final ConstantCall call = new ConstantCall(functionName, args);
+    replaceFrom(argStart, Collections.emptyList());
+    pushFunction(call.toString(), (tokenDeque, state) -> tokenDeque.push(new Token<>(call.apply(state), Object.class, context)), context);
+    return true;
+  }
+
+  /**
+   * A call to a function whose arguments are all constants.  When the function is
+   * {@link Stellar#deterministic() deterministic} its result is remembered, so that it is computed once
+   * rather than on every evaluation.  The result is only remembered for the function resolver that resolved
+   * the function and only if it is immutable, since it is shared by every evaluation of the expression.
+   */
+  private class ConstantCall {
+    private final String functionName;
+    private final List<Object> args;
+    private volatile Pair<FunctionResolver, Object> memo;
+
+    ConstantCall(String functionName, List<Object> args) {
+      this.functionName = functionName;
+      this.args = args;
+    }
+
+    Object apply(ExpressionState state) {
+      Pair<FunctionResolver, Object> m = memo;
+      if (m != null && m.getKey() == state.functionResolver) {
+        return m.getValue();
+      }
+      StellarFunction function = resolveFunction(state.functionResolver, functionName);
+      initializeFunction(state.context, function, functionName);
+
+      // functions are free to modify their arguments
+      Object result = function.apply(new ArrayList<>(args), state.context);
+      if (isDeterministic(function) && (result == null || IMMUTABLE_TYPES.contains(result.getClass()))) {
+        memo = Pair.of(state.functionResolver, result);
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      List<String> values = new ArrayList<>();
+      for (Object arg : args) {
+        values.add(describeConstant(arg));
+      }
+      return functionName + "(" + Joiner.on(", ").join(values) + ")";
+    }
+  }
+
+  private static boolean isDeterministic(StellarFunction function) {
+    Stellar annotation = function.getClass().getAnnotation(Stellar.class);
+    return annotation != null && annotation.deterministic();
   }
 
   /**
@@ -704,24 +1251,24 @@ public class StellarCompiler extends StellarBaseListener {
   @Override
   public void exitExistsFunc(StellarParser.ExistsFuncContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-      String variable = ctx.getChild(2).getText();
+    final String variable = ctx.getChild(2).getText();
+    pushFunction("EXISTS(" + variable + ")", (tokenDeque, state) -> {
       boolean exists = state.variableResolver.resolve(variable) != null;
-      tokenDeque.push(new Token<>(exists, Boolean.class, context));
-    }, DeferredFunction.class, context));
-    String variable = ctx.getChild(2).getText();
+      tokenDeque.push(Token.ofBoolean(exists, context));
+    }, context);
     expression.variablesUsed.add(variable);
   }
 
   @Override
   public void enterFunc_args(StellarParser.Func_argsContext ctx) {
+    functionArgStarts.push(expression.tokenDeque.size());
     expression.tokenDeque.push(new Token<>(new FunctionMarker(), FunctionMarker.class, getArgContext()));
   }
 
   @Override
   public void exitFunc_args(StellarParser.Func_argsContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>((tokenDeque, state) -> {
+    pushFunction(")", (tokenDeque, state) -> {
       LinkedList<Object> args = new LinkedList<>();
       while (true) {
         Token<?> token = popDeque(tokenDeque);
@@ -732,7 +1279,7 @@ public class StellarCompiler extends StellarBaseListener {
         }
       }
       tokenDeque.push(new Token<>(args, List.class, context));
-    }, DeferredFunction.class, context));
+    }, context);
   }
 
   @Override
@@ -743,7 +1290,7 @@ public class StellarCompiler extends StellarBaseListener {
   @Override
   public void exitMap_entity(StellarParser.Map_entityContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+    pushFunction("MAP", (tokenDeque, state) -> {
       HashMap<Object, Object> args = new HashMap<>();
       Object value = null;
       for (int i = 0; true; i++) {
@@ -759,13 +1306,13 @@ public class StellarCompiler extends StellarBaseListener {
         }
       }
       tokenDeque.push(new Token<>(args, Map.class, context));
-    }, DeferredFunction.class, context));
+    }, context);
   }
 
   @Override
   public void exitList_entity(StellarParser.List_entityContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+    pushFunction("LIST", (tokenDeque, state) -> {
       LinkedList<Object> args = new LinkedList<>();
       while (true) {
         Token<?> token = popDeque(tokenDeque);
@@ -776,7 +1323,7 @@ public class StellarCompiler extends StellarBaseListener {
         }
       }
       tokenDeque.push(new Token<>(args, List.class, context));
-    }, DeferredFunction.class, context));
+    }, context);
   }
 
   @Override
@@ -787,24 +1334,27 @@ public class StellarCompiler extends StellarBaseListener {
   @Override
   public void exitMatchClauseCheckExpr(StellarParser.MatchClauseCheckExprContext ctx) {
     final FrameContext.Context context = getArgContext();
+    final ClausePositions clause = matchPositions.peek().currentClause();
     // if we are validating, and we have a single variable then we will get
     // a null and we need to protect against that
     if(ctx.getStart() == ctx.getStop()) {
-      expression.tokenDeque.push(new Token<>((tokenDeque, state) -> {
+      clause.guarded = true;
+      pushFunction("GUARD", (tokenDeque, state) -> {
           if (tokenDeque.size() == 1 && (tokenDeque.peek().getValue() == null
                   || tokenDeque.peek().getUnderlyingType() == Boolean.class)) {
             tokenDeque.pop();
             tokenDeque.add(new Token<>(false, Boolean.class, getArgContext()));
           }
-      }, DeferredFunction.class, context));
+      }, context);
     }
+    clause.check = expression.tokenDeque.size();
     expression.tokenDeque.push(new Token<>(new MatchClauseCheckExpr(), MatchClauseCheckExpr.class, getArgContext()));
   }
 
   @Override
   public void exitMatchClauseAction(StellarParser.MatchClauseActionContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+    pushFunction("=>", (tokenDeque, state) -> {
       Token<?> token = popDeque(tokenDeque);
       Object value = token.getValue();
       if (value != null && LambdaExpression.class.isAssignableFrom(value.getClass())) {
@@ -820,29 +1370,89 @@ public class StellarCompiler extends StellarBaseListener {
         tokenDeque.push(new Token<>(value, Object.class, context));
       }
 
-    }, DeferredFunction.class, context));
+    }, context);
+  }
+
+  @Override
+  public void enterMatch_clauses(StellarParser.Match_clausesContext ctx) {
+    matchPositions.push(new MatchPositions(expression.tokenDeque.size()));
+  }
+
+  @Override
+  public void enterMatch_clause(StellarParser.Match_clauseContext ctx) {
+    matchPositions.peek().clauses.add(new ClausePositions(expression.tokenDeque.size()));
   }
 
   @Override
   public void exitMatch_clause(StellarParser.Match_clauseContext ctx) {
+    matchPositions.peek().currentClause().end = expression.tokenDeque.size();
     expression.tokenDeque.push(new Token<>(new MatchClauseEnd(), MatchClauseEnd.class, getArgContext()));
   }
 
   @Override
   public void exitMatchClauses(StellarParser.MatchClausesContext ctx) {
     expression.tokenDeque.push(new Token<>(new MatchClausesEnd(),MatchClausesEnd.class, getArgContext()));
+    eliminateMatchClauses(matchPositions.pop());
+  }
+
+  /**
+   * Eliminates the clauses of a match expression whose check is a constant.  Clauses that can never match
+   * are dropped.  A clause that always matches ends the match expression; the clauses that follow it and the
+   * default action are dropped and, if it is the first remaining clause, only its action is kept.
+   *
+   * @param match The positions of the match expression.
+   */
+  private void eliminateMatchClauses(MatchPositions match) {
+    if (!optimize) {
+      return;
+    }
+    List<Token<?>> tokens = peekFrom(match.start);
+    List<Token<?>> result = new ArrayList<>();
+    boolean eliminated = false;
+    int defaultStart = 0;
+    for (ClausePositions clause : match.clauses) {
+      int start = clause.start - match.start;
+      int check = clause.check - match.start;
+      int end = clause.end - match.start;
+      defaultStart = end + 1;
+
+      Token<?> checked = tokens.get(start);
+      if (clause.guarded || check != start + 1 || !isBooleanConstant(checked)) {
+        result.addAll(tokens.subList(start, end + 1));
+      } else if (Boolean.TRUE.equals(checked.getValue())) {
+        if (result.isEmpty()) {
+          result.addAll(tokens.subList(check + 1, end));
+        } else {
+          result.addAll(tokens.subList(start, end + 1));
+          result.add(tokens.get(tokens.size() - 1));
+        }
+        replaceFrom(match.start, result);
+        return;
+      } else {
+        eliminated = true;
+      }
+    }
+    if (!eliminated) {
+      return;
+    }
+    // the default action and, if any clauses remain, the end of the match
+    result.addAll(tokens.subList(defaultStart, result.isEmpty() ? tokens.size() - 1 : tokens.size()));
+    replaceFrom(match.start, result);
   }
 
   @Override
   public void exitComparisonExpressionWithOperator(StellarParser.ComparisonExpressionWithOperatorContext ctx) {
     final FrameContext.Context context = getArgContext();
-    expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-      StellarParser.Comp_operatorContext op = ctx.comp_operator();
+    final StellarParser.Comp_operatorContext op = ctx.comp_operator();
+    if (foldConstants(2, args -> comparisonExpressionWithOperatorEvaluator.evaluate(args.get(0), args.get(1), (StellarParser.ComparisonOpContext) op, context))) {
+      return;
+    }
+    pushFunction(op.getText(), (tokenDeque, state) -> {
       Token<?> right = popDeque(tokenDeque);
       Token<?> left = popDeque(tokenDeque);
 
       tokenDeque.push(comparisonExpressionWithOperatorEvaluator.evaluate(left, right, (StellarParser.ComparisonOpContext) op, context));
-    }, DeferredFunction.class, context));
+    }, context);
   }
 
   @Override
@@ -860,6 +1470,92 @@ public class StellarCompiler extends StellarBaseListener {
     return expression.multiArgumentState.isEmpty() ? null : expression.multiArgumentState.peek();
   }
 
+  private void pushFunction(String description, DeferredFunction function, FrameContext.Context context) {
+    expression.tokenDeque.push(new Token<>(function, DeferredFunction.class, context));
+    expression.describe(function, description);
+  }
+
+  /**
+   * Evaluates an operator at compile time when all of its operands are constants.  When the operator fails,
+   * for example when dividing by zero, it is left for evaluation so that the failure is reported as it
+   * always has been.
+   *
+   * @param arity The number of operands, which are the tokens on top of the deque.
+   * @param operator Evaluates the operator given the operands in the order in which they were pushed.
+   * @return True if the operator was folded into a constant.
+   */
+  private boolean foldConstants(int arity, Function<List<Token<?>>, Token<?>> operator) {
+    if (!optimize || expression.tokenDeque.size() < arity) {
+      return false;
+    }
+    int start = expression.tokenDeque.size() - arity;
+    List<Token<?>> operands = peekFrom(start);
+    for (Token<?> operand : operands) {
+      if (!isConstant(operand)) {
+        return false;
+      }
+    }
+    Token<?> result;
+    try {
+      result = operator.apply(operands);
+    } catch (RuntimeException e) {
+      return false;
+    }
+    if (result == null || !isConstant(result)) {
+      return false;
+    }
+    replaceFrom(start, Collections.singletonList(result));
+    return true;
+  }
+
+  /**
+   * A constant is a literal or the result of folding literals.
+   */
+  private static boolean isConstant(Token<?> token) {
+    if (token == EXPRESSION_REFERENCE || token == LAMBDA_VARIABLES) {
+      return false;
+    }
+    if (token.getUnderlyingType() == Object.class) {
+      // the null literal
+      return token.getValue() == null;
+    }
+    return CONSTANT_TYPES.contains(token.getUnderlyingType());
+  }
+
+  private static String describeConstant(Object value) {
+    return value instanceof String ? "'" + value + "'" : String.valueOf(value);
+  }
+
+  /**
+   * @param position A position counted from the bottom of the token deque.
+   * @return The tokens from the position to the top of the deque, in the order in which they were pushed.
+   */
+  private List<Token<?>> peekFrom(int position) {
+    List<Token<?>> tokens = new ArrayList<>(expression.tokenDeque.size() - position);
+    Iterator<Token<?>> it = expression.tokenDeque.iterator();
+    for (int i = expression.tokenDeque.size(); i > position; --i) {
+      tokens.add(it.next());
+    }
+    Collections.reverse(tokens);
+    return tokens;
+  }
+
+  /**
+   * Replaces the tokens from a position to the top of the token deque.
+   *
+   * @param position A position counted from the bottom of the token deque.
+   * @param tokens The replacement tokens, in the order in which they are to be pushed.
+   */
+  private void replaceFrom(int position, List<Token<?>> tokens) {
+    List<Token<?>> replacement = new ArrayList<>(tokens);
+    while (expression.tokenDeque.size() > position) {
+      expression.tokenDeque.pop();
+    }
+    for (Token<?> token : replacement) {
+      expression.tokenDeque.push(token);
+    }
+  }
+
   private Token<?> popDeque(Deque<Token<?>> tokenDeque) {
     if (tokenDeque.isEmpty()) {
       throw new ParseException("Unable to pop an empty stack");
@@ -23,6 +23,9 @@ import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
 import org.apache.metron.stellar.dsl.VariableResolver;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.apache.commons.lang3.StringUtils.isEmpty;
@@ -69,4 +72,28 @@ public class StellarPredicateProcessor extends BaseStellarProcessor<Boolean> {
       throw e;
     }
   }
+
+  @Override
+  public List<Boolean> parseBatch( String rule
+                                 , List<? extends VariableResolver> variableResolvers
+                                 , FunctionResolver functionResolver
+                                 , Context context
+                                 )
+  {
+    if(rule == null || isEmpty(rule.trim())) {
+      return new ArrayList<>(Collections.nCopies(variableResolvers.size(), true));
+    }
+    try {
+      return super.parseBatch(rule, variableResolvers, functionResolver, context);
+    } catch (ClassCastException e) {
+      // predicate must return boolean
+      throw new IllegalArgumentException(String.format("The rule '%s' does not return a boolean value.", rule), e);
+    }
+    catch(Exception e) {
+      if(e.getCause() != null && e.getCause() instanceof ClassCastException) {
+        throw new IllegalArgumentException(String.format("The rule '%s' does not return a boolean value.", rule), e.getCause());
+      }
+      throw e;
+    }
+  }
 }
@@ -84,11 +84,11 @@ public enum ComparisonExpressionWithOperatorEvaluator {
    */
   public Token<Boolean> evaluate(final Token<?> left, final Token<?> right, final StellarParser.ComparisonOpContext op, FrameContext.Context context) {
     if (op.EQ() != null) {
-      return new Token<>(Strategy.EQUALITY_OPERATORS.evaluator().evaluate(left, right, op), Boolean.class, context);
+      return Token.ofBoolean(Strategy.EQUALITY_OPERATORS.evaluator().evaluate(left, right, op), context);
     } else if (op.NEQ() != null) {
-      return new Token<>(!Strategy.EQUALITY_OPERATORS.evaluator().evaluate(left, right, op), Boolean.class, context);
+      return Token.ofBoolean(!Strategy.EQUALITY_OPERATORS.evaluator().evaluate(left, right, op), context);
     } else if (op.LT() != null || op.GT() != null || op.LTE() != null || op.GTE() != null) {
-      return new Token<>(Strategy.COMPARISON_OPERATORS.evaluator().evaluate(left, right, op), Boolean.class, context);
+      return Token.ofBoolean(Strategy.COMPARISON_OPERATORS.evaluator().evaluate(left, right, op), context);
     }
 
     throw new ParseException("Unsupported operations. The following expression is invalid: " + left.getValue() + op.getText() + right.getValue());
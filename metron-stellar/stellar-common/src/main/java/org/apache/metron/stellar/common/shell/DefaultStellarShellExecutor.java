@@ -34,6 +34,7 @@ import org.apache.metron.stellar.common.shell.specials.DocCommand;
 import org.apache.metron.stellar.common.shell.specials.MagicDefineGlobal;
 import org.apache.metron.stellar.common.shell.specials.MagicListFunctions;
 import org.apache.metron.stellar.common.shell.specials.MagicListGlobals;
+import org.apache.metron.stellar.common.shell.specials.MagicListTokens;
 import org.apache.metron.stellar.common.shell.specials.MagicListVariables;
 import org.apache.metron.stellar.common.shell.specials.MagicUndefineGlobal;
 import org.apache.metron.stellar.common.shell.specials.QuitCommand;
@@ -160,7 +161,8 @@ public class DefaultStellarShellExecutor implements StellarShellExecutor {
             new MagicListVariables(),
             new MagicDefineGlobal(),
             new MagicUndefineGlobal(),
-            new MagicListGlobals()
+            new MagicListGlobals(),
+            new MagicListTokens()
     );
   }
 
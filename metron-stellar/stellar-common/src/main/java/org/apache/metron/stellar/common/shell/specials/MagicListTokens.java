@@ -0,0 +1,71 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.metron.stellar.common.shell.specials;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.metron.stellar.common.BaseStellarProcessor;
+import org.apache.metron.stellar.common.StellarCompiler;
+import org.apache.metron.stellar.common.shell.StellarResult;
+import org.apache.metron.stellar.common.shell.StellarShellExecutor;
+
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.StringUtils.startsWith;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+import static org.apache.metron.stellar.common.shell.StellarResult.error;
+import static org.apache.metron.stellar.common.shell.StellarResult.success;
+
+/**
+ * A MagicCommand that shows the tokens that an expression compiles to, after
+ * constant folding and dead branch elimination.  The expression is not executed.
+ *
+ *    %tokens IF 1 < 2 THEN TO_UPPER(foo) ELSE 'bar'
+ */
+public class MagicListTokens implements SpecialCommand {
+
+  public static final String MAGIC_TOKENS = "%tokens";
+
+  @Override
+  public String getCommand() {
+    return MAGIC_TOKENS;
+  }
+
+  @Override
+  public Function<String, Boolean> getMatcher() {
+    return (input) -> startsWith(trimToEmpty(input), MAGIC_TOKENS);
+  }
+
+  @Override
+  public StellarResult execute(String command, StellarShellExecutor executor) {
+
+    // grab the expression in '%tokens <expression>'
+    String expression = StringUtils.trimToEmpty(command.substring(MAGIC_TOKENS.length()));
+    if(StringUtils.length(expression) < 1) {
+      return error(MAGIC_TOKENS + " missing expression");
+    }
+
+    try {
+      StellarCompiler.Expression compiled = BaseStellarProcessor.compile(expression, true);
+      return success(compiled.describe());
+
+    } catch(Throwable t) {
+      return error(t);
+    }
+  }
+}
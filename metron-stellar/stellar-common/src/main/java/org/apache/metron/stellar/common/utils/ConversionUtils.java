@@ -40,6 +40,10 @@ public class ConversionUtils {
     if (o == null) {
       return null;
     }
+    if (o.getClass() == clazz) {
+      // nothing to convert; avoid the allocations of a round trip through the converters
+      return clazz.cast(o);
+    }
     return clazz.cast(UTILS_BEAN.get().convert(o, clazz));
   }
 
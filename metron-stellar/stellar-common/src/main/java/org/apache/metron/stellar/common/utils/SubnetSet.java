@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.utils;
+
+import com.google.common.net.InetAddresses;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of IPv4 and IPv6 subnets, held as a binary radix trie per address family.
+ *
+ * <p>Testing whether an address is in the set walks at most one node per bit of the longest
+ * prefix in the set, regardless of the number of subnets.  Unlike {@code IN_SUBNET}, a subnet
+ * contains all of its addresses, including its network and broadcast addresses.  An address
+ * without a prefix length is treated as a subnet of that single address.
+ *
+ * <p>A set shared between callers, such as those cached by the Stellar functions, should be shared
+ * as its {@link #unmodifiable()} view.
+ */
+public class SubnetSet implements Serializable {
+
+  private static class Node implements Serializable {
+    private Node zero;
+    private Node one;
+    private boolean terminal;
+  }
+
+  private final Node ipv4;
+  private final Node ipv6;
+  private final List<String> subnets;
+  private final boolean modifiable;
+
+  public SubnetSet() {
+    this(new Node(), new Node(), new ArrayList<>(), true);
+  }
+
+  public SubnetSet(Iterable<String> subnets) {
+    this();
+    for(String subnet : subnets) {
+      add(subnet);
+    }
+  }
+
+  private SubnetSet(Node ipv4, Node ipv6, List<String> subnets, boolean modifiable) {
+    this.ipv4 = ipv4;
+    this.ipv6 = ipv6;
+    this.subnets = subnets;
+    this.modifiable = modifiable;
+  }
+
+  /**
+   * @return A view of the set to which subnets cannot be added.  It sees any subnets later added to this set.
+   */
+  public SubnetSet unmodifiable() {
+    return modifiable ? new SubnetSet(ipv4, ipv6, subnets, false) : this;
+  }
+
+  /**
+   * Adds a subnet to the set.
+   *
+   * @param cidr The subnet in CIDR notation, for example 192.168.0.0/16 or 2001:db8::/32.
+   * @throws IllegalArgumentException If the subnet is not valid.
+   * @throws UnsupportedOperationException If the set is unmodifiable.
+   */
+  public void add(String cidr) {
+    if(!modifiable) {
+      throw new UnsupportedOperationException("Unable to add " + cidr + " to an unmodifiable subnet set");
+    }
+    String subnet = cidr.trim();
+    int slash = subnet.indexOf('/');
+    byte[] address = toBytes(slash < 0 ? subnet : subnet.substring(0, slash));
+    int bits = address.length * 8;
+    int prefixLength = bits;
+    if(slash >= 0) {
+      try {
+        prefixLength = Integer.parseInt(subnet.substring(slash + 1));
+      } catch(NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid prefix length: " + cidr, e);
+      }
+      if(prefixLength < 0 || prefixLength > bits) {
+        throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+      }
+    }
+
+    Node node = address.length == 4 ? ipv4 : ipv6;
+    for(int i = 0; i < prefixLength && !node.terminal; ++i) {
+      if(bit(address, i)) {
+        if(node.one == null) {
+          node.one = new Node();
+        }
+        node = node.one;
+      } else {
+        if(node.zero == null) {
+          node.zero = new Node();
+        }
+        node = node.zero;
+      }
+    }
+    // any longer prefixes below this node are now redundant
+    node.terminal = true;
+    node.zero = null;
+    node.one = null;
+    subnets.add(subnet);
+  }
+
+  /**
+   * @param ip An IPv4 or IPv6 address.
+   * @return True if the address is within at least one of the subnets and false if otherwise.
+   * @throws IllegalArgumentException If the address is not valid.
+   */
+  public boolean contains(String ip) {
+    if(ip == null) {
+      return false;
+    }
+    byte[] address = toBytes(ip.trim());
+    Node node = address.length == 4 ? ipv4 : ipv6;
+    for(int i = 0; node != null; ++i) {
+      if(node.terminal) {
+        return true;
+      }
+      if(i == address.length * 8) {
+        return false;
+      }
+      node = bit(address, i) ? node.one : node.zero;
+    }
+    return false;
+  }
+
+  /**
+   * @return The subnets added to the set, in the order that they were added.
+   */
+  public List<String> getSubnets() {
+    return Collections.unmodifiableList(subnets);
+  }
+
+  private static boolean bit(byte[] address, int i) {
+    return (address[i >>> 3] & (0x80 >>> (i & 7))) != 0;
+  }
+
+  private static byte[] toBytes(String ip) {
+    byte[] address = parseIPv4(ip);
+    if(address != null) {
+      return address;
+    }
+    // IPv4-mapped IPv6 addresses are returned as IPv4 addresses
+    return InetAddresses.forString(ip).getAddress();
+  }
+
+  /**
+   * Parses a dotted-quad IPv4 address without the overhead of {@link InetAddresses}.
+   *
+   * @return The address or null if it is not a dotted-quad IPv4 address.
+   */
+  private static byte[] parseIPv4(String ip) {
+    byte[] address = new byte[4];
+    int octet = 0;
+    int value = 0;
+    int digits = 0;
+    for(int i = 0; i < ip.length(); ++i) {
+      char c = ip.charAt(i);
+      if(c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        if(++digits > 3 || value > 255) {
+          return null;
+        }
+      } else if(c == '.' && digits > 0 && octet < 3) {
+        address[octet++] = (byte) value;
+        value = 0;
+        digits = 0;
+      } else {
+        return null;
+      }
+    }
+    if(octet != 3 || digits == 0) {
+      return null;
+    }
+    address[3] = (byte) value;
+    return address;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    SubnetSet that = (SubnetSet) o;
+    return subnets.equals(that.subnets);
+  }
+
+  @Override
+  public int hashCode() {
+    return subnets.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "SubnetSet" + subnets;
+  }
+}
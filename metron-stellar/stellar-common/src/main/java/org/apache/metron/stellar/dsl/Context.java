@@ -72,6 +72,12 @@ public class Context implements Serializable {
      * This capability indicates that a http client (i.e. a CloseableHttpClient, specifically) is available.
      */
     HTTP_CLIENT
+    ,
+    /**
+     * This capability indicates the largest input for which the StellarProcessor should use the {@link #CACHE}.
+     * Expressions over larger inputs are executed without the cache.
+     */
+    CACHE_MAX_INPUT_SIZE
   }
 
   public enum ActivityType {
@@ -30,4 +30,11 @@ public @interface Stellar {
   String description() default "";
   String returns() default "";
   String[] params() default {};
+
+  /**
+   * Whether the function is deterministic; it always returns the same result when called with the same
+   * arguments and has no side effects.  Calls to a deterministic function whose arguments are all constants
+   * are only evaluated once per function resolver.
+   */
+  boolean deterministic() default false;
 }
@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.dsl;
+
+import java.util.List;
+
+/**
+ * A Stellar function that can evaluate many calls at once, so that work common to the calls, such as parsing
+ * arguments that are the same for every call, is done once.
+ *
+ * <p>A batch is evaluated with this method when an expression is a single call of the function whose arguments
+ * are variables and literals; see {@code BaseStellarProcessor#parseBatch}.  Otherwise the function is called
+ * one message at a time as usual, so the results of both methods must be the same.
+ */
+public interface StellarBatchFunction extends StellarFunction {
+
+  /**
+   * Evaluates the function over a batch of arguments.
+   *
+   * @param args The arguments of each call.
+   * @param context The context.
+   * @return The result of each call, in the order of the arguments.
+   */
+  List<Object> applyBatch(List<List<Object>> args, Context context) throws ParseException;
+}
@@ -21,6 +21,9 @@ package org.apache.metron.stellar.dsl;
 import org.apache.metron.stellar.common.FrameContext;
 
 public class Token<T> {
+  private static final Token<Boolean> TRUE = new Token<>(true, Boolean.class);
+  private static final Token<Boolean> FALSE = new Token<>(false, Boolean.class);
+
   T value;
   Class<T> underlyingType;
   FrameContext.Context multiArgContext;
@@ -35,6 +38,21 @@ public class Token<T> {
     this.multiArgContext = multiArgContext;
   }
 
+  /**
+   * Returns a boolean token.  Tokens are immutable, so boolean tokens are shared rather than allocated for
+   * every intermediate boolean result.
+   *
+   * @param value The boolean value.
+   * @param multiArgContext The context of the token, if any.
+   * @return A token holding the value.
+   */
+  public static Token<Boolean> ofBoolean(boolean value, FrameContext.Context multiArgContext) {
+    if (multiArgContext == null) {
+      return value ? TRUE : FALSE;
+    }
+    return multiArgContext.getBooleanToken(value);
+  }
+
   public FrameContext.Context getMultiArgContext() {
     return multiArgContext;
   }
@@ -39,6 +39,7 @@ public class MathFunctions {
                 "number - The number to take the absolute value of"
                     }
           , returns="The absolute value of the number passed in."
+          , deterministic = true
           )
   public static class Abs extends StellarMathFunction{
 
@@ -54,6 +55,7 @@ public class MathFunctions {
                 "number - The number to take the log (base 10) value of"
                     }
           , returns="The log (base 10) of the number passed in."
+          , deterministic = true
           )
   public static class Log10 extends StellarMathFunction {
    public Log10() {
@@ -68,6 +70,7 @@ public class MathFunctions {
                 "number - The number to take the log (base 2) value of"
                     }
           , returns="The log (base 2) of the number passed in."
+          , deterministic = true
           )
   public static class Log2 extends StellarMathFunction {
    public Log2() {
@@ -82,6 +85,7 @@ public class MathFunctions {
                 "number - The number to take the natural log value of"
                     }
           , returns="The natural log of the number passed in."
+          , deterministic = true
           )
   public static class Ln extends StellarMathFunction {
    public Ln() {
@@ -96,6 +100,7 @@ public class MathFunctions {
                 "number - The number to take the square root of"
                     }
           , returns="The square root of the number passed in."
+          , deterministic = true
           )
   public static class Sqrt extends StellarMathFunction {
    public Sqrt() {
@@ -110,6 +115,7 @@ public class MathFunctions {
                 "number - The number to take the ceiling of"
                     }
           , returns="The ceiling of the number passed in."
+          , deterministic = true
           )
   public static class Ceil extends StellarMathFunction {
    public Ceil() {
@@ -124,6 +130,7 @@ public class MathFunctions {
                 "number - The number to take the floor of"
                     }
           , returns="The floor of the number passed in."
+          , deterministic = true
           )
   public static class Floor extends StellarMathFunction {
    public Floor() {
@@ -137,6 +144,7 @@ public class MathFunctions {
                 "number - The number to take the sine of"
                     }
           , returns="The sine of the number passed in."
+          , deterministic = true
           )
   public static class Sin extends StellarMathFunction {
    public Sin() {
@@ -150,6 +158,7 @@ public class MathFunctions {
                 "number - The number to take the cosine of"
                     }
           , returns="The cosine of the number passed in."
+          , deterministic = true
           )
   public static class Cos extends StellarMathFunction {
    public Cos() {
@@ -163,6 +172,7 @@ public class MathFunctions {
                 "number - The number to take the tangent of"
                     }
           , returns="The tangent of the number passed in."
+          , deterministic = true
           )
   public static class Tan extends StellarMathFunction {
    public Tan() {
@@ -176,6 +186,7 @@ public class MathFunctions {
                 "number - The power to which e is raised."
                     }
           , returns="Euler's number raised to the power of the argument."
+          , deterministic = true
           )
   public static class Exp extends StellarMathFunction {
    public Exp() {
@@ -189,6 +200,7 @@ public class MathFunctions {
                 "number - The number to round"
                     }
           , returns="The nearest integer (based on half-up rounding)."
+          , deterministic = true
           )
   public static class Round extends StellarMathFunction {
    public Round() {
@@ -201,7 +213,8 @@ public class MathFunctions {
        params = {
         "number - number to evaluate"
        },
-       returns = "True if the value is NaN, false if it is not")
+       returns = "True if the value is NaN, false if it is not",
+       deterministic = true)
   public static class IsNaN extends BaseStellarFunction {
 
     @Override
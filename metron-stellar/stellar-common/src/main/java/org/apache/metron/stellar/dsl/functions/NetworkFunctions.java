@@ -18,17 +18,29 @@
 
 package org.apache.metron.stellar.dsl.functions;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
 import com.google.common.net.InternetDomainName;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.util.SubnetUtils;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
+import org.apache.metron.stellar.common.utils.SubnetSet;
 import org.apache.metron.stellar.dsl.BaseStellarFunction;
+import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.Stellar;
+import org.apache.metron.stellar.dsl.StellarBatchFunction;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
 
 public class NetworkFunctions {
@@ -36,14 +48,36 @@ public class NetworkFunctions {
           ,description = "Returns true if an IP is within a subnet range."
           ,params = {
                      "ip - The IP address in string form"
-                    ,"cidr+ - One or more IP ranges specified in CIDR notation (for example 192.168.0.0/24)"
+                    ,"cidr+ - One or more IP ranges specified in CIDR notation (for example 192.168.0.0/24) or subnet sets" +
+                     " created with SUBNET_SET_INIT or SUBNET_SET_LOAD"
                     }
           ,returns = "True if the IP address is within at least one of the network ranges and false if otherwise"
           )
-  public static class InSubnet extends BaseStellarFunction {
+  public static class InSubnet extends BaseStellarFunction implements StellarBatchFunction {
+
+    /**
+     * The parsed ranges, shared by all calls.  Rules usually test against the same ranges for every
+     * message, so a range is only parsed the first time that it is seen.
+     */
+    private static final Cache<String, Range> RANGES = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .build();
 
     @Override
     public Object apply(List<Object> list) {
+      return inSubnet(list);
+    }
+
+    @Override
+    public List<Object> applyBatch(List<List<Object>> args, Context context) {
+      List<Object> results = new ArrayList<>(args.size());
+      for(List<Object> list : args) {
+        results.add(inSubnet(list));
+      }
+      return results;
+    }
+
+    private static boolean inSubnet(List<Object> list) {
       if(list.size() < 2) {
         throw new IllegalStateException("IN_SUBNET expects at least two args: [ip, cidr1, cidr2, ...]"
                 + " where cidr is the subnet mask in cidr form"
@@ -53,16 +87,205 @@ public class NetworkFunctions {
       if(ip == null) {
         return false;
       }
-      boolean inSubnet = false;
-      for(int i = 1;i < list.size() && !inSubnet;++i) {
-        String cidr = (String) list.get(i);
+
+      // the address is parsed once, when it is first compared to a range
+      Integer address = null;
+      for(int i = 1;i < list.size();++i) {
+        Object cidr = list.get(i);
         if(cidr == null) {
           continue;
         }
-        inSubnet |= new SubnetUtils(cidr).getInfo().isInRange(ip);
+        if(cidr instanceof SubnetSet) {
+          if(((SubnetSet) cidr).contains(ip)) {
+            return true;
+          }
+          continue;
+        }
+        Range range = RANGES.get((String) cidr, Range::new);
+        if(address == null) {
+          address = range.info.asInteger(ip);
+        }
+        if(range.isInRange(address)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * A range parsed from CIDR notation.  The bounds are those of {@link SubnetUtils.SubnetInfo#isInRange(String)},
+     * which excludes the network and broadcast addresses.
+     */
+    private static class Range {
+      private final SubnetUtils.SubnetInfo info;
+      private final int low;
+      private final int high;
+
+      Range(String cidr) {
+        this.info = new SubnetUtils(cidr).getInfo();
+        this.low = info.asInteger(info.getLowAddress());
+        this.high = info.asInteger(info.getHighAddress());
       }
 
-      return inSubnet;
+      boolean isInRange(int address) {
+        int diff = address - low;
+        return diff >= 0 && diff <= high - low;
+      }
+    }
+  }
+
+  @Stellar(name="INIT"
+          ,namespace = "SUBNET_SET"
+          ,description = "Creates a set of IPv4 and IPv6 subnets that can be tested with SUBNET_SET_CONTAINS or IN_SUBNET." +
+                         " Testing an address takes time proportional to the prefix length, however many subnets the set holds."
+          ,params = {
+                     "cidrs - A list of subnets in CIDR notation (for example 192.168.0.0/24 or 2001:db8::/32)"
+                    }
+          ,returns = "A subnet set"
+          )
+  public static class SubnetSetInit extends BaseStellarFunction {
+
+    /**
+     * The sets built, by their subnets.  Rules usually build the same set for every message, so a set is only
+     * built the first time that its subnets are seen.
+     */
+    private static final Cache<List<String>, SubnetSet> SETS = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .build();
+
+    @Override
+    public Object apply(List<Object> list) {
+      List<String> cidrs = new ArrayList<>();
+      if(list.size() > 0 && list.get(0) != null) {
+        Object subnets = list.get(0);
+        if(!(subnets instanceof Iterable)) {
+          throw new IllegalArgumentException("Expected a list of subnets, but " + subnets + " is of type " + subnets.getClass());
+        }
+        for(Object cidr : (Iterable<?>) subnets) {
+          if(cidr != null) {
+            cidrs.add(cidr.toString());
+          }
+        }
+      }
+      return SETS.get(cidrs, key -> new SubnetSet(key).unmodifiable());
+    }
+  }
+
+  @Stellar(name="LOAD"
+          ,namespace = "SUBNET_SET"
+          ,description = "Creates a set of IPv4 and IPv6 subnets from a local file with one subnet in CIDR notation per line." +
+                         " Blank lines and lines starting with # are ignored.  The file is read again once it has changed."
+          ,params = {
+                     "path - The path of the file"
+                    ,"checkInterval - Optional - How often, in milliseconds, the file is checked for changes.  Defaults to 10000."
+                    }
+          ,returns = "A subnet set or null if no path is given"
+          )
+  public static class SubnetSetLoad extends BaseStellarFunction {
+
+    public static final long DEFAULT_CHECK_INTERVAL_MS = 10000;
+
+    /**
+     * A set loaded from a file, along with when the file was last modified and when that was last checked.
+     */
+    private static class LoadedSet {
+      private final SubnetSet subnets;
+      private final FileTime lastModified;
+      private final long checked;
+
+      private LoadedSet(SubnetSet subnets, FileTime lastModified, long checked) {
+        this.subnets = subnets;
+        this.lastModified = lastModified;
+        this.checked = checked;
+      }
+    }
+
+    /**
+     * The sets loaded, by the path of their file.  The file is only checked for changes once per interval,
+     * and only read again once it has changed.
+     */
+    private static final Cache<String, LoadedSet> SETS = Caffeine.newBuilder()
+            .maximumSize(100)
+            .build();
+
+    @Override
+    public Object apply(List<Object> list) {
+      if(list.size() < 1 || list.get(0) == null) {
+        return null;
+      }
+      String path = list.get(0).toString();
+      long checkInterval = DEFAULT_CHECK_INTERVAL_MS;
+      if(list.size() > 1 && list.get(1) != null) {
+        Long interval = ConversionUtils.convert(list.get(1), Long.class);
+        if(interval == null) {
+          throw new IllegalArgumentException("Expected a check interval in milliseconds, but got " + list.get(1));
+        }
+        checkInterval = interval;
+      }
+      long now = System.currentTimeMillis();
+      LoadedSet loaded = SETS.getIfPresent(path);
+      if(loaded != null && now - loaded.checked < checkInterval) {
+        return loaded.subnets;
+      }
+      long interval = checkInterval;
+      return SETS.asMap().compute(path, (key, current) -> check(key, current, now, interval)).subnets;
+    }
+
+    private static LoadedSet check(String path, LoadedSet current, long now, long checkInterval) {
+      if(current != null && now - current.checked < checkInterval) {
+        // another caller checked it in the meantime
+        return current;
+      }
+      FileTime lastModified;
+      try {
+        lastModified = Files.getLastModifiedTime(Paths.get(path));
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read subnets from " + path + ": " + e.getMessage(), e);
+      }
+      if(current != null && current.lastModified.equals(lastModified)) {
+        return new LoadedSet(current.subnets, lastModified, now);
+      }
+      return new LoadedSet(load(path).unmodifiable(), lastModified, now);
+    }
+
+    private static SubnetSet load(String path) {
+      SubnetSet subnets = new SubnetSet();
+      try {
+        for(String line : Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8)) {
+          String cidr = line.trim();
+          if(!cidr.isEmpty() && !cidr.startsWith("#")) {
+            subnets.add(cidr);
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read subnets from " + path + ": " + e.getMessage(), e);
+      }
+      return subnets;
+    }
+  }
+
+  @Stellar(name="CONTAINS"
+          ,namespace = "SUBNET_SET"
+          ,description = "Returns true if an IP is within one of the subnets of a subnet set."
+          ,params = {
+                     "subnets - The subnet set"
+                    ,"ip - The IPv4 or IPv6 address in string form"
+                    }
+          ,returns = "True if the IP address is within at least one of the subnets and false if otherwise"
+          )
+  public static class SubnetSetContains extends BaseStellarFunction {
+
+    @Override
+    public Object apply(List<Object> list) {
+      if(list.size() < 2) {
+        throw new IllegalStateException("SUBNET_SET_CONTAINS expects two args: [subnets, ip]");
+      }
+      SubnetSet subnets = (SubnetSet) list.get(0);
+      Object ip = list.get(1);
+      if(subnets == null || ip == null) {
+        return false;
+      }
+      return subnets.contains(ip.toString());
     }
   }
 
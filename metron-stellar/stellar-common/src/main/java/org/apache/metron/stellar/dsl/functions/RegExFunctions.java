@@ -35,7 +35,8 @@ public class RegExFunctions {
           "string - The string to test",
           "pattern - The proposed regex pattern or a list of proposed regex patterns"
       },
-      returns = "True if the regex pattern matches the string and false if otherwise.")
+      returns = "True if the regex pattern matches the string and false if otherwise.",
+      deterministic = true)
   public static class RegexpMatch extends BaseStellarFunction {
 
     @Override
@@ -75,7 +76,8 @@ public class RegExFunctions {
           "pattern - The proposed regex pattern",
           "group - integer that selects what group to select, starting at 1"
       },
-      returns = "The value of the group, or null if not matched or no group at index")
+      returns = "The value of the group, or null if not matched or no group at index",
+      deterministic = true)
   public static class RegexpGroupValue extends BaseStellarFunction {
 
     @Override
@@ -124,7 +126,8 @@ public class RegExFunctions {
           "pattern - The regex pattern to be replaced. Special characters must be escaped (e.g. \\\\d)",
           "value - The value to replace the regex pattern"
       },
-      returns = "The modified input string with replaced values")
+      returns = "The modified input string with replaced values",
+      deterministic = true)
   public static class RegexpReplace extends BaseStellarFunction {
 
     @Override
@@ -44,7 +44,9 @@ public class StringFunctions {
              "string - The string to test"
             ,"suffix - The proposed suffix"
             }
-          , returns = "True if the string ends with the specified suffix and false if otherwise")
+          , returns = "True if the string ends with the specified suffix and false if otherwise"
+          , deterministic = true
+          )
   public static class EndsWith extends BaseStellarFunction {
     @Override
     public Object apply(List<Object> list) {
@@ -67,6 +69,7 @@ public class StringFunctions {
             ,"prefix - The proposed prefix"
             }
           , returns = "True if the string starts with the specified prefix and false if otherwise"
+          , deterministic = true
           )
   public static class StartsWith extends BaseStellarFunction {
 
@@ -88,6 +91,7 @@ public class StringFunctions {
           , description = "Transforms the first argument to a lowercase string"
           , params = { "input - String" }
           , returns = "Lowercase string"
+          , deterministic = true
           )
   public static class ToLower extends BaseStellarFunction {
     @Override
@@ -100,6 +104,7 @@ public class StringFunctions {
           , description = "Transforms the first argument to an uppercase string"
           , params = { "input - String" }
           , returns = "Uppercase string"
+          , deterministic = true
           )
   public static class ToUpper extends BaseStellarFunction {
     @Override
@@ -112,6 +117,7 @@ public class StringFunctions {
           , description = "Transforms the first argument to a string"
           , params = { "input - Object" }
           , returns = "String"
+          , deterministic = true
           )
   public static class ToString extends BaseStellarFunction {
     @Override
@@ -124,6 +130,7 @@ public class StringFunctions {
           , description = "Trims whitespace from both sides of a string."
           , params = { "input - String" }
           , returns = "String"
+          , deterministic = true
           )
   public static class Trim extends BaseStellarFunction {
     @Override
@@ -217,6 +224,7 @@ public class StringFunctions {
           , description="Fills or pads a given string with a given character, to a given length on the left"
           , params = { "input - string", "fill - the fill character", "len - the required length"}
           , returns = "Filled String"
+          , deterministic = true
   )
   public static class FillLeft extends BaseStellarFunction {
     @Override
@@ -232,6 +240,7 @@ public class StringFunctions {
           , description="Fills or pads a given string with a given character, to a given length on the right"
           , params = { "input - string", "fill - the fill character", "len - the required length"}
           , returns = "Filled String"
+          , deterministic = true
   )
   public static class FillRight extends BaseStellarFunction {
     @Override
@@ -274,6 +283,7 @@ public class StringFunctions {
           , description = "Computes the base-2 shannon entropy of a string"
           , params = { "input - String" }
           , returns = "The base-2 shannon entropy of the string (https://en.wikipedia.org/wiki/Entropy_(information_theory)#Definition).  The unit of this is bits."
+          , deterministic = true
   )
   public static class Entropy extends BaseStellarFunction {
     @Override
@@ -308,6 +318,7 @@ public class StringFunctions {
           , description = "Returns a formatted string using the specified format string and arguments. Uses Java's string formatting conventions."
           , params = { "format - string", "arguments... - object(s)" }
           , returns = "A formatted string."
+          , deterministic = true
   )
   public static class Format extends BaseStellarFunction {
 
@@ -333,6 +344,7 @@ public class StringFunctions {
                 "end? - The ending position (0-based and exclusive)"
                      }
           , returns = "The substring of the input"
+          , deterministic = true
   )
   public static class Substring extends BaseStellarFunction {
 
@@ -381,6 +393,7 @@ public class StringFunctions {
           , description = "Removes one newline from end of a String if it's there, otherwise leave it alone. A newline is \"\\n\", \"\\r\", or \"\\r\\n\""
           , params = { "the String to chomp a newline from, may be null"}
           , returns = "String without newline, null if null String input"
+          , deterministic = true
   )
   public static class Chomp extends BaseStellarFunction {
 
@@ -406,6 +419,7 @@ public class StringFunctions {
           , description = "Remove the last character from a String"
           , params = { "the String to chop last character from, may be null"}
           , returns = "String without last character, null if null String input"
+          , deterministic = true
   )
   public static class Chop extends BaseStellarFunction {
 
@@ -436,6 +450,7 @@ public class StringFunctions {
           , "additionalprefix - Optional - Additional string prefix that is valid"
   }
           , returns = "A new String if prefix was prepended, the same string otherwise."
+          , deterministic = true
   )
   public static class PrependIfMissing extends BaseStellarFunction {
 
@@ -462,6 +477,7 @@ public class StringFunctions {
           , "additionalsuffix - Optional - Additional string suffix that is a valid terminator"
   }
           , returns = "A new String if suffix was appended, the same string otherwise."
+          , deterministic = true
   )
   public static class AppendIfMissing extends BaseStellarFunction {
 
@@ -490,6 +506,7 @@ public class StringFunctions {
           , "sub - the substring to count, may be null"
   }
           , returns = "the number of non-overlapping occurrences, 0 if either CharSequence is null"
+          , deterministic = true
   )
   public static class CountMatches extends BaseStellarFunction {
 
@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.stellar.dsl.BaseStellarFunction;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.DefaultVariableResolver;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.Stellar;
+import org.apache.metron.stellar.dsl.StellarBatchFunction;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.VariableResolver;
+import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
+import org.apache.metron.stellar.dsl.functions.resolver.SimpleFunctionResolver;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchEvaluationTest {
+
+  private static final List<String> EXPRESSIONS = ImmutableList.of(
+          "ip",
+          "num + 1",
+          "TO_UPPER(name)",
+          "IN_SUBNET(ip, '192.168.0.0/16', '10.0.0.0/8')",
+          "IF num > 5 THEN 'big' ELSE 'small'",
+          "MAP([ num, 2 ], (x) -> x * 2)",
+          "match{ name == 'casey' => 'a', default => name }"
+  );
+
+  private List<VariableResolver> resolvers;
+
+  @Before
+  public void setup() {
+    List<Map<String, Object>> messages = ImmutableList.of(
+            ImmutableMap.of("ip", "192.168.0.1", "num", 1, "name", "casey"),
+            ImmutableMap.of("ip", "10.0.0.1", "num", 10, "name", "nick"),
+            ImmutableMap.of("ip", "8.8.8.8", "num", 100, "name", "otto"));
+    resolvers = new ArrayList<>();
+    for(Map<String, Object> message : messages) {
+      resolvers.add(new MapVariableResolver(message));
+    }
+    BatchCountingFunction.calls.set(0);
+    BatchCountingFunction.batches.set(0);
+  }
+
+  @Test
+  public void testBatchAgreesWithSingleEvaluation() {
+    for(StellarBackend backend : StellarBackend.values()) {
+      StellarProcessor processor = new StellarProcessor();
+      processor.setBackend(backend);
+      for(String expression : EXPRESSIONS) {
+        List<Object> expected = new ArrayList<>();
+        for(VariableResolver resolver : resolvers) {
+          expected.add(processor.parse(expression, resolver, StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT()));
+        }
+        List<Object> actual = processor.parseBatch(expression, resolvers, StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+        assertEquals(backend + ": " + expression, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testBatchFunctionIsCalledOnce() {
+    FunctionResolver functionResolver = new SimpleFunctionResolver().withClass(BatchCountingFunction.class);
+    List<Object> results = new StellarProcessor().parseBatch("BATCH_COUNTING(name, 'x')", resolvers, functionResolver, Context.EMPTY_CONTEXT());
+    assertEquals(ImmutableList.of("casey-x", "nick-x", "otto-x"), results);
+    assertEquals(1, BatchCountingFunction.batches.get());
+    assertEquals(0, BatchCountingFunction.calls.get());
+  }
+
+  @Test
+  public void testBatchFunctionIsNotUsedWithinLargerExpressions() {
+    FunctionResolver functionResolver = new SimpleFunctionResolver().withClass(BatchCountingFunction.class);
+    List<Object> results = new StellarProcessor().parseBatch("BATCH_COUNTING(name, 'x') == 'nick-x'", resolvers, functionResolver, Context.EMPTY_CONTEXT());
+    assertEquals(ImmutableList.of(false, true, false), results);
+    assertEquals(0, BatchCountingFunction.batches.get());
+    assertEquals(3, BatchCountingFunction.calls.get());
+  }
+
+  @Test
+  public void testFailuresAreAttributedToTheMessage() {
+    try {
+      new StellarProcessor().parseBatch("IN_SUBNET(ip, cidr)", ImmutableList.of(
+              new MapVariableResolver(ImmutableMap.of("ip", "10.0.0.1", "cidr", "10.0.0.0/8")),
+              new MapVariableResolver(ImmutableMap.of("ip", "10.0.0.1", "cidr", "not a cidr"))
+      ), StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+      fail("Expected the invalid range to fail");
+    } catch(ParseException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("not a cidr"));
+    }
+  }
+
+  @Test
+  public void testMissingVariablesAreAnError() {
+    Map<String, Object> present = ImmutableMap.of("ip", "10.0.0.1");
+    Map<String, Object> missing = ImmutableMap.of();
+    List<VariableResolver> batch = ImmutableList.of(
+            new DefaultVariableResolver(present::get, present::containsKey),
+            new DefaultVariableResolver(missing::get, missing::containsKey));
+    try {
+      new StellarProcessor().parseBatch("IN_SUBNET(ip, '10.0.0.0/8')", batch, StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+      fail("Expected the missing variable to fail");
+    } catch(ParseException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("variable: ip is not defined"));
+    }
+  }
+
+  @Test
+  public void testActivityTypeIsReset() {
+    Context context = Context.EMPTY_CONTEXT();
+    new StellarProcessor().parseBatch("TO_UPPER(name)", resolvers, StellarFunctions.FUNCTION_RESOLVER(), context);
+    assertNull(context.getActivityType());
+  }
+
+  @Test
+  public void testPredicates() {
+    StellarPredicateProcessor processor = new StellarPredicateProcessor();
+    assertEquals(ImmutableList.of(true, false, false)
+            , processor.parseBatch("IN_SUBNET(ip, '192.168.0.0/16')", resolvers, StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT()));
+    assertEquals(ImmutableList.of(true, true, true)
+            , processor.parseBatch("", resolvers, StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT()));
+    try {
+      processor.parseBatch("num", resolvers, StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+      fail("Expected a rule that does not return a boolean to fail");
+    } catch(IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testEmptyBatch() {
+    assertTrue(new StellarProcessor().parseBatch("TO_UPPER(name)", ImmutableList.of(), StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT()).isEmpty());
+  }
+
+  @Stellar(
+          description="Joins its arguments with a dash and counts the number of times that it is called",
+          name="BATCH_COUNTING",
+          params = {
+           "arg* - The values to join"
+          },
+          returns="The joined arguments"
+  )
+  public static class BatchCountingFunction extends BaseStellarFunction implements StellarBatchFunction {
+    static final AtomicInteger calls = new AtomicInteger();
+    static final AtomicInteger batches = new AtomicInteger();
+
+    public BatchCountingFunction() {
+    }
+
+    @Override
+    public Object apply(List<Object> args) {
+      calls.incrementAndGet();
+      return join(args);
+    }
+
+    @Override
+    public List<Object> applyBatch(List<List<Object>> args, Context context) {
+      batches.incrementAndGet();
+      List<Object> results = new ArrayList<>();
+      for(List<Object> arg : args) {
+        results.add(join(arg));
+      }
+      return results;
+    }
+
+    private static String join(List<Object> args) {
+      StringBuilder joined = new StringBuilder();
+      for(Object arg : args) {
+        joined.append(joined.length() == 0 ? "" : "-").append(arg);
+      }
+      return joined.toString();
+    }
+  }
+}
@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 
 public class CachingStellarProcessorTest {
@@ -88,6 +89,42 @@ public class CachingStellarProcessorTest {
     assertEquals(2, cache.stats().hitCount());
   }
 
+  /**
+   * Expressions over inputs larger than the configured maximum should not use the cache.
+   */
+  @Test
+  public void testInputTooLargeToCache() {
+    Context context = new Context.Builder()
+            .with(Context.Capabilities.CACHE, () -> cache)
+            .with(Context.Capabilities.CACHE_MAX_INPUT_SIZE, () -> 3)
+            .build();
+
+    assertEquals("BLAH", execute("TO_UPPER(name)", context));
+    assertEquals("BLAH", execute("TO_UPPER(name)", context));
+    assertEquals(0, cache.stats().requestCount());
+
+    // an expression without input can always be cached
+    assertEquals("BL", execute("TO_UPPER('bl')", context));
+    assertEquals(1, cache.stats().requestCount());
+  }
+
+  /**
+   * Keys should be equal if the expression and the values of the variables that it uses are equal.
+   */
+  @Test
+  public void testKeys() {
+    CachingStellarProcessor.Key key = new CachingStellarProcessor.Key("TO_UPPER(name)", ImmutableMap.of("name", "blah", "ip", "10.0.0.1"));
+    CachingStellarProcessor.Key same = new CachingStellarProcessor.Key("TO_UPPER(name)", ImmutableMap.of("ip", "10.0.0.1", "name", "blah"));
+    CachingStellarProcessor.Key otherValue = new CachingStellarProcessor.Key("TO_UPPER(name)", ImmutableMap.of("name", "blah", "ip", "10.0.0.2"));
+    CachingStellarProcessor.Key otherExpression = new CachingStellarProcessor.Key("TO_LOWER(name)", ImmutableMap.of("name", "blah", "ip", "10.0.0.1"));
+
+    assertEquals(key, same);
+    assertEquals(key.hashCode(), same.hashCode());
+    assertNotEquals(key, otherValue);
+    assertNotEquals(key, otherExpression);
+    assertEquals(ImmutableMap.of("name", "blah", "ip", "10.0.0.1"), key.getInput());
+  }
+
   /**
    * The processor should work, even if no cache is present in the execution context.
    */
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+public class CompiledExpressionTest {
+
+  private static final List<String> EXPRESSIONS = ImmutableList.of(
+          "1 + 2 * 3",
+          "foo",
+          "TO_UPPER(foo)",
+          "IF foo == 'casey' THEN 'yes' ELSE 'no'",
+          "IF missing THEN 'yes' ELSE 'no'",
+          "IF empty THEN 'yes' ELSE 'no'",
+          "IF num > 5 THEN IF num > 50 THEN 'big' ELSE 'medium' ELSE 'small'",
+          "IF num < 5 THEN 'small' ELSE IF num < 50 THEN 'medium' ELSE 'big'",
+          "num > 5 && foo == 'casey'",
+          "num < 5 && TO_UPPER(foo) == 'CASEY'",
+          "num > 5 || missing == 'casey'",
+          "(num < 5 || foo == 'casey') && (missing || num == 10)",
+          "missing || empty || num == 10",
+          "foo in [ 'casey', 'david' ]",
+          "foo not in [ 'casey', 'david' ]",
+          "MAP(list, (x) -> x + 1)",
+          "FILTER(list, (x) -> x > 1)",
+          "REDUCE(list, (sum, x) -> sum + x, 0)",
+          "match{ num > 100 => 'big', num > 5 => 'medium', default => 'small' }",
+          "match{ num > 100 => 'big', num > 50 => 'medium', default => 'small' }",
+          "match{ missing => 'missing', empty => 'empty', default => () -> TO_UPPER(foo) }",
+          "{ 'a' : num, 'b' : foo }",
+          "EXISTS(missing) || NOT(EXISTS(foo))"
+  );
+
+  private StellarProcessor interpreter;
+  private StellarProcessor compiled;
+  private Map<String, Object> variables;
+
+  @Before
+  public void setup() {
+    interpreter = new StellarProcessor();
+    interpreter.setBackend(StellarBackend.INTERPRETER);
+    compiled = new StellarProcessor();
+    compiled.setBackend(StellarBackend.COMPILED);
+
+    variables = new HashMap<>();
+    variables.put("foo", "casey");
+    variables.put("num", 10);
+    variables.put("empty", new ArrayList<>());
+    variables.put("list", ImmutableList.of(1, 2, 3));
+  }
+
+  @Test
+  public void testBackendsAgree() {
+    for(String expression : EXPRESSIONS) {
+      Object expected = execute(interpreter, expression);
+      Object actual = execute(compiled, expression);
+      assertEquals(expression, expected, actual);
+    }
+  }
+
+  @Test
+  public void testExpressionsAreLinked() {
+    for(String expression : EXPRESSIONS) {
+      StellarCompiler.Expression expr = BaseStellarProcessor.compile(expression);
+      assertNotNull(expression, expr.getCompiled());
+      assertEquals(expression, expr.getTokenDeque().size(), expr.getCompiled().size());
+    }
+  }
+
+  @Test
+  public void testErrorsAgree() {
+    for(String expression : ImmutableList.of("1 + 'casey'", "NOT_A_FUNCTION(foo)")) {
+      String expected = errorOf(interpreter, expression);
+      String actual = errorOf(compiled, expression);
+      assertNotNull(expression, expected);
+      assertEquals(expression, expected, actual);
+    }
+  }
+
+  private Object execute(StellarProcessor processor, String expression) {
+    return processor.parse(expression, new MapVariableResolver(variables), StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+  }
+
+  private String errorOf(StellarProcessor processor, String expression) {
+    try {
+      execute(processor, expression);
+      fail("Expected an error; " + expression);
+      return null;
+    } catch(ParseException e) {
+      return e.getMessage();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.metron.stellar.dsl.BaseStellarFunction;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.Stellar;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
+import org.apache.metron.stellar.dsl.functions.resolver.SimpleFunctionResolver;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConstantFoldingTest {
+
+  private static final List<String> EXPRESSIONS = ImmutableList.of(
+          "1 + 2 * 3",
+          "10 / 4",
+          "10.0 / 4",
+          "1 + 2L",
+          "'casey' == 'casey'",
+          "1 < 2 && 'a' in 'abc'",
+          "1 > 2 || 'a' not in 'abc'",
+          "NOT(1 > 2)",
+          "IF 1 < 2 THEN foo ELSE 'no'",
+          "IF 1 > 2 THEN 'yes' ELSE foo",
+          "IF null THEN 'yes' ELSE 'no'",
+          "IF foo == 'casey' THEN 1 + 1 ELSE 2 + 2",
+          "IF true THEN IF false THEN 'a' ELSE 'b' ELSE 'c'",
+          "true || missing",
+          "false && missing",
+          "null && missing",
+          "true && num > 5",
+          "num > 5 || false",
+          "(1 < 2 || missing) && num == 10",
+          "EXISTS(foo) && 1 == 1",
+          "match{ 1 > 2 => 'a', num > 5 => 'b', default => 'c' }",
+          "match{ 1 > 2 => 'a', 2 > 1 => 'b', default => 'c' }",
+          "match{ num > 50 => 'a', 2 > 1 => 'b', num > 5 => 'c', default => 'd' }",
+          "match{ 1 > 2 => 'a', 1 == null => 'b', default => foo }",
+          "match{ foo == 'casey' => 1 + 1, default => 2 + 2 }",
+          "TO_UPPER('casey')",
+          "TO_UPPER(foo)",
+          "FORMAT('%s-%d', 'casey', 1 + 1)",
+          "MAP([ 1, 2 ], (x) -> x + 2 * 3)",
+          "{ 'a' : 1 + 1, 'b' : IF true THEN foo ELSE 'no' }"
+  );
+
+  private Map<String, Object> variables;
+
+  @Before
+  public void setup() {
+    variables = new HashMap<>();
+    variables.put("foo", "casey");
+    variables.put("num", 10);
+    CountingFunction.calls.set(0);
+    DeterministicCountingFunction.calls.set(0);
+  }
+
+  @Test
+  public void testOptimizationIsEnabledByDefault() {
+    assertTrue(StellarCompiler.isOptimizedByDefault());
+  }
+
+  @Test
+  public void testOptimizedExpressionsAgree() {
+    for(StellarBackend backend : StellarBackend.values()) {
+      for (String expression : EXPRESSIONS) {
+        Object expected = execute(BaseStellarProcessor.compile(expression, false), backend);
+        Object actual = execute(BaseStellarProcessor.compile(expression, true), backend);
+        assertEquals(backend + ": " + expression, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testConstantsAreFolded() {
+    assertEquals("7", describe("1 + 2 * 3"));
+    assertEquals("true", describe("'casey' == 'casey'"));
+    assertEquals("true", describe("1 < 2 && 'a' in 'abc'"));
+    assertEquals("true", describe("NOT(1 > 2)"));
+    assertEquals("( 'a' 2 MAP", describe("{ 'a' : 1 + 1 }"));
+  }
+
+  @Test
+  public void testBooleanExpressionsAreShortCircuited() {
+    assertEquals("true", describe("true || missing"));
+    assertEquals("false", describe("false && missing"));
+    assertEquals("false", describe("null && missing"));
+    assertEquals("num 10 == ARG missing || FRAME", describe("num == 10 || missing"));
+    assertEquals("true ARG missing && FRAME", describe("true && missing"));
+  }
+
+  @Test
+  public void testDeadBranchesAreEliminated() {
+    assertEquals("foo", describe("IF 1 < 2 THEN foo ELSE 'no'"));
+    assertEquals("foo", describe("1 > 2 ? 'yes' : foo"));
+    assertEquals("'no'", describe("IF null THEN 'yes' ELSE 'no'"));
+    assertEquals("'b'", describe("IF true THEN IF false THEN 'a' ELSE 'b' ELSE 'c'"));
+    assertEquals("foo 'casey' == IF THEN 2 ELSE 4 END_IF", describe("IF foo == 'casey' THEN 1 + 1 ELSE 2 + 2"));
+  }
+
+  @Test
+  public void testDeadMatchClausesAreEliminated() {
+    assertEquals("'b' =>", describe("match{ 1 > 2 => 'a', 2 > 1 => 'b', default => 'c' }"));
+    assertEquals("'c' =>", describe("match{ 1 > 2 => 'a', 1 == null => 'b', default => 'c' }"));
+    assertEquals("num 5 > CHECK 'b' => END_CLAUSE 'c' => END_MATCH"
+            , describe("match{ 1 > 2 => 'a', num > 5 => 'b', default => 'c' }"));
+    assertEquals("num 50 > CHECK 'a' => END_CLAUSE true CHECK 'b' => END_CLAUSE END_MATCH"
+            , describe("match{ num > 50 => 'a', 2 > 1 => 'b', num > 5 => 'c', default => 'd' }"));
+
+    // a check that is a single token is guarded against null and is left alone
+    assertEquals("true GUARD CHECK 'a' => END_CLAUSE 'b' => END_MATCH"
+            , describe("match{ true => 'a', default => 'b' }"));
+  }
+
+  @Test
+  public void testFailuresAreLeftForEvaluation() {
+    assertEquals("1 0 /", describe("1 / 0"));
+    assertEquals("'casey' 1 <", describe("'casey' < 1"));
+    try {
+      execute(BaseStellarProcessor.compile("1 / 0", true), StellarBackend.INTERPRETER);
+      fail("Expected the division by zero to fail when evaluated");
+    } catch(ArithmeticException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCallsWithConstantArgumentsAreCollapsed() {
+    assertEquals("TO_UPPER('casey')", describe("TO_UPPER('casey')"));
+    assertEquals("FORMAT('%s-%d', 'casey', 2)", describe("FORMAT('%s-%d', 'casey', 1 + 1)"));
+    assertEquals("( foo ) TO_UPPER", describe("TO_UPPER(foo)"));
+  }
+
+  @Test
+  public void testDeterministicCallsAreEvaluatedOnce() {
+    FunctionResolver resolver = new SimpleFunctionResolver()
+            .withClass(CountingFunction.class)
+            .withClass(DeterministicCountingFunction.class);
+    StellarCompiler.Expression counting = BaseStellarProcessor.compile("COUNTING('a')", true);
+    StellarCompiler.Expression deterministic = BaseStellarProcessor.compile("DETERMINISTIC_COUNTING('a')", true);
+    for(int i = 0; i < 3; ++i) {
+      assertEquals("a", execute(counting, StellarBackend.INTERPRETER, resolver));
+      assertEquals("a", execute(deterministic, StellarBackend.INTERPRETER, resolver));
+    }
+    assertEquals(3, CountingFunction.calls.get());
+    assertEquals(1, DeterministicCountingFunction.calls.get());
+
+    // the result is not shared with a different function resolver
+    FunctionResolver other = new SimpleFunctionResolver().withClass(DeterministicCountingFunction.class);
+    assertEquals("a", execute(deterministic, StellarBackend.INTERPRETER, other));
+    assertEquals(2, DeterministicCountingFunction.calls.get());
+  }
+
+  @Test
+  public void testMutableResultsAreNotShared() {
+    StellarCompiler.Expression expression = BaseStellarProcessor.compile("SPLIT('a,b', ',')", true);
+    Object first = execute(expression, StellarBackend.INTERPRETER);
+    Object second = execute(expression, StellarBackend.INTERPRETER);
+    assertEquals(first, second);
+    assertTrue(first != second);
+  }
+
+  private String describe(String expression) {
+    return BaseStellarProcessor.compile(expression, true).describe();
+  }
+
+  private Object execute(StellarCompiler.Expression expression, StellarBackend backend) {
+    return execute(expression, backend, StellarFunctions.FUNCTION_RESOLVER());
+  }
+
+  private Object execute(StellarCompiler.Expression expression, StellarBackend backend, FunctionResolver resolver) {
+    Context context = Context.EMPTY_CONTEXT();
+    context.setActivityType(Context.ActivityType.PARSE_ACTIVITY);
+    StellarCompiler.ExpressionState state = new StellarCompiler.ExpressionState(context, resolver, new MapVariableResolver(variables));
+    return backend.apply(expression, state);
+  }
+
+  @Stellar(
+          description="Counts the number of times that it is called",
+          name="COUNTING",
+          params = {
+           "arg - The value to return"
+          },
+          returns="The argument"
+  )
+  public static class CountingFunction extends BaseStellarFunction {
+    static final AtomicInteger calls = new AtomicInteger();
+
+    public CountingFunction() {
+    }
+
+    @Override
+    public Object apply(List<Object> args) {
+      calls.incrementAndGet();
+      return args.get(0);
+    }
+  }
+
+  @Stellar(
+          description="Counts the number of times that it is called",
+          name="DETERMINISTIC_COUNTING",
+          params = {
+           "arg - The value to return"
+          },
+          returns="The argument",
+          deterministic = true
+  )
+  public static class DeterministicCountingFunction extends BaseStellarFunction {
+    static final AtomicInteger calls = new AtomicInteger();
+
+    public DeterministicCountingFunction() {
+    }
+
+    @Override
+    public Object apply(List<Object> args) {
+      calls.incrementAndGet();
+      return args.get(0);
+    }
+  }
+}
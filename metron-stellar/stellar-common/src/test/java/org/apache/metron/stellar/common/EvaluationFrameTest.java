@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.Token;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluationFrameTest {
+
+  @Test
+  public void testFramesAreReused() {
+    EvaluationFrame frame = EvaluationFrame.acquire();
+    frame.getStack().push(Token.ofBoolean(true, null));
+    frame.release();
+
+    EvaluationFrame next = EvaluationFrame.acquire();
+    try {
+      assertSame(frame, next);
+      assertTrue(next.getStack().isEmpty());
+      assertNull(next.getState().variableResolver);
+    } finally {
+      next.release();
+    }
+  }
+
+  @Test
+  public void testNestedFramesAreDistinct() {
+    EvaluationFrame outer = EvaluationFrame.acquire();
+    try {
+      EvaluationFrame inner = EvaluationFrame.acquire();
+      try {
+        assertNotSame(outer, inner);
+      } finally {
+        inner.release();
+      }
+    } finally {
+      outer.release();
+    }
+  }
+
+  @Test
+  public void testFramesAreNotSharedAcrossThreads() throws Exception {
+    AtomicReference<EvaluationFrame> other = new AtomicReference<>();
+    EvaluationFrame frame = EvaluationFrame.acquire();
+    try {
+      Thread t = new Thread(() -> {
+        EvaluationFrame f = EvaluationFrame.acquire();
+        other.set(f);
+        f.release();
+      });
+      t.start();
+      t.join();
+      assertNotSame(frame, other.get());
+    } finally {
+      frame.release();
+    }
+  }
+
+  /**
+   * Lambdas are evaluated while the enclosing expression is being evaluated, which requires a nested frame.
+   */
+  @Test
+  public void testReentrantEvaluation() {
+    StellarProcessor processor = new StellarProcessor();
+    Object result = processor.parse("MAP([ 1, 2, 3 ], (x) -> IF x > base THEN x + base ELSE base)"
+            , new MapVariableResolver(ImmutableMap.of("base", 1))
+            , StellarFunctions.FUNCTION_RESOLVER()
+            , Context.EMPTY_CONTEXT());
+    assertEquals("[1, 3, 4]", result.toString());
+  }
+
+  @Test
+  public void testBooleanTokensAreShared() {
+    FrameContext.Context context = FrameContext.BOOLEAN_AND.create();
+    assertSame(Token.ofBoolean(true, null), Token.ofBoolean(true, null));
+    assertSame(Token.ofBoolean(false, context), Token.ofBoolean(false, context));
+    assertSame(context, Token.ofBoolean(false, context).getMultiArgContext());
+    assertEquals(false, Token.ofBoolean(false, context).getValue());
+    assertEquals(true, Token.ofBoolean(true, context).getValue());
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.stellar.dsl.ParseException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExpressionCacheTest {
+
+  @After
+  public void tearDown() {
+    // restore the default shared cache
+    ExpressionCache.configure(Collections.emptyMap());
+  }
+
+  @Test
+  public void testHitsAndMisses() {
+    ExpressionCache cache = new ExpressionCache(10, 10, TimeUnit.MINUTES);
+    StellarCompiler.Expression first = cache.get("1 + foo");
+    StellarCompiler.Expression second = cache.get("1 + foo");
+    assertSame(first, second);
+
+    CacheStats stats = cache.getStats();
+    assertEquals(1, stats.hitCount());
+    assertEquals(1, stats.missCount());
+    assertEquals(1, stats.loadSuccessCount());
+    assertTrue(stats.totalLoadTime() > 0);
+  }
+
+  @Test
+  public void testCompileFailuresAreRecorded() {
+    ExpressionCache cache = new ExpressionCache(10, 10, TimeUnit.MINUTES);
+    try {
+      cache.get("1 +");
+      fail("Expected the expression to fail to compile");
+    } catch(ParseException e) {
+      // expected
+    }
+    assertEquals(1, cache.getStats().loadFailureCount());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testBoundedBySize() {
+    ExpressionCache cache = new ExpressionCache(2, 10, TimeUnit.MINUTES);
+    for(int i = 0; i < 10; ++i) {
+      cache.get("foo + " + i);
+    }
+    cache.cleanUp();
+    assertTrue(cache.size() <= 2);
+    assertTrue(cache.getStats().evictionCount() >= 8);
+  }
+
+  @Test
+  public void testBoundedByTokens() {
+    // each expression is 3 tokens, so no more than 2 fit
+    ExpressionCache cache = new ExpressionCache(1000, 7, 10, TimeUnit.MINUTES);
+    for(int i = 0; i < 10; ++i) {
+      cache.get("foo + " + i);
+    }
+    cache.cleanUp();
+    assertTrue(cache.size() <= 2);
+    assertTrue(cache.getStats().evictionWeight() >= 24);
+  }
+
+  @Test
+  public void testConfigure() {
+    ExpressionCache original = ExpressionCache.getShared();
+
+    // the same settings do not replace the shared cache
+    ExpressionCache.configure(ImmutableMap.of(
+            ExpressionCache.MAX_SIZE_PARAM, ExpressionCache.DEFAULT_MAX_SIZE,
+            ExpressionCache.MAX_TIME_RETAIN_PARAM, ExpressionCache.DEFAULT_MAX_TIME_RETAIN));
+    assertSame(original, ExpressionCache.getShared());
+
+    // different settings do
+    ExpressionCache.configure(ImmutableMap.of(ExpressionCache.MAX_SIZE_PARAM, "1000"));
+    ExpressionCache resized = ExpressionCache.getShared();
+    assertNotSame(original, resized);
+
+    // invalid settings are ignored
+    ExpressionCache.configure(ImmutableMap.of(ExpressionCache.MAX_SIZE_PARAM, -1));
+    assertSame(resized, ExpressionCache.getShared());
+  }
+
+  @Test
+  public void testProcessorsUseTheSharedCache() {
+    ExpressionCache.configure(ImmutableMap.of(ExpressionCache.MAX_SIZE_PARAM, 1000));
+    ExpressionCache shared = ExpressionCache.getShared();
+    StellarProcessor processor = new StellarProcessor();
+    assertSame(shared, processor.getExpressionCache());
+
+    processor.variablesUsed("foo + bar");
+    assertEquals(1, shared.size());
+
+    // a processor with a cache of its own does not
+    StellarProcessor other = new StellarProcessor(10, 10, TimeUnit.MINUTES);
+    assertNotSame(shared, other.getExpressionCache());
+  }
+}
@@ -18,6 +18,9 @@
 package org.apache.metron.stellar.common.network;
 
 import com.google.common.collect.ImmutableList;
+import org.apache.commons.net.util.SubnetUtils;
+import org.apache.metron.stellar.dsl.functions.NetworkFunctions;
+import org.junit.Assert;
 import org.junit.Test;
 
 
@@ -40,6 +43,18 @@ public class NetworkFunctionsTest {
     runWithArguments("IN_SUBNET", ImmutableList.of("192.168.1.1", "192.168.0.0/24", "192.168.1.0/24"), true);
   }
 
+  @Test
+  public void inSubnetTest_agreesWithSubnetUtils() {
+    // the parsed ranges are cached, so the edges of each range must be the same as those of SubnetUtils
+    for(String cidr : ImmutableList.of("192.168.0.0/24", "10.0.0.0/8", "10.0.0.4/30", "10.0.0.4/31", "10.0.0.4/32")) {
+      SubnetUtils.SubnetInfo info = new SubnetUtils(cidr).getInfo();
+      for(String ip : ImmutableList.of("192.168.0.0", "192.168.0.1", "192.168.0.255", "10.0.0.3", "10.0.0.4", "10.0.0.5"
+                                      , "10.0.0.6", "10.0.0.7", "10.255.255.255", "0.0.0.0", "255.255.255.255")) {
+        Assert.assertEquals(cidr + " " + ip, info.isInRange(ip), new NetworkFunctions.InSubnet().apply(ImmutableList.of(ip, cidr)));
+      }
+    }
+  }
+
   @Test
   public void removeSubdomainsTest() {
     runWithArguments("DOMAIN_REMOVE_SUBDOMAINS", "www.google.co.uk", "google.co.uk");
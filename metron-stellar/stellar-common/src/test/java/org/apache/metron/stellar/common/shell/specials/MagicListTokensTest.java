@@ -0,0 +1,115 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.metron.stellar.common.shell.specials;
+
+import org.apache.metron.stellar.common.shell.DefaultStellarShellExecutor;
+import org.apache.metron.stellar.common.shell.StellarResult;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
+import org.apache.metron.stellar.dsl.functions.StringFunctions;
+import org.apache.metron.stellar.dsl.functions.resolver.SimpleFunctionResolver;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MagicListTokensTest {
+
+  MagicListTokens magic;
+  DefaultStellarShellExecutor executor;
+
+  @Before
+  public void setup() throws Exception {
+
+    // setup the %magic
+    magic = new MagicListTokens();
+
+    // setup the executor
+    SimpleFunctionResolver functionResolver = new SimpleFunctionResolver()
+            .withClass(StringFunctions.ToUpper.class);
+    Properties props = new Properties();
+    executor = new DefaultStellarShellExecutor(functionResolver, props, Optional.empty());
+    executor.init();
+  }
+
+  @Test
+  public void testGetCommand() {
+    assertEquals("%tokens", magic.getCommand());
+  }
+
+  @Test
+  public void testShouldMatch() {
+    List<String> inputs = Arrays.asList(
+            "%tokens",
+            "   %tokens   ",
+            "%tokens 1 + 2",
+            "    %tokens    1 + 2 "
+    );
+    for(String in : inputs) {
+      assertTrue("failed: " + in, magic.getMatcher().apply(in));
+    }
+  }
+
+  @Test
+  public void testShouldNotMatch() {
+    List<String> inputs = Arrays.asList(
+            "foo",
+            "  tokens ",
+            "bar",
+            "%functions"
+    );
+    for(String in : inputs) {
+      assertFalse("failed: " + in, magic.getMatcher().apply(in));
+    }
+  }
+
+  @Test
+  public void testTokens() {
+    StellarResult result = magic.execute("%tokens IF 1 < 2 THEN TO_UPPER(foo) ELSE 'bar'", executor);
+
+    // validate the result
+    assertTrue(result.isSuccess());
+    assertTrue(result.getValue().isPresent());
+
+    // the condition is a constant, so only the THEN branch remains
+    String value = ConversionUtils.convert(result.getValue().get(), String.class);
+    assertEquals("( foo ) TO_UPPER", value);
+  }
+
+  @Test
+  public void testMissingExpression() {
+    StellarResult result = magic.execute("%tokens", executor);
+
+    // validate the result
+    assertTrue(result.isError());
+    assertTrue(result.getException().isPresent());
+  }
+
+  @Test
+  public void testInvalidExpression() {
+    StellarResult result = magic.execute("%tokens 1 +", executor);
+    assertTrue(result.isError());
+  }
+}
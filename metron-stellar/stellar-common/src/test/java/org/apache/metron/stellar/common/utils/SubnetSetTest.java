@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.apache.metron.stellar.common.utils.StellarProcessorUtils.run;
+
+public class SubnetSetTest {
+
+  @Rule
+  public TemporaryFolder tempDir = new TemporaryFolder();
+
+  @Test
+  public void testIPv4() {
+    SubnetSet subnets = new SubnetSet(ImmutableList.of("192.168.0.0/16", "10.1.0.0/24", "172.16.5.4"));
+    Assert.assertTrue(subnets.contains("192.168.0.0"));
+    Assert.assertTrue(subnets.contains("192.168.66.121"));
+    Assert.assertTrue(subnets.contains("192.168.255.255"));
+    Assert.assertTrue(subnets.contains("10.1.0.17"));
+    Assert.assertTrue(subnets.contains("172.16.5.4"));
+    Assert.assertFalse(subnets.contains("192.169.0.1"));
+    Assert.assertFalse(subnets.contains("10.1.1.17"));
+    Assert.assertFalse(subnets.contains("172.16.5.5"));
+    Assert.assertFalse(subnets.contains(null));
+  }
+
+  @Test
+  public void testIPv6() {
+    SubnetSet subnets = new SubnetSet(ImmutableList.of("2001:db8::/32", "fe80::/10", "::1"));
+    Assert.assertTrue(subnets.contains("2001:db8::1"));
+    Assert.assertTrue(subnets.contains("2001:0db8:ffff:ffff:ffff:ffff:ffff:ffff"));
+    Assert.assertTrue(subnets.contains("fe80::1ff:fe23:4567:890a"));
+    Assert.assertTrue(subnets.contains("::1"));
+    Assert.assertFalse(subnets.contains("2001:db9::1"));
+    Assert.assertFalse(subnets.contains("::2"));
+
+    // the address families are kept apart
+    Assert.assertFalse(subnets.contains("32.1.13.184"));
+  }
+
+  @Test
+  public void testNestedSubnets() {
+    SubnetSet subnets = new SubnetSet(ImmutableList.of("10.1.2.0/24", "10.0.0.0/8", "10.1.0.0/16"));
+    Assert.assertTrue(subnets.contains("10.200.0.1"));
+    Assert.assertTrue(subnets.contains("10.1.2.3"));
+    Assert.assertFalse(subnets.contains("11.0.0.1"));
+
+    SubnetSet everything = new SubnetSet(ImmutableList.of("0.0.0.0/0"));
+    Assert.assertTrue(everything.contains("255.255.255.255"));
+    Assert.assertFalse(everything.contains("::1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSubnet() {
+    new SubnetSet().add("10.0.0.0/33");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidAddress() {
+    new SubnetSet(ImmutableList.of("10.0.0.0/8")).contains("10.0.0.256");
+  }
+
+  @Test
+  public void testStellar() throws Exception {
+    File file = tempDir.newFile("subnets.txt");
+    Files.write(file.toPath(), "# internal\n192.168.0.0/16\n\n10.0.0.0/8\n".getBytes(StandardCharsets.UTF_8));
+    SubnetSet loaded = (SubnetSet) run("SUBNET_SET_LOAD(path)", ImmutableMap.of("path", file.getAbsolutePath()));
+    SubnetSet created = (SubnetSet) run("SUBNET_SET_INIT(['192.168.0.0/16', '10.0.0.0/8'])", ImmutableMap.of());
+    Assert.assertEquals(created, loaded);
+    Assert.assertEquals(ImmutableList.of("192.168.0.0/16", "10.0.0.0/8"), loaded.getSubnets());
+
+    Assert.assertEquals(true, run("SUBNET_SET_CONTAINS(subnets, ip)", ImmutableMap.of("subnets", loaded, "ip", "10.3.4.5")));
+    Assert.assertEquals(false, run("SUBNET_SET_CONTAINS(subnets, ip)", ImmutableMap.of("subnets", loaded, "ip", "11.3.4.5")));
+    Assert.assertEquals(true, run("IN_SUBNET(ip, '172.16.0.0/12', subnets)", ImmutableMap.of("subnets", loaded, "ip", "192.168.1.1")));
+    Assert.assertEquals(false, run("IN_SUBNET(ip, '172.16.0.0/12', subnets)", ImmutableMap.of("subnets", loaded, "ip", "8.8.8.8")));
+  }
+
+  @Test
+  public void testStellarReusesSets() throws Exception {
+    File file = tempDir.newFile("cached.txt");
+    Files.write(file.toPath(), "192.168.0.0/16\n".getBytes(StandardCharsets.UTF_8));
+    FileTime lastModified = Files.getLastModifiedTime(file.toPath());
+    Map<String, Object> variables = ImmutableMap.of("path", file.getAbsolutePath());
+    SubnetSet loaded = (SubnetSet) run("SUBNET_SET_LOAD(path, 0)", variables);
+    Assert.assertSame(loaded, run("SUBNET_SET_LOAD(path, 0)", variables));
+
+    // the file is not read again until it is modified
+    Files.write(file.toPath(), "10.0.0.0/8\n".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file.toPath(), lastModified);
+    Assert.assertSame(loaded, run("SUBNET_SET_LOAD(path, 0)", variables));
+    Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(lastModified.toMillis() + 60000));
+    // nor is it checked for changes until the interval has passed
+    Assert.assertSame(loaded, run("SUBNET_SET_LOAD(path, 600000)", variables));
+    SubnetSet reloaded = (SubnetSet) run("SUBNET_SET_LOAD(path, 0)", variables);
+    Assert.assertEquals(ImmutableList.of("10.0.0.0/8"), reloaded.getSubnets());
+
+    SubnetSet created = (SubnetSet) run("SUBNET_SET_INIT(['172.16.0.0/12', '10.0.0.0/8'])", ImmutableMap.of());
+    Assert.assertSame(created, run("SUBNET_SET_INIT(['172.16.0.0/12', '10.0.0.0/8'])", ImmutableMap.of()));
+    Assert.assertNotSame(created, run("SUBNET_SET_INIT(['10.0.0.0/8', '172.16.0.0/12'])", ImmutableMap.of()));
+  }
+
+  @Test
+  public void testStellarSetsAreUnmodifiable() throws Exception {
+    File file = tempDir.newFile("shared.txt");
+    Files.write(file.toPath(), "192.168.0.0/16\n".getBytes(StandardCharsets.UTF_8));
+    SubnetSet loaded = (SubnetSet) run("SUBNET_SET_LOAD(path)", ImmutableMap.of("path", file.getAbsolutePath()));
+    SubnetSet created = (SubnetSet) run("SUBNET_SET_INIT(['192.168.0.0/16'])", ImmutableMap.of());
+    for(SubnetSet subnets : ImmutableList.of(loaded, created)) {
+      try {
+        subnets.add("10.0.0.0/8");
+        Assert.fail("Expected the cached set to be unmodifiable");
+      } catch(UnsupportedOperationException e) {
+        Assert.assertFalse(subnets.contains("10.1.1.1"));
+      }
+    }
+  }
+
+  @Test
+  public void testUnmodifiableView() {
+    SubnetSet subnets = new SubnetSet(ImmutableList.of("10.0.0.0/8"));
+    SubnetSet view = subnets.unmodifiable();
+    Assert.assertEquals(subnets, view);
+    Assert.assertSame(view, view.unmodifiable());
+    subnets.add("192.168.0.0/16");
+    Assert.assertTrue(view.contains("192.168.1.1"));
+  }
+}